@@ -59,6 +59,27 @@ androidLibModule {
     addBuildConfigField<Int>("maxSizeOfRemoteLogSendingQueue")
     addBuildConfigField<Int>("estimatedSizeOfRemoteLog")
 
+    // Impression pixels
+    addBuildConfigField<Int>("maxInFlightPixels")
+    addBuildConfigField<Int>("maxPixelRetries")
+    addBuildConfigField<Int>("pixelRetryBaseDelayInMillis")
+    addBuildConfigField<String>("pixelDirectoryName")
+    addBuildConfigField<Int>("maxPendingPixels")
+
+    // App events
+    addBuildConfigField<Int>("appEventBatchSize")
+    addBuildConfigField<Int>("appEventCoalescingWindowInMillis")
+    addBuildConfigField<String>("appEventQueueFilename")
+    addBuildConfigField<Int>("maxSizeOfAppEventSendingQueue")
+    addBuildConfigField<Int>("estimatedSizeOfAppEvent")
+
+    // Interstitial creatives prefetch
+    addBuildConfigField<Int>("maxSizeOfInterstitialCreativeCache")
+
+    // Request scheduling
+    addBuildConfigField<Int>("maxTelemetryDeferralInMillis")
+    addBuildConfigField<Int>("maxDeferredUploadDelayInMillis")
+
     // Misc
     addBuildConfigField<String>("pubSdkSharedPreferences")
     addBuildConfigField<Int>("defaultMinLogLevel")
@@ -101,6 +122,15 @@ configurations.configureEach {
     }
 }
 
+tasks.withType<Test>().configureEach {
+    useJUnit {
+        // Benchmarks only report timings, run them with -Pbenchmarks
+        if (!project.hasProperty("benchmarks")) {
+            excludeCategories("com.criteo.publisher.benchmark.Benchmark")
+        }
+    }
+}
+
 dependencies {
     implementation(Deps.Kotlin.Stdlib)
     implementation(Deps.AndroidX.MultiDex)
@@ -92,6 +92,66 @@ remoteLogQueueFilename = 'criteo_remote_logs_queue'
 estimatedSizeOfRemoteLog = 5000
 maxSizeOfRemoteLogSendingQueue = 250 * 1024
 
+/**
+ * Impression pixels configuration
+ */
+
+// Maximum number of pixels being fired at the same time. Other pixels wait for a free slot, so
+// a feed with many native ads does not flood the shared thread pool with tiny requests.
+maxInFlightPixels = 4
+
+// Number of retries for a pixel that failed because of a network or a server error. The delay
+// before the n-th retry is pixelRetryBaseDelayInMillis * 2^(n-1).
+maxPixelRetries = 3
+pixelRetryBaseDelayInMillis = 2000
+
+// The relative path in application folder of the folder used to store pixel files
+pixelDirectoryName = 'criteo_pixels'
+
+// Maximum number of pixels persisted while they are not delivered. Each of them is a small file.
+// 170 pixels already represent an extreme case.
+maxPendingPixels = 170
+
+/**
+ * App events configuration
+ */
+
+// The batch size of app events sent, at most, each time the sending queue is flushed.
+appEventBatchSize = 20
+
+// An Active event following an Inactive one within this window is considered as a flap: the
+// application was in background for a short time only, so both events are dropped.
+appEventCoalescingWindowInMillis = 10000
+
+// The relative path in application folder of the sending queue file
+appEventQueueFilename = 'criteo_app_event_queue'
+
+// Maximum size (in bytes) of app event elements stored in the sending queue.
+// 4KB represents ~80 events (with ~50 bytes/event) which already represent an extreme case.
+estimatedSizeOfAppEvent = 50
+maxSizeOfAppEventSendingQueue = 4 * 1024
+
+/**
+ * Interstitial creatives prefetch configuration
+ */
+
+// Maximum size (in bytes) of the interstitial creatives kept in memory before the bids are consumed.
+// 256KB represents ~50 creatives (with ~5KB/creative) which already represent an extreme case.
+maxSizeOfInterstitialCreativeCache = 256 * 1024
+
+/**
+ * Request scheduling configuration
+ */
+
+// Maximum duration a telemetry request (CSM, remote logs, app events) is held while bid requests
+// are in flight. Past this delay, it is sent anyway so telemetry is never starved by a continuous
+// flow of bid requests.
+maxTelemetryDeferralInMillis = 5000
+
+// Maximum duration an upload of accumulated telemetry (CSM, remote logs) waits for a bid request to
+// wake up the radio before waking it up by itself.
+maxDeferredUploadDelayInMillis = 60000
+
 environments {
     debug {
         eventUrl = 'https://an.url.that.does.not.exist'
@@ -35,6 +35,8 @@ import com.criteo.publisher.network.PubSdkApi;
 import com.criteo.publisher.privacy.UserPrivacyUtil;
 import com.criteo.publisher.test.activity.DummyActivity;
 import com.criteo.publisher.util.AdvertisingInfo;
+import com.criteo.publisher.util.BuildConfigWrapper;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.junit.MockitoJUnit;
@@ -63,6 +65,15 @@ public class BearcatFunctionalTest {
   @SpyBean
   private AdvertisingInfo advertisingInfo;
 
+  @SpyBean
+  private BuildConfigWrapper buildConfigWrapper;
+
+  @Before
+  public void setUp() throws Exception {
+    // Flush app events directly, so they are sent before the idle state is reached
+    when(buildConfigWrapper.getAppEventCoalescingWindowInMillis()).thenReturn(0);
+  }
+
   @Test
   public void init_GivenUserAgentAndLaunchedActivity_SendInitEventWithUserAgent() throws Exception {
     givenAppEventsCanBeCalled();
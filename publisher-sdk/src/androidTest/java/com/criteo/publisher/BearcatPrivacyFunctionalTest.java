@@ -20,12 +20,14 @@ import static com.criteo.publisher.CriteoUtil.givenInitializedCriteo;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.SharedPreferences.Editor;
 import com.criteo.publisher.AppEvents.AppEvents;
 import com.criteo.publisher.mock.MockedDependenciesRule;
 import com.criteo.publisher.mock.SpyBean;
 import com.criteo.publisher.network.PubSdkApi;
+import com.criteo.publisher.util.BuildConfigWrapper;
 import com.criteo.publisher.util.SharedPreferencesFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,6 +36,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import javax.inject.Inject;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -100,6 +103,15 @@ public class BearcatPrivacyFunctionalTest {
   @Inject
   private SharedPreferencesFactory sharedPreferencesFactory;
 
+  @SpyBean
+  private BuildConfigWrapper buildConfigWrapper;
+
+  @Before
+  public void setUp() throws Exception {
+    // Flush app events directly, so they are sent before the idle state is reached
+    when(buildConfigWrapper.getAppEventCoalescingWindowInMillis()).thenReturn(0);
+  }
+
   @Test
   public void whenCriteoInit_GivenPrivacyStrings_VerifyIfBearcatShouldBeCalled() throws Exception {
     runTest(iabUsPrivacyString);
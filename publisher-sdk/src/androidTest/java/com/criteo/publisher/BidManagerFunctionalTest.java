@@ -72,6 +72,7 @@ import com.criteo.publisher.model.Publisher;
 import com.criteo.publisher.model.RemoteConfigResponse;
 import com.criteo.publisher.model.RewardedAdUnit;
 import com.criteo.publisher.model.User;
+import com.criteo.publisher.network.ConditionalResponse;
 import com.criteo.publisher.network.LiveBidRequestSender;
 import com.criteo.publisher.network.PubSdkApi;
 import com.criteo.publisher.privacy.UserPrivacyUtil;
@@ -309,7 +310,7 @@ public class BidManagerFunctionalTest {
     when(config.isPrefetchOnInitEnabled()).thenReturn(false);
 
     RemoteConfigResponse response = mock(RemoteConfigResponse.class);
-    when(api.loadConfig(any())).thenReturn(response);
+    when(api.loadConfig(any(), any())).thenReturn(new ConditionalResponse<>(response));
 
     List<AdUnit> prefetchAdUnits = Arrays.asList(
         mock(AdUnit.class),
@@ -322,7 +323,7 @@ public class BidManagerFunctionalTest {
 
     verifyNoInteractions(adUnitMapper);
     assertShouldNotCallCdbAndNotPopulateCache();
-    verify(config).refreshConfig(response);
+    verify(config).refreshConfig(eq(response), any(), any(), anyLong());
   }
 
   @Test
@@ -336,13 +337,13 @@ public class BidManagerFunctionalTest {
   @Test
   public void prefetch_GivenNoAdUnit_ShouldUpdateConfig() throws Exception {
     RemoteConfigResponse response = mock(RemoteConfigResponse.class);
-    when(api.loadConfig(any())).thenReturn(response);
+    when(api.loadConfig(any(), any())).thenReturn(new ConditionalResponse<>(response));
 
     bidManager.prefetch(emptyList());
     waitForIdleState();
 
-    verify(config).refreshConfig(response);
-    verify(api, never()).loadCdb(any(), any());
+    verify(config).refreshConfig(eq(response), any(), any(), anyLong());
+    verify(api, never()).loadCdb(any(), any(), any());
   }
 
   @Test
@@ -403,11 +404,11 @@ public class BidManagerFunctionalTest {
     CdbResponse response3 = givenMockedCdbResponseWithValidSlot(3);
     RemoteConfigResponse remoteConfigResponse = mock(RemoteConfigResponse.class);
 
-    when(api.loadCdb(any(), any()))
+    when(api.loadCdb(any(), any(), any()))
         .thenReturn(response1)
         .thenThrow(IOException.class)
         .thenReturn(response3);
-    when(api.loadConfig(any())).thenReturn(remoteConfigResponse);
+    when(api.loadConfig(any(), any())).thenReturn(new ConditionalResponse<>(remoteConfigResponse));
 
     bidManager = spy(bidManager);
     bidManager.prefetch(prefetchAdUnits);
@@ -416,23 +417,23 @@ public class BidManagerFunctionalTest {
     InOrder inOrder = inOrder(bidManager, cache, api, config);
 
     // First call with only config call
-    inOrder.verify(config).refreshConfig(remoteConfigResponse);
+    inOrder.verify(config).refreshConfig(eq(remoteConfigResponse), any(), any(), anyLong());
 
     // First call to CDB
-    inOrder.verify(config, never()).refreshConfig(any());
+    inOrder.verify(config, never()).refreshConfig(any(), any(), any(), anyLong());
     inOrder.verify(api)
-        .loadCdb(argThat(cdb -> requestedAdUnits1.equals(getRequestedAdUnits(cdb))), any());
+        .loadCdb(argThat(cdb -> requestedAdUnits1.equals(getRequestedAdUnits(cdb))), any(), any());
     response1.getSlots().forEach(inOrder.verify(cache)::add);
     inOrder.verify(bidManager).setTimeToNextCall(1);
 
     // Second call with error
     inOrder.verify(api)
-        .loadCdb(argThat(cdb -> requestedAdUnits2.equals(getRequestedAdUnits(cdb))), any());
+        .loadCdb(argThat(cdb -> requestedAdUnits2.equals(getRequestedAdUnits(cdb))), any(), any());
 
     // Third call in success but without the config call
-    inOrder.verify(config, never()).refreshConfig(any());
+    inOrder.verify(config, never()).refreshConfig(any(), any(), any(), anyLong());
     inOrder.verify(api)
-        .loadCdb(argThat(cdb -> requestedAdUnits3.equals(getRequestedAdUnits(cdb))), any());
+        .loadCdb(argThat(cdb -> requestedAdUnits3.equals(getRequestedAdUnits(cdb))), any(), any());
     response3.getSlots().forEach(inOrder.verify(cache)::add);
     inOrder.verify(bidManager).setTimeToNextCall(3);
 
@@ -466,10 +467,10 @@ public class BidManagerFunctionalTest {
   public void prefetch_GivenRemoteConfigWithKillSwitchEnabled_WhenGettingBidShouldNotCallCdbAndNotPopulateCacheAndReturnNull()
       throws Exception {
     givenKillSwitchIs(false);
-    doAnswer(answerVoid((RemoteConfigResponse response) -> {
+    doAnswer(answerVoid((RemoteConfigResponse response, String requestKey, String eTag, Long expirationTimeInMillis) -> {
       Boolean killSwitch = response.getKillSwitch();
       when(config.isKillSwitchEnabled()).thenReturn(killSwitch);
-    })).when(config).refreshConfig(any());
+    })).when(config).refreshConfig(any(), any(), any(), anyLong());
 
     CacheAdUnit cacheAdUnit = sampleAdUnit();
     AdUnit adUnit = givenMockedAdUnitMappingTo(cacheAdUnit);
@@ -546,7 +547,7 @@ public class BidManagerFunctionalTest {
       assertThat(cdb.getGdprData()).isEqualTo(expectedGdpr);
 
       return true;
-    }), eq("expectedUserAgent"));
+    }), eq("expectedUserAgent"), any());
   }
 
   @Test
@@ -558,7 +559,7 @@ public class BidManagerFunctionalTest {
     waitForIdleState();
 
     assertNull(bid);
-    verify(api, never()).loadCdb(any(), any());
+    verify(api, never()).loadCdb(any(), any(), any());
   }
 
   @Test
@@ -568,7 +569,7 @@ public class BidManagerFunctionalTest {
     waitForIdleState();
 
     assertNull(bid);
-    verify(api, never()).loadCdb(any(), any());
+    verify(api, never()).loadCdb(any(), any(), any());
   }
 
   @Test
@@ -616,7 +617,7 @@ public class BidManagerFunctionalTest {
     CountDownLatch cdbRequestHasStarted = new CountDownLatch(1);
 
     CountDownLatch cdbRequestIsPending = new CountDownLatch(1);
-    when(api.loadCdb(any(), any())).thenAnswer(invocation -> {
+    when(api.loadCdb(any(), any(), any())).thenAnswer(invocation -> {
       cdbRequestHasStarted.countDown();
       cdbRequestIsPending.await();
       return response;
@@ -637,7 +638,7 @@ public class BidManagerFunctionalTest {
 
     InOrder inOrder = inOrder(bidManager, api, cache);
     inOrder.verify(bidManager).getBidForAdUnitAndPrefetch(adUnit, contextData);
-    inOrder.verify(api).loadCdb(any(), any());
+    inOrder.verify(api).loadCdb(any(), any(), any());
     inOrder.verify(bidManager).getBidForAdUnitAndPrefetch(adUnit, contextData);
     inOrder.verify(cache).add(slot);
     inOrder.verify(bidManager).setTimeToNextCall(anyInt());
@@ -669,7 +670,7 @@ public class BidManagerFunctionalTest {
     InOrder inOrder = inOrder(bidManager, api, cache);
     inOrder.verify(bidManager).getBidForAdUnitAndPrefetch(adUnit, contextData);
     inOrder.verify(bidManager).getBidForAdUnitAndPrefetch(adUnit, contextData);
-    inOrder.verify(api, timeout(1000)).loadCdb(any(), any());
+    inOrder.verify(api, timeout(1000)).loadCdb(any(), any(), any());
     inOrder.verify(cache).add(slot);
     inOrder.verify(bidManager).setTimeToNextCall(anyInt());
     inOrder.verifyNoMoreInteractions();
@@ -711,7 +712,7 @@ public class BidManagerFunctionalTest {
 
     givenNoLastBid(cacheAdUnit);
 
-    when(api.loadCdb(any(), any())).thenThrow(IOException.class);
+    when(api.loadCdb(any(), any(), any())).thenThrow(IOException.class);
 
     bidManager.getBidForAdUnitAndPrefetch(adUnit, contextData);
     waitForIdleState();
@@ -1499,7 +1500,7 @@ public class BidManagerFunctionalTest {
       secondSlotIsReceived.await();
 
       return response1;
-    }).doReturn(response2).when(api).loadCdb(any(), any());
+    }).doReturn(response2).when(api).loadCdb(any(), any(), any());
 
     bidManager.getLiveBidForAdUnit(adUnit, contextData, bidListener);
     waitForIdleState();
@@ -1569,7 +1570,7 @@ public class BidManagerFunctionalTest {
     verify(api).loadCdb(argThat(cdb -> {
       assertEquals(requestedAdUnits, getRequestedAdUnits(cdb));
       return true;
-    }), any());
+    }), any(), any());
     verify(bidLifecycleListener).onCdbCallStarted(any());
     verify(bidLifecycleListener).onCdbCallFinished(any(), any());
     verify(metricSendingQueueConsumer).sendMetricBatch();
@@ -1578,7 +1579,7 @@ public class BidManagerFunctionalTest {
 
   private void assertShouldNotCallCdbAndNotPopulateCache() throws Exception {
     verify(cache, never()).add(any());
-    verify(api, never()).loadCdb(any(), any());
+    verify(api, never()).loadCdb(any(), any(), any());
     verify(bidLifecycleListener, never()).onCdbCallStarted(any());
     verify(bidLifecycleListener, never()).onCdbCallFinished(any(), any());
     verify(bidLifecycleListener, never()).onCdbCallFailed(any(), any());
@@ -1681,7 +1682,7 @@ public class BidManagerFunctionalTest {
   private void givenRemoteConfigWithKillSwitchEnabled() throws IOException {
     RemoteConfigResponse response = mock(RemoteConfigResponse.class);
     when(response.getKillSwitch()).thenReturn(true);
-    when(api.loadConfig(any())).thenReturn(response);
+    when(api.loadConfig(any(), any())).thenReturn(new ConditionalResponse<>(response));
   }
 
   @NonNull
@@ -1743,7 +1744,7 @@ public class BidManagerFunctionalTest {
 
   private CdbResponse givenMockedCdbResponse() throws Exception {
     CdbResponse response = mock(CdbResponse.class);
-    when(api.loadCdb(any(), any())).thenReturn(response);
+    when(api.loadCdb(any(), any(), any())).thenReturn(response);
     return response;
   }
 
@@ -50,6 +50,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
@@ -194,6 +195,25 @@ public class CriteoBannerEventControllerTest {
     inOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void fetchAdAsyncAdUnit_GivenPendingBidsCancelledBeforeBid_DoNotNotifyListenerNorDisplayAd()
+      throws Exception {
+    AdUnit adUnit = mock(AdUnit.class);
+    ContextData contextData = mock(ContextData.class);
+    CdbResponseSlot slot = mock(CdbResponseSlot.class);
+    ArgumentCaptor<BidListener> bidListenerCaptor = ArgumentCaptor.forClass(BidListener.class);
+
+    criteoBannerEventController.fetchAdAsync(adUnit, contextData);
+    verify(criteo).getBidForAdUnit(eq(adUnit), eq(contextData), bidListenerCaptor.capture());
+
+    criteoBannerEventController.cancelPendingBids();
+    bidListenerCaptor.getValue().onBidResponse(slot);
+    waitForIdleState();
+
+    verify(criteoBannerAdListener, never()).onAdReceived(any());
+    verify(criteoBannerEventController, never()).displayAd(any());
+  }
+
   @Test
   public void fetchAdAsyncToken_GivenNoBid_NotifyListenerForFailureAndDoNotDisplayAd()
       throws Exception {
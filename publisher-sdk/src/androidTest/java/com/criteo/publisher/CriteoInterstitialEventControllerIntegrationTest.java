@@ -44,6 +44,7 @@ import com.criteo.publisher.model.CdbResponseSlot;
 import com.criteo.publisher.model.Config;
 import com.criteo.publisher.model.DeviceInfo;
 import com.criteo.publisher.model.WebViewData;
+import com.criteo.publisher.network.NetworkStats.Endpoint;
 import com.criteo.publisher.network.PubSdkApi;
 import com.criteo.publisher.tasks.InterstitialListenerNotifier;
 import java.io.ByteArrayInputStream;
@@ -117,8 +118,8 @@ public class CriteoInterstitialEventControllerIntegrationTest {
     doAnswer(checkIsRunningOnUiThread).when(listener).onAdFailedToReceive(any());
 
     doAnswer(invocation -> new ByteArrayInputStream(GOOD_CREATIVE.getBytes())).when(api)
-        .executeRawGet(eq(new URL(GOOD_DISPLAY_URL)), any());
-    doThrow(IOException.class).when(api).executeRawGet(eq(new URL(BAD_DISPLAY_URL)), any());
+        .executeRawGet(eq(new URL(GOOD_DISPLAY_URL)), any(), eq(Endpoint.CREATIVE));
+    doThrow(IOException.class).when(api).executeRawGet(eq(new URL(BAD_DISPLAY_URL)), any(), eq(Endpoint.CREATIVE));
 
     String adTagDataMacro = config.getAdTagDataMacro();
     when(config.getAdTagDataMode()).thenReturn(adTagDataMacro);
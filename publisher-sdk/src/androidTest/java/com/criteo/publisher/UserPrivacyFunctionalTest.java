@@ -63,7 +63,7 @@ public class UserPrivacyFunctionalTest {
     waitForIdleState();
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
 
     CdbRequest cdb = cdbArgumentCaptor.getValue();
     assertEquals("fake_iab_usp", cdb.getUser().getUspIab());
@@ -77,7 +77,7 @@ public class UserPrivacyFunctionalTest {
     waitForIdleState();
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
 
     CdbRequest cdb = cdbArgumentCaptor.getValue();
     assertNull(cdb.getUser().getUspIab());
@@ -91,7 +91,7 @@ public class UserPrivacyFunctionalTest {
     waitForIdleState();
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
 
     CdbRequest cdb = cdbArgumentCaptor.getValue();
     assertEquals("true", cdb.getUser().getUspOptout());
@@ -105,7 +105,7 @@ public class UserPrivacyFunctionalTest {
     waitForIdleState();
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
 
     CdbRequest cdb = cdbArgumentCaptor.getValue();
     assertNull(cdb.getUser().getUspOptout());
@@ -125,7 +125,7 @@ public class UserPrivacyFunctionalTest {
     waitForIdleState();
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
-    verify(pubSdkApi, times(2)).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi, times(2)).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
 
     CdbRequest cdb = cdbArgumentCaptor.getValue();
     assertEquals("false", cdb.getUser().getUspOptout());
@@ -143,7 +143,7 @@ public class UserPrivacyFunctionalTest {
     waitForIdleState();
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
 
     CdbRequest cdbRequest = cdbArgumentCaptor.getValue();
     assertNull(cdbRequest.getRegs());
@@ -161,7 +161,7 @@ public class UserPrivacyFunctionalTest {
     waitForIdleState();
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
 
     CdbRequest cdbRequest = cdbArgumentCaptor.getValue();
     assertNotNull(cdbRequest.getRegs());
@@ -115,6 +115,7 @@ public class AdvancedNativeFunctionalTest {
 
     verify(api, atLeastOnce()).loadCdb(
         argThat(request -> request.getProfileId() == Integration.STANDALONE.getProfileId()),
+        any(),
         any()
     );
 
@@ -143,6 +144,7 @@ public class AdvancedNativeFunctionalTest {
 
     verify(api, atLeastOnce()).loadCdb(
         argThat(request -> request.getProfileId() == Integration.IN_HOUSE.getProfileId()),
+        any(),
         any()
     );
 
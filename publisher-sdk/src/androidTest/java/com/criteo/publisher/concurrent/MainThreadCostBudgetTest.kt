@@ -0,0 +1,192 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+import com.criteo.publisher.BidResponseListener
+import com.criteo.publisher.Criteo
+import com.criteo.publisher.CriteoBannerView
+import com.criteo.publisher.CriteoInterstitial
+import com.criteo.publisher.CriteoUtil.getCriteoBuilder
+import com.criteo.publisher.MainThreadCostListener
+import com.criteo.publisher.TestAdUnits.BANNER_320_50
+import com.criteo.publisher.TestAdUnits.INTERSTITIAL
+import com.criteo.publisher.TestAdUnits.NATIVE
+import com.criteo.publisher.advancednative.CriteoNativeLoader
+import com.criteo.publisher.application.InstrumentationUtil
+import com.criteo.publisher.concurrent.ThreadingUtil.callOnMainThreadAndWait
+import com.criteo.publisher.concurrent.ThreadingUtil.runOnMainThreadAndWait
+import com.criteo.publisher.mock.MockBean
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.network.BidRequestSender
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.kotlin.mock
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+/**
+ * Enforce a budget on the wall time of each public API when it is called on the main thread.
+ *
+ * Budgets are ceilings on the median wall time of the calls. They are calibrated for the emulators running the
+ * instrumentation tests, with a margin of an order of magnitude, so they only catch regressions heavy enough to be felt
+ * as jank or ANRs. To keep the measures stable, bid requests are not sent and each call is made once the SDK executors
+ * are idle.
+ *
+ * Allocations are not budgeted: the runtime only counts them for the whole process, so they depend on the background
+ * work of the test device.
+ */
+class MainThreadCostBudgetTest {
+
+  private companion object {
+    const val WARM_UP = 5
+    const val MEASURED = 21
+  }
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @MockBean
+  private lateinit var bidRequestSender: BidRequestSender
+
+  private val costs = CopyOnWriteArrayList<Cost>()
+
+  private val listener = MainThreadCostListener { apiName, wallTimeInNanos, _ ->
+    costs.add(Cost(apiName, wallTimeInNanos))
+  }
+
+  @Test
+  fun init_IsWithinBudget() {
+    runOnMainThreadAndWait {
+      getCriteoBuilder(BANNER_320_50).mainThreadCostListener(listener).init()
+    }
+
+    // Init happens once, so its only call also pays for the loading of the SDK classes
+    assertWithinBudget("Criteo.Builder.init", Budget(wallTimeInMillis = 2_000))
+  }
+
+  @Test
+  fun loadBid_IsWithinBudget() {
+    val criteo = givenInitializedCriteo()
+
+    measure("Criteo.loadBid") {
+      criteo.loadBid(BANNER_320_50, BidResponseListener { })
+    }
+
+    assertWithinBudget("Criteo.loadBid", Budget(wallTimeInMillis = 50))
+  }
+
+  @Test
+  fun enrichAdObjectWithBid_IsWithinBudget() {
+    val criteo = givenInitializedCriteo()
+
+    measure("Criteo.enrichAdObjectWithBid") {
+      criteo.enrichAdObjectWithBid(mutableMapOf<String, String>(), null)
+    }
+
+    assertWithinBudget("Criteo.enrichAdObjectWithBid", Budget(wallTimeInMillis = 50))
+  }
+
+  @Test
+  fun loadBannerAd_IsWithinBudget() {
+    givenInitializedCriteo()
+    val bannerView = callOnMainThreadAndWait {
+      CriteoBannerView(InstrumentationUtil.getApplication().applicationContext, BANNER_320_50)
+    }
+
+    measure("CriteoBannerView.loadAd") {
+      bannerView.loadAd()
+    }
+
+    assertWithinBudget("CriteoBannerView.loadAd", Budget(wallTimeInMillis = 50))
+  }
+
+  @Test
+  fun loadInterstitialAd_IsWithinBudget() {
+    givenInitializedCriteo()
+    val interstitial = CriteoInterstitial(INTERSTITIAL)
+
+    measure("CriteoInterstitial.loadAd") {
+      interstitial.loadAd()
+    }
+
+    assertWithinBudget("CriteoInterstitial.loadAd", Budget(wallTimeInMillis = 50))
+  }
+
+  @Test
+  fun showInterstitial_IsWithinBudget() {
+    givenInitializedCriteo()
+    val interstitial = CriteoInterstitial(INTERSTITIAL)
+
+    measure("CriteoInterstitial.show") {
+      interstitial.show()
+    }
+
+    assertWithinBudget("CriteoInterstitial.show", Budget(wallTimeInMillis = 50))
+  }
+
+  @Test
+  fun loadNativeAd_IsWithinBudget() {
+    givenInitializedCriteo()
+    val nativeLoader = CriteoNativeLoader(NATIVE, mock(), mock())
+
+    measure("CriteoNativeLoader.loadAd") {
+      nativeLoader.loadAd()
+    }
+
+    assertWithinBudget("CriteoNativeLoader.loadAd", Budget(wallTimeInMillis = 50))
+  }
+
+  private fun givenInitializedCriteo(): Criteo {
+    val criteo = getCriteoBuilder(BANNER_320_50, INTERSTITIAL, NATIVE).mainThreadCostListener(listener).init()
+    mockedDependenciesRule.waitForIdleState()
+    return criteo
+  }
+
+  private fun measure(apiName: String, call: () -> Unit) {
+    repeat(WARM_UP) { callOnceIdle(call) }
+
+    costs.clear()
+    repeat(MEASURED) { callOnceIdle(call) }
+
+    assertThat(costs.filter { it.apiName == apiName }).hasSize(MEASURED)
+  }
+
+  private fun callOnceIdle(call: () -> Unit) {
+    // Background work of the previous call would compete with this one for the CPU
+    mockedDependenciesRule.waitForIdleState()
+    runOnMainThreadAndWait { call() }
+    mockedDependenciesRule.waitForIdleState()
+  }
+
+  private fun assertWithinBudget(apiName: String, budget: Budget) {
+    val measuredCosts = costs.filter { it.apiName == apiName }
+    assertThat(measuredCosts).isNotEmpty()
+
+    val wallTimeInNanos = measuredCosts.map { it.wallTimeInNanos }.median()
+    assertThat(wallTimeInNanos)
+        .describedAs("Median wall time of $apiName in ns")
+        .isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(budget.wallTimeInMillis))
+  }
+
+  private fun List<Long>.median(): Long = sorted()[size / 2]
+
+  private data class Cost(val apiName: String, val wallTimeInNanos: Long)
+
+  private data class Budget(val wallTimeInMillis: Long)
+}
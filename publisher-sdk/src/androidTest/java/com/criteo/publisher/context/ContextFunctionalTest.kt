@@ -86,7 +86,7 @@ class ContextFunctionalTest(private val integration: TestedIntegration) {
               )
           )
       )
-    }, any())
+    }, any(), any())
   }
 
   @Test
@@ -136,7 +136,7 @@ class ContextFunctionalTest(private val integration: TestedIntegration) {
               )
           )
       )
-    }, any())
+    }, any(), any())
   }
 
   enum class TestedIntegration {
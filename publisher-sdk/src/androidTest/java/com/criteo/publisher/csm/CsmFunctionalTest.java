@@ -204,7 +204,7 @@ public class CsmFunctionalTest {
 
   @Test
   public void givenNetworkErrorFromCdb_CallApiWithCsmOfNetworkError() throws Exception {
-    doThrow(IOException.class).when(api).loadCdb(any(), any());
+    doThrow(IOException.class).when(api).loadCdb(any(), any(), any());
 
     givenInitializedCriteo(TestAdUnits.BANNER_320_50, TestAdUnits.INTERSTITIAL);
     waitForIdleState();
@@ -295,10 +295,10 @@ public class CsmFunctionalTest {
     when(buildConfigWrapper.getNetworkTimeoutInMillis()).thenCallRealMethod();
 
     // Network error
-    doThrow(IOException.class).when(api).loadCdb(any(), any());
+    doThrow(IOException.class).when(api).loadCdb(any(), any(), any());
     loadBid(TestAdUnits.INTERSTITIAL);
     waitForIdleState();
-    doCallRealMethod().when(api).loadCdb(any(), any());
+    doCallRealMethod().when(api).loadCdb(any(), any(), any());
 
     // CSM endpoint works again: on next bid request, there should metrics for all previous bids.
     clearInvocations(api);
@@ -171,7 +171,7 @@ public class CriteoFunctionalTest {
         slot.setTtlInSeconds(dayTtl);
       });
       return cdbResponse;
-    }).when(api).loadCdb(any(), any());
+    }).when(api).loadCdb(any(), any(), any());
 
     givenInitializedCriteo(adUnit);
     waitForBids();
@@ -181,7 +181,7 @@ public class CriteoFunctionalTest {
         .init();
     waitForBids();
 
-    verify(api, times(1)).loadCdb(any(), any());
+    verify(api, times(1)).loadCdb(any(), any(), any());
   }
 
   @Test
@@ -193,8 +193,8 @@ public class CriteoFunctionalTest {
 
     waitForBids();
 
-    verify(api).loadCdb(any(), any());
-    verify(api).loadConfig(any());
+    verify(api).loadCdb(any(), any(), any());
+    verify(api).loadConfig(any(), any());
     verify(api).postAppEvent(anyInt(), any(), any(), eq("Launch"), anyInt(), any(), any());
     verify(api).postAppEvent(anyInt(), any(), any(), eq("Active"), anyInt(), any(), any());
   }
@@ -225,7 +225,7 @@ public class CriteoFunctionalTest {
       assertEquals("1.2.3", request.getSdkVersion());
 
       return true;
-    }));
+    }), any());
   }
 
   @Test
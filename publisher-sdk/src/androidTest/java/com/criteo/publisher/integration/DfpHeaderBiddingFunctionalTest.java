@@ -646,6 +646,7 @@ public class DfpHeaderBiddingFunctionalTest {
 
     verify(api, atLeastOnce()).loadCdb(
         argThat(request -> request.getProfileId() == Integration.GAM_APP_BIDDING.getProfileId()),
+        any(),
         any()
     );
   }
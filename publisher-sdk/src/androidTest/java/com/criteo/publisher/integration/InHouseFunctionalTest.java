@@ -155,7 +155,7 @@ public class InHouseFunctionalTest {
     assertThat(bid).isNull();
     verify(listener).onAdFailedToReceive(ERROR_CODE_NO_FILL);
     verify(logger).log(BiddingLogMessage.onUnsupportedAdFormat(toCacheAdUnit(validRewardedAdUnit), Integration.FALLBACK));
-    verify(api, never()).loadCdb(any(), any());
+    verify(api, never()).loadCdb(any(), any(), any());
 
     assertBidRequestHasGoodProfileId();
   }
@@ -180,7 +180,7 @@ public class InHouseFunctionalTest {
     assertThat(bid).isNull();
     verify(listener).onAdFailedToReceive(ERROR_CODE_NO_FILL);
     verify(logger).log(BiddingLogMessage.onUnsupportedAdFormat(toCacheAdUnit(validRewardedAdUnit), Integration.IN_HOUSE));
-    verify(api, never()).loadCdb(any(), any());
+    verify(api, never()).loadCdb(any(), any(), any());
 
     assertBidRequestHasGoodProfileId();
   }
@@ -352,6 +352,7 @@ public class InHouseFunctionalTest {
 
     verify(api, atLeastOnce()).loadCdb(
         argThat(request -> request.getProfileId() == Integration.IN_HOUSE.getProfileId()),
+        any(),
         any()
     );
   }
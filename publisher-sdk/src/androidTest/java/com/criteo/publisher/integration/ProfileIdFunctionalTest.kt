@@ -41,6 +41,7 @@ import org.assertj.core.api.Assertions.assertThat
 import org.junit.Rule
 import org.junit.Test
 import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
 import org.mockito.kotlin.atLeastOnce
 import org.mockito.kotlin.check
 import org.mockito.kotlin.clearInvocations
@@ -100,7 +101,7 @@ class ProfileIdFunctionalTest {
 
     verify(api).loadConfig(check {
       assertThat(it.profileId).isEqualTo(Integration.FALLBACK.profileId)
-    })
+    }, anyOrNull())
   }
 
   @Test
@@ -112,7 +113,7 @@ class ProfileIdFunctionalTest {
 
     verify(api).loadConfig(check {
       assertThat(it.profileId).isEqualTo(Integration.IN_HOUSE.profileId)
-    })
+    }, anyOrNull())
   }
 
   @Test
@@ -349,7 +350,7 @@ class ProfileIdFunctionalTest {
   private fun verifyCdbIsCalledWith(integration: Integration) {
     verify(api, atLeastOnce()).loadCdb(check {
       assertThat(it.profileId).isEqualTo(integration.profileId)
-    }, any())
+    }, any(), any())
   }
 
   private fun bidInHouseInterstitial() {
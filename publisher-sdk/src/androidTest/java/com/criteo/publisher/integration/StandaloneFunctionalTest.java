@@ -302,6 +302,7 @@ public class StandaloneFunctionalTest {
     verifyNoMoreInteractions(listener);
     verify(api, atLeastOnce()).loadCdb(
         argThat(request -> request.getProfileId() == Integration.STANDALONE.getProfileId()),
+        any(),
         any()
     );
   }
@@ -435,7 +436,7 @@ public class StandaloneFunctionalTest {
     CriteoInterstitial interstitial = new CriteoInterstitial(validInterstitialAdUnit);
     loadAdAndWait(interstitial);
 
-    verify(api).loadCdb(requestCaptor.capture(), anyString());
+    verify(api).loadCdb(requestCaptor.capture(), anyString(), any());
     CdbRequest request = requestCaptor.getValue();
 
     boolean interstitialFlag = request.getSlots().get(0).isInterstitial();
@@ -479,6 +480,7 @@ public class StandaloneFunctionalTest {
 
     verify(api, times(2)).loadCdb(
         argThat(request -> request.getProfileId() == Integration.STANDALONE.getProfileId()),
+        any(),
         any()
     );
   }
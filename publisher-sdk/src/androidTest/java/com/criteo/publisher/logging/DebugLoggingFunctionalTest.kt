@@ -434,7 +434,7 @@ class DebugLoggingFunctionalTest {
     mockedDependenciesRule.waitForIdleState()
 
     argumentCaptor<CdbRequest> {
-      verify(api).loadCdb(capture(), any())
+      verify(api).loadCdb(capture(), any(), any())
 
       verify(logger).log(NetworkLogMessage.onCdbCallStarted(jsonSerializer.writeIntoString(lastValue)))
     }
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -41,6 +43,7 @@ import com.criteo.publisher.CriteoUtil;
 import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogLevel;
 import com.criteo.publisher.mock.MockedDependenciesRule;
 import com.criteo.publisher.mock.SpyBean;
+import com.criteo.publisher.network.ConditionalResponse;
 import com.criteo.publisher.network.PubSdkApi;
 import com.criteo.publisher.util.BuildConfigWrapper;
 import com.criteo.publisher.util.JsonSerializer;
@@ -180,7 +183,7 @@ public class ConfigIntegrationTests {
     givenInitializedCriteo();
     waitForIdleState();
 
-    verify(config, never()).refreshConfig(any());
+    verify(config, never()).refreshConfig(any(), any(), any(), anyLong());
   }
 
   @Test
@@ -193,7 +196,7 @@ public class ConfigIntegrationTests {
     givenInitializedCriteo();
     waitForIdleState();
 
-    verify(config).refreshConfig(response);
+    verify(config).refreshConfig(eq(response), any(), any(), anyLong());
   }
 
   @Test
@@ -207,7 +210,7 @@ public class ConfigIntegrationTests {
     givenInitializedCriteo();
     waitForIdleState();
 
-    verify(config).refreshConfig(response);
+    verify(config).refreshConfig(eq(response), any(), any(), anyLong());
   }
 
   @Test
@@ -314,7 +317,12 @@ public class ConfigIntegrationTests {
         1337,
         true,
         RemoteLogLevel.DEBUG,
-        true
+        true,
+        true,
+        true,
+        10,
+        true,
+        null
     );
 
     givenRemoteConfigInLocalStorage(persistedConfig);
@@ -342,6 +350,11 @@ public class ConfigIntegrationTests {
         null,
         null,
         null,
+        null,
+        null,
+        null,
+        null,
+        null,
         null
     );
 
@@ -356,7 +369,12 @@ public class ConfigIntegrationTests {
         42,
         false,
         RemoteLogLevel.INFO,
-        false
+        false,
+        true,
+        true,
+        5,
+        false,
+        null
     );
 
     RemoteConfigResponse expectedRemoteConfig = new RemoteConfigResponse(
@@ -370,7 +388,12 @@ public class ConfigIntegrationTests {
         42,
         false,
         RemoteLogLevel.INFO,
-        false
+        false,
+        true,
+        true,
+        5,
+        false,
+        null
     );
 
     givenRemoteConfigInLocalStorage(oldPersistedConfig);
@@ -390,7 +413,7 @@ public class ConfigIntegrationTests {
 
   private void givenRemoteConfigInError() throws IOException {
     doReturn(false).when(buildConfigWrapper).preconditionThrowsOnException();
-    doThrow(IOException.class).when(api).loadConfig(any());
+    doThrow(IOException.class).when(api).loadConfig(any(), any());
   }
 
   private void givenRemoteConfigResponseWithKillSwitch(Boolean isEnabled) throws Exception {
@@ -399,7 +422,7 @@ public class ConfigIntegrationTests {
   }
 
   private void givenRemoteConfigWithResponse(RemoteConfigResponse response) throws IOException {
-    doReturn(response).when(api).loadConfig(any());
+    doReturn(new ConditionalResponse<>(response)).when(api).loadConfig(any(), any());
   }
 
   @Nullable
@@ -40,7 +40,7 @@ import org.mockito.ArgumentCaptor;
 
 /**
  * This test file is purposefully located within the <code>com.criteo.publisher.network</code>
- * package as it needs to access {@link PubSdkApi#loadCdb(CdbRequest, String)} method.
+ * package as it needs to access {@link PubSdkApi#loadCdb(CdbRequest, String, Deadline)} method.
  */
 public class AdvertisingInfoFunctionalTest {
 
@@ -69,7 +69,7 @@ public class AdvertisingInfoFunctionalTest {
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
 
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
     CdbRequest cdb = cdbArgumentCaptor.getValue();
 
     assertEquals(DEVICE_ID_LIMITED, fetchDeviceIdSentInCdbRequest(cdb));
@@ -84,7 +84,7 @@ public class AdvertisingInfoFunctionalTest {
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
 
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
     CdbRequest cdb = cdbArgumentCaptor.getValue();
 
     assertEquals(FAKE_DEVICE_ID, fetchDeviceIdSentInCdbRequest(cdb));
@@ -106,7 +106,7 @@ public class AdvertisingInfoFunctionalTest {
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
 
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
     assertEquals(DEVICE_ID_LIMITED, fetchDeviceIdSentInCdbRequest(cdbArgumentCaptor.getValue()));
   }
 
@@ -126,7 +126,7 @@ public class AdvertisingInfoFunctionalTest {
 
     ArgumentCaptor<CdbRequest> cdbArgumentCaptor = ArgumentCaptor.forClass(CdbRequest.class);
 
-    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class));
+    verify(pubSdkApi).loadCdb(cdbArgumentCaptor.capture(), any(String.class), any());
     assertEquals(FAKE_DEVICE_ID, fetchDeviceIdSentInCdbRequest(cdbArgumentCaptor.getValue()));
   }
 
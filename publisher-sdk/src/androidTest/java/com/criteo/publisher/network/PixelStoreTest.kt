@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import android.content.Context
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.mock.SpyBean
+import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.JsonSerializer
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.whenever
+import java.net.URL
+import javax.inject.Inject
+
+class PixelStoreTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @Inject
+  private lateinit var context: Context
+
+  @Inject
+  private lateinit var jsonSerializer: JsonSerializer
+
+  @SpyBean
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  private lateinit var store: PixelStore
+
+  @Before
+  fun setUp() {
+    doReturn("pixelDirectory").whenever(buildConfigWrapper).pixelDirectoryName
+    doReturn(2).whenever(buildConfigWrapper).maxPendingPixels
+
+    store = PixelStore(context, buildConfigWrapper, jsonSerializer)
+  }
+
+  @After
+  fun tearDown() {
+    store.loadAll().forEach { store.delete(it) }
+  }
+
+  @Test
+  fun loadAll_GivenSavedPixels_ReturnThemUntilDeleted() {
+    val pixel1 = PendingPixel("id1", URL("http://my.pixel.1"))
+    val pixel2 = PendingPixel("id2", URL("http://my.pixel.2"), 1, 1337)
+
+    assertThat(store.save(pixel1)).isTrue()
+    assertThat(store.save(pixel2)).isTrue()
+
+    assertThat(newStore().loadAll()).containsExactlyInAnyOrder(pixel1, pixel2)
+
+    store.delete(pixel1)
+
+    assertThat(newStore().loadAll()).containsExactly(pixel2)
+  }
+
+  @Test
+  fun save_GivenSavedPixel_ReplaceIt() {
+    val pixel = PendingPixel("id", URL("http://my.pixel"))
+    val retriedPixel = pixel.copy(attempt = 1, nextAttemptTimeInMillis = 1337)
+
+    store.save(pixel)
+    store.save(retriedPixel)
+
+    assertThat(newStore().loadAll()).containsExactly(retriedPixel)
+  }
+
+  @Test
+  fun save_GivenFullStore_RejectNewPixelsButStillReplaceSavedOnes() {
+    val pixel1 = PendingPixel("id1", URL("http://my.pixel.1"))
+    val pixel2 = PendingPixel("id2", URL("http://my.pixel.2"))
+    val pixel3 = PendingPixel("id3", URL("http://my.pixel.3"))
+
+    store.save(pixel1)
+    store.save(pixel2)
+
+    assertThat(store.save(pixel3)).isFalse()
+    assertThat(store.save(pixel2.copy(attempt = 1))).isTrue()
+    assertThat(newStore().loadAll()).containsExactlyInAnyOrder(pixel1, pixel2.copy(attempt = 1))
+  }
+
+  @Test
+  fun save_GivenFullStoreAndDeletedPixel_AcceptNewPixel() {
+    val pixel1 = PendingPixel("id1", URL("http://my.pixel.1"))
+    val pixel2 = PendingPixel("id2", URL("http://my.pixel.2"))
+    val pixel3 = PendingPixel("id3", URL("http://my.pixel.3"))
+
+    store.save(pixel1)
+    store.save(pixel2)
+    store.delete(pixel1)
+
+    assertThat(store.save(pixel3)).isTrue()
+    assertThat(newStore().loadAll()).containsExactlyInAnyOrder(pixel2, pixel3)
+  }
+
+  private fun newStore() = PixelStore(context, buildConfigWrapper, jsonSerializer)
+}
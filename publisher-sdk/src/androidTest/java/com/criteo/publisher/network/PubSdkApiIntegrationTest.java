@@ -48,17 +48,21 @@ import com.criteo.publisher.model.AdSize;
 import com.criteo.publisher.model.AdUnitMapper;
 import com.criteo.publisher.model.CacheAdUnit;
 import com.criteo.publisher.model.CdbRequest;
+import com.criteo.publisher.model.CdbRequestDeviceInfo;
 import com.criteo.publisher.model.CdbRequestFactory;
 import com.criteo.publisher.model.CdbResponse;
+import com.criteo.publisher.model.Config;
 import com.criteo.publisher.model.Config.DefaultConfig;
 import com.criteo.publisher.model.RemoteConfigRequest;
 import com.criteo.publisher.model.RemoteConfigRequestFactory;
 import com.criteo.publisher.model.RemoteConfigResponse;
 import com.criteo.publisher.util.DeviceUtil;
+import com.criteo.publisher.util.JsonSerializer;
 import com.criteo.publisher.util.SharedPreferencesFactory;
 import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Rule;
@@ -93,12 +97,23 @@ public class PubSdkApiIntegrationTest {
   @Inject
   private RemoteConfigRequestFactory remoteConfigRequestFactory;
 
+  @Inject
+  private CdbMock cdbMock;
+
   @Inject
   private RemoteLogRecordsFactory remoteLogRecordsFactory;
 
   @Inject
   private SharedPreferencesFactory sharedPreferencesFactory;
 
+  @Inject
+  private JsonSerializer jsonSerializer;
+
+  @SpyBean
+  private Config config;
+
+  private final CdbRequestDeviceInfo deviceInfo = new CdbRequestDeviceInfo("myUserAgent", null);
+
   @Before
   public void setup() {
     appId = context.getApplicationContext().getPackageName();
@@ -118,6 +133,20 @@ public class PubSdkApiIntegrationTest {
     assertThat(response).isEqualTo(defaultRemoteConfigResponse());
   }
 
+  @Test
+  public void warmUpCdbConnection_GivenHttpsCdb_NextCallReuseWarmedConnection() throws Exception {
+    RemoteConfigRequest request = remoteConfigRequestFactory.createRequest();
+
+    api.warmUpCdbConnection();
+    api.loadConfig(request);
+
+    RecordedRequest warmUpRequest = cdbMock.takeRequest();
+    RecordedRequest configRequest = cdbMock.takeRequest();
+    assertThat(warmUpRequest.getSequenceNumber()).isEqualTo(0);
+    assertThat(configRequest.getPath()).isEqualTo("/config/app");
+    assertThat(configRequest.getSequenceNumber()).isEqualTo(1);
+  }
+
   @Test
   public void postLogs_GivenRemoteLogs_ReturnInSuccess() throws Exception {
     RemoteLogRecords logRecords1 = remoteLogRecordsFactory.createLogRecords(new LogMessage(
@@ -184,17 +213,63 @@ public class PubSdkApiIntegrationTest {
   public void loadCdb_GivenGeneratedRequest_ReturnInSuccess() throws Exception {
     CacheAdUnit adUnit = new CacheAdUnit(new AdSize(1, 2), "ad1", CRITEO_BANNER);
 
-    CdbRequest request = cdbRequestFactory.createRequest(singletonList(adUnit), new ContextData());
+    CdbRequest request = cdbRequestFactory.createRequest(singletonList(adUnit), new ContextData(), deviceInfo);
 
     CdbResponse response = api.loadCdb(request, "myUserAgent");
 
     assertNotNull(response);
   }
 
+  @Test
+  public void loadCdb_GivenCdbEndpointsWithDifferentLatencies_SendNextRequestsToFastestOne() throws Exception {
+    CdbMock slowCdbMock = new CdbMock(jsonSerializer);
+    slowCdbMock.start();
+
+    try {
+      slowCdbMock.injectBidResponseDelay(500);
+      when(config.getCdbUrls()).thenReturn(asList(slowCdbMock.getUrl(), cdbMock.getUrl()));
+
+      CacheAdUnit validAdUnit = adUnitMapper.map(BANNER_320_50);
+      CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData(), deviceInfo);
+
+      // Each endpoint is tried once, then the fastest one is kept
+      for (int i = 0; i < 4; i++) {
+        api.loadCdb(request, "myUserAgent");
+      }
+
+      assertThat(slowCdbMock.getRequestCount()).isEqualTo(1);
+      assertThat(cdbMock.getRequestCount()).isEqualTo(3);
+    } finally {
+      slowCdbMock.shutdown();
+    }
+  }
+
+  @Test
+  public void loadCdb_GivenDownCdbEndpoint_FailOverToOtherOne() throws Exception {
+    CdbMock downCdbMock = new CdbMock(jsonSerializer);
+    downCdbMock.start();
+
+    try {
+      downCdbMock.failBidRequests(true);
+      when(config.getCdbUrls()).thenReturn(asList(downCdbMock.getUrl(), cdbMock.getUrl()));
+
+      CacheAdUnit validAdUnit = adUnitMapper.map(BANNER_320_50);
+      CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData(), deviceInfo);
+
+      CdbResponse response = api.loadCdb(request, "myUserAgent");
+
+      assertThat(response.getSlots()).hasSize(1);
+      assertThat(downCdbMock.getRequestCount()).isEqualTo(1);
+      assertThat(cdbMock.getRequestCount()).isEqualTo(1);
+    } finally {
+      downCdbMock.shutdown();
+    }
+  }
+
   @Test
   public void loadCdb_GivenValidBannerAdUnit_ReturnBid() throws Exception {
     CacheAdUnit validAdUnit = adUnitMapper.map(BANNER_320_50);
-    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData());
+    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData(), deviceInfo);
 
     CdbResponse response = api.loadCdb(request, "myUserAgent");
 
@@ -220,7 +295,7 @@ public class PubSdkApiIntegrationTest {
     when(deviceUtil.getCurrentScreenSize()).thenReturn(new AdSize(42, 1337));
 
     CacheAdUnit validAdUnit = adUnitMapper.map(INTERSTITIAL);
-    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData());
+    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData(), deviceInfo);
 
     CdbResponse response = api.loadCdb(request, "myUserAgent");
 
@@ -247,7 +322,7 @@ public class PubSdkApiIntegrationTest {
     when(deviceUtil.getCurrentScreenSize()).thenReturn(new AdSize(42, 1337));
 
     CacheAdUnit validAdUnit = adUnitMapper.map(INTERSTITIAL_VIDEO);
-    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData());
+    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData(), deviceInfo);
 
     CdbResponse response = api.loadCdb(request, "myUserAgent");
 
@@ -272,7 +347,7 @@ public class PubSdkApiIntegrationTest {
   @Test
   public void loadCdb_GivenValidNativeAdUnit_ReturnBid() throws Exception {
     CacheAdUnit validAdUnit = adUnitMapper.map(NATIVE);
-    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData());
+    CdbRequest request = cdbRequestFactory.createRequest(singletonList(validAdUnit), new ContextData(), deviceInfo);
 
     CdbResponse response = api.loadCdb(request, "myUserAgent");
 
@@ -303,7 +378,7 @@ public class PubSdkApiIntegrationTest {
         NATIVE
     )).get(0);
 
-    CdbRequest request = cdbRequestFactory.createRequest(validAdUnits, new ContextData());
+    CdbRequest request = cdbRequestFactory.createRequest(validAdUnits, new ContextData(), deviceInfo);
     CdbResponse response = api.loadCdb(request, "myUserAgent");
 
     assertThat(validAdUnits).hasSize(3);
@@ -320,7 +395,7 @@ public class PubSdkApiIntegrationTest {
         NATIVE_UNKNOWN
     )).get(0);
 
-    CdbRequest request = cdbRequestFactory.createRequest(validAdUnits, new ContextData());
+    CdbRequest request = cdbRequestFactory.createRequest(validAdUnits, new ContextData(), deviceInfo);
     CdbResponse response = api.loadCdb(request, "myUserAgent");
 
     assertThat(validAdUnits).hasSize(3);
@@ -382,7 +457,12 @@ public class PubSdkApiIntegrationTest {
         DefaultConfig.LIVE_BIDDING_TIME_BUDGET_IN_MILLIS,
         DefaultConfig.PREFETCH_ON_INIT_ENABLED,
         DefaultConfig.REMOTE_LOG_LEVEL,
-        DefaultConfig.IS_MRAID_ENABLED
+        DefaultConfig.IS_MRAID_ENABLED,
+        DefaultConfig.INTERSTITIAL_CREATIVE_PREFETCH_ENABLED,
+        DefaultConfig.CDB_BINARY_PROTOCOL_ENABLED,
+        DefaultConfig.BID_REQUEST_COALESCING_WINDOW_IN_MILLIS,
+        DefaultConfig.TELEMETRY_ENVELOPE_ENABLED,
+        DefaultConfig.CDB_URLS
     );
   }
 }
@@ -122,7 +122,7 @@ public class GdprTcfEndToEndWithCdbTests {
     whenBidding();
 
     // then
-    verify(api).loadCdb(any(), any());
+    verify(api).loadCdb(any(), any(), any());
   }
 
   @Test
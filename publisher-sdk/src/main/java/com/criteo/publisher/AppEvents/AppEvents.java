@@ -18,18 +18,51 @@ package com.criteo.publisher.AppEvents;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.Clock;
+import com.criteo.publisher.SafeRunnable;
 import com.criteo.publisher.model.DeviceInfo;
 import com.criteo.publisher.network.AppEventTask;
+import com.criteo.publisher.network.HttpResponseException;
+import com.criteo.publisher.network.NetworkPolicy;
 import com.criteo.publisher.network.PubSdkApi;
 import com.criteo.publisher.privacy.UserPrivacyUtil;
 import com.criteo.publisher.util.AdvertisingInfo;
 import com.criteo.publisher.util.AppEventResponseListener;
 import com.criteo.publisher.util.ApplicationStoppedListener;
+import com.criteo.publisher.util.BuildConfigWrapper;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
-public class AppEvents implements AppEventResponseListener, ApplicationStoppedListener {
+/**
+ * Send app lifecycle events (Launch, Active, Inactive) to Criteo.
+ * <p>
+ * Events are first written in a persisted {@link AppEventSendingQueue}, then the queue is flushed
+ * by batch. So events are not lost when the device is offline or when the app is killed before
+ * they are sent. A batch is only peeked from the queue, and each event is removed from it once it
+ * is handled. Before being sent, Active/Inactive flaps of a batch are
+ * {@linkplain #coalesce(List, long) coalesced}. For this, a flush triggered by an Active or
+ * Inactive event only happens once the coalescing window of this event is over, and a trailing
+ * Inactive event is kept in the queue until the window following it is over. A Launch event is
+ * not part of any flap, so it is flushed directly.
+ * <p>
+ * The app event endpoint takes a single event per request, so a batch is sent as consecutive
+ * requests on the same flush. Events that failed because of the network or of the server stay at
+ * the head of the queue, in their original order.
+ * <p>
+ * The CCPA consent and the silence window requested by the server (see
+ * {@link #setThrottle(int)}) are checked both when an event is emitted and when it is sent.
+ */
+public class AppEvents implements AppEventResponseListener, ApplicationStoppedListener,
+    NetworkPolicy.Listener {
 
   private static final String EVENT_INACTIVE = "Inactive";
   private static final String EVENT_ACTIVE = "Active";
@@ -48,8 +81,24 @@ public class AppEvents implements AppEventResponseListener, ApplicationStoppedLi
   @NonNull
   private final Executor executor;
 
+  @NonNull
+  private final ScheduledExecutorService scheduledExecutorService;
+
+  @NonNull
+  private final AppEventSendingQueue sendingQueue;
+
+  @NonNull
+  private final BuildConfigWrapper buildConfigWrapper;
+
+  @NonNull
+  private final NetworkPolicy networkPolicy;
+
   private final AtomicLong silencedUntilTimeInMillis = new AtomicLong(-1);
 
+  private final AtomicBoolean isFlushing = new AtomicBoolean(false);
+
+  private final AtomicBoolean isFlushScheduled = new AtomicBoolean(false);
+
   public AppEvents(
       @NonNull Context context,
       @NonNull AdvertisingInfo advertisingInfo,
@@ -57,7 +106,11 @@ public class AppEvents implements AppEventResponseListener, ApplicationStoppedLi
       @NonNull PubSdkApi api,
       @NonNull UserPrivacyUtil userPrivacyUtil,
       @NonNull DeviceInfo deviceInfo,
-      @NonNull Executor executor
+      @NonNull Executor executor,
+      @NonNull ScheduledExecutorService scheduledExecutorService,
+      @NonNull AppEventSendingQueue sendingQueue,
+      @NonNull BuildConfigWrapper buildConfigWrapper,
+      @NonNull NetworkPolicy networkPolicy
   ) {
     this.mContext = context;
     this.advertisingInfo = advertisingInfo;
@@ -66,27 +119,67 @@ public class AppEvents implements AppEventResponseListener, ApplicationStoppedLi
     this.userPrivacyUtil = userPrivacyUtil;
     this.deviceInfo = deviceInfo;
     this.executor = executor;
+    this.scheduledExecutorService = scheduledExecutorService;
+    this.sendingQueue = sendingQueue;
+    this.buildConfigWrapper = buildConfigWrapper;
+    this.networkPolicy = networkPolicy;
   }
 
   private void postAppEvent(String eventType) {
-    if (!shouldCallBearcat()) {
+    if (!canSendAppEvent()) {
       return;
     }
 
-    long silencedUntil = silencedUntilTimeInMillis.get();
-    if (silencedUntil > 0 && clock.getCurrentTimeInMillis() < silencedUntil) {
+    PendingAppEvent event = new PendingAppEvent(eventType, clock.getCurrentTimeInMillis());
+    executor.execute(new SafeRunnable() {
+      @Override
+      public void runSafely() {
+        sendingQueue.offer(event);
+
+        if (EVENT_LAUNCH.equals(eventType)) {
+          flush();
+        } else {
+          scheduleFlush();
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onConnectivityRestored() {
+    executor.execute(new AppEventFlushTask());
+  }
+
+  /**
+   * Flush the queue once the coalescing window is over, so that an event following the ones in the
+   * queue within this window can still be coalesced with them.
+   * <p>
+   * If a flush is already scheduled, this does nothing: the scheduled flush picks up new events.
+   * Without coalescing window, the queue is flushed directly.
+   */
+  private void scheduleFlush() {
+    long windowInMillis = buildConfigWrapper.getAppEventCoalescingWindowInMillis();
+    if (windowInMillis <= 0) {
+      executor.execute(new AppEventFlushTask());
+      return;
+    }
+
+    if (!isFlushScheduled.compareAndSet(false, true)) {
       return;
     }
 
-    executor.execute(new AppEventTask(
-        mContext,
-        this,
-        advertisingInfo,
-        api,
-        deviceInfo,
-        userPrivacyUtil,
-        eventType
-    ));
+    boolean isScheduled = false;
+    try {
+      scheduledExecutorService.schedule(() -> {
+        isFlushScheduled.set(false);
+        executor.execute(new AppEventFlushTask());
+      }, windowInMillis, TimeUnit.MILLISECONDS);
+      isScheduled = true;
+    } finally {
+      if (!isScheduled) {
+        isFlushScheduled.set(false);
+      }
+    }
   }
 
   @Override
@@ -113,4 +206,189 @@ public class AppEvents implements AppEventResponseListener, ApplicationStoppedLi
   private boolean shouldCallBearcat() {
     return userPrivacyUtil.isCCPAConsentGivenOrNotApplicable();
   }
+
+  private boolean isSilenced() {
+    long silencedUntil = silencedUntilTimeInMillis.get();
+    return silencedUntil > 0 && clock.getCurrentTimeInMillis() < silencedUntil;
+  }
+
+  private boolean canSendAppEvent() {
+    return shouldCallBearcat() && !isSilenced();
+  }
+
+  /**
+   * Send events of the queue until it is empty.
+   * <p>
+   * Only one flush is running at a time. If a flush is already running, this returns directly:
+   * the running flush is going to pick up new events.
+   */
+  private void flush() {
+    while (isFlushing.compareAndSet(false, true)) {
+      boolean isQueueDrained;
+      try {
+        isQueueDrained = sendBatch();
+      } finally {
+        isFlushing.set(false);
+      }
+
+      if (!isQueueDrained || sendingQueue.getTotalSize() == 0) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Send a batch of events from the queue.
+   * <p>
+   * The batch is only peeked, and events are removed from the queue once handled: sent, coalesced
+   * or dropped. So events being sent are not lost if the process dies meanwhile.
+   *
+   * @return <code>true</code> if the batch was fully handled, <code>false</code> if some events
+   * were left in the queue to be sent later.
+   */
+  private boolean sendBatch() {
+    long windowInMillis = buildConfigWrapper.getAppEventCoalescingWindowInMillis();
+    List<PendingAppEvent> batch = sendingQueue.peek(buildConfigWrapper.getAppEventBatchSize());
+    List<PendingAppEvent> events = coalesce(batch, windowInMillis);
+
+    // Number of events of the batch that can be removed from the queue once handled
+    int batchEnd = batch.size();
+
+    if (!events.isEmpty()) {
+      PendingAppEvent lastEvent = events.get(events.size() - 1);
+      if (EVENT_INACTIVE.equals(lastEvent.getEventType())
+          && clock.getCurrentTimeInMillis() - lastEvent.getTimestampInMillis() < windowInMillis) {
+        // An Active event may still come and cancel this one: wait for the end of its window
+        events = events.subList(0, events.size() - 1);
+        batchEnd = indexOf(batch, lastEvent);
+        scheduleFlush();
+      }
+    }
+
+    int removedCount = 0;
+    for (PendingAppEvent event : events) {
+      if (!canSendAppEvent()) {
+        // Remaining events are dropped as they would have been if emitted now
+        break;
+      }
+
+      if (networkPolicy.isOffline()) {
+        return false;
+      }
+
+      int eventEnd = indexOf(batch, event) + 1;
+      AppEventSendListener listener = new AppEventSendListener();
+      new AppEventTask(
+          mContext,
+          listener,
+          advertisingInfo,
+          api,
+          deviceInfo,
+          userPrivacyUtil,
+          event.getEventType()
+      ).run();
+
+      Throwable failure = listener.failure;
+      if (failure != null) {
+        // Client errors are not going to be fixed by sending the same event again, and other
+        // failing events are dropped, so a malformed event cannot block the queue forever
+        if (!(failure instanceof IOException) || !isRetryable((IOException) failure)) {
+          sendingQueue.remove(eventEnd - removedCount);
+        }
+        return false;
+      }
+
+      // Remove the sent event, and the coalesced ones before it, so it is never sent twice
+      sendingQueue.remove(eventEnd - removedCount);
+      removedCount = eventEnd;
+    }
+
+    sendingQueue.remove(batchEnd - removedCount);
+    return batchEnd == batch.size();
+  }
+
+  private boolean isRetryable(@NonNull IOException exception) {
+    return !(exception instanceof HttpResponseException)
+        || ((HttpResponseException) exception).getStatus() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+  }
+
+  /**
+   * Position of the given event in the given batch. Coalesced events are the instances of the
+   * batch, so they are looked up by identity, even if an equal event is in the batch.
+   */
+  private static int indexOf(@NonNull List<PendingAppEvent> batch, @NonNull PendingAppEvent event) {
+    for (int i = 0; i < batch.size(); i++) {
+      if (batch.get(i) == event) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Event is not part of the batch");
+  }
+
+  /**
+   * Drop Active/Inactive flaps from the given events.
+   * <p>
+   * An Active event directly following an Inactive event within the given window means that the
+   * application went to background for a short time only: both events are dropped. A repeated
+   * Active or Inactive event is also dropped. Launch events are always kept.
+   *
+   * @param events events to coalesce, ordered by time
+   * @param windowInMillis maximum duration in background to consider an Inactive/Active pair as a flap
+   * @return coalesced events, ordered by time
+   */
+  @NonNull
+  @VisibleForTesting
+  static List<PendingAppEvent> coalesce(
+      @NonNull List<PendingAppEvent> events,
+      long windowInMillis
+  ) {
+    List<PendingAppEvent> coalesced = new ArrayList<>(events.size());
+    for (PendingAppEvent event : events) {
+      String eventType = event.getEventType();
+      PendingAppEvent previous = coalesced.isEmpty() ? null : coalesced.get(coalesced.size() - 1);
+
+      boolean isStateTransition = previous != null
+          && !EVENT_LAUNCH.equals(eventType)
+          && !EVENT_LAUNCH.equals(previous.getEventType());
+
+      if (!isStateTransition) {
+        coalesced.add(event);
+      } else if (previous.getEventType().equals(eventType)) {
+        // Repeated state: keep the first event only
+        continue;
+      } else if (EVENT_ACTIVE.equals(eventType)
+          && event.getTimestampInMillis() - previous.getTimestampInMillis() <= windowInMillis) {
+        coalesced.remove(coalesced.size() - 1);
+      } else {
+        coalesced.add(event);
+      }
+    }
+    return coalesced;
+  }
+
+  /**
+   * Forward the throttle of a sent event to this instance, and keep the failure of the sending, if
+   * any, to decide what to do with the event.
+   */
+  private class AppEventSendListener implements AppEventResponseListener {
+    @Nullable
+    private Throwable failure;
+
+    @Override
+    public void setThrottle(int throttle) {
+      AppEvents.this.setThrottle(throttle);
+    }
+
+    @Override
+    public void onAppEventFailed(@NonNull Throwable throwable) {
+      failure = throwable;
+    }
+  }
+
+  private class AppEventFlushTask extends SafeRunnable {
+    @Override
+    public void runSafely() {
+      flush();
+    }
+  }
 }
@@ -0,0 +1,31 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.AppEvents
+
+import com.squareup.moshi.Json
+import com.squareup.moshi.JsonClass
+
+/**
+ * App event that is not sent yet.
+ *
+ * @param eventType type of event: Launch, Active or Inactive
+ * @param timestampInMillis time at which the event happened
+ */
+@JsonClass(generateAdapter = true)
+internal data class PendingAppEvent(
+    @Json(name = "eventType") val eventType: String,
+    @Json(name = "timestamp") val timestampInMillis: Long
+)
@@ -23,10 +23,8 @@ import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.bid.BidLifecycleListener;
 import com.criteo.publisher.cache.SdkCache;
 import com.criteo.publisher.context.ContextData;
-import com.criteo.publisher.csm.MetricSendingQueueConsumer;
 import com.criteo.publisher.logging.Logger;
 import com.criteo.publisher.logging.LoggerFactory;
-import com.criteo.publisher.logging.RemoteLogSendingQueueConsumer;
 import com.criteo.publisher.model.AdUnit;
 import com.criteo.publisher.model.AdUnitMapper;
 import com.criteo.publisher.model.CacheAdUnit;
@@ -36,13 +34,15 @@ import com.criteo.publisher.model.CdbResponseSlot;
 import com.criteo.publisher.model.Config;
 import com.criteo.publisher.network.BidRequestSender;
 import com.criteo.publisher.network.LiveBidRequestSender;
+import com.criteo.publisher.network.NetworkPolicy;
+import com.criteo.publisher.network.NetworkWorkCoordinator;
 import com.criteo.publisher.privacy.ConsentData;
 import com.criteo.publisher.util.ApplicationStoppedListener;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
-public class BidManager implements ApplicationStoppedListener {
+public class BidManager implements ApplicationStoppedListener, NetworkPolicy.Listener {
 
   /**
    * Default TTL (15 minutes in seconds) overridden on immediate bids (CPM > 0, TTL = 0).
@@ -78,13 +78,17 @@ public class BidManager implements ApplicationStoppedListener {
   private final BidLifecycleListener bidLifecycleListener;
 
   @NonNull
-  private final MetricSendingQueueConsumer metricSendingQueueConsumer;
+  private final NetworkWorkCoordinator networkWorkCoordinator;
 
   @NonNull
-  private final RemoteLogSendingQueueConsumer remoteLogSendingQueueConsumer;
+  private final ConsentData consentData;
 
+  /**
+   * Listener shared by all the bid requests made for the cache, so they can be coalesced together
+   * by the {@link BidRequestSender}.
+   */
   @NonNull
-  private final ConsentData consentData;
+  private final CdbCallListener cacheOnlyCdbCallListener;
 
   BidManager(
       @NonNull SdkCache sdkCache,
@@ -94,8 +98,7 @@ public class BidManager implements ApplicationStoppedListener {
       @NonNull BidRequestSender bidRequestSender,
       @NonNull LiveBidRequestSender liveBidRequestSender,
       @NonNull BidLifecycleListener bidLifecycleListener,
-      @NonNull MetricSendingQueueConsumer metricSendingQueueConsumer,
-      @NonNull RemoteLogSendingQueueConsumer remoteLogSendingQueueConsumer,
+      @NonNull NetworkWorkCoordinator networkWorkCoordinator,
       @NonNull ConsentData consentData
   ) {
     this.cache = sdkCache;
@@ -105,9 +108,9 @@ public class BidManager implements ApplicationStoppedListener {
     this.bidRequestSender = bidRequestSender;
     this.liveBidRequestSender = liveBidRequestSender;
     this.bidLifecycleListener = bidLifecycleListener;
-    this.metricSendingQueueConsumer = metricSendingQueueConsumer;
-    this.remoteLogSendingQueueConsumer = remoteLogSendingQueueConsumer;
+    this.networkWorkCoordinator = networkWorkCoordinator;
     this.consentData = consentData;
+    this.cacheOnlyCdbCallListener = new CacheOnlyCdbCallListener();
   }
 
   /**
@@ -290,8 +293,7 @@ public class BidManager implements ApplicationStoppedListener {
         );
       }
 
-      metricSendingQueueConsumer.sendMetricBatch();
-      remoteLogSendingQueueConsumer.sendRemoteLogBatch();
+      networkWorkCoordinator.onRadioWindowOpened();
     }
   }
 
@@ -306,10 +308,9 @@ public class BidManager implements ApplicationStoppedListener {
     bidRequestSender.sendBidRequest(
         prefetchCacheAdUnits,
         contextData,
-        new CacheOnlyCdbCallListener()
+        cacheOnlyCdbCallListener
     );
-    metricSendingQueueConsumer.sendMetricBatch();
-    remoteLogSendingQueueConsumer.sendRemoteLogBatch();
+    networkWorkCoordinator.onRadioWindowOpened();
   }
 
   void setCacheAdUnits(@NonNull List<CdbResponseSlot> slots) {
@@ -370,6 +371,15 @@ public class BidManager implements ApplicationStoppedListener {
     bidRequestSender.cancelAllPendingTasks();
   }
 
+  /**
+   * Telemetry is not sent while the device is offline. Send what was accumulated meanwhile, at the
+   * next radio window.
+   */
+  @Override
+  public void onConnectivityRestored() {
+    networkWorkCoordinator.deferUploads();
+  }
+
   /**
    * This method is called back after the "useragent" is fetched
    *
@@ -0,0 +1,96 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher
+
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.model.CdbResponseSlot
+
+/**
+ * [BidListener] whose requester may give up the bid, for instance because the view that would display it is
+ * destroyed.
+ *
+ * Once cancelled, the delegate is released and never notified, and the work registered through
+ * [invokeOnCancellation], such as a pending live bid request, is cancelled with it. Once notified, there is nothing left
+ * to cancel: a request still in flight may then complete to fill the cache.
+ */
+@OpenForTesting
+internal class CancellableBidListener(delegate: BidListener) : BidListener {
+
+  private val lock = Any()
+
+  @GuardedBy("lock")
+  private var delegate: BidListener? = delegate
+
+  @GuardedBy("lock")
+  private var cancelled = false
+
+  @GuardedBy("lock")
+  private var cancellationCallbacks: MutableList<Runnable>? = mutableListOf()
+
+  /**
+   * Whether the requester gave up the bid. A bid served after that is dropped, so it should be cached instead.
+   */
+  val isCancelled: Boolean
+    get() = synchronized(lock) { cancelled }
+
+  override fun onBidResponse(cdbResponseSlot: CdbResponseSlot) {
+    takeDelegate()?.onBidResponse(cdbResponseSlot)
+  }
+
+  override fun onNoBid() {
+    takeDelegate()?.onNoBid()
+  }
+
+  /**
+   * Give up the bid: the delegate is not notified and the registered work is cancelled. This has no effect if this
+   * listener is already notified or cancelled.
+   */
+  fun cancel() {
+    val callbacks = synchronized(lock) {
+      val callbacks = cancellationCallbacks ?: return
+      cancelled = true
+      delegate = null
+      cancellationCallbacks = null
+      callbacks
+    }
+
+    callbacks.forEach { it.run() }
+  }
+
+  /**
+   * Register the given callback to run when this listener is cancelled. It is run immediately if this listener is
+   * already cancelled, and never if it is already notified.
+   */
+  fun invokeOnCancellation(callback: Runnable) {
+    val isAlreadyCancelled = synchronized(lock) {
+      cancellationCallbacks?.add(callback)
+      cancelled
+    }
+
+    if (isAlreadyCancelled) {
+      callback.run()
+    }
+  }
+
+  private fun takeDelegate(): BidListener? = synchronized(lock) {
+    val delegate = this.delegate
+    this.delegate = null
+    cancellationCallbacks = null
+    delegate
+  }
+}
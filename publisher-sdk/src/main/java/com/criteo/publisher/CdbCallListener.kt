@@ -51,5 +51,13 @@ abstract class CdbCallListener(
     bidLifecycleListener.onCdbCallFinished(cdbRequest, cdbResponse)
   }
 
+  /**
+   * Called when the call is given up before its request is sent, for instance when its deadline expires while it is
+   * waiting for a thread or for the device information. As there is no request, nothing is reported to the bid
+   * lifecycle.
+   */
+  fun onCdbCallAbandoned(exception: Exception) {
+  }
+
   abstract fun onTimeBudgetExceeded()
 }
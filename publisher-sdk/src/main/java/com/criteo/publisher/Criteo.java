@@ -29,6 +29,7 @@ import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import com.criteo.publisher.concurrent.MainThreadCostTracker;
 import com.criteo.publisher.context.ContextData;
 import com.criteo.publisher.context.UserData;
 import com.criteo.publisher.interstitial.InterstitialActivityHelper;
@@ -66,6 +67,9 @@ public abstract class Criteo {
     @Nullable
     private Boolean tagForChildDirectedTreatment = null;
 
+    @Nullable
+    private MainThreadCostListener mainThreadCostListener = null;
+
     public Builder(@NonNull Application application, @NonNull String criteoPublisherId) {
       this.application = application;
       this.criteoPublisherId = criteoPublisherId;
@@ -105,12 +109,38 @@ public abstract class Criteo {
       return this;
     }
 
+    /**
+     * Opt in to the measure of the public APIs of the SDK when they are called on the main thread,
+     * starting with this initialization.
+     *
+     * @see MainThreadCostListener
+     */
+    public Builder mainThreadCostListener(@Nullable MainThreadCostListener mainThreadCostListener) {
+      this.mainThreadCostListener = mainThreadCostListener;
+      return this;
+    }
+
     public Criteo init() throws CriteoInitException {
       return Criteo.init(this);
     }
   }
 
   private static Criteo init(@NonNull Builder builder) throws CriteoInitException {
+    MainThreadCostTracker mainThreadCostTracker = DependencyProvider.getInstance()
+        .provideMainThreadCostTracker();
+    if (builder.mainThreadCostListener != null) {
+      mainThreadCostTracker.setListener(builder.mainThreadCostListener);
+    }
+
+    MainThreadCostTracker.Measurement measurement = mainThreadCostTracker.start("Criteo.Builder.init");
+    try {
+      return doInit(builder);
+    } finally {
+      measurement.stop();
+    }
+  }
+
+  private static Criteo doInit(@NonNull Builder builder) throws CriteoInitException {
     Logger logger = LoggerFactory.getLogger(Criteo.class);
 
     synchronized (Criteo.class) {
@@ -26,6 +26,7 @@ import com.criteo.publisher.adview.MraidController
 import com.criteo.publisher.adview.MraidPlacementType
 import com.criteo.publisher.adview.MraidState
 import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.concurrent.MainThreadCostTracker
 import com.criteo.publisher.context.ContextData
 import com.criteo.publisher.integration.Integration
 import com.criteo.publisher.integration.IntegrationRegistry
@@ -53,10 +54,12 @@ class CriteoBannerAdWebView(
   private var criteo: Criteo? = null
   var adListener: CriteoBannerAdListener? = null
 
-  private val eventController: CriteoBannerEventController by lazy {
+  private val eventControllerLazy = lazy {
     getCriteo().createBannerController(this)
   }
 
+  private val eventController: CriteoBannerEventController by eventControllerLazy
+
   override fun provideMraidController(): MraidController {
     return DependencyProvider.getInstance().provideMraidController(MraidPlacementType.INLINE, this)
   }
@@ -76,10 +79,13 @@ class CriteoBannerAdWebView(
   @JvmOverloads
   @Suppress("TooGenericExceptionCaught")
   fun loadAd(contextData: ContextData = ContextData()) {
+    val measurement = mainThreadCostTracker.start("CriteoBannerView.loadAd")
     try {
       doLoadAd(contextData)
     } catch (tr: Throwable) {
       logger.log(onUncaughtErrorAtPublicApi(tr))
+    } finally {
+      measurement.stop()
     }
   }
 
@@ -101,10 +107,13 @@ class CriteoBannerAdWebView(
 
   @Suppress("TooGenericExceptionCaught")
   fun loadAd(bid: Bid?) {
+    val measurement = mainThreadCostTracker.start("CriteoBannerView.loadAd")
     try {
       doLoadAd(bid)
     } catch (tr: Throwable) {
       logger.log(onUncaughtErrorAtPublicApi(tr))
+    } finally {
+      measurement.stop()
     }
   }
 
@@ -116,6 +125,17 @@ class CriteoBannerAdWebView(
     }
   }
 
+  /**
+   * Give up the bids still pending for this banner, so they neither reach its listener nor hold a thread, before
+   * destroying it.
+   */
+  override fun destroy() {
+    if (eventControllerLazy.isInitialized()) {
+      eventController.cancelPendingBids()
+    }
+    super.destroy()
+  }
+
   private fun loadIfAdNotExpanded(loadAction: () -> Unit) {
     if (mraidController.currentState == MraidState.EXPANDED) {
       logger.log(onBannerViewFailedToReloadDuringExpandedState())
@@ -130,4 +150,7 @@ class CriteoBannerAdWebView(
 
   private val integrationRegistry: IntegrationRegistry
     get() = DependencyProvider.getInstance().provideIntegrationRegistry()
+
+  private val mainThreadCostTracker: MainThreadCostTracker
+    get() = DependencyProvider.getInstance().provideMainThreadCostTracker()
 }
@@ -37,6 +37,11 @@ import com.criteo.publisher.model.CdbResponseSlot;
 import com.criteo.publisher.tasks.CriteoBannerListenerCallTask;
 import com.criteo.publisher.tasks.CriteoBannerLoadTask;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 
 public class CriteoBannerEventController {
@@ -55,6 +60,14 @@ public class CriteoBannerEventController {
   @NonNull
   private final RunOnUiThreadExecutor executor;
 
+  /**
+   * Bids requested for the banner and maybe not served yet. Served ones are released by the bidding
+   * pipeline, so they are only weakly referenced here.
+   */
+  @NonNull
+  private final Set<CancellableBidListener> pendingBidListeners =
+      Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
   public CriteoBannerEventController(
       @NonNull CriteoBannerAdWebView bannerView,
       @NonNull Criteo criteo,
@@ -69,7 +82,7 @@ public class CriteoBannerEventController {
   }
 
   public void fetchAdAsync(@Nullable AdUnit adUnit, @NonNull ContextData contextData) {
-    criteo.getBidForAdUnit(adUnit, contextData, new BidListener() {
+    CancellableBidListener bidListener = new CancellableBidListener(new BidListener() {
       @Override
       public void onBidResponse(@NonNull CdbResponseSlot cdbResponseSlot) {
         notifyFor(VALID);
@@ -81,6 +94,25 @@ public class CriteoBannerEventController {
         notifyFor(INVALID);
       }
    });
+
+    pendingBidListeners.add(bidListener);
+    criteo.getBidForAdUnit(adUnit, contextData, bidListener);
+  }
+
+  /**
+   * Give up the bids requested for the banner and not served yet, because the banner is destroyed.
+   * The listener of the banner is not notified of them, and their live bid requests are cancelled.
+   */
+  void cancelPendingBids() {
+    List<CancellableBidListener> bidListeners;
+    synchronized (pendingBidListeners) {
+      bidListeners = new ArrayList<>(pendingBidListeners);
+      pendingBidListeners.clear();
+    }
+
+    for (CancellableBidListener bidListener : bidListeners) {
+      bidListener.cancel();
+    }
   }
 
   public void fetchAdAsync(@Nullable Bid bid) {
@@ -22,6 +22,7 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.criteo.publisher.bid.BidLifecycleListener;
+import com.criteo.publisher.concurrent.MainThreadCostTracker;
 import com.criteo.publisher.context.ContextData;
 import com.criteo.publisher.context.UserData;
 import com.criteo.publisher.headerbidding.HeaderBidding;
@@ -31,6 +32,7 @@ import com.criteo.publisher.logging.LoggerFactory;
 import com.criteo.publisher.model.AdUnit;
 import com.criteo.publisher.model.Config;
 import com.criteo.publisher.model.DeviceInfo;
+import com.criteo.publisher.network.PixelDispatcher;
 import com.criteo.publisher.privacy.UserPrivacyUtil;
 import java.util.List;
 import java.util.concurrent.Executor;
@@ -64,6 +66,9 @@ class CriteoInternal extends Criteo {
   @NonNull
   private final InterstitialActivityHelper interstitialActivityHelper;
 
+  @NonNull
+  private final MainThreadCostTracker mainThreadCostTracker;
+
   CriteoInternal(
       Application application,
       @NonNull List<AdUnit> adUnits,
@@ -72,17 +77,28 @@ class CriteoInternal extends Criteo {
       @NonNull DependencyProvider dependencyProvider
   ) {
     this.dependencyProvider = dependencyProvider;
+    this.mainThreadCostTracker = dependencyProvider.provideMainThreadCostTracker();
 
     dependencyProvider.provideSession();
 
     deviceInfo = dependencyProvider.provideDeviceInfo();
     deviceInfo.initialize();
 
+    dependencyProvider.provideConnectivityMonitor().register();
+    dependencyProvider.provideCdbRequestTemplateCache().register();
+    dependencyProvider.provideBidRequestSender().sendConnectionWarmUpRequest();
+
     dependencyProvider.provideAdvertisingInfo().prefetchAsync();
 
     config = dependencyProvider.provideConfig();
 
     bidManager = dependencyProvider.provideBidManager();
+    dependencyProvider.provideNetworkPolicy().addListener(bidManager);
+
+    PixelDispatcher pixelDispatcher = dependencyProvider.providePixelDispatcher();
+    dependencyProvider.provideNetworkPolicy().addListener(pixelDispatcher);
+    pixelDispatcher.resumePendingPixels();
+
     consumableBidLoader = dependencyProvider.provideConsumableBidLoader();
     headerBidding = dependencyProvider.provideHeaderBidding();
 
@@ -95,6 +111,7 @@ class CriteoInternal extends Criteo {
     userPrivacyUtil.storeTagForChildDirectedTreatment(tagForChildDirectedTreatment);
 
     application.registerActivityLifecycleCallbacks(dependencyProvider.provideAppLifecycleUtil());
+    dependencyProvider.provideNetworkPolicy().addListener(dependencyProvider.provideAppEvents());
 
     dependencyProvider.provideTopActivityFinder().registerActivityLifecycleFor(application);
 
@@ -115,10 +132,15 @@ class CriteoInternal extends Criteo {
 
   @Override
   public void enrichAdObjectWithBid(Object object, @Nullable Bid bid) {
+    MainThreadCostTracker.Measurement measurement = mainThreadCostTracker.start(
+        "Criteo.enrichAdObjectWithBid"
+    );
     try {
       doSetBidsForAdUnit(object, bid);
     } catch (Throwable e) {
       logger.log(onUncaughtErrorAtPublicApi(e));
+    } finally {
+      measurement.stop();
     }
   }
 
@@ -140,11 +162,14 @@ class CriteoInternal extends Criteo {
       @NonNull ContextData contextData,
       @NonNull BidResponseListener bidResponseListener
   ) {
+    MainThreadCostTracker.Measurement measurement = mainThreadCostTracker.start("Criteo.loadBid");
     try {
       consumableBidLoader.loadBid(adUnit, contextData, bidResponseListener);
     } catch (Throwable e) {
       logger.log(onUncaughtErrorAtPublicApi(e));
       bidResponseListener.onResponse(null);
+    } finally {
+      measurement.stop();
     }
   }
 
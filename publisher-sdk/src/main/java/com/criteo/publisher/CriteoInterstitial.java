@@ -27,6 +27,7 @@ import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import com.criteo.publisher.concurrent.MainThreadCostTracker;
 import com.criteo.publisher.concurrent.RunOnUiThreadExecutor;
 import com.criteo.publisher.context.ContextData;
 import com.criteo.publisher.integration.Integration;
@@ -101,10 +102,15 @@ public class CriteoInterstitial {
       return;
     }
 
+    MainThreadCostTracker.Measurement measurement = getMainThreadCostTracker().start(
+        "CriteoInterstitial.loadAd"
+    );
     try {
       doLoadAd(contextData);
     } catch (Throwable tr) {
       logger.log(onUncaughtErrorAtPublicApi(tr));
+    } finally {
+      measurement.stop();
     }
   }
 
@@ -120,10 +126,15 @@ public class CriteoInterstitial {
       return;
     }
 
+    MainThreadCostTracker.Measurement measurement = getMainThreadCostTracker().start(
+        "CriteoInterstitial.loadAd"
+    );
     try {
       doLoadAd(bid);
     } catch (Throwable tr) {
       logger.log(onUncaughtErrorAtPublicApi(tr));
+    } finally {
+      measurement.stop();
     }
   }
 
@@ -159,10 +170,15 @@ public class CriteoInterstitial {
       return;
     }
 
+    MainThreadCostTracker.Measurement measurement = getMainThreadCostTracker().start(
+        "CriteoInterstitial.show"
+    );
     try {
       doShow();
     } catch (Throwable tr) {
       logger.log(onUncaughtErrorAtPublicApi(tr));
+    } finally {
+      measurement.stop();
     }
   }
 
@@ -213,4 +229,9 @@ public class CriteoInterstitial {
     return DependencyProvider.getInstance().provideRunOnUiThreadExecutor();
   }
 
+  @NonNull
+  private MainThreadCostTracker getMainThreadCostTracker() {
+    return DependencyProvider.getInstance().provideMainThreadCostTracker();
+  }
+
 }
@@ -23,7 +23,11 @@ import android.content.Context;
 import android.webkit.WebView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.criteo.publisher.AppEvents.AppEventSendingQueue;
+import com.criteo.publisher.AppEvents.AppEventSendingQueue.AdapterAppEventSendingQueue;
+import com.criteo.publisher.AppEvents.AppEventSendingQueueConfiguration;
 import com.criteo.publisher.AppEvents.AppEvents;
+import com.criteo.publisher.AppEvents.PendingAppEvent;
 import com.criteo.publisher.activity.TopActivityFinder;
 import com.criteo.publisher.advancednative.AdChoiceOverlay;
 import com.criteo.publisher.advancednative.ClickDetection;
@@ -49,16 +53,21 @@ import com.criteo.publisher.bid.LoggingBidLifecycleListener;
 import com.criteo.publisher.bid.UniqueIdGenerator;
 import com.criteo.publisher.cache.SdkCache;
 import com.criteo.publisher.concurrent.AsyncResources;
+import com.criteo.publisher.concurrent.MainThreadCostTracker;
 import com.criteo.publisher.concurrent.NoOpAsyncResources;
 import com.criteo.publisher.concurrent.RunOnUiThreadExecutor;
-import com.criteo.publisher.concurrent.ThreadPoolExecutorFactory;
+import com.criteo.publisher.concurrent.RuntimeAllocationMeter;
+import com.criteo.publisher.concurrent.SdkExecutors;
 import com.criteo.publisher.context.ConnectionTypeFetcher;
+import com.criteo.publisher.context.ConnectivityMonitor;
 import com.criteo.publisher.context.ContextProvider;
 import com.criteo.publisher.context.UserDataHolder;
 import com.criteo.publisher.csm.ConcurrentSendingQueue;
 import com.criteo.publisher.csm.CsmBidLifecycleListener;
+import com.criteo.publisher.csm.Metric;
 import com.criteo.publisher.csm.MetricRepository;
 import com.criteo.publisher.csm.MetricRepositoryFactory;
+import com.criteo.publisher.csm.MetricRequest;
 import com.criteo.publisher.csm.MetricSendingQueue;
 import com.criteo.publisher.csm.MetricSendingQueue.AdapterMetricSendingQueue;
 import com.criteo.publisher.csm.MetricSendingQueueConfiguration;
@@ -76,10 +85,12 @@ import com.criteo.publisher.integration.IntegrationRegistry;
 import com.criteo.publisher.interstitial.CriteoInterstitialMraidController;
 import com.criteo.publisher.interstitial.InterstitialActivityHelper;
 import com.criteo.publisher.interstitial.InterstitialAdWebView;
+import com.criteo.publisher.interstitial.InterstitialCreativePrefetcher;
 import com.criteo.publisher.logging.ConsoleHandler;
 import com.criteo.publisher.logging.LoggerFactory;
 import com.criteo.publisher.logging.PublisherCodeRemover;
 import com.criteo.publisher.logging.RemoteHandler;
+import com.criteo.publisher.logging.RemoteLogRecords;
 import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogLevel;
 import com.criteo.publisher.logging.RemoteLogRecordsFactory;
 import com.criteo.publisher.logging.RemoteLogSendingQueue;
@@ -87,13 +98,31 @@ import com.criteo.publisher.logging.RemoteLogSendingQueue.AdapterRemoteLogSendin
 import com.criteo.publisher.logging.RemoteLogSendingQueueConfiguration;
 import com.criteo.publisher.logging.RemoteLogSendingQueueConsumer;
 import com.criteo.publisher.model.AdUnitMapper;
+import com.criteo.publisher.model.CdbRequest;
 import com.criteo.publisher.model.CdbRequestFactory;
+import com.criteo.publisher.model.CdbRequestTemplateCache;
+import com.criteo.publisher.model.CdbResponseSlot;
 import com.criteo.publisher.model.Config;
 import com.criteo.publisher.model.DeviceInfo;
+import com.criteo.publisher.model.RemoteConfigRequest;
 import com.criteo.publisher.model.RemoteConfigRequestFactory;
+import com.criteo.publisher.model.RemoteConfigResponse;
+import com.criteo.publisher.model.TelemetryRequest;
+import com.criteo.publisher.model.TelemetryResponse;
 import com.criteo.publisher.network.BidRequestSender;
+import com.criteo.publisher.network.CdbEndpointSelector;
+import com.criteo.publisher.network.CdbSession;
 import com.criteo.publisher.network.LiveBidRequestSender;
+import com.criteo.publisher.network.NetworkPolicy;
+import com.criteo.publisher.network.NetworkStats;
+import com.criteo.publisher.network.NetworkWorkCoordinator;
+import com.criteo.publisher.network.PendingPixel;
+import com.criteo.publisher.network.PixelDispatcher;
+import com.criteo.publisher.network.PixelStore;
 import com.criteo.publisher.network.PubSdkApi;
+import com.criteo.publisher.network.RequestScheduler;
+import com.criteo.publisher.network.RequestScheduler.Priority;
+import com.criteo.publisher.network.TelemetrySendingQueueConsumer;
 import com.criteo.publisher.privacy.ConsentData;
 import com.criteo.publisher.privacy.UserPrivacyUtil;
 import com.criteo.publisher.privacy.gdpr.GdprDataFetcher;
@@ -103,6 +132,7 @@ import com.criteo.publisher.util.AdvertisingInfo.SafeAdvertisingIdClient;
 import com.criteo.publisher.util.AndroidUtil;
 import com.criteo.publisher.util.AppLifecycleUtil;
 import com.criteo.publisher.util.BuildConfigWrapper;
+import com.criteo.publisher.util.CborSerializer;
 import com.criteo.publisher.util.DeviceUtil;
 import com.criteo.publisher.util.JsonSerializer;
 import com.criteo.publisher.util.MapUtilKt;
@@ -113,11 +143,13 @@ import com.criteo.publisher.util.jsonadapter.BooleanJsonAdapter;
 import com.criteo.publisher.util.jsonadapter.URIAdapter;
 import com.criteo.publisher.util.jsonadapter.URLAdapter;
 import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
 import com.squareup.moshi.adapters.EnumJsonAdapter;
 import com.squareup.picasso.Picasso;
 import java.net.URI;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
@@ -208,7 +240,50 @@ public class DependencyProvider {
   public PubSdkApi providePubSdkApi() {
     return getOrCreate(PubSdkApi.class, () -> new PubSdkApi(
         provideBuildConfigWrapper(),
-        provideJsonSerializer()
+        provideJsonSerializer(),
+        provideCborSerializer(),
+        provideNetworkPolicy(),
+        provideNetworkStats(),
+        provideConfig(),
+        provideCdbSession(),
+        provideCdbEndpointSelector()
+    ));
+  }
+
+  @NonNull
+  public CdbEndpointSelector provideCdbEndpointSelector() {
+    return getOrCreate(CdbEndpointSelector.class, () -> new CdbEndpointSelector(
+        provideBuildConfigWrapper(),
+        provideConfig(),
+        provideClock()
+    ));
+  }
+
+  @NonNull
+  public CdbSession provideCdbSession() {
+    return getOrCreate(CdbSession.class, CdbSession::new);
+  }
+
+  @NonNull
+  public NetworkStats provideNetworkStats() {
+    return getOrCreate(NetworkStats.class, () -> new NetworkStats(
+        provideClock()
+    ));
+  }
+
+  @NonNull
+  public NetworkPolicy provideNetworkPolicy() {
+    return getOrCreate(NetworkPolicy.class, () -> new NetworkPolicy(
+        provideBuildConfigWrapper()
+    ));
+  }
+
+  @NonNull
+  public ConnectivityMonitor provideConnectivityMonitor() {
+    return getOrCreate(ConnectivityMonitor.class, () -> new ConnectivityMonitor(
+        provideContext(),
+        provideConnectionTypeFetcher(),
+        provideNetworkPolicy()
     ));
   }
 
@@ -241,9 +316,61 @@ public class DependencyProvider {
     ));
   }
 
+  @NonNull
+  public SdkExecutors provideSdkExecutors() {
+    return getOrCreate(SdkExecutors.class, SdkExecutors::new);
+  }
+
+  /**
+   * Executor for network I/O.
+   */
   @NonNull
   public Executor provideThreadPoolExecutor() {
-    return getOrCreate(Executor.class, new ThreadPoolExecutorFactory());
+    return getOrCreate(Executor.class, () -> provideSdkExecutors().getNetworkExecutor());
+  }
+
+  /**
+   * Executor for disk I/O of telemetry.
+   */
+  @NonNull
+  public Executor provideDiskExecutor() {
+    return provideSdkExecutors().getDiskExecutor();
+  }
+
+  /**
+   * Executor for short computations.
+   */
+  @NonNull
+  public Executor provideCpuExecutor() {
+    return provideSdkExecutors().getCpuExecutor();
+  }
+
+  @NonNull
+  public MainThreadCostTracker provideMainThreadCostTracker() {
+    return getOrCreate(MainThreadCostTracker.class, () -> new MainThreadCostTracker(
+        new RuntimeAllocationMeter()
+    ));
+  }
+
+  @NonNull
+  public RequestScheduler provideRequestScheduler() {
+    return getOrCreate(RequestScheduler.class, () -> new RequestScheduler(
+        provideThreadPoolExecutor(),
+        provideScheduledExecutorService(),
+        provideBuildConfigWrapper()
+    ));
+  }
+
+  @NonNull
+  public NetworkWorkCoordinator provideNetworkWorkCoordinator() {
+    return getOrCreate(NetworkWorkCoordinator.class, () -> new NetworkWorkCoordinator(
+        provideMetricSendingQueueConsumer(),
+        provideRemoteLogSendingQueueConsumer(),
+        provideTelemetrySendingQueueConsumer(),
+        provideScheduledExecutorService(),
+        provideBuildConfigWrapper(),
+        provideConfig()
+    ));
   }
 
   @NonNull
@@ -288,8 +415,7 @@ public class DependencyProvider {
         provideBidRequestSender(),
         provideLiveBidRequestSender(),
         provideBidLifecycleListener(),
-        provideMetricSendingQueueConsumer(),
-        provideRemoteLogSendingQueueConsumer(),
+        provideNetworkWorkCoordinator(),
         provideConsentData()
     ));
   }
@@ -305,7 +431,7 @@ public class DependencyProvider {
   public DeviceInfo provideDeviceInfo() {
     return getOrCreate(DeviceInfo.class, () -> new DeviceInfo(
         provideContext(),
-        provideThreadPoolExecutor()
+        provideCpuExecutor()
     ));
   }
 
@@ -313,7 +439,8 @@ public class DependencyProvider {
   public AdUnitMapper provideAdUnitMapper() {
     return getOrCreate(AdUnitMapper.class, () -> new AdUnitMapper(
         provideDeviceUtil(),
-        provideIntegrationRegistry()
+        provideIntegrationRegistry(),
+        provideNetworkPolicy()
     ));
   }
 
@@ -326,7 +453,25 @@ public class DependencyProvider {
         providePubSdkApi(),
         provideUserPrivacyUtil(),
         provideDeviceInfo(),
-        provideThreadPoolExecutor()
+        provideRequestScheduler().executorFor(Priority.TELEMETRY),
+        provideScheduledExecutorService(),
+        provideAppEventSendingQueue(),
+        provideBuildConfigWrapper(),
+        provideNetworkPolicy()
+    ));
+  }
+
+  @NonNull
+  public AppEventSendingQueue provideAppEventSendingQueue() {
+    return getOrCreate(AppEventSendingQueue.class, () -> new AdapterAppEventSendingQueue(
+        provideSendingQueue(provideAppEventSendingQueueConfiguration())
+    ));
+  }
+
+  @NonNull
+  public AppEventSendingQueueConfiguration provideAppEventSendingQueueConfiguration() {
+    return getOrCreate(AppEventSendingQueueConfiguration.class, () -> new AppEventSendingQueueConfiguration(
+        provideBuildConfigWrapper()
     ));
   }
 
@@ -334,7 +479,8 @@ public class DependencyProvider {
   public AppLifecycleUtil provideAppLifecycleUtil() {
     return getOrCreate(AppLifecycleUtil.class, () -> new AppLifecycleUtil(
         provideAppEvents(),
-        provideBidManager()
+        provideBidManager(),
+        provideSdkExecutors()
     ));
   }
 
@@ -350,12 +496,22 @@ public class DependencyProvider {
         provideCriteoPublisherId(),
         provideDeviceInfo(),
         provideAdvertisingInfo(),
-        provideUserPrivacyUtil(),
         provideUniqueIdGenerator(),
+        provideCdbRequestTemplateCache()
+    ));
+  }
+
+  @NonNull
+  public CdbRequestTemplateCache provideCdbRequestTemplateCache() {
+    return getOrCreate(CdbRequestTemplateCache.class, () -> new CdbRequestTemplateCache(
+        provideContext(),
+        provideUserPrivacyUtil(),
         provideBuildConfigWrapper(),
         provideIntegrationRegistry(),
         provideContextProvider(),
-        provideUserDataHolder()
+        provideUserDataHolder(),
+        provideSharedPreferencesFactory(),
+        provideConnectivityMonitor()
     ));
   }
 
@@ -384,7 +540,11 @@ public class DependencyProvider {
         provideRemoteConfigRequestFactory(),
         provideClock(),
         providePubSdkApi(),
-        provideThreadPoolExecutor()
+        provideRequestScheduler().executorFor(Priority.BIDDING),
+        provideNetworkPolicy(),
+        provideConfig(),
+        provideAdUnitMapper(),
+        provideScheduledExecutorService()
     ));
   }
 
@@ -394,9 +554,10 @@ public class DependencyProvider {
         providePubSdkApi(),
         provideCdbRequestFactory(),
         provideClock(),
-        provideThreadPoolExecutor(),
+        provideRequestScheduler().executorFor(Priority.BIDDING),
         provideScheduledExecutorService(),
-        provideConfig()
+        provideConfig(),
+        provideNetworkPolicy()
     ));
   }
 
@@ -404,7 +565,7 @@ public class DependencyProvider {
   public BidLifecycleListener provideBidLifecycleListener() {
     return getOrCreate(BidLifecycleListener.class, () -> {
       CompositeBidLifecycleListener listener = new CompositeBidLifecycleListener();
-      listener.add(new LoggingBidLifecycleListener(provideRemoteLogSendingQueueConsumer()));
+      listener.add(new LoggingBidLifecycleListener(provideNetworkWorkCoordinator()));
 
       listener.add(new CsmBidLifecycleListener(
           provideMetricRepository(),
@@ -412,20 +573,34 @@ public class DependencyProvider {
           provideClock(),
           provideConfig(),
           provideConsentData(),
-          provideThreadPoolExecutor()
+          provideDiskExecutor()
       ));
 
+      listener.add(provideInterstitialCreativePrefetcher());
+
       return listener;
     });
   }
 
+  @NonNull
+  public InterstitialCreativePrefetcher provideInterstitialCreativePrefetcher() {
+    return getOrCreate(InterstitialCreativePrefetcher.class, () -> new InterstitialCreativePrefetcher(
+        providePubSdkApi(),
+        provideDeviceInfo(),
+        provideSdkCache(),
+        provideConfig(),
+        provideClock(),
+        provideBuildConfigWrapper(),
+        provideRequestScheduler().executorFor(Priority.DELIVERY)
+    ));
+  }
+
   @NonNull
   public NativeAdMapper provideNativeAdMapper() {
     return getOrCreate(NativeAdMapper.class, () -> new NativeAdMapper(
         provideVisibilityTracker(),
         new ImpressionHelper(
-            providePubSdkApi(),
-            provideThreadPoolExecutor(),
+            providePixelDispatcher(),
             provideRunOnUiThreadExecutor()
         ),
         provideClickDetection(),
@@ -566,7 +741,8 @@ public class DependencyProvider {
         providePubSdkApi(),
         provideBuildConfigWrapper(),
         provideConfig(),
-        provideThreadPoolExecutor()
+        provideNetworkPolicy(),
+        provideRequestScheduler().executorFor(Priority.TELEMETRY)
     ));
   }
 
@@ -615,10 +791,29 @@ public class DependencyProvider {
   @NonNull
   public JsonSerializer provideJsonSerializer() {
     return getOrCreate(JsonSerializer.class, () -> new JsonSerializer(
-        provideMoshi()
+        provideMoshi(),
+        Arrays.asList(
+            CdbRequest.class,
+            CdbResponseSlot.class,
+            Metric.class,
+            MetricRequest.class,
+            RemoteLogRecords.class,
+            Types.newParameterizedType(List.class, RemoteLogRecords.class),
+            RemoteConfigRequest.class,
+            RemoteConfigResponse.class,
+            TelemetryRequest.class,
+            TelemetryResponse.class,
+            PendingPixel.class,
+            PendingAppEvent.class
+        )
     ));
   }
 
+  @NonNull
+  public CborSerializer provideCborSerializer() {
+    return getOrCreate(CborSerializer.class, CborSerializer::new);
+  }
+
   @NonNull
   public Moshi provideMoshi() {
     return getOrCreate(Moshi.class, () -> new Moshi.Builder()
@@ -695,6 +890,28 @@ public class DependencyProvider {
     ));
   }
 
+  @NonNull
+  public PixelDispatcher providePixelDispatcher() {
+    return getOrCreate(PixelDispatcher.class, () -> new PixelDispatcher(
+        providePubSdkApi(),
+        providePixelStore(),
+        provideUniqueIdGenerator(),
+        provideClock(),
+        provideBuildConfigWrapper(),
+        provideRequestScheduler().executorFor(Priority.DELIVERY),
+        provideScheduledExecutorService()
+    ));
+  }
+
+  @NonNull
+  public PixelStore providePixelStore() {
+    return getOrCreate(PixelStore.class, () -> new PixelStore(
+        provideContext(),
+        provideBuildConfigWrapper(),
+        provideJsonSerializer()
+    ));
+  }
+
   @NonNull
   public RemoteLogRecordsFactory provideRemoteLogRecordsFactory() {
     return getOrCreate(RemoteLogRecordsFactory.class, () -> new RemoteLogRecordsFactory(
@@ -719,7 +936,7 @@ public class DependencyProvider {
         provideRemoteLogRecordsFactory(),
         provideRemoteLogSendingQueue(),
         provideConfig(),
-        provideThreadPoolExecutor(),
+        provideDiskExecutor(),
         provideConsentData()
     ));
   }
@@ -727,11 +944,25 @@ public class DependencyProvider {
   @NonNull
   public RemoteLogSendingQueueConsumer provideRemoteLogSendingQueueConsumer() {
     return getOrCreate(RemoteLogSendingQueueConsumer.class, () -> new RemoteLogSendingQueueConsumer(
+        provideRemoteLogSendingQueue(),
+        providePubSdkApi(),
+        provideAdvertisingInfo(),
+        provideNetworkPolicy(),
+        provideRequestScheduler().executorFor(Priority.TELEMETRY)
+    ));
+  }
+
+  @NonNull
+  public TelemetrySendingQueueConsumer provideTelemetrySendingQueueConsumer() {
+    return getOrCreate(TelemetrySendingQueueConsumer.class, () -> new TelemetrySendingQueueConsumer(
+        provideMetricSendingQueue(),
         provideRemoteLogSendingQueue(),
         providePubSdkApi(),
         provideBuildConfigWrapper(),
         provideAdvertisingInfo(),
-        provideThreadPoolExecutor()
+        provideConfig(),
+        provideNetworkPolicy(),
+        provideRequestScheduler().executorFor(Priority.TELEMETRY)
     ));
   }
 
@@ -72,6 +72,19 @@ public class LiveCdbCallListener extends CdbCallListener {
     this.cacheAdUnit = cacheAdUnit;
   }
 
+  /**
+   * Register the given callback to run if the requester of the bid gives it up before it is served.
+   * <p>
+   * This is only possible when the requester provided a {@link CancellableBidListener}, else the
+   * callback is never run.
+   */
+  public void invokeOnCancellation(@NonNull Runnable callback) {
+    BidListener listener = bidListener;
+    if (listener instanceof CancellableBidListener) {
+      ((CancellableBidListener) listener).invokeOnCancellation(callback);
+    }
+  }
+
   /**
    * Triggered when a response is fetched before the expiration of the network timeout. Following
    * this, two things can happen:
@@ -110,7 +123,10 @@ public class LiveCdbCallListener extends CdbCallListener {
   }
 
   private void serveBidResponseIfPossible(@NonNull CdbResponseSlot cdbResponseSlot) {
-    if (bidManager.isBidCurrentlySilent(cdbResponseSlot)) {
+    if (isBidListenerCancelled()) {
+      // The requester gave up the bid, so keep it for a next one as when the time budget is exceeded
+      bidManager.setCacheAdUnits(singletonList(cdbResponseSlot));
+    } else if (bidManager.isBidCurrentlySilent(cdbResponseSlot)) {
       bidManager.setCacheAdUnits(singletonList(cdbResponseSlot));
       bidListener.onNoBid();
     } else if (cdbResponseSlot.isValid()) {
@@ -121,6 +137,12 @@ public class LiveCdbCallListener extends CdbCallListener {
     }
   }
 
+  private boolean isBidListenerCancelled() {
+    BidListener listener = bidListener;
+    return listener instanceof CancellableBidListener
+        && ((CancellableBidListener) listener).isCancelled();
+  }
+
   /**
    * Triggered when an error happens while fetching a bid. A bid is returned only if it is available in the cache,
    * unless a no-bid was already returned by {@link LiveCdbCallListener#onTimeBudgetExceeded()} on a separate thread.
@@ -131,6 +153,15 @@ public class LiveCdbCallListener extends CdbCallListener {
     onTimeBudgetExceeded();
   }
 
+  /**
+   * Triggered when the call is given up before its request is sent. As for an error, a bid is returned only if it is
+   * available in the cache.
+   */
+  @Override
+  public void onCdbCallAbandoned(@NonNull Exception exception) {
+    onTimeBudgetExceeded();
+  }
+
   /**
    * If the time-budget is exceeded, a bid is returned only if it is available in the cache.
    * Otherwise {@link BidListener#onNoBid()} is triggered
@@ -0,0 +1,48 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher;
+
+import androidx.annotation.Keep;
+import androidx.annotation.NonNull;
+import androidx.annotation.UiThread;
+
+/**
+ * Opt-in callback notified of the cost of the public APIs of the SDK when they are called on the
+ * main thread, such as {@link CriteoBannerView#loadAd()} or {@link Criteo#loadBid(AdUnit,
+ * BidResponseListener)}. Calls from other threads are not measured.
+ * <p>
+ * This is meant for monitoring during development or in a small fraction of production sessions:
+ * the callback runs synchronously at the end of each measured call, so it should be cheap.
+ *
+ * @see Criteo.Builder#mainThreadCostListener(MainThreadCostListener)
+ */
+@Keep
+public interface MainThreadCostListener {
+
+  /**
+   * Callback invoked when a public API called on the main thread returns.
+   *
+   * @param apiName name of the API, such as <code>CriteoBannerView.loadAd</code>
+   * @param wallTimeInNanos time spent in the API
+   * @param allocatedBytes bytes allocated during the call, or <code>-1</code> if they can not be
+   * measured on this device (before Android M). As allocations are counted for the whole process,
+   * this is an upper bound of the allocations of the API.
+   */
+  @UiThread
+  void onMainThreadCost(@NonNull String apiName, long wallTimeInNanos, long allocatedBytes);
+
+}
@@ -22,6 +22,8 @@ import static com.criteo.publisher.ErrorLogMessage.onUncaughtExpectedExceptionIn
 import androidx.annotation.NonNull;
 import com.criteo.publisher.logging.Logger;
 import com.criteo.publisher.logging.LoggerFactory;
+import com.criteo.publisher.network.DeadlineExceededException;
+import com.criteo.publisher.network.NoConnectivityException;
 import com.criteo.publisher.util.PreconditionsUtil;
 import java.net.ProtocolException;
 import java.net.SocketException;
@@ -75,6 +77,8 @@ public abstract class SafeRunnable implements Runnable {
         || throwable instanceof SSLException // when there is a connection issue during SSL handshake
         || throwable instanceof ProtocolException // when there is an issue at protocol level (TCP)
         || throwable instanceof SocketTimeoutException // when there is a timeout during connection
+        || throwable instanceof NoConnectivityException // when the device is known to be offline
+        || throwable instanceof DeadlineExceededException // when a call took more time than allowed
         ;
   }
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import com.criteo.publisher.BidListener;
 import com.criteo.publisher.BidManager;
 import com.criteo.publisher.CriteoErrorCode;
 import com.criteo.publisher.DependencyProvider;
+import com.criteo.publisher.concurrent.MainThreadCostTracker;
 import com.criteo.publisher.concurrent.RunOnUiThreadExecutor;
 import com.criteo.publisher.context.ContextData;
 import com.criteo.publisher.integration.Integration;
@@ -143,10 +144,15 @@ public class CriteoNativeLoader {
    * {@link CriteoNativeAdListener#onAdFailedToReceive(CriteoErrorCode)} callback.
    */
   public void loadAd(@NonNull ContextData contextData) {
+    MainThreadCostTracker.Measurement measurement = getMainThreadCostTracker().start(
+        "CriteoNativeLoader.loadAd"
+    );
     try {
       doLoad(contextData);
     } catch (Throwable t) {
       PreconditionsUtil.throwOrLog(t);
+    } finally {
+      measurement.stop();
     }
   }
 
@@ -168,10 +174,15 @@ public class CriteoNativeLoader {
   }
 
   public void loadAd(@Nullable Bid bid) {
+    MainThreadCostTracker.Measurement measurement = getMainThreadCostTracker().start(
+        "CriteoNativeLoader.loadAd"
+    );
     try {
       doLoad(bid);
     } catch (Throwable t) {
       PreconditionsUtil.throwOrLog(t);
+    } finally {
+      measurement.stop();
     }
   }
 
@@ -184,7 +195,7 @@ public class CriteoNativeLoader {
   }
 
   private void handleNativeAssets(@Nullable NativeAssets assets) {
-    if (assets == null) {
+    if (assets == null || !assets.materialize()) {
       notifyForFailureAsync();
     } else {
       NativeAdMapper nativeAdMapper = getNativeAdMapper();
@@ -243,4 +254,9 @@ public class CriteoNativeLoader {
     return DependencyProvider.getInstance().provideIntegrationRegistry();
   }
 
+  @NonNull
+  private MainThreadCostTracker getMainThreadCostTracker() {
+    return DependencyProvider.getInstance().provideMainThreadCostTracker();
+  }
+
 }
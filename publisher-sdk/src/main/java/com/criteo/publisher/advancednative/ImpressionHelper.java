@@ -19,29 +19,21 @@ package com.criteo.publisher.advancednative;
 import androidx.annotation.NonNull;
 import com.criteo.publisher.SafeRunnable;
 import com.criteo.publisher.concurrent.RunOnUiThreadExecutor;
-import com.criteo.publisher.network.PubSdkApi;
-import java.io.IOException;
-import java.io.InputStream;
+import com.criteo.publisher.network.PixelDispatcher;
 import java.net.URL;
-import java.util.concurrent.Executor;
 
 public class ImpressionHelper {
 
   @NonNull
-  private final PubSdkApi api;
-
-  @NonNull
-  private final Executor executor;
+  private final PixelDispatcher pixelDispatcher;
 
   @NonNull
   private final RunOnUiThreadExecutor runOnUiThreadExecutor;
 
   public ImpressionHelper(
-      @NonNull PubSdkApi api,
-      @NonNull Executor executor,
+      @NonNull PixelDispatcher pixelDispatcher,
       @NonNull RunOnUiThreadExecutor runOnUiThreadExecutor) {
-    this.api = api;
-    this.executor = executor;
+    this.pixelDispatcher = pixelDispatcher;
     this.runOnUiThreadExecutor = runOnUiThreadExecutor;
   }
 
@@ -49,14 +41,13 @@ public class ImpressionHelper {
    * Fire and forget the given pixels
    * <p>
    * Each pixel are fired in asynchronously independently. This means that if one fail, it fails
-   * silently and other continues.
+   * silently and other continues. Delivery, retries and persistence are handled by the
+   * {@link PixelDispatcher}.
    *
    * @param pixels list of pixels to fire
    */
   void firePixels(@NonNull Iterable<URL> pixels) {
-    for (URL impressionPixel : pixels) {
-      executor.execute(new PixelTask(impressionPixel, api));
-    }
+    pixelDispatcher.dispatch(pixels);
   }
 
   /**
@@ -74,27 +65,4 @@ public class ImpressionHelper {
       }
     });
   }
-
-  private static class PixelTask extends SafeRunnable {
-
-    @NonNull
-    private final URL impressionPixel;
-
-    @NonNull
-    private final PubSdkApi api;
-
-    private PixelTask(
-        @NonNull URL impressionPixel,
-        @NonNull PubSdkApi api
-    ) {
-      this.impressionPixel = impressionPixel;
-      this.api = api;
-    }
-
-    public void runSafely() throws IOException {
-      try (InputStream ignored = api.executeRawGet(impressionPixel)) {
-        // ignore response
-      }
-    }
-  }
 }
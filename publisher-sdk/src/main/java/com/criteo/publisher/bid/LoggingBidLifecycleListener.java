@@ -19,11 +19,11 @@ package com.criteo.publisher.bid;
 import androidx.annotation.NonNull;
 import com.criteo.publisher.logging.Logger;
 import com.criteo.publisher.logging.LoggerFactory;
-import com.criteo.publisher.logging.RemoteLogSendingQueueConsumer;
 import com.criteo.publisher.model.CacheAdUnit;
 import com.criteo.publisher.model.CdbRequest;
 import com.criteo.publisher.model.CdbResponse;
 import com.criteo.publisher.model.CdbResponseSlot;
+import com.criteo.publisher.network.NetworkWorkCoordinator;
 
 /**
  * Listener that logs debug messages given the different steps of a bid lifecycle.
@@ -33,16 +33,16 @@ public class LoggingBidLifecycleListener implements BidLifecycleListener {
   private final Logger logger = LoggerFactory.getLogger(LoggingBidLifecycleListener.class);
 
   @NonNull
-  private final RemoteLogSendingQueueConsumer remoteLogSendingQueueConsumer;
+  private final NetworkWorkCoordinator networkWorkCoordinator;
 
-  public LoggingBidLifecycleListener(@NonNull RemoteLogSendingQueueConsumer remoteLogSendingQueueConsumer) {
-    this.remoteLogSendingQueueConsumer = remoteLogSendingQueueConsumer;
+  public LoggingBidLifecycleListener(@NonNull NetworkWorkCoordinator networkWorkCoordinator) {
+    this.networkWorkCoordinator = networkWorkCoordinator;
   }
 
   @Override
   public void onSdkInitialized() {
     logger.debug("onSdkInitialized");
-    remoteLogSendingQueueConsumer.sendRemoteLogBatch();
+    networkWorkCoordinator.deferUploads();
   }
 
   @Override
@@ -19,13 +19,34 @@ package com.criteo.publisher.bid;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.Clock;
+import com.criteo.publisher.util.HexEncoder;
+import java.security.SecureRandom;
 import java.util.UUID;
 
 public class UniqueIdGenerator {
 
+  /**
+   * Number of random bytes drawn at once from the cryptographic generator of a thread. This covers
+   * 64 IDs, so the cost of the generator is paid once every 64 IDs.
+   */
+  private static final int RANDOM_BUFFER_SIZE = 64 * 12;
+
   @NonNull
   private final Clock clock;
 
+  /**
+   * Random bytes of each thread. {@link UUID#randomUUID()} draws from a single generator shared by
+   * the whole process, which serializes concurrent bid requests. Each thread has its own generator
+   * instead, seeded by the platform like any {@link SecureRandom}.
+   */
+  @NonNull
+  private final ThreadLocal<RandomBuffer> randomBuffer = new ThreadLocal<RandomBuffer>() {
+    @Override
+    protected RandomBuffer initialValue() {
+      return new RandomBuffer(new SecureRandom(), RANDOM_BUFFER_SIZE);
+    }
+  };
+
   public UniqueIdGenerator(@NonNull Clock clock) {
     this.clock = clock;
   }
@@ -37,6 +58,9 @@ public class UniqueIdGenerator {
    * represent the UNIX timestamp in seconds. The 24 following ones are random from a cryptographic
    * random generator. This ensures keeping a very low probability of collision.
    * <p>
+   * This is called for every slot and every bid request, so random bits are drawn in bulk from a
+   * generator per thread, and the digits are written without {@link String#format}.
+   * <p>
    * At SDK level, a simpler {@link UUID#randomUUID()} would be sufficient. But those ids are
    * expected to be sent to a Criteo backend and should then be (almost) unique at Criteo level and
    * scale with it.
@@ -58,7 +82,10 @@ public class UniqueIdGenerator {
   @NonNull
   public String generateId() {
     long timeInSecond = clock.getCurrentTimeInMillis() / 1000;
-    return generateId(UUID.randomUUID(), timeInSecond);
+    RandomBuffer random = randomBuffer.get();
+    long msb = (timeInSecond << 32) | (random.nextInt() & 0xFFFFFFFFL);
+    long lsb = random.nextLong();
+    return format(msb, lsb);
   }
 
   @NonNull
@@ -75,7 +102,15 @@ public class UniqueIdGenerator {
     // Paste in the timestamp at the 8 MSB
     msb = (timeInSecond << 32) | (msb & 0xFFFFFFFFL);
 
-    return String.format("%016x%016x", msb, lsb);
+    return format(msb, lsb);
+  }
+
+  @NonNull
+  private static String format(long msb, long lsb) {
+    char[] chars = new char[32];
+    HexEncoder.encode(msb, chars, 0);
+    HexEncoder.encode(lsb, chars, 16);
+    return new String(chars);
   }
 
   /**
@@ -111,4 +146,46 @@ public class UniqueIdGenerator {
     return valueWithoutDestination | byteToCopyAtDestination;
   }
 
+  /**
+   * Random bytes refilled in bulk from a cryptographic generator. This is not thread-safe and should
+   * be confined to a single thread.
+   */
+  @VisibleForTesting
+  static class RandomBuffer {
+
+    @NonNull
+    private final SecureRandom secureRandom;
+
+    @NonNull
+    private final byte[] bytes;
+
+    private int position;
+
+    RandomBuffer(@NonNull SecureRandom secureRandom, int size) {
+      this.secureRandom = secureRandom;
+      this.bytes = new byte[size];
+      this.position = size;
+    }
+
+    int nextInt() {
+      return (int) next(4);
+    }
+
+    long nextLong() {
+      return next(8);
+    }
+
+    private long next(int byteCount) {
+      if (position + byteCount > bytes.length) {
+        secureRandom.nextBytes(bytes);
+        position = 0;
+      }
+
+      long value = 0;
+      for (int i = 0; i < byteCount; i++) {
+        value = (value << 8) | (bytes[position++] & 0xFFL);
+      }
+      return value;
+    }
+  }
 }
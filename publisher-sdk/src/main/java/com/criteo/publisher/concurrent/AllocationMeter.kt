@@ -0,0 +1,33 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+/**
+ * Source of a growing count of allocated bytes, so the allocations of a piece of code are the difference between two
+ * counts.
+ */
+internal fun interface AllocationMeter {
+
+  /**
+   * Return the number of bytes allocated so far, or [UNKNOWN] if it can not be measured.
+   */
+  fun getAllocatedBytes(): Long
+
+  companion object {
+    const val UNKNOWN = -1L
+  }
+}
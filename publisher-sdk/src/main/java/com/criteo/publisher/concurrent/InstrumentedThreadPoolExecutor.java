@@ -0,0 +1,263 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread pool accounting its activity, so that its saturation is visible.
+ * <p>
+ * On top of the active and queued tasks, it counts the completed tasks, the tasks handed over to
+ * its rejection policy, and keeps an histogram of the time tasks wait before being run.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+  /**
+   * Upper bounds of the buckets of the wait time histogram. The last bucket is for wait times above
+   * all bounds.
+   */
+  @VisibleForTesting
+  static final List<Long> WAIT_TIME_UPPER_BOUNDS_IN_MILLIS = Collections.unmodifiableList(
+      Arrays.asList(1L, 5L, 10L, 50L, 100L, 500L, 1000L)
+  );
+
+  @NonNull
+  private final String name;
+
+  @NonNull
+  private final AtomicLong completedCount = new AtomicLong();
+
+  @NonNull
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  @NonNull
+  private final AtomicLongArray waitTimeCounts =
+      new AtomicLongArray(WAIT_TIME_UPPER_BOUNDS_IN_MILLIS.size() + 1);
+
+  public InstrumentedThreadPoolExecutor(
+      @NonNull String name,
+      int corePoolSize,
+      int maximumPoolSize,
+      long keepAliveTime,
+      @NonNull TimeUnit unit,
+      @NonNull BlockingQueue<Runnable> workQueue,
+      @NonNull ThreadFactory threadFactory,
+      @NonNull RejectedExecutionHandler rejectedExecutionHandler
+  ) {
+    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
+    this.name = name;
+    setRejectedExecutionHandler(new CountingRejectedExecutionHandler(rejectedExecutionHandler));
+  }
+
+  @NonNull
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public void execute(@NonNull Runnable command) {
+    super.execute(new TimedRunnable(command, System.nanoTime()));
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    super.beforeExecute(t, r);
+    if (r instanceof TimedRunnable) {
+      long waitTimeInNanos = System.nanoTime() - ((TimedRunnable) r).submissionTimeInNanos;
+      recordWaitTime(TimeUnit.NANOSECONDS.toMillis(waitTimeInNanos));
+    }
+  }
+
+  @Override
+  protected void afterExecute(Runnable r, Throwable t) {
+    super.afterExecute(r, t);
+    completedCount.incrementAndGet();
+  }
+
+  private void recordWaitTime(long waitTimeInMillis) {
+    int index = 0;
+    while (index < WAIT_TIME_UPPER_BOUNDS_IN_MILLIS.size()
+        && waitTimeInMillis >= WAIT_TIME_UPPER_BOUNDS_IN_MILLIS.get(index)) {
+      index++;
+    }
+    waitTimeCounts.incrementAndGet(index);
+  }
+
+  /**
+   * Snapshot of the activity of this pool since its creation.
+   */
+  @NonNull
+  public Stats getStats() {
+    List<Long> counts = new ArrayList<>(waitTimeCounts.length());
+    for (int i = 0; i < waitTimeCounts.length(); i++) {
+      counts.add(waitTimeCounts.get(i));
+    }
+
+    return new Stats(
+        name,
+        getActiveCount(),
+        getQueue().size(),
+        completedCount.get(),
+        rejectedCount.get(),
+        WAIT_TIME_UPPER_BOUNDS_IN_MILLIS,
+        Collections.unmodifiableList(counts)
+    );
+  }
+
+  public static final class Stats {
+
+    @NonNull
+    private final String name;
+    private final int activeCount;
+    private final int queuedCount;
+    private final long completedCount;
+    private final long rejectedCount;
+
+    @NonNull
+    private final List<Long> waitTimeUpperBoundsInMillis;
+
+    @NonNull
+    private final List<Long> waitTimeCounts;
+
+    @VisibleForTesting
+    Stats(
+        @NonNull String name,
+        int activeCount,
+        int queuedCount,
+        long completedCount,
+        long rejectedCount,
+        @NonNull List<Long> waitTimeUpperBoundsInMillis,
+        @NonNull List<Long> waitTimeCounts
+    ) {
+      this.name = name;
+      this.activeCount = activeCount;
+      this.queuedCount = queuedCount;
+      this.completedCount = completedCount;
+      this.rejectedCount = rejectedCount;
+      this.waitTimeUpperBoundsInMillis = waitTimeUpperBoundsInMillis;
+      this.waitTimeCounts = waitTimeCounts;
+    }
+
+    @NonNull
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Approximate number of threads running a task.
+     */
+    public int getActiveCount() {
+      return activeCount;
+    }
+
+    /**
+     * Number of tasks waiting for a thread.
+     */
+    public int getQueuedCount() {
+      return queuedCount;
+    }
+
+    public long getCompletedCount() {
+      return completedCount;
+    }
+
+    /**
+     * Number of tasks handed over to the rejection policy because the pool was saturated.
+     */
+    public long getRejectedCount() {
+      return rejectedCount;
+    }
+
+    @NonNull
+    public List<Long> getWaitTimeUpperBoundsInMillis() {
+      return waitTimeUpperBoundsInMillis;
+    }
+
+    /**
+     * Distribution of the time tasks waited before being run: <code>counts[i]</code> is the number
+     * of wait times lower than <code>upperBoundsInMillis[i]</code> and greater or equal to the
+     * previous bound. The last count is for wait times above all bounds.
+     */
+    @NonNull
+    public List<Long> getWaitTimeCounts() {
+      return waitTimeCounts;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats{"
+          + "name='" + name + '\''
+          + ", activeCount=" + activeCount
+          + ", queuedCount=" + queuedCount
+          + ", completedCount=" + completedCount
+          + ", rejectedCount=" + rejectedCount
+          + ", waitTimeUpperBoundsInMillis=" + waitTimeUpperBoundsInMillis
+          + ", waitTimeCounts=" + waitTimeCounts
+          + '}';
+    }
+  }
+
+  private static final class TimedRunnable implements Runnable {
+
+    @NonNull
+    private final Runnable delegate;
+
+    private final long submissionTimeInNanos;
+
+    private TimedRunnable(@NonNull Runnable delegate, long submissionTimeInNanos) {
+      this.delegate = delegate;
+      this.submissionTimeInNanos = submissionTimeInNanos;
+    }
+
+    @Override
+    public void run() {
+      delegate.run();
+    }
+  }
+
+  private final class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+    @NonNull
+    private final RejectedExecutionHandler delegate;
+
+    private CountingRejectedExecutionHandler(@NonNull RejectedExecutionHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void rejectedExecution(@Nullable Runnable r, @NonNull ThreadPoolExecutor executor) {
+      rejectedCount.incrementAndGet();
+
+      // Give the original task to the policy, so the wait time is only measured within this pool
+      Runnable task = r instanceof TimedRunnable ? ((TimedRunnable) r).delegate : r;
+      delegate.rejectedExecution(task, executor);
+    }
+  }
+}
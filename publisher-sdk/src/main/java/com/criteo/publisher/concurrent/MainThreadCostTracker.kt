@@ -0,0 +1,88 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+import android.os.Looper
+import androidx.annotation.VisibleForTesting
+import com.criteo.publisher.MainThreadCostListener
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.concurrent.AllocationMeter.Companion.UNKNOWN
+import com.criteo.publisher.util.PreconditionsUtil
+
+/**
+ * Opt-in measure of the cost of the public APIs when they are called on the main thread.
+ *
+ * Nothing is measured until a [MainThreadCostListener] is set, and calls from other threads are never measured. In
+ * those cases, measuring a call only costs a volatile read.
+ */
+@OpenForTesting
+internal class MainThreadCostTracker(private val allocationMeter: AllocationMeter) {
+
+  @Volatile
+  var listener: MainThreadCostListener? = null
+
+  private val notMeasured = Measurement(null, "", 0, UNKNOWN)
+
+  /**
+   * Start measuring a call to the given public API. The returned measurement should be stopped when the API returns.
+   */
+  fun start(apiName: String): Measurement {
+    val listener = listener
+    if (listener == null || !isMainThread()) {
+      return notMeasured
+    }
+
+    return Measurement(listener, apiName, System.nanoTime(), allocationMeter.getAllocatedBytes())
+  }
+
+  @VisibleForTesting
+  internal fun isMainThread(): Boolean {
+    return Thread.currentThread() == Looper.getMainLooper()?.thread
+  }
+
+  @OpenForTesting
+  inner class Measurement internal constructor(
+      private val listener: MainThreadCostListener?,
+      private val apiName: String,
+      private val startTimeInNanos: Long,
+      private val startAllocatedBytes: Long
+  ) {
+
+    /**
+     * Notify the listener of the cost of the call since the start of this measurement.
+     */
+    @Suppress("TooGenericExceptionCaught")
+    fun stop() {
+      val listener = listener ?: return
+      val wallTimeInNanos = System.nanoTime() - startTimeInNanos
+      val endAllocatedBytes = allocationMeter.getAllocatedBytes()
+
+      val allocatedBytes = if (startAllocatedBytes == UNKNOWN || endAllocatedBytes == UNKNOWN) {
+        UNKNOWN
+      } else {
+        endAllocatedBytes - startAllocatedBytes
+      }
+
+      try {
+        listener.onMainThreadCost(apiName, wallTimeInNanos, allocatedBytes)
+      } catch (t: Throwable) {
+        // The listener is provided by the publisher: only debug builds let its failures break the measured API
+        PreconditionsUtil.throwOrLog(t)
+      }
+    }
+  }
+}
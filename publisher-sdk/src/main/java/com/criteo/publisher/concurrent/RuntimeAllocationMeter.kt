@@ -0,0 +1,41 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+import android.os.Build
+import android.os.Debug
+import com.criteo.publisher.concurrent.AllocationMeter.Companion.UNKNOWN
+
+/**
+ * Count the bytes allocated by the whole process, as reported by the Android runtime from Android M.
+ *
+ * Allocations of other threads are counted too, so this gives an upper bound of the allocations of a measured call.
+ */
+internal class RuntimeAllocationMeter : AllocationMeter {
+
+  override fun getAllocatedBytes(): Long {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+      return UNKNOWN
+    }
+
+    return Debug.getRuntimeStat(BYTES_ALLOCATED_STAT)?.toLongOrNull() ?: UNKNOWN
+  }
+
+  private companion object {
+    const val BYTES_ALLOCATED_STAT = "art.gc.bytes-allocated"
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent;
+
+import androidx.annotation.NonNull;
+import com.criteo.publisher.concurrent.InstrumentedThreadPoolExecutor.Stats;
+import com.criteo.publisher.concurrent.ThreadPoolExecutorFactory.Pool;
+import com.criteo.publisher.logging.Logger;
+import com.criteo.publisher.logging.LoggerFactory;
+import com.criteo.publisher.util.ApplicationStoppedListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Executors of the SDK, one per {@linkplain Pool kind of work}.
+ * <p>
+ * The activity of the instrumented executors is logged each time the application goes to the
+ * background, so it is reported at most once per session.
+ */
+public class SdkExecutors implements ApplicationStoppedListener {
+
+  @NonNull
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  @NonNull
+  private final Executor networkExecutor;
+
+  @NonNull
+  private final Executor diskExecutor;
+
+  @NonNull
+  private final Executor cpuExecutor;
+
+  public SdkExecutors() {
+    this(
+        new ThreadPoolExecutorFactory(Pool.NETWORK).create(),
+        new ThreadPoolExecutorFactory(Pool.DISK).create(),
+        new ThreadPoolExecutorFactory(Pool.CPU).create()
+    );
+  }
+
+  public SdkExecutors(
+      @NonNull Executor networkExecutor,
+      @NonNull Executor diskExecutor,
+      @NonNull Executor cpuExecutor
+  ) {
+    this.networkExecutor = networkExecutor;
+    this.diskExecutor = diskExecutor;
+    this.cpuExecutor = cpuExecutor;
+  }
+
+  @NonNull
+  public Executor getNetworkExecutor() {
+    return networkExecutor;
+  }
+
+  @NonNull
+  public Executor getDiskExecutor() {
+    return diskExecutor;
+  }
+
+  @NonNull
+  public Executor getCpuExecutor() {
+    return cpuExecutor;
+  }
+
+  /**
+   * Snapshot of the activity of the instrumented executors.
+   */
+  @NonNull
+  public List<Stats> getStats() {
+    List<Stats> stats = new ArrayList<>();
+    for (Executor executor : Arrays.asList(networkExecutor, diskExecutor, cpuExecutor)) {
+      if (executor instanceof InstrumentedThreadPoolExecutor) {
+        stats.add(((InstrumentedThreadPoolExecutor) executor).getStats());
+      }
+    }
+    return stats;
+  }
+
+  @Override
+  public void onApplicationStopped() {
+    for (Stats stats : getStats()) {
+      logger.log(ExecutorLogMessage.onExecutorStats(stats));
+    }
+  }
+}
@@ -16,17 +16,23 @@
 
 package com.criteo.publisher.concurrent;
 
+import static com.criteo.publisher.concurrent.ExecutorLogMessage.onTasksDiscarded;
+
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import com.criteo.publisher.DependencyProvider.Factory;
-import java.util.concurrent.Executors;
+import com.criteo.publisher.logging.Logger;
+import com.criteo.publisher.logging.LoggerFactory;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class ThreadPoolExecutorFactory implements Factory<ThreadPoolExecutor> {
+public class ThreadPoolExecutorFactory implements Factory<InstrumentedThreadPoolExecutor> {
 
   /**
    * These constants were taken from the default {@link android.os.AsyncTask} configuration as of
@@ -37,38 +43,176 @@ public class ThreadPoolExecutorFactory implements Factory<ThreadPoolExecutor> {
   private static final int BACKUP_POOL_SIZE = 5;
   private static final int KEEP_ALIVE_SECONDS = 3;
 
+  private static final int DISK_QUEUE_CAPACITY = 256;
+  private static final int CPU_QUEUE_CAPACITY = 128;
+  private static final int CPU_MAXIMUM_POOL_SIZE = 4;
+
+  /**
+   * Kinds of work of the SDK, each executed on its own pool so that one kind cannot starve another
+   * one, such as slow disk I/O delaying bid requests.
+   */
+  public enum Pool {
+    /**
+     * Blocking network I/O: bid requests, remote config, uploads, creatives, advertising ID.
+     */
+    NETWORK("criteo-network", Thread.NORM_PRIORITY),
+
+    /**
+     * Disk I/O of telemetry: CSM metrics and remote logs. It is not latency critical.
+     */
+    DISK("criteo-disk", Thread.MIN_PRIORITY),
+
+    /**
+     * Short computations, such as resolving the user agent.
+     */
+    CPU("criteo-cpu", Thread.NORM_PRIORITY);
+
+    @NonNull
+    private final String threadNamePrefix;
+    private final int threadPriority;
+
+    Pool(@NonNull String threadNamePrefix, int threadPriority) {
+      this.threadNamePrefix = threadNamePrefix;
+      this.threadPriority = threadPriority;
+    }
+  }
+
+  @NonNull
+  private final Pool pool;
+
+  public ThreadPoolExecutorFactory(@NonNull Pool pool) {
+    this.pool = pool;
+  }
+
   /**
    * Create new thread pools independent from the {@linkplain android.os.AsyncTask#THREAD_POOL_EXECUTOR
-   * Android one}.
+   * Android one}, with named threads.
    *
-   * Created executor is made for those needs:
+   * The network executor is made for those needs:
    * <ul>
    *   <li>Tasks are IO bounds</li>
    *   <li>Tasks are independent, this means that a long task should not limit another one</li>
    *   <li>There is a burst of tasks at the initialization of the SDK</li>
    * </ul>
+   *
+   * The disk executor runs tasks one after the other, at low priority, and drops and logs tasks
+   * once its bounded queue is full. The CPU executor is bounded by the number of cores, and runs
+   * tasks on a backup pool once its bounded queue is full.
    */
   @NonNull
   @Override
-  public ThreadPoolExecutor create() {
-    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
-        CORE_POOL_SIZE,
-        MAXIMUM_POOL_SIZE,
-        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
-        new SynchronousQueue<>(),
-        Executors.defaultThreadFactory()
-    );
+  public InstrumentedThreadPoolExecutor create() {
+    ThreadFactory threadFactory = new NamedThreadFactory(pool);
+    InstrumentedThreadPoolExecutor threadPoolExecutor;
+
+    switch (pool) {
+      case DISK:
+        threadPoolExecutor = new InstrumentedThreadPoolExecutor(
+            pool.threadNamePrefix,
+            1,
+            1,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(DISK_QUEUE_CAPACITY),
+            threadFactory,
+            new DiscardAndLogPolicy(pool.threadNamePrefix)
+        );
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        break;
 
-    threadPoolExecutor.setRejectedExecutionHandler(new BackupExecutionHandler());
+      case CPU:
+        int poolSize = Math.max(
+            1,
+            Math.min(Runtime.getRuntime().availableProcessors() - 1, CPU_MAXIMUM_POOL_SIZE)
+        );
+        threadPoolExecutor = new InstrumentedThreadPoolExecutor(
+            pool.threadNamePrefix,
+            poolSize,
+            poolSize,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(CPU_QUEUE_CAPACITY),
+            threadFactory,
+            new BackupExecutionHandler(threadFactory)
+        );
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        break;
+
+      case NETWORK:
+      default:
+        threadPoolExecutor = new InstrumentedThreadPoolExecutor(
+            pool.threadNamePrefix,
+            CORE_POOL_SIZE,
+            MAXIMUM_POOL_SIZE,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            threadFactory,
+            new BackupExecutionHandler(threadFactory)
+        );
+        break;
+    }
 
     return threadPoolExecutor;
   }
 
+  private static class NamedThreadFactory implements ThreadFactory {
+
+    @NonNull
+    private final Pool pool;
+
+    @NonNull
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private NamedThreadFactory(@NonNull Pool pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+      Thread thread = new Thread(runnable, pool.threadNamePrefix + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(false);
+      thread.setPriority(pool.threadPriority);
+      return thread;
+    }
+  }
+
+  /**
+   * Drop rejected tasks, and log them. Only the 1st, 2nd, 4th, 8th... discards are logged, so a
+   * saturated pool does not flood the logs. As logs may be sent remotely through this very pool,
+   * this also prevents them from feeding the saturation.
+   */
+  private static class DiscardAndLogPolicy implements RejectedExecutionHandler {
+
+    @NonNull
+    private final String executorName;
+
+    @NonNull
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    private DiscardAndLogPolicy(@NonNull String executorName) {
+      this.executorName = executorName;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+      long count = discardedCount.incrementAndGet();
+      if ((count & (count - 1)) == 0) {
+        Logger logger = LoggerFactory.getLogger(ThreadPoolExecutorFactory.class);
+        logger.log(onTasksDiscarded(executorName, count));
+      }
+    }
+  }
+
   private static class BackupExecutionHandler implements RejectedExecutionHandler {
 
+    @NonNull
+    private final ThreadFactory threadFactory;
+
     @GuardedBy("this")
     private ThreadPoolExecutor backupExecutor;
 
+    private BackupExecutionHandler(@NonNull ThreadFactory threadFactory) {
+      this.threadFactory = threadFactory;
+    }
+
     @Override
     public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
       // As a last ditch fallback, run it on an executor with an unbounded queue.
@@ -80,7 +224,7 @@ public class ThreadPoolExecutorFactory implements Factory<ThreadPoolExecutor> {
               BACKUP_POOL_SIZE,
               KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
               new LinkedBlockingQueue<>(),
-              Executors.defaultThreadFactory());
+              threadFactory);
         }
       }
 
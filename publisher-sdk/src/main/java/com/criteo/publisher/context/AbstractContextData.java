@@ -43,7 +43,7 @@ public abstract class AbstractContextData<T extends AbstractContextData<T>> {
    */
   @Keep
   public T set(@NonNull String key, @NonNull String value) {
-    data.put(key, value);
+    put(key, value);
     return myself;
   }
 
@@ -62,7 +62,7 @@ public abstract class AbstractContextData<T extends AbstractContextData<T>> {
       list.add(v);
     }
 
-    data.put(key, unmodifiableList(list));
+    put(key, unmodifiableList(list));
     return myself;
   }
 
@@ -75,7 +75,7 @@ public abstract class AbstractContextData<T extends AbstractContextData<T>> {
    */
   @Keep
   public T set(@NonNull String key, long value) {
-    data.put(key, value);
+    put(key, value);
     return myself;
   }
 
@@ -88,10 +88,16 @@ public abstract class AbstractContextData<T extends AbstractContextData<T>> {
    */
   @Keep
   public T set(@NonNull String key, double value) {
-    data.put(key, value);
+    put(key, value);
     return myself;
   }
 
+  private void put(@NonNull String key, @NonNull Object value) {
+    // Parse the key-path now, so it is already interned when this data is merged in bid requests
+    KeyPath.of(key);
+    data.put(key, value);
+  }
+
   Map<String, Object> getData() {
     return Collections.unmodifiableMap(data);
   }
@@ -51,6 +51,29 @@ internal class ConnectionTypeFetcher(
     }
   }
 
+  /**
+   * Indicate if the device currently has a connected network.
+   *
+   * When this information is not available, the device is considered as connected, so the SDK never stops emitting
+   * requests because of an unknown state.
+   */
+  @Suppress("DEPRECATION")
+  @SuppressLint("MissingPermission")
+  internal fun isConnected(): Boolean {
+    val connectivityManager = context.getSystemService(Context.CONNECTIVITY_SERVICE)
+        as? ConnectivityManager ?: return true
+
+    return try {
+      connectivityManager.activeNetworkInfo?.isConnected == true
+    } catch (e: SecurityException) {
+      logger.debug("Impossible to get network state", e)
+      true
+    } catch (e: LinkageError) {
+      logger.debug("Impossible to get network state", e)
+      true
+    }
+  }
+
   @RequiresApi(Build.VERSION_CODES.M)
   private fun fetchNewDeviceConnectionType(connectivityManager: ConnectivityManager): ConnectionType? {
     val network = connectivityManager.activeNetwork
@@ -0,0 +1,112 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.context
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.os.Build
+import androidx.annotation.RequiresApi
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.logging.LoggerFactory
+import com.criteo.publisher.network.NetworkPolicy
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Listen to connectivity changes of the device and forward them to the [NetworkPolicy] and to the registered
+ * [Listener]s.
+ */
+@OpenForTesting
+internal class ConnectivityMonitor(
+    private val context: Context,
+    private val connectionTypeFetcher: ConnectionTypeFetcher,
+    private val networkPolicy: NetworkPolicy
+) {
+
+  private val logger = LoggerFactory.getLogger(ConnectivityMonitor::class.java)
+
+  private val isRegistered = AtomicBoolean(false)
+
+  private val listeners = CopyOnWriteArrayList<Listener>()
+
+  /**
+   * Notify the given listener on every connectivity change, after the [NetworkPolicy] was updated.
+   */
+  fun addListener(listener: Listener) {
+    listeners.add(listener)
+  }
+
+  /**
+   * Start listening to connectivity changes. The current state is immediately given to the policy.
+   *
+   * Only the first call has an effect, next ones are ignored.
+   */
+  fun register() {
+    if (!isRegistered.compareAndSet(false, true)) {
+      return
+    }
+
+    refresh()
+
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+        registerDefaultNetworkCallback()
+      } else {
+        registerConnectivityReceiver()
+      }
+    } catch (e: RuntimeException) {
+      // SecurityException if ACCESS_NETWORK_STATE is removed by the app. The SDK continues with the initial state.
+      logger.debug("Impossible to listen to connectivity changes", e)
+    }
+  }
+
+  fun refresh() {
+    networkPolicy.onConnectivityChanged(
+        connectionTypeFetcher.isConnected(),
+        connectionTypeFetcher.fetchConnectionType()
+    )
+
+    listeners.forEach { it.onConnectivityChanged() }
+  }
+
+  @RequiresApi(Build.VERSION_CODES.N)
+  private fun registerDefaultNetworkCallback() {
+    val connectivityManager = context.getSystemService(Context.CONNECTIVITY_SERVICE) as? ConnectivityManager ?: return
+
+    connectivityManager.registerDefaultNetworkCallback(object : ConnectivityManager.NetworkCallback() {
+      override fun onAvailable(network: Network) = refresh()
+      override fun onLost(network: Network) = refresh()
+      override fun onCapabilitiesChanged(network: Network, networkCapabilities: NetworkCapabilities) = refresh()
+    })
+  }
+
+  @Suppress("DEPRECATION")
+  private fun registerConnectivityReceiver() {
+    context.registerReceiver(object : BroadcastReceiver() {
+      override fun onReceive(context: Context, intent: Intent) = refresh()
+    }, IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION))
+  }
+
+  fun interface Listener {
+    fun onConnectivityChanged()
+  }
+}
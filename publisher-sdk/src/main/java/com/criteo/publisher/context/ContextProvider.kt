@@ -166,15 +166,19 @@ internal class ContextProvider(
     ).filterNotNullValues()
   }
 
-  private companion object {
-    const val DeviceMake = "device.make"
-    const val DeviceModel = "device.model"
-    const val DeviceConnectionType = "device.contype"
-    const val DeviceWidth = "device.w"
-    const val DeviceHeight = "device.h"
-    const val DeviceOrientation = "data.orientation"
-    const val UserCountry = "user.geo.country"
-    const val UserLanguages = "data.inputLanguage"
-    const val SessionDuration = "data.sessionDuration"
+  companion object {
+    private const val DeviceMake = "device.make"
+    private const val DeviceModel = "device.model"
+    private const val DeviceConnectionType = "device.contype"
+    private const val DeviceWidth = "device.w"
+    private const val DeviceHeight = "device.h"
+    private const val DeviceOrientation = "data.orientation"
+    private const val UserCountry = "user.geo.country"
+    private const val UserLanguages = "data.inputLanguage"
+
+    /**
+     * Key of the only entry of the user context that changes on every request, see [fetchSessionDuration].
+     */
+    internal const val SessionDuration = "data.sessionDuration"
   }
 }
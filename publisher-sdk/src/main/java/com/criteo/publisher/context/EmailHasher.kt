@@ -17,11 +17,19 @@
 package com.criteo.publisher.context
 
 import androidx.annotation.Keep
+import com.criteo.publisher.util.HexEncoder
 import java.security.MessageDigest
 import java.util.Locale
 
 object EmailHasher {
 
+  /**
+   * Digests of each thread, reset after each use. Looking up the security providers for every hash
+   * costs more than the hash itself for an email.
+   */
+  private val md5 = threadLocalDigest("MD5")
+  private val sha256 = threadLocalDigest("SHA-256")
+
   /**
    * Helper function to hash emails for [UserData.HASHED_EMAIL]
    *
@@ -36,14 +44,14 @@ object EmailHasher {
   @Keep
   @JvmStatic
   fun hash(email: String): String {
-    return email.trim().toLowerCase(Locale.ROOT).toHash("MD5").toHash("SHA-256")
+    return email.trim().toLowerCase(Locale.ROOT).toHash(md5).toHash(sha256)
+  }
+
+  private fun String.toHash(digest: ThreadLocal<MessageDigest>): String {
+    return HexEncoder.encode(digest.get()!!.digest(toByteArray()))
   }
 
-  private fun String.toHash(type: String): String {
-    return MessageDigest.getInstance(type)
-        .digest(toByteArray())
-        .joinToString("") {
-          "%02x".format(it)
-        }
+  private fun threadLocalDigest(type: String) = object : ThreadLocal<MessageDigest>() {
+    override fun initialValue(): MessageDigest = MessageDigest.getInstance(type)
   }
 }
@@ -0,0 +1,79 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.context
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Key-path of a context entry, such as `device.make`, split on its dots.
+ *
+ * Key-paths are parsed once, when they enter an [AbstractContextData] or at their first merge, and interned: the same
+ * key always gives the same instance, and the parts are interned strings. A key with an empty part, such as `a..b`, is
+ * not valid.
+ */
+internal class KeyPath private constructor(
+    /**
+     * Parts of this key-path, in order. This array is shared and must not be modified.
+     */
+    val parts: Array<String>
+) {
+
+  companion object {
+    /**
+     * Bound of the interned key-paths, so that an app generating keys dynamically does not grow it forever. Past it,
+     * key-paths are parsed on each call.
+     */
+    private const val MAX_INTERNED_KEY_PATHS = 512
+
+    private val INVALID = KeyPath(emptyArray())
+
+    private val interned = ConcurrentHashMap<String, KeyPath>()
+
+    /**
+     * Return the key-path of the given key, or `null` if it is not valid.
+     */
+    @JvmStatic
+    fun of(key: String): KeyPath? {
+      var keyPath = interned[key]
+      if (keyPath == null) {
+        keyPath = parse(key)
+        if (interned.size < MAX_INTERNED_KEY_PATHS) {
+          keyPath = interned.putIfAbsent(key, keyPath) ?: keyPath
+        }
+      }
+      return keyPath.takeIf { it !== INVALID }
+    }
+
+    private fun parse(key: String): KeyPath {
+      val parts = mutableListOf<String>()
+      var start = 0
+      while (true) {
+        val end = key.indexOf('.', start)
+        val part = if (end < 0) key.substring(start) else key.substring(start, end)
+        if (part.isEmpty()) {
+          return INVALID
+        }
+
+        parts.add(part.intern())
+        if (end < 0) {
+          return KeyPath(parts.toTypedArray())
+        }
+        start = end + 1
+      }
+    }
+  }
+}
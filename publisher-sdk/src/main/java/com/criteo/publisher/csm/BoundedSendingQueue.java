@@ -58,6 +58,21 @@ class BoundedSendingQueue<T> implements ConcurrentSendingQueue<T> {
     }
   }
 
+  @NonNull
+  @Override
+  public List<T> peek(int max) {
+    synchronized (delegateLock) {
+      return delegate.peek(max);
+    }
+  }
+
+  @Override
+  public void remove(int count) {
+    synchronized (delegateLock) {
+      delegate.remove(count);
+    }
+  }
+
   @Override
   public int getTotalSize() {
     return delegate.getTotalSize();
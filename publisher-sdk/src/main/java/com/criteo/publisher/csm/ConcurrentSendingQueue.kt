@@ -41,6 +41,24 @@ internal interface ConcurrentSendingQueue<T> {
    */
   fun poll(max: Int): List<T>
 
+  /**
+   * Retrieves, without removing them, up to `max` elements from the head of this queue.
+   *
+   * This lets a consumer remove elements with [remove] only once they are handled, so they are not lost if the
+   * process dies meanwhile.
+   *
+   * @param max max number of element to peek from the queue
+   * @return at most `max` first elements of the queue
+   */
+  fun peek(max: Int): List<T>
+
+  /**
+   * Removes up to `count` elements from the head of this queue.
+   *
+   * @param count number of elements to remove
+   */
+  fun remove(count: Int)
+
   /**
    * Return the size in bytes of all elements stored in this queue.
    *
@@ -22,6 +22,10 @@ internal interface MetricSendingQueue : ConcurrentSendingQueue<Metric> {
 
     override fun poll(max: Int): List<Metric> = delegate.poll(max)
 
+    override fun peek(max: Int): List<Metric> = delegate.peek(max)
+
+    override fun remove(count: Int) = delegate.remove(count)
+
     override val totalSize: Int
       get() = delegate.totalSize
   }
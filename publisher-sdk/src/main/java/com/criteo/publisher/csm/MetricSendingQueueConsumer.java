@@ -18,6 +18,7 @@ package com.criteo.publisher.csm;
 
 import androidx.annotation.NonNull;
 import com.criteo.publisher.model.Config;
+import com.criteo.publisher.network.NetworkPolicy;
 import com.criteo.publisher.network.PubSdkApi;
 import com.criteo.publisher.util.BuildConfigWrapper;
 import java.util.concurrent.Executor;
@@ -36,6 +37,9 @@ public class MetricSendingQueueConsumer {
   @NonNull
   private final Config config;
 
+  @NonNull
+  private final NetworkPolicy networkPolicy;
+
   @NonNull
   private final Executor executor;
 
@@ -44,12 +48,14 @@ public class MetricSendingQueueConsumer {
       @NonNull PubSdkApi api,
       @NonNull BuildConfigWrapper buildConfigWrapper,
       @NonNull Config config,
+      @NonNull NetworkPolicy networkPolicy,
       @NonNull Executor executor
   ) {
     this.queue = queue;
     this.api = api;
     this.buildConfigWrapper = buildConfigWrapper;
     this.config = config;
+    this.networkPolicy = networkPolicy;
     this.executor = executor;
   }
 
@@ -62,10 +68,13 @@ public class MetricSendingQueueConsumer {
    * The batch is polled from the queue (instead of peeked). Data loss is tolerated if the process
    * is terminated while the batch is being sent to the CSM backed. This is to ensure that the same
    * metric will never be sent to CSM backend twice.
+   * <p>
+   * If the device is offline, nothing is sent: metrics stay in the queue until a next batch is
+   * triggered, for instance when connectivity is restored.
    */
   public void sendMetricBatch() {
-    if (config.isCsmEnabled()) {
-      executor.execute(new MetricSendingTask(queue, api, buildConfigWrapper));
+    if (config.isCsmEnabled() && !networkPolicy.isOffline()) {
+      executor.execute(new MetricSendingTask(queue, api, buildConfigWrapper, networkPolicy));
     }
   }
 
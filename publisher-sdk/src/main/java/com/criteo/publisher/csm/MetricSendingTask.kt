@@ -17,24 +17,26 @@ package com.criteo.publisher.csm
 
 import com.criteo.publisher.SafeRunnable
 import com.criteo.publisher.integration.Integration
+import com.criteo.publisher.network.NetworkPolicy
 import com.criteo.publisher.network.PubSdkApi
 import com.criteo.publisher.util.BuildConfigWrapper
 
 internal class MetricSendingTask(
     private val queue: MetricSendingQueue,
     private val api: PubSdkApi,
-    private val buildConfigWrapper: BuildConfigWrapper
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val networkPolicy: NetworkPolicy
 ) : SafeRunnable() {
 
   override fun runSafely() {
-    val metrics: Collection<Metric> = queue.poll(buildConfigWrapper.csmBatchSize)
+    val metrics: Collection<Metric> = queue.poll(networkPolicy.getCsmBatchSize())
     if (metrics.isEmpty()) {
       return
     }
 
     val metricsToRollback = metrics.toMutableList()
     try {
-      val metricPerRequests = createRequests(metrics)
+      val metricPerRequests = createRequests(metrics, buildConfigWrapper.sdkVersion)
       metricPerRequests.forEach {
         api.postCsm(it.key)
         metricsToRollback.removeAll(it.value)
@@ -46,25 +48,28 @@ internal class MetricSendingTask(
     }
   }
 
-  private fun createRequests(metrics: Collection<Metric>): Map<MetricRequest, Collection<Metric>> {
-    val sdkVersion = buildConfigWrapper.sdkVersion
-
-    val metricsPerProfile = metrics.groupBy {
-      it.profileId ?: Integration.FALLBACK.profileId
-    }
-
-    return metricsPerProfile.mapKeys {
-      MetricRequest(
-          it.value,
-          sdkVersion,
-          it.key
-      )
-    }
-  }
-
   private fun rollback(metrics: Collection<Metric>) {
     metrics.forEach {
       queue.offer(it)
     }
   }
+
+  companion object {
+    /**
+     * Group the given metrics into one request per profile, as expected by the CSM backend.
+     */
+    fun createRequests(metrics: Collection<Metric>, sdkVersion: String): Map<MetricRequest, Collection<Metric>> {
+      val metricsPerProfile = metrics.groupBy {
+        it.profileId ?: Integration.FALLBACK.profileId
+      }
+
+      return metricsPerProfile.mapKeys {
+        MetricRequest(
+            it.value,
+            sdkVersion,
+            it.key
+        )
+      }
+    }
+  }
 }
@@ -24,14 +24,19 @@ import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.logging.Logger;
 import com.criteo.publisher.logging.LoggerFactory;
+import com.criteo.publisher.util.CborSerializer;
 import com.criteo.publisher.util.JsonSerializer;
 import com.squareup.tape.FileObjectQueue;
 import com.squareup.tape.InMemoryObjectQueue;
 import com.squareup.tape.ObjectQueue;
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class ObjectQueueFactory<T> {
 
@@ -119,12 +124,71 @@ public class ObjectQueueFactory<T> {
     return file.delete();
   }
 
+  /**
+   * Converter of the elements stored in the queue files.
+   * <p>
+   * Elements are written in a versioned binary format: a version byte followed by the CBOR encoding
+   * of their JSON representation, where known field names are replaced by their index in {@link
+   * #KEY_DICTIONARY_V1}. Elements written by previous versions of the SDK are plain JSON objects:
+   * they are still read, and disappear as the queue is consumed.
+   */
   @VisibleForTesting
   static class AdapterConverter<T> implements FileObjectQueue.Converter<T> {
 
+    /**
+     * First byte of elements in the binary format, version 1. It can not start a JSON document.
+     */
+    @VisibleForTesting
+    static final int BINARY_FORMAT_V1 = 0x01;
+
+    /**
+     * First byte of elements in the legacy JSON format.
+     */
+    private static final int JSON_FORMAT = '{';
+
+    /**
+     * Field names of the queued elements, most frequent ones first, so they are encoded in a single
+     * byte. Entries can only be appended: changing an index requires a new version of the format.
+     */
+    @VisibleForTesting
+    static final List<String> KEY_DICTIONARY_V1 = Collections.unmodifiableList(Arrays.asList(
+        // Metric
+        "cdbCallStartTimestamp",
+        "cdbCallEndTimestamp",
+        "cdbCallTimeout",
+        "cachedBidUsed",
+        "elapsedTimestamp",
+        "impressionId",
+        "requestGroupId",
+        "zoneId",
+        "profileId",
+        "readyToSend",
+        // RemoteLogRecords
+        "context",
+        "errors",
+        "errorType",
+        "messages",
+        "version",
+        "bundleId",
+        "deviceId",
+        "sessionId",
+        "exception",
+        "logId",
+        "deviceOs",
+        // PendingPixel, no longer stored in a queue but kept so next indices do not change
+        "url",
+        "attempt",
+        // PendingAppEvent
+        "eventType",
+        "timestamp"
+    ));
+
     @NonNull
     private final JsonSerializer jsonSerializer;
 
+    @NonNull
+    private final CborSerializer cborSerializer = new CborSerializer(KEY_DICTIONARY_V1);
+
     @NonNull
     private final Class<T> elementClass;
 
@@ -143,15 +207,30 @@ public class ObjectQueueFactory<T> {
         return null;
       }
 
+      if (bytes.length == 0) {
+        throw new EOFException();
+      }
+
       try (ByteArrayInputStream input = new ByteArrayInputStream(bytes)) {
-        return jsonSerializer.read(elementClass, input);
+        int format = input.read();
+        if (format == BINARY_FORMAT_V1) {
+          return jsonSerializer.fromJsonValue(elementClass, cborSerializer.read(input));
+        }
+
+        if (format == JSON_FORMAT) {
+          input.reset();
+          return jsonSerializer.read(elementClass, input);
+        }
+
+        throw new IOException("Unknown format of queue element: " + format);
       }
     }
 
     @Override
     public void toStream(@Nullable T element, @Nullable OutputStream outputStream) throws IOException {
       if (element != null && outputStream != null) {
-        jsonSerializer.write(element, outputStream);
+        outputStream.write(BINARY_FORMAT_V1);
+        cborSerializer.write(jsonSerializer.toJsonValue(element), outputStream);
       }
     }
   }
@@ -36,4 +36,20 @@ internal object SendingQueueLogMessage {
       exception,
       "onErrorWhenPollingQueueFile"
   )
+
+  @JvmStatic
+  fun onErrorWhenPeekingQueueFile(exception: Exception) = LogMessage(
+      Log.WARN,
+      "Error when peeking elements from queue file. Recovering by removing the head element",
+      exception,
+      "onErrorWhenPeekingQueueFile"
+  )
+
+  @JvmStatic
+  fun onErrorWhenRemovingFromQueueFile(exception: Exception) = LogMessage(
+      Log.WARN,
+      "Error when removing elements from queue file",
+      exception,
+      "onErrorWhenRemovingFromQueueFile"
+  )
 }
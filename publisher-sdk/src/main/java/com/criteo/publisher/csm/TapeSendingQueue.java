@@ -16,7 +16,9 @@
 
 package com.criteo.publisher.csm;
 
+import static com.criteo.publisher.csm.SendingQueueLogMessage.onErrorWhenPeekingQueueFile;
 import static com.criteo.publisher.csm.SendingQueueLogMessage.onErrorWhenPollingQueueFile;
+import static com.criteo.publisher.csm.SendingQueueLogMessage.onErrorWhenRemovingFromQueueFile;
 
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
@@ -32,6 +34,7 @@ import com.squareup.tape.QueueFile;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 class TapeSendingQueue<T> implements ConcurrentSendingQueue<T> {
@@ -135,6 +138,60 @@ class TapeSendingQueue<T> implements ConcurrentSendingQueue<T> {
     }
   }
 
+  @NonNull
+  @Override
+  public List<T> peek(int max) {
+    synchronized (queueLock) {
+      ObjectQueue<T> queue = createQueueIfNecessary();
+
+      if (max <= 0) {
+        return Collections.emptyList();
+      }
+
+      if (queue instanceof FileObjectQueue) {
+        try {
+          return new ArrayList<>(((FileObjectQueue<T>) queue).peek(max));
+        } catch (FileException e) {
+          // Same recovery as in poll: drop the head element, so a corrupted element does not block
+          // the queue forever. Next peek goes on with the following elements.
+          logger.log(onErrorWhenPeekingQueueFile(e));
+          remove(1);
+          return Collections.emptyList();
+        }
+      }
+
+      // The in-memory queue can only read its head: rotate all its elements to read them in order.
+      // This is only a fallback used when the queue file is not usable.
+      List<T> elements = new ArrayList<>();
+      int size = queue.size();
+      for (int i = 0; i < size; i++) {
+        T element = queue.peek();
+        queue.remove();
+        queue.add(element);
+
+        if (i < max) {
+          elements.add(element);
+        }
+      }
+      return elements;
+    }
+  }
+
+  @Override
+  public void remove(int count) {
+    synchronized (queueLock) {
+      ObjectQueue<T> queue = createQueueIfNecessary();
+
+      try {
+        for (int i = 0; i < count && queue.size() > 0; i++) {
+          queue.remove();
+        }
+      } catch (FileException e) {
+        logger.log(onErrorWhenRemovingFromQueueFile(e));
+      }
+    }
+  }
+
   @Override
   public int getTotalSize() {
     synchronized (queueLock) {
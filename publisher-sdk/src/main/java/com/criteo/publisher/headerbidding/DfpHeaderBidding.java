@@ -113,6 +113,12 @@ public class DfpHeaderBidding implements HeaderBiddingHandler {
       return;
     }
 
+    NativeAssets nativeAssets = slot.getNativeAssets();
+    if (nativeAssets != null && !nativeAssets.materialize()) {
+      // Malformed native payload: handled as if there were no bid
+      return;
+    }
+
     builder.addCustomTargeting(CRT_CPM, slot.getCpm());
 
     switch (adUnitType) {
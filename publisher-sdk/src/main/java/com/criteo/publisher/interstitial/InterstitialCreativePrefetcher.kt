@@ -0,0 +1,191 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.interstitial
+
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.Clock
+import com.criteo.publisher.SafeRunnable
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.bid.BidLifecycleListener
+import com.criteo.publisher.cache.SdkCache
+import com.criteo.publisher.model.CacheAdUnit
+import com.criteo.publisher.model.CdbRequest
+import com.criteo.publisher.model.CdbResponse
+import com.criteo.publisher.model.CdbResponseSlot
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.model.DeviceInfo
+import com.criteo.publisher.network.NetworkStats.Endpoint
+import com.criteo.publisher.network.PubSdkApi
+import com.criteo.publisher.util.AdUnitType.CRITEO_INTERSTITIAL
+import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.StreamUtil
+import java.net.URL
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Download interstitial creatives as soon as their bids are cached, so that loading an interstitial does not wait for
+ * both the bid and the creative.
+ *
+ * Prefetched creatives are kept in memory, indexed by their display URL, until their bid is consumed or expired. The
+ * total size of kept creatives is bounded by [BuildConfigWrapper.getMaxSizeOfInterstitialCreativeCache]: the least
+ * recently prefetched ones are evicted first.
+ *
+ * This is only active if [Config.isInterstitialCreativePrefetchEnabled] is enabled.
+ */
+@OpenForTesting
+internal class InterstitialCreativePrefetcher(
+    private val api: PubSdkApi,
+    private val deviceInfo: DeviceInfo,
+    private val sdkCache: SdkCache,
+    private val config: Config,
+    private val clock: Clock,
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val executor: Executor
+) : BidLifecycleListener {
+
+  private val lock = Any()
+
+  @GuardedBy("lock")
+  private val creatives = LinkedHashMap<String, PrefetchedCreative>()
+
+  @GuardedBy("lock")
+  private val pendingDisplayUrls = mutableSetOf<String>()
+
+  @GuardedBy("lock")
+  private var sizeOfCreatives = 0
+
+  override fun onSdkInitialized() {
+    // no-op
+  }
+
+  override fun onCdbCallStarted(request: CdbRequest) {
+    // no-op
+  }
+
+  override fun onCdbCallFinished(request: CdbRequest, response: CdbResponse) {
+    // no-op
+  }
+
+  override fun onCdbCallFailed(request: CdbRequest, exception: Exception) {
+    // no-op
+  }
+
+  override fun onBidConsumed(adUnit: CacheAdUnit, consumedBid: CdbResponseSlot) {
+    // no-op: the creative is consumed when the interstitial is loaded with the display URL of this bid
+  }
+
+  override fun onBidCached(cachedBid: CdbResponseSlot) {
+    if (!config.isInterstitialCreativePrefetchEnabled) {
+      return
+    }
+
+    val displayUrl = cachedBid.displayUrl
+    if (displayUrl.isNullOrEmpty() || (cachedBid.cpmAsNumber ?: 0.0) <= 0.0) {
+      // Silent bids have no creative to prefetch
+      return
+    }
+
+    if (sdkCache.detectCacheAdUnit(cachedBid)?.adUnitType != CRITEO_INTERSTITIAL) {
+      return
+    }
+
+    val expirationTimeInMillis = cachedBid.timeOfDownload + TimeUnit.SECONDS.toMillis(cachedBid.ttlInSeconds.toLong())
+
+    synchronized(lock) {
+      if (creatives.containsKey(displayUrl) || !pendingDisplayUrls.add(displayUrl)) {
+        return
+      }
+    }
+
+    executor.execute(PrefetchTask(displayUrl, expirationTimeInMillis))
+  }
+
+  /**
+   * Remove and return the creative prefetched for the given display URL, or `null` if there is none, or if it expired
+   * in the meantime.
+   */
+  fun consume(displayUrl: String): String? {
+    val creative = synchronized(lock) {
+      creatives.remove(displayUrl)?.also { sizeOfCreatives -= it.size }
+    } ?: return null
+
+    return creative.takeUnless { it.isExpired() }?.content
+  }
+
+  private fun store(displayUrl: String, creative: PrefetchedCreative) {
+    synchronized(lock) {
+      pendingDisplayUrls.remove(displayUrl)
+
+      val maxSize = buildConfigWrapper.maxSizeOfInterstitialCreativeCache
+      if (creative.size > maxSize) {
+        return
+      }
+
+      evictExpiredCreatives()
+
+      val iterator = creatives.values.iterator()
+      while (sizeOfCreatives + creative.size > maxSize && iterator.hasNext()) {
+        sizeOfCreatives -= iterator.next().size
+        iterator.remove()
+      }
+
+      creatives[displayUrl] = creative
+      sizeOfCreatives += creative.size
+    }
+  }
+
+  @GuardedBy("lock")
+  private fun evictExpiredCreatives() {
+    val iterator = creatives.values.iterator()
+    while (iterator.hasNext()) {
+      val creative = iterator.next()
+      if (creative.isExpired()) {
+        sizeOfCreatives -= creative.size
+        iterator.remove()
+      }
+    }
+  }
+
+  private inner class PrefetchTask(
+      private val displayUrl: String,
+      private val expirationTimeInMillis: Long
+  ) : SafeRunnable() {
+    override fun runSafely() {
+      try {
+        val userAgent = deviceInfo.userAgent.get()
+        val content = api.executeRawGet(URL(displayUrl), userAgent, Endpoint.CREATIVE).use { StreamUtil.readStream(it) }
+        if (content.isNotEmpty()) {
+          store(displayUrl, PrefetchedCreative(content, expirationTimeInMillis))
+        }
+      } finally {
+        synchronized(lock) {
+          pendingDisplayUrls.remove(displayUrl)
+        }
+      }
+    }
+  }
+
+  private inner class PrefetchedCreative(val content: String, private val expirationTimeInMillis: Long) {
+    /**
+     * Approximation of the size of the creative, in bytes.
+     */
+    val size: Int
+      get() = content.length
+
+    fun isExpired() = expirationTimeInMillis <= clock.currentTimeInMillis
+  }
+}
@@ -60,7 +60,7 @@ internal class ConsoleHandler(private val buildConfigWrapper: BuildConfigWrapper
   @VisibleForTesting
   fun getStackTraceString(throwable: Throwable): String? = Log.getStackTraceString(throwable)
 
-  private fun isLoggable(level: Int): Boolean {
+  override fun isLoggable(level: Int): Boolean {
     return level >= minLogLevel
   }
 }
@@ -20,4 +20,10 @@ internal interface LogHandler {
 
   @Throws(Exception::class)
   fun log(tag: String, logMessage: LogMessage)
+
+  /**
+   * Indicate if a message of the given level would be handled, so callers can skip building costly messages that
+   * would be dropped anyway.
+   */
+  fun isLoggable(level: Int): Boolean = true
 }
@@ -100,6 +100,26 @@ public class Logger {
     log(new LogMessage(Log.DEBUG, String.format(message, args), null, null));
   }
 
+  /**
+   * Indicate if a message of the given level would be handled by at least one handler.
+   * <p>
+   * This lets callers skip building messages that are costly to produce, such as serialized
+   * payloads, when they would be dropped anyway.
+   */
+  public boolean isLoggable(int level) {
+    for (LazyDependency<LogHandler> handler : handlers) {
+      try {
+        if (handler.get().isLoggable(level)) {
+          return true;
+        }
+      } catch (Exception e) {
+        // Let the handler decide when the message is actually logged
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void log(@NonNull LogMessage logMessage) {
     int depth = logRecursionDepth.get();
     if (depth > 1) {
@@ -54,6 +54,14 @@ internal class RemoteHandler(
     }
   }
 
+  override fun isLoggable(level: Int): Boolean {
+    if (!consentData.isConsentGiven()) {
+      return false
+    }
+
+    return fromAndroidLogLevel(level)?.let { it >= config.remoteLogLevel } ?: false
+  }
+
   @VisibleForTesting
   internal fun isMainThread(): Boolean {
     return Thread.currentThread() == Looper.getMainLooper()?.thread
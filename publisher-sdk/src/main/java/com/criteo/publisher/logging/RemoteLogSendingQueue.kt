@@ -30,6 +30,10 @@ internal interface RemoteLogSendingQueue : ConcurrentSendingQueue<RemoteLogRecor
 
     override fun poll(max: Int): List<RemoteLogRecords> = delegate.poll(max)
 
+    override fun peek(max: Int): List<RemoteLogRecords> = delegate.peek(max)
+
+    override fun remove(count: Int) = delegate.remove(count)
+
     override val totalSize: Int
       get() = delegate.totalSize
   }
@@ -19,31 +19,38 @@ package com.criteo.publisher.logging
 import com.criteo.publisher.SafeRunnable
 import com.criteo.publisher.annotation.OpenForTesting
 import com.criteo.publisher.csm.ConcurrentSendingQueue
+import com.criteo.publisher.network.NetworkPolicy
 import com.criteo.publisher.network.PubSdkApi
 import com.criteo.publisher.util.AdvertisingInfo
-import com.criteo.publisher.util.BuildConfigWrapper
 import java.util.concurrent.Executor
 
 @OpenForTesting
 internal class RemoteLogSendingQueueConsumer(
     private val sendingQueue: ConcurrentSendingQueue<RemoteLogRecords>,
     private val api: PubSdkApi,
-    private val buildConfigWrapper: BuildConfigWrapper,
     private val advertisingInfo: AdvertisingInfo,
+    private val networkPolicy: NetworkPolicy,
     private val executor: Executor
 ) {
+  /**
+   * Send asynchronously a new batch of logs. If the device is offline, logs stay in the queue until a next batch.
+   */
   fun sendRemoteLogBatch() {
-    executor.execute(RemoteLogSendingTask(sendingQueue, api, buildConfigWrapper, advertisingInfo))
+    if (networkPolicy.isOffline()) {
+      return
+    }
+
+    executor.execute(RemoteLogSendingTask(sendingQueue, api, networkPolicy, advertisingInfo))
   }
 
   class RemoteLogSendingTask(
       private val sendingQueue: ConcurrentSendingQueue<RemoteLogRecords>,
       private val api: PubSdkApi,
-      private val buildConfigWrapper: BuildConfigWrapper,
+      private val networkPolicy: NetworkPolicy,
       private val advertisingInfo: AdvertisingInfo
   ) : SafeRunnable() {
     override fun runSafely() {
-      val remoteLogRecords = sendingQueue.poll(buildConfigWrapper.remoteLogBatchSize)
+      val remoteLogRecords = sendingQueue.poll(networkPolicy.getRemoteLogBatchSize())
       if (remoteLogRecords.isEmpty()) {
         return
       }
@@ -51,7 +58,7 @@ internal class RemoteLogSendingQueueConsumer(
       var isSuccessful = false
 
       try {
-        injectMissingDeviceId(remoteLogRecords)
+        injectMissingDeviceId(remoteLogRecords, advertisingInfo)
         api.postLogs(remoteLogRecords)
         isSuccessful = true
       } finally {
@@ -63,13 +70,15 @@ internal class RemoteLogSendingQueueConsumer(
       }
     }
 
-    private fun injectMissingDeviceId(remoteLogRecords: List<RemoteLogRecords>) {
-      // When called a first time on the main thread, the AdvertiserInfo can return null
-      // In this context, we're in a worker thread. So we can inject the deviceId when it is missing.
-      advertisingInfo.advertisingId?.let { deviceId ->
-        remoteLogRecords.forEach {
-          if (it.context.deviceId == null) {
-            it.context.deviceId = deviceId
+    companion object {
+      fun injectMissingDeviceId(remoteLogRecords: List<RemoteLogRecords>, advertisingInfo: AdvertisingInfo) {
+        // When called a first time on the main thread, the AdvertiserInfo can return null
+        // In this context, we're in a worker thread. So we can inject the deviceId when it is missing.
+        advertisingInfo.advertisingId?.let { deviceId ->
+          remoteLogRecords.forEach {
+            if (it.context.deviceId == null) {
+              it.context.deviceId = deviceId
+            }
           }
         }
       }
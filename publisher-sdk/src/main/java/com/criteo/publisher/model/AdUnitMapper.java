@@ -26,6 +26,7 @@ import com.criteo.publisher.integration.Integration;
 import com.criteo.publisher.integration.IntegrationRegistry;
 import com.criteo.publisher.logging.Logger;
 import com.criteo.publisher.logging.LoggerFactory;
+import com.criteo.publisher.network.NetworkPolicy;
 import com.criteo.publisher.util.AdUnitType;
 import com.criteo.publisher.util.DeviceUtil;
 import java.util.ArrayList;
@@ -49,6 +50,8 @@ public class AdUnitMapper {
    * </ul>
    * <p>
    * Although, the reason may change over time and it would require a proper study.
+   * <p>
+   * This is the size used on an average connection, see {@link NetworkPolicy#getPrefetchChunkSize(int)}.
    */
   private static final int CHUNK_SIZE = 8;
 
@@ -73,12 +76,17 @@ public class AdUnitMapper {
   @NonNull
   private final IntegrationRegistry integrationRegistry;
 
+  @NonNull
+  private final NetworkPolicy networkPolicy;
+
   public AdUnitMapper(
       @NonNull DeviceUtil deviceUtil,
-      @NonNull IntegrationRegistry integrationRegistry
+      @NonNull IntegrationRegistry integrationRegistry,
+      @NonNull NetworkPolicy networkPolicy
   ) {
     this.deviceUtil = deviceUtil;
     this.integrationRegistry = integrationRegistry;
+    this.networkPolicy = networkPolicy;
   }
 
   /**
@@ -103,7 +111,15 @@ public class AdUnitMapper {
       CacheAdUnit cacheAdUnit = new CacheAdUnit(size, adUnit.getAdUnitId(), adUnit.getAdUnitType());
       cacheAdUnits.add(cacheAdUnit);
     }
-    return splitIntoChunks(filterInvalidCacheAdUnits(cacheAdUnits), CHUNK_SIZE);
+    return splitIntoChunks(filterInvalidCacheAdUnits(cacheAdUnits), getChunkSize());
+  }
+
+  /**
+   * Maximum number of ad units to request in a single bid request, given the current connection
+   * quality.
+   */
+  public int getChunkSize() {
+    return networkPolicy.getPrefetchChunkSize(CHUNK_SIZE);
   }
 
   @NonNull
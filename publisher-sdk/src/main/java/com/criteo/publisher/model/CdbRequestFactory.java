@@ -17,29 +17,21 @@
 package com.criteo.publisher.model;
 
 import static com.criteo.publisher.context.ContextUtil.toMap;
-import static com.criteo.publisher.util.TextUtils.getNotEmptyOrNullValue;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.bid.UniqueIdGenerator;
 import com.criteo.publisher.context.ContextData;
-import com.criteo.publisher.context.ContextProvider;
-import com.criteo.publisher.context.UserDataHolder;
-import com.criteo.publisher.integration.IntegrationRegistry;
-import com.criteo.publisher.privacy.UserPrivacyUtil;
+import com.criteo.publisher.context.KeyPath;
+import com.criteo.publisher.model.CdbRequestTemplateCache.Template;
 import com.criteo.publisher.util.AdvertisingInfo;
-import com.criteo.publisher.util.BuildConfigWrapper;
+import com.criteo.publisher.util.CompletableFuture;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.Future;
 
 public class CdbRequestFactory {
 
@@ -55,53 +47,36 @@ public class CdbRequestFactory {
   @NonNull
   private final AdvertisingInfo advertisingInfo;
 
-  @NonNull
-  private final UserPrivacyUtil userPrivacyUtil;
-
   @NonNull
   private final UniqueIdGenerator uniqueIdGenerator;
 
   @NonNull
-  private final BuildConfigWrapper buildConfigWrapper;
-
-  @NonNull
-  private final IntegrationRegistry integrationRegistry;
-
-  @NonNull
-  private final ContextProvider contextProvider;
-
-  @NonNull
-  private final UserDataHolder userDataHolder;
+  private final CdbRequestTemplateCache templateCache;
 
   public CdbRequestFactory(
       @NonNull Context context,
       @NonNull String criteoPublisherId,
       @NonNull DeviceInfo deviceInfo,
       @NonNull AdvertisingInfo advertisingInfo,
-      @NonNull UserPrivacyUtil userPrivacyUtil,
       @NonNull UniqueIdGenerator uniqueIdGenerator,
-      @NonNull BuildConfigWrapper buildConfigWrapper,
-      @NonNull IntegrationRegistry integrationRegistry,
-      @NonNull ContextProvider contextProvider,
-      @NonNull UserDataHolder userDataHolder
+      @NonNull CdbRequestTemplateCache templateCache
   ) {
     this.context = context;
     this.criteoPublisherId = criteoPublisherId;
     this.deviceInfo = deviceInfo;
     this.advertisingInfo = advertisingInfo;
-    this.userPrivacyUtil = userPrivacyUtil;
     this.uniqueIdGenerator = uniqueIdGenerator;
-    this.buildConfigWrapper = buildConfigWrapper;
-    this.integrationRegistry = integrationRegistry;
-    this.contextProvider = contextProvider;
-    this.userDataHolder = userDataHolder;
+    this.templateCache = templateCache;
   }
 
   @NonNull
   public CdbRequest createRequest(
       @NonNull List<CacheAdUnit> requestedAdUnits,
-      @NonNull ContextData contextData
+      @NonNull ContextData contextData,
+      @NonNull CdbRequestDeviceInfo deviceInfo
   ) {
+    Template template = templateCache.get();
+
     Map<String, Object> publisherExt = mergeToNestedMap(toMap(contextData));
 
     Publisher publisher = new Publisher(
@@ -111,14 +86,14 @@ public class CdbRequestFactory {
     );
 
     Map<String, Object> userExt = mergeToNestedMap(
-        contextProvider.fetchUserContext(),
-        toMap(userDataHolder.get())
+        template.getUserContext(),
+        toMap(template.getUserData())
     );
 
     User user = new User(
-        advertisingInfo.getAdvertisingId(),
-        getNotEmptyOrNullValue(userPrivacyUtil.getIabUsPrivacyString()),
-        getNotEmptyOrNullValue(userPrivacyUtil.getUsPrivacyOptout()),
+        deviceInfo.getAdvertisingId(),
+        template.getUspIab(),
+        template.getUspOptout(),
         userExt
     );
 
@@ -126,11 +101,11 @@ public class CdbRequestFactory {
         uniqueIdGenerator.generateId(),
         publisher,
         user,
-        buildConfigWrapper.getSdkVersion(),
-        integrationRegistry.getProfileId(),
-        userPrivacyUtil.getGdprData(),
+        template.getSdkVersion(),
+        template.getProfileId(),
+        template.getGdprData(),
         createRequestSlots(requestedAdUnits),
-        createRegs()
+        template.getRegs()
     );
   }
 
@@ -153,9 +128,19 @@ public class CdbRequestFactory {
     );
   }
 
+  /**
+   * Wait for the device information to create and send requests with.
+   * <p>
+   * The returned future is completed once both the user agent and the advertising ID are fetched.
+   * The advertising ID of this fetch should be given back to {@link #createRequest}, so that a
+   * failed fetch is not attempted again while creating the request.
+   */
   @NonNull
-  public Future<String> getUserAgent() {
-    return deviceInfo.getUserAgent();
+  public CompletableFuture<CdbRequestDeviceInfo> awaitDeviceInfo() {
+    CompletableFuture<String> userAgent = deviceInfo.getUserAgent();
+    return advertisingInfo.fetchAsync().thenCompose(
+        advertisingId -> userAgent.thenApply(value -> new CdbRequestDeviceInfo(value, advertisingId))
+    );
   }
 
   /**
@@ -198,50 +183,17 @@ public class CdbRequestFactory {
    * @param flattenMaps maps to merge into a nested structure
    * @return nested structure
    */
-  @SuppressWarnings({"SuspiciousMethodCalls", "ConstantConditions", "unchecked"})
   @NonNull
   @SafeVarargs
   @VisibleForTesting
   public final Map<String, Object> mergeToNestedMap(Map<String, Object>... flattenMaps) {
-    Map<String, Object> nestedMap = new LinkedHashMap<>();
-    Set<Map<String, Object>> subNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    Node nestedMap = new Node();
 
     for (Map<String, Object> flattenMap : flattenMaps) {
       for (Entry<String, Object> entry : flattenMap.entrySet()) {
-        Map<String, Object> node = nestedMap;
-
-        String[] pathParts = entry.getKey().split("\\.", -1);
-        if (isNotValid(pathParts)) {
-          continue;
-        }
-
-        // Go or create nested structure until last path part
-        for (int i = 0; i < pathParts.length - 1; i++) {
-          String pathPart = pathParts[i];
-
-          if (node.containsKey(pathPart)) {
-            Object nestedValue = node.get(pathPart);
-            if (subNodes.contains(nestedValue)) {
-              // It's a sub node, go deeper
-              // safe because only Map<String, Object> are put in subNodes
-              node = (Map<String, Object>) nestedValue;
-            } else {
-              // It's a leaf, abort
-              break;
-            }
-          } else {
-            // Create a new node and go deeper
-            Map<String, Object> newNode = new LinkedHashMap<>();
-            subNodes.add(newNode);
-            node.put(pathPart, newNode);
-            node = newNode;
-          }
-        }
-
-        String lastPathPart = pathParts[pathParts.length - 1];
-        if (!node.containsKey(lastPathPart)) {
-          // If value is already there, abort
-          node.put(lastPathPart, entry.getValue());
+        KeyPath keyPath = KeyPath.of(entry.getKey());
+        if (keyPath != null) {
+          nestedMap.putLeafIfAbsent(keyPath.getParts(), entry.getValue());
         }
       }
     }
@@ -249,19 +201,45 @@ public class CdbRequestFactory {
     return nestedMap;
   }
 
-  private boolean isNotValid(String[] pathParts) {
-    for (String pathPart : pathParts) {
-      if (pathPart.isEmpty()) {
-        // Reject empty part
-        return true;
+  /**
+   * Node of the nested structure. Being a dedicated type, sub nodes are told apart from leaves holding a map value
+   * without tracking them.
+   */
+  private static final class Node extends LinkedHashMap<String, Object> {
+
+    /**
+     * Put the value at the given path, unless a value is already there.
+     * <p>
+     * If the path goes through a leaf, the walk stops there and the last part of the path is put at this level.
+     */
+    void putLeafIfAbsent(String[] pathParts, Object value) {
+      Node node = this;
+
+      // Go or create nested structure until last path part
+      int lastIndex = pathParts.length - 1;
+      for (int i = 0; i < lastIndex; i++) {
+        String pathPart = pathParts[i];
+        Object nestedValue = node.get(pathPart);
+
+        if (nestedValue instanceof Node) {
+          // It's a sub node, go deeper
+          node = (Node) nestedValue;
+        } else if (nestedValue != null || node.containsKey(pathPart)) {
+          // It's a leaf, abort
+          break;
+        } else {
+          // Create a new node and go deeper
+          Node newNode = new Node();
+          node.put(pathPart, newNode);
+          node = newNode;
+        }
       }
-    }
-    return false;
-  }
 
-  @Nullable
-  private CdbRegs createRegs() {
-    Boolean tagForChildTreatment = userPrivacyUtil.getTagForChildDirectedTreatment();
-    return tagForChildTreatment == null ? null : new CdbRegs(tagForChildTreatment);
+      String lastPathPart = pathParts[lastIndex];
+      if (!node.containsKey(lastPathPart)) {
+        // If value is already there, abort
+        node.put(lastPathPart, value);
+      }
+    }
   }
 }
@@ -0,0 +1,166 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.model
+
+import android.content.ComponentCallbacks
+import android.content.Context
+import android.content.SharedPreferences
+import android.content.res.Configuration
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.context.ConnectivityMonitor
+import com.criteo.publisher.context.ContextProvider
+import com.criteo.publisher.context.UserData
+import com.criteo.publisher.context.UserDataHolder
+import com.criteo.publisher.integration.IntegrationRegistry
+import com.criteo.publisher.privacy.UserPrivacyUtil
+import com.criteo.publisher.privacy.gdpr.GdprData
+import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.SharedPreferencesFactory
+import com.criteo.publisher.util.TextUtils
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Cache of the parts of a [CdbRequest] that do not depend on the requested slots.
+ *
+ * Reading them (shared preferences, display metrics, locales, connectivity, integration) is done once and kept in an
+ * immutable [Template] until one of the change signals invalidates it: a shared preferences change, a configuration
+ * change, a connectivity change or new [UserData]. Only the session duration of the user context is refreshed on
+ * each request.
+ *
+ * Until [register] is called, nothing is listened to, so a new template is created on each call.
+ */
+@OpenForTesting
+@Suppress("LongParameterList")
+internal class CdbRequestTemplateCache(
+    private val context: Context,
+    private val userPrivacyUtil: UserPrivacyUtil,
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val integrationRegistry: IntegrationRegistry,
+    private val contextProvider: ContextProvider,
+    private val userDataHolder: UserDataHolder,
+    private val sharedPreferencesFactory: SharedPreferencesFactory,
+    private val connectivityMonitor: ConnectivityMonitor
+) : ComponentCallbacks, SharedPreferences.OnSharedPreferenceChangeListener, ConnectivityMonitor.Listener {
+
+  private val isRegistered = AtomicBoolean(false)
+
+  /**
+   * Incremented on each invalidation. A template built while an invalidation happens keeps the old version and is
+   * then never served.
+   */
+  private val version = AtomicLong()
+
+  @Volatile
+  private var cached: VersionedTemplate? = null
+
+  /**
+   * Start listening to the change signals and caching templates.
+   *
+   * Only the first call has an effect, next ones are ignored.
+   */
+  fun register() {
+    if (!isRegistered.compareAndSet(false, true)) {
+      return
+    }
+
+    context.registerComponentCallbacks(this)
+    // Shared preferences only keep weak references on listeners: this instance is a singleton that outlives them.
+    sharedPreferencesFactory.application.registerOnSharedPreferenceChangeListener(this)
+    sharedPreferencesFactory.internal.registerOnSharedPreferenceChangeListener(this)
+    connectivityMonitor.addListener(this)
+  }
+
+  fun get(): Template {
+    val current = cached
+    if (isRegistered.get() && current != null && current.version == version.get() && current.isUpToDate()) {
+      return current.template.withFreshSessionDuration()
+    }
+
+    val newVersion = version.get()
+    val template = createTemplate()
+    if (isRegistered.get()) {
+      cached = VersionedTemplate(newVersion, template)
+    }
+    return template
+  }
+
+  fun invalidate() {
+    version.incrementAndGet()
+    cached = null
+  }
+
+  override fun onSharedPreferenceChanged(sharedPreferences: SharedPreferences?, key: String?) = invalidate()
+
+  override fun onConfigurationChanged(newConfig: Configuration) = invalidate()
+
+  override fun onLowMemory() {
+    // nothing to do
+  }
+
+  override fun onConnectivityChanged() = invalidate()
+
+  private fun VersionedTemplate.isUpToDate(): Boolean {
+    // Those values are only kept in memory, so they are not observable: they are compared instead.
+    return template.userData === userDataHolder.get() &&
+        template.tagForChildDirectedTreatment == userPrivacyUtil.tagForChildDirectedTreatment
+  }
+
+  private fun Template.withFreshSessionDuration(): Template {
+    if (ContextProvider.SessionDuration !in userContext) {
+      return this
+    }
+
+    val freshUserContext = LinkedHashMap(userContext)
+    val sessionDuration = contextProvider.fetchSessionDuration()
+    if (sessionDuration == null) {
+      freshUserContext.remove(ContextProvider.SessionDuration)
+    } else {
+      freshUserContext[ContextProvider.SessionDuration] = sessionDuration
+    }
+    return copy(userContext = freshUserContext)
+  }
+
+  private fun createTemplate(): Template {
+    val tagForChildDirectedTreatment = userPrivacyUtil.tagForChildDirectedTreatment
+    return Template(
+        userData = userDataHolder.get(),
+        userContext = contextProvider.fetchUserContext(),
+        uspIab = TextUtils.getNotEmptyOrNullValue(userPrivacyUtil.iabUsPrivacyString),
+        uspOptout = TextUtils.getNotEmptyOrNullValue(userPrivacyUtil.usPrivacyOptout),
+        sdkVersion = buildConfigWrapper.sdkVersion,
+        profileId = integrationRegistry.profileId,
+        gdprData = userPrivacyUtil.gdprData,
+        tagForChildDirectedTreatment = tagForChildDirectedTreatment,
+        regs = tagForChildDirectedTreatment?.let { CdbRegs(it) }
+    )
+  }
+
+  private class VersionedTemplate(val version: Long, val template: Template)
+
+  data class Template(
+      val userData: UserData,
+      val userContext: Map<String, Any>,
+      val uspIab: String?,
+      val uspOptout: String?,
+      val sdkVersion: String,
+      val profileId: Int,
+      val gdprData: GdprData?,
+      val tagForChildDirectedTreatment: Boolean?,
+      val regs: CdbRegs?
+  )
+}
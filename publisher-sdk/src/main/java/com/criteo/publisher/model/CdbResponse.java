@@ -20,8 +20,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.criteo.publisher.logging.Logger;
 import com.criteo.publisher.logging.LoggerFactory;
+import com.criteo.publisher.util.JsonSerializer;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -31,6 +34,7 @@ public class CdbResponse {
   private static final String TIME_TO_NEXT_CALL = "timeToNextCall";
   private static final String SLOTS = "slots";
   private static final String CONSENT_GIVEN = "consentGiven";
+  private static final String SESSION_TOKEN = "sessionToken";
 
   @NonNull
   private final List<CdbResponseSlot> slots;
@@ -40,14 +44,31 @@ public class CdbResponse {
   @Nullable
   private final Boolean consentGiven;
 
+  /**
+   * Token of the session under which CDB registered the static context of the bid request, if CDB
+   * supports sessions.
+   */
+  @Nullable
+  private final String sessionToken;
+
   public CdbResponse(
       @NonNull List<CdbResponseSlot> slots,
       int timeToNextCall,
       @Nullable Boolean consentGiven
       ) {
+    this(slots, timeToNextCall, consentGiven, null);
+  }
+
+  public CdbResponse(
+      @NonNull List<CdbResponseSlot> slots,
+      int timeToNextCall,
+      @Nullable Boolean consentGiven,
+      @Nullable String sessionToken
+  ) {
     this.slots = slots;
     this.timeToNextCall = timeToNextCall;
     this.consentGiven = consentGiven;
+    this.sessionToken = sessionToken;
   }
 
   @NonNull
@@ -91,7 +112,55 @@ public class CdbResponse {
       }
     }
 
-    return new CdbResponse(slots, timeToNextCall, consentGiven);
+    String sessionToken = null;
+    if (json.has(SESSION_TOKEN)) {
+      try {
+        sessionToken = json.getString(SESSION_TOKEN);
+      } catch (JSONException ex) {
+        logger.debug("Exception while reading sessionToken", ex);
+      }
+    }
+
+    return new CdbResponse(slots, timeToNextCall, consentGiven, sessionToken);
+  }
+
+  /**
+   * Read a response from plain JSON values, as decoded from CBOR.
+   * <p>
+   * This is as lenient as {@link #fromJson(JSONObject)}: invalid fields and slots are ignored.
+   */
+  @NonNull
+  public static CdbResponse fromJsonValue(
+      @NonNull Map<String, Object> json,
+      @NonNull JsonSerializer jsonSerializer
+  ) {
+    Logger logger = LoggerFactory.getLogger(CdbResponse.class);
+
+    int timeToNextCall = 0;
+    Object timeToNextCallValue = json.get(TIME_TO_NEXT_CALL);
+    if (timeToNextCallValue instanceof Number) {
+      timeToNextCall = ((Number) timeToNextCallValue).intValue();
+    }
+
+    List<CdbResponseSlot> slots = new ArrayList<>();
+    Object slotsValue = json.get(SLOTS);
+    if (slotsValue instanceof List) {
+      for (Object slotValue : (List<?>) slotsValue) {
+        try {
+          slots.add(jsonSerializer.fromJsonValue(CdbResponseSlot.class, slotValue));
+        } catch (IOException ex) {
+          logger.debug("Exception while reading slot from slots array", ex);
+        }
+      }
+    }
+
+    Object consentGivenValue = json.get(CONSENT_GIVEN);
+    Boolean consentGiven = consentGivenValue instanceof Boolean ? (Boolean) consentGivenValue : null;
+
+    Object sessionTokenValue = json.get(SESSION_TOKEN);
+    String sessionToken = sessionTokenValue instanceof String ? (String) sessionTokenValue : null;
+
+    return new CdbResponse(slots, timeToNextCall, consentGiven, sessionToken);
   }
 
   @NonNull
@@ -106,6 +175,11 @@ public class CdbResponse {
   @Nullable
   public Boolean getConsentGiven() { return consentGiven; }
 
+  @Nullable
+  public String getSessionToken() {
+    return sessionToken;
+  }
+
   @Nullable
   public CdbResponseSlot getSlotByImpressionId(@NonNull String impressionId) {
     for (CdbResponseSlot slot : slots) {
@@ -123,6 +197,7 @@ public class CdbResponse {
         "slots=" + slots +
         ", timeToNextCall=" + timeToNextCall +
         ", consentGiven = " + consentGiven +
+        ", sessionToken = " + sessionToken +
         '}';
   }
 }
@@ -32,6 +32,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
 
 public class Config {
 
@@ -40,6 +42,24 @@ public class Config {
    */
   private static final String CONFIG_STORAGE_KEY = "CriteoCachedConfig";
 
+  /**
+   * Key in local storage where the ETag identifying the version of the persisted remote config is
+   * persisted.
+   */
+  private static final String CONFIG_ETAG_STORAGE_KEY = "CriteoCachedConfigETag";
+
+  /**
+   * Key in local storage where the time, in milliseconds since epoch, until which the persisted
+   * remote config is fresh is persisted.
+   */
+  private static final String CONFIG_EXPIRATION_STORAGE_KEY = "CriteoCachedConfigExpiration";
+
+  /**
+   * Key in local storage where the key of the request that fetched the persisted remote config is
+   * persisted. The ETag and the expiration time are only valid for requests with the same key.
+   */
+  private static final String CONFIG_REQUEST_KEY_STORAGE_KEY = "CriteoCachedConfigRequestKey";
+
   public static class DefaultConfig {
 
     public static final boolean KILL_SWITCH = false;
@@ -53,6 +73,11 @@ public class Config {
     public static final boolean PREFETCH_ON_INIT_ENABLED = true;
     public static final RemoteLogLevel REMOTE_LOG_LEVEL = RemoteLogLevel.WARNING;
     public static final boolean IS_MRAID_ENABLED = false;
+    public static final boolean INTERSTITIAL_CREATIVE_PREFETCH_ENABLED = false;
+    public static final boolean CDB_BINARY_PROTOCOL_ENABLED = false;
+    public static final int BID_REQUEST_COALESCING_WINDOW_IN_MILLIS = 0;
+    public static final boolean TELEMETRY_ENVELOPE_ENABLED = false;
+    public static final List<String> CDB_URLS = Collections.emptyList();
 
   }
 
@@ -64,6 +89,14 @@ public class Config {
   @NonNull
   private volatile RemoteConfigResponse cachedRemoteConfig;
 
+  @Nullable
+  private volatile String cachedRemoteConfigRequestKey;
+
+  @Nullable
+  private volatile String cachedRemoteConfigETag;
+
+  private volatile long cachedRemoteConfigExpirationTimeInMillis;
+
   @Nullable
   private final SharedPreferences sharedPreferences;
 
@@ -86,6 +119,17 @@ public class Config {
     this.sharedPreferences = sharedPreferences;
     this.jsonSerializer = jsonSerializer;
     this.cachedRemoteConfig = readConfigOrEmpty();
+
+    SafeSharedPreferences safeSharedPreferences = new SafeSharedPreferences(sharedPreferences);
+    this.cachedRemoteConfigRequestKey = safeSharedPreferences.getString(
+        CONFIG_REQUEST_KEY_STORAGE_KEY,
+        null
+    );
+    this.cachedRemoteConfigETag = safeSharedPreferences.getString(CONFIG_ETAG_STORAGE_KEY, null);
+    this.cachedRemoteConfigExpirationTimeInMillis = safeSharedPreferences.getLong(
+        CONFIG_EXPIRATION_STORAGE_KEY,
+        0
+    );
   }
 
   @NonNull
@@ -161,23 +205,123 @@ public class Config {
         getOrElse(
             overrideRemoteConfig.isMraidEnabled(),
             baseRemoteConfig.isMraidEnabled()
+        ),
+        getOrElse(
+            overrideRemoteConfig.getInterstitialCreativePrefetchEnabled(),
+            baseRemoteConfig.getInterstitialCreativePrefetchEnabled()
+        ),
+        getOrElse(
+            overrideRemoteConfig.getCdbBinaryProtocolEnabled(),
+            baseRemoteConfig.getCdbBinaryProtocolEnabled()
+        ),
+        getOrElse(
+            overrideRemoteConfig.getBidRequestCoalescingWindowInMillis(),
+            baseRemoteConfig.getBidRequestCoalescingWindowInMillis()
+        ),
+        getOrElse(
+            overrideRemoteConfig.getTelemetryEnvelopeEnabled(),
+            baseRemoteConfig.getTelemetryEnvelopeEnabled()
+        ),
+        getOrElse(
+            overrideRemoteConfig.getCdbUrls(),
+            baseRemoteConfig.getCdbUrls()
         )
     );
   }
 
   public void refreshConfig(@NonNull RemoteConfigResponse response) {
     cachedRemoteConfig = mergeRemoteConfig(cachedRemoteConfig, response);
-    persistRemoteConfig(cachedRemoteConfig);
+    Editor editor = persistRemoteConfig(cachedRemoteConfig);
+    if (editor != null) {
+      editor.apply();
+    }
   }
 
-  private void persistRemoteConfig(@NonNull RemoteConfigResponse response) {
+  /**
+   * Refresh the config with the given response and remember the cache validators sent along it, so
+   * next fetches with the same request key can be skipped while it is fresh, or be conditional.
+   *
+   * @param response new remote config to merge with the current one
+   * @param requestKey key of the request that fetched the response
+   * @param eTag identifier of the version of the remote config, if any
+   * @param expirationTimeInMillis time until which the remote config is fresh
+   */
+  public void refreshConfig(
+      @NonNull RemoteConfigResponse response,
+      @NonNull String requestKey,
+      @Nullable String eTag,
+      long expirationTimeInMillis
+  ) {
+    cachedRemoteConfig = mergeRemoteConfig(cachedRemoteConfig, response);
+    cachedRemoteConfigRequestKey = requestKey;
+    cachedRemoteConfigETag = eTag;
+    cachedRemoteConfigExpirationTimeInMillis = expirationTimeInMillis;
+
+    // Validators are persisted along the config so they never refer to a config that was not stored
+    Editor editor = persistRemoteConfig(cachedRemoteConfig);
+    if (editor != null) {
+      editor.putString(CONFIG_REQUEST_KEY_STORAGE_KEY, requestKey);
+      if (eTag == null) {
+        editor.remove(CONFIG_ETAG_STORAGE_KEY);
+      } else {
+        editor.putString(CONFIG_ETAG_STORAGE_KEY, eTag);
+      }
+      editor.putLong(CONFIG_EXPIRATION_STORAGE_KEY, expirationTimeInMillis);
+      editor.apply();
+    }
+  }
+
+  /**
+   * Indicate that the remote config is not modified on server side, and that the current one is
+   * fresh until the given time.
+   * <p>
+   * Only this time is persisted: the config itself is not written again. This is ignored if the
+   * current config was not fetched with the given request key.
+   */
+  public void extendRemoteConfigFreshness(@NonNull String requestKey, long expirationTimeInMillis) {
+    if (!requestKey.equals(cachedRemoteConfigRequestKey)) {
+      return;
+    }
+
+    cachedRemoteConfigExpirationTimeInMillis = expirationTimeInMillis;
+
+    if (sharedPreferences == null) {
+      return;
+    }
+
+    sharedPreferences.edit()
+        .putLong(CONFIG_EXPIRATION_STORAGE_KEY, expirationTimeInMillis)
+        .apply();
+  }
+
+  /**
+   * Return <code>true</code> if the remote config was fetched with the given request key and is
+   * still fresh at the given time, so there is no need to fetch it again.
+   */
+  public boolean isRemoteConfigFresh(@NonNull String requestKey, long currentTimeInMillis) {
+    return requestKey.equals(cachedRemoteConfigRequestKey)
+        && currentTimeInMillis < cachedRemoteConfigExpirationTimeInMillis;
+  }
+
+  /**
+   * Identifier of the version of the current remote config, to send in conditional requests with
+   * the given request key, or <code>null</code> if the version is unknown or was fetched with
+   * another request key.
+   */
+  @Nullable
+  public String getRemoteConfigETag(@NonNull String requestKey) {
+    return requestKey.equals(cachedRemoteConfigRequestKey) ? cachedRemoteConfigETag : null;
+  }
+
+  @Nullable
+  private Editor persistRemoteConfig(@NonNull RemoteConfigResponse response) {
     // FIXME(ma.chentir): the context object is effectively NonNull if this method is
     //  called, as it can only be called when creating a real Criteo instance.
     //  However, the null check is done for safety purposes. when we implement CSM,
     //  we would need to trigger an event if context is null as it would indicate a
     //  potential problem.
     if (sharedPreferences == null || jsonSerializer == null) {
-      return;
+      return null;
     }
 
     String remoteConfigJson;
@@ -186,12 +330,12 @@ public class Config {
       remoteConfigJson = new String(baos.toByteArray(), Charset.forName("UTF-8"));
     } catch (Exception e) {
       logger.debug("Couldn't persist values", e);
-      return;
+      return null;
     }
 
     Editor editor = sharedPreferences.edit();
     editor.putString(CONFIG_STORAGE_KEY, remoteConfigJson);
-    editor.apply();
+    return editor;
   }
 
   public boolean isKillSwitchEnabled() {
@@ -290,4 +434,60 @@ public class Config {
         DefaultConfig.IS_MRAID_ENABLED
     );
   }
+
+  /**
+   * Return <code>true</code> to indicate if interstitial creatives are downloaded as soon as their
+   * bids are cached, <code>false</code> otherwise.
+   */
+  public boolean isInterstitialCreativePrefetchEnabled() {
+    return getOrElse(
+        cachedRemoteConfig.getInterstitialCreativePrefetchEnabled(),
+        DefaultConfig.INTERSTITIAL_CREATIVE_PREFETCH_ENABLED
+    );
+  }
+
+  /**
+   * Return <code>true</code> to indicate if bid requests and responses may be encoded in the
+   * compact binary format, <code>false</code> to always use JSON.
+   */
+  public boolean isCdbBinaryProtocolEnabled() {
+    return getOrElse(
+        cachedRemoteConfig.getCdbBinaryProtocolEnabled(),
+        DefaultConfig.CDB_BINARY_PROTOCOL_ENABLED
+    );
+  }
+
+  /**
+   * Duration (in milliseconds) during which prefetch bid requests are held to be merged into a
+   * single CDB call. <code>0</code> indicates that each request is sent on its own.
+   */
+  public int getBidRequestCoalescingWindowInMillis() {
+    return getOrElse(
+        cachedRemoteConfig.getBidRequestCoalescingWindowInMillis(),
+        DefaultConfig.BID_REQUEST_COALESCING_WINDOW_IN_MILLIS
+    );
+  }
+
+  /**
+   * Return <code>true</code> to indicate if CSM metrics and remote logs are uploaded together in a
+   * single request, <code>false</code> to upload them separately.
+   */
+  public boolean isTelemetryEnvelopeEnabled() {
+    return getOrElse(
+        cachedRemoteConfig.getTelemetryEnvelopeEnabled(),
+        DefaultConfig.TELEMETRY_ENVELOPE_ENABLED
+    );
+  }
+
+  /**
+   * Return the base URLs of the candidate CDB endpoints for bid requests. An empty list indicates
+   * that the default CDB endpoint should be used.
+   */
+  @NonNull
+  public List<String> getCdbUrls() {
+    return getOrElse(
+        cachedRemoteConfig.getCdbUrls(),
+        DefaultConfig.CDB_URLS
+    );
+  }
 }
@@ -29,7 +29,6 @@ import com.criteo.publisher.logging.LoggerFactory;
 import com.criteo.publisher.util.CompletableFuture;
 import com.criteo.publisher.util.PreconditionsUtil;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DeviceInfo {
@@ -67,8 +66,14 @@ public class DeviceInfo {
     });
   }
 
+  /**
+   * Return the user agent of the device, resolved asynchronously on first call.
+   * <p>
+   * Callers should chain on the returned future rather than blocking on it: resolving the user
+   * agent of the WebView may take time during the SDK initialization.
+   */
   @NonNull
-  public Future<String> getUserAgent() {
+  public CompletableFuture<String> getUserAgent() {
     // Initialize automatically so that it's safe to call this method alone.
     initialize();
 
@@ -38,4 +38,14 @@ class RemoteConfigRequestFactory(
         advertisingInfo.advertisingId
     )
   }
+
+  /**
+   * Key identifying the remote config that [createRequest] fetches, so cache validators of a config
+   * are not reused for another one, for instance after an SDK upgrade or a change of publisher.
+   *
+   * This is cheap to compute, contrary to the request itself, which needs the advertising ID.
+   */
+  fun createRequestKey(): String {
+    return "${buildConfigWrapper.sdkVersion}/$criteoPublisherId/${context.packageName}"
+  }
 }
@@ -142,7 +142,51 @@ data class RemoteConfigResponse(
      * Feature flag for activating/deactivating MRAID for banners and interstitials
      */
     @Json(name = "mraidEnabled")
-    val isMraidEnabled: Boolean? = null
+    val isMraidEnabled: Boolean? = null,
+
+    /**
+     * Feature flag for activating/deactivating the download of interstitial creatives as soon as their bids are
+     * cached, so they are immediately available when the bids are consumed. If the flag is not present (i.e. equals to
+     * `null`), then the previous persisted value of this flag is taken. If there is no previous value, this means that
+     * this is a fresh start of a new application, then a default value is taken.
+     */
+    @Json(name = "interstitialCreativePrefetchEnabled")
+    val interstitialCreativePrefetchEnabled: Boolean? = null,
+
+    /**
+     * Feature flag for activating/deactivating the compact binary (CBOR) encoding of bid requests and responses. If
+     * the flag is not present (i.e. equals to `null`), then the previous persisted value of this flag is taken. If
+     * there is no previous value, this means that this is a fresh start of a new application, then a default value is
+     * taken.
+     */
+    @Json(name = "cdbBinaryProtocolEnabled")
+    val cdbBinaryProtocolEnabled: Boolean? = null,
+
+    /**
+     * Duration (in milliseconds) during which prefetch bid requests are held to be merged into a single CDB call. A
+     * value of 0 disables the coalescing. If the value is not present (i.e. equals to `null`), then the previous
+     * persisted value is taken. If there is no previous value, this means that this is a fresh start of a new
+     * application, then a default value is taken.
+     */
+    @Json(name = "bidRequestCoalescingWindowInMillis")
+    val bidRequestCoalescingWindowInMillis: Int? = null,
+
+    /**
+     * Feature flag for activating/deactivating the upload of CSM metrics and remote logs in a single request. If the
+     * flag is not present (i.e. equals to `null`), then the previous persisted value of this flag is taken. If there is
+     * no previous value, this means that this is a fresh start of a new application, then a default value is taken.
+     */
+    @Json(name = "telemetryEnvelopeEnabled")
+    val telemetryEnvelopeEnabled: Boolean? = null,
+
+    /**
+     * Base URLs of the CDB endpoints that bid requests can be sent to. The SDK sends bid requests to the one with the
+     * best latency and error rate, and fails over to another one on errors. If the value is not present (i.e. equals to
+     * `null`), then the previous persisted value is taken. If there is no previous value, this means that this is a
+     * fresh start of a new application, then a default value is taken.
+     */
+    @Json(name = "cdbUrls")
+    val cdbUrls: List<String>? = null
 ) {
 
   fun withKillSwitch(killSwitch: Boolean?): RemoteConfigResponse {
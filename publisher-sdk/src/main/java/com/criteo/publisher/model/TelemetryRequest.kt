@@ -0,0 +1,34 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.model
+
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.csm.MetricRequest
+import com.criteo.publisher.logging.RemoteLogRecords
+import com.squareup.moshi.Json
+import com.squareup.moshi.JsonClass
+
+/**
+ * Envelope carrying both CSM metrics and remote logs, so they are uploaded in a single request.
+ */
+@OpenForTesting
+@JsonClass(generateAdapter = true)
+data class TelemetryRequest(
+    @Json(name = "csm")
+    val metricRequests: List<MetricRequest>,
+    @Json(name = "logs")
+    val remoteLogRecords: List<RemoteLogRecords>
+)
@@ -16,6 +16,8 @@
 
 package com.criteo.publisher.model;
 
+import static com.criteo.publisher.CriteoListenerCode.VALID;
+
 import androidx.annotation.NonNull;
 import com.criteo.publisher.DependencyProvider;
 import com.criteo.publisher.network.PubSdkApi;
@@ -85,7 +87,19 @@ public class WebViewData {
       @NonNull DeviceInfo deviceInfo,
       @NonNull InterstitialListenerNotifier listenerNotifier
   ) {
-    Executor threadPoolExecutor = DependencyProvider.getInstance().provideThreadPoolExecutor();
+    DependencyProvider dependencyProvider = DependencyProvider.getInstance();
+
+    String prefetchedCreative = dependencyProvider.provideInterstitialCreativePrefetcher()
+        .consume(displayUrl);
+    if (prefetchedCreative != null) {
+      // The creative was downloaded when its bid was cached, there is no need to wait for it
+      setContent(prefetchedCreative);
+      downloadSucceeded();
+      listenerNotifier.notifyFor(VALID);
+      return;
+    }
+
+    Executor threadPoolExecutor = dependencyProvider.provideThreadPoolExecutor();
 
     Runnable task = new WebViewDataTask(
         displayUrl,
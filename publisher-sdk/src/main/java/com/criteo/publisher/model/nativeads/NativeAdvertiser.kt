@@ -17,6 +17,7 @@
 package com.criteo.publisher.model.nativeads
 
 import com.criteo.publisher.annotation.OpenForTesting
+import com.squareup.moshi.Json
 import com.squareup.moshi.JsonClass
 import java.net.URI
 
@@ -25,9 +26,12 @@ import java.net.URI
 data class NativeAdvertiser(
     val domain: String,
     val description: String,
-    /**
-     * This is an {@link URI} and not an {@link java.net.URL}, because deeplinks are acceptable.
-     */
-    val logoClickUrl: URI,
+    @Json(name = "logoClickUrl")
+    internal val rawLogoClickUrl: String,
     val logo: NativeImage
-)
+) {
+  /**
+   * This is an {@link URI} and not an {@link java.net.URL}, because deeplinks are acceptable.
+   */
+  val logoClickUrl: URI by lazy { URI.create(rawLogoClickUrl) }
+}
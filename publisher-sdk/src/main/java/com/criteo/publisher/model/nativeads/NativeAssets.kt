@@ -20,9 +20,16 @@ import com.criteo.publisher.annotation.OpenForTesting
 import com.squareup.moshi.Json
 import com.squareup.moshi.JsonClass
 import java.io.IOException
+import java.net.MalformedURLException
 import java.net.URI
 import java.net.URL
 
+/**
+ * Native payload of a bid.
+ *
+ * Its URLs and URIs are kept as strings when the bid is parsed, and only materialized when first read, so cached bids
+ * that are never consumed do not pay for them. Consumers should call [materialize] before reading them.
+ */
 @OpenForTesting
 @JsonClass(generateAdapter = true)
 data class NativeAssets(
@@ -61,5 +68,25 @@ data class NativeAssets(
   val privacyOptOutClickUrl: URI get() = privacy.clickUrl
   val privacyOptOutImageUrl: URL get() = privacy.imageUrl
   val privacyLongLegalText: String get() = privacy.legalText
-  val impressionPixels: List<URL> get() = pixels.map { it.url }
+  val impressionPixels: List<URL> by lazy { pixels.map { it.url } }
+
+  /**
+   * Materialize all the URLs and URIs of this payload.
+   *
+   * @return `false` if one of them is malformed. Then this payload should be handled as if there were no bid.
+   */
+  fun materialize(): Boolean {
+    return try {
+      // Reading them is enough to parse and keep them
+      val links = nativeProducts.flatMap { listOf(it.clickUrl, it.imageUrl) } +
+          listOf(advertiserLogoUrl, advertiserLogoClickUrl, privacyOptOutClickUrl, privacyOptOutImageUrl) +
+          impressionPixels
+      links.isNotEmpty()
+    } catch (e: MalformedURLException) {
+      false
+    } catch (e: IllegalArgumentException) {
+      // Thrown by URI.create on syntax errors
+      false
+    }
+  }
 }
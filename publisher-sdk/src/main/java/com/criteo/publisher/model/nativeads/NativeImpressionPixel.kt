@@ -17,9 +17,12 @@
 package com.criteo.publisher.model.nativeads
 
 import com.criteo.publisher.annotation.OpenForTesting
+import com.squareup.moshi.Json
 import com.squareup.moshi.JsonClass
 import java.net.URL
 
 @OpenForTesting
 @JsonClass(generateAdapter = true)
-data class NativeImpressionPixel(val url: URL)
+data class NativeImpressionPixel(@Json(name = "url") internal val rawUrl: String) {
+  val url: URL by lazy { URL(rawUrl) }
+}
@@ -25,13 +25,16 @@ import java.net.URL
 @OpenForTesting
 @JsonClass(generateAdapter = true)
 data class NativePrivacy(
-    /**
-     * This is an {@link URI} and not an {@link URL}, because deeplinks are acceptable.
-     */
     @Json(name = "optoutClickUrl")
-    val clickUrl: URI,
+    internal val rawClickUrl: String,
     @Json(name = "optoutImageUrl")
-    val imageUrl: URL,
+    internal val rawImageUrl: String,
     @Json(name = "longLegalText")
     val legalText: String
-)
+) {
+  /**
+   * This is an {@link URI} and not an {@link URL}, because deeplinks are acceptable.
+   */
+  val clickUrl: URI by lazy { URI.create(rawClickUrl) }
+  val imageUrl: URL by lazy { URL(rawImageUrl) }
+}
@@ -17,6 +17,7 @@
 package com.criteo.publisher.model.nativeads
 
 import com.criteo.publisher.annotation.OpenForTesting
+import com.squareup.moshi.Json
 import com.squareup.moshi.JsonClass
 import java.net.URI
 import java.net.URL
@@ -27,12 +28,14 @@ data class NativeProduct(
     val title: String,
     val description: String,
     val price: String,
-    /**
-     * This is an {@link URI} and not an {@link URL}, because deeplink are acceptable.
-     */
-    val clickUrl: URI,
+    @Json(name = "clickUrl")
+    internal val rawClickUrl: String,
     val callToAction: String,
     val image: NativeImage
 ) {
+  /**
+   * This is an {@link URI} and not an {@link URL}, because deeplink are acceptable.
+   */
+  val clickUrl: URI by lazy { URI.create(rawClickUrl) }
   val imageUrl: URL get() = image.url
 }
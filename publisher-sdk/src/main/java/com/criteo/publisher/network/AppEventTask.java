@@ -75,6 +75,15 @@ public class AppEventTask extends SafeRunnable {
 
   @Override
   public void runSafely() throws Throwable {
+    try {
+      sendAppEvent();
+    } catch (Throwable throwable) {
+      responseListener.onAppEventFailed(throwable);
+      throw throwable;
+    }
+  }
+
+  private void sendAppEvent() throws Throwable {
     int limitedAdTracking = advertisingInfo.isLimitAdTrackingEnabled() ? 1 : 0;
     String gaid = advertisingInfo.getAdvertisingId();
     String appId = mContext.getPackageName();
@@ -18,11 +18,13 @@ package com.criteo.publisher.network;
 
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.CdbCallListener;
 import com.criteo.publisher.Clock;
 import com.criteo.publisher.SafeRunnable;
 import com.criteo.publisher.context.ContextData;
+import com.criteo.publisher.model.AdUnitMapper;
 import com.criteo.publisher.model.CacheAdUnit;
 import com.criteo.publisher.model.CdbRequestFactory;
 import com.criteo.publisher.model.Config;
@@ -36,8 +38,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class BidRequestSender {
 
@@ -56,23 +58,50 @@ public class BidRequestSender {
   @NonNull
   private final Executor executor;
 
+  @NonNull
+  private final NetworkPolicy networkPolicy;
+
+  @NonNull
+  private final Config config;
+
+  @NonNull
+  private final AdUnitMapper adUnitMapper;
+
+  @NonNull
+  private final ScheduledExecutorService scheduledExecutorService;
+
   @NonNull
   @GuardedBy("pendingTasksLock")
-  private final Map<CacheAdUnit, Future<?>> pendingTasks;
+  private final Map<CacheAdUnit, CdbCall> pendingTasks;
   private final Object pendingTasksLock = new Object();
 
+  /**
+   * Bid request being held until the end of its coalescing window, if any.
+   */
+  @Nullable
+  @GuardedBy("pendingTasksLock")
+  private CoalescedBidRequest coalescedBidRequest;
+
   public BidRequestSender(
       @NonNull CdbRequestFactory cdbRequestFactory,
       @NonNull RemoteConfigRequestFactory remoteConfigRequestFactory,
       @NonNull Clock clock,
       @NonNull PubSdkApi api,
-      @NonNull Executor executor
+      @NonNull Executor executor,
+      @NonNull NetworkPolicy networkPolicy,
+      @NonNull Config config,
+      @NonNull AdUnitMapper adUnitMapper,
+      @NonNull ScheduledExecutorService scheduledExecutorService
   ) {
     this.cdbRequestFactory = cdbRequestFactory;
     this.remoteConfigRequestFactory = remoteConfigRequestFactory;
     this.clock = clock;
     this.api = api;
     this.executor = executor;
+    this.networkPolicy = networkPolicy;
+    this.config = config;
+    this.adUnitMapper = adUnitMapper;
+    this.scheduledExecutorService = scheduledExecutorService;
     this.pendingTasks = new ConcurrentHashMap<>();
   }
 
@@ -86,11 +115,31 @@ public class BidRequestSender {
    * <p>
    * If no error occurs during the request, the given configuration is updated. Else, it is left
    * unchanged.
+   * <p>
+   * Nothing is sent while the given configuration is still fresh. Else the request is conditional:
+   * if the server indicates that the remote config is not modified, only its freshness is extended.
+   * Freshness and ETag only apply to requests with the same key as the one that fetched the
+   * configuration (see {@link RemoteConfigRequestFactory#createRequestKey()}).
    *
    * @param configToUpdate configuration to update after request
    */
   public void sendRemoteConfigRequest(@NonNull Config configToUpdate) {
-    executor.execute(new RemoteConfigCall(configToUpdate));
+    String requestKey = remoteConfigRequestFactory.createRequestKey();
+    if (configToUpdate.isRemoteConfigFresh(requestKey, clock.getCurrentTimeInMillis())) {
+      return;
+    }
+
+    executor.execute(new RemoteConfigCall(configToUpdate, requestKey));
+  }
+
+  /**
+   * Asynchronously open a connection to CDB so that next requests can reuse it.
+   * <p>
+   * This is a best-effort optimization: errors are ignored and next requests would simply open
+   * their own connection.
+   */
+  public void sendConnectionWarmUpRequest() {
+    executor.execute(new ConnectionWarmUpCall());
   }
 
   /**
@@ -102,6 +151,15 @@ public class BidRequestSender {
    * (successful or not). While an ad unit is pending, it cannot be requested again. So if in given
    * ones, some are pending, they will be ignored from the request. If all given ad units are
    * pending, then no call is done and listener is not notified.
+   * <p>
+   * The whole call, including the time waiting for an available thread, is bounded by the network
+   * timeout.
+   * <p>
+   * If a {@linkplain Config#getBidRequestCoalescingWindowInMillis() coalescing window} is set, the
+   * request is held during this window. Next requests with the same context and listener arriving
+   * meanwhile are merged into it, up to the {@linkplain AdUnitMapper#getChunkSize() chunk size}, so
+   * that many ad units loaded at the same time are requested in a single call. The listener is then
+   * notified once for the merged request.
    *
    * @param adUnits ad units to request
    * @param listener listener to notify
@@ -112,7 +170,11 @@ public class BidRequestSender {
       @NonNull CdbCallListener listener
   ) {
     List<CacheAdUnit> requestedAdUnits = new ArrayList<>(adUnits);
-    FutureTask<Void> task;
+    int coalescingWindowInMillis = config.getBidRequestCoalescingWindowInMillis();
+    int chunkSize = adUnitMapper.getChunkSize();
+    CoalescedBidRequest openedBidRequest = null;
+    CdbCall task = null;
+    List<CacheAdUnit> taskAdUnits = requestedAdUnits;
 
     synchronized (pendingTasksLock) {
       requestedAdUnits.removeAll(pendingTasks.keySet());
@@ -120,45 +182,114 @@ public class BidRequestSender {
         return;
       }
 
-      task = createCdbCallTask(requestedAdUnits, contextData, listener);
+      CoalescedBidRequest current = coalescedBidRequest;
+      if (current != null && current.canMerge(requestedAdUnits, contextData, listener, chunkSize)) {
+        current.merge(requestedAdUnits);
+        putPendingTasks(requestedAdUnits, current.task);
 
-      for (CacheAdUnit requestedAdUnit : requestedAdUnits) {
-        pendingTasks.put(requestedAdUnit, task);
+        if (current.adUnits.size() >= chunkSize) {
+          // The request is full, there is no need to wait for the end of its window
+          coalescedBidRequest = null;
+          task = current.task;
+          taskAdUnits = current.adUnits;
+        }
+      } else if (current == null
+          && coalescingWindowInMillis > 0
+          && requestedAdUnits.size() < chunkSize) {
+        openedBidRequest = new CoalescedBidRequest(requestedAdUnits, contextData, listener);
+        coalescedBidRequest = openedBidRequest;
+        putPendingTasks(requestedAdUnits, openedBidRequest.task);
+      } else {
+        task = createCdbCallTask(requestedAdUnits, contextData, listener);
+        putPendingTasks(requestedAdUnits, task);
       }
     }
 
+    if (openedBidRequest != null) {
+      scheduleEndOfCoalescingWindow(openedBidRequest, coalescingWindowInMillis);
+    } else if (task != null) {
+      execute(task, taskAdUnits);
+    }
+  }
+
+  @GuardedBy("pendingTasksLock")
+  private void putPendingTasks(@NonNull List<CacheAdUnit> adUnits, @NonNull CdbCall task) {
+    for (CacheAdUnit adUnit : adUnits) {
+      pendingTasks.put(adUnit, task);
+    }
+  }
+
+  private void execute(@NonNull CdbCall task, @NonNull List<CacheAdUnit> adUnits) {
+    boolean isScheduled = false;
     try {
-      executor.execute(task);
-      task = null;
+      task.execute();
+      isScheduled = true;
     } finally {
-      if (task != null) {
+      if (!isScheduled) {
         // If an exception was thrown when scheduling the task, then we remove the ad unit from the
         // pending tasks.
-        removePendingTasksWithAdUnits(requestedAdUnits);
+        removePendingTasksWithAdUnits(adUnits);
       }
     }
   }
 
+  private void scheduleEndOfCoalescingWindow(
+      @NonNull CoalescedBidRequest bidRequest,
+      int coalescingWindowInMillis
+  ) {
+    boolean isScheduled = false;
+    try {
+      scheduledExecutorService.schedule(
+          () -> closeCoalescingWindow(bidRequest),
+          coalescingWindowInMillis,
+          TimeUnit.MILLISECONDS
+      );
+      isScheduled = true;
+    } finally {
+      if (!isScheduled) {
+        // The window cannot end by itself, so the request is sent right now
+        closeCoalescingWindow(bidRequest);
+      }
+    }
+  }
+
+  private void closeCoalescingWindow(@NonNull CoalescedBidRequest bidRequest) {
+    synchronized (pendingTasksLock) {
+      if (coalescedBidRequest != bidRequest) {
+        // Already sent because it was full, or cancelled
+        return;
+      }
+      coalescedBidRequest = null;
+    }
+
+    execute(bidRequest.task, bidRequest.adUnits);
+  }
+
+  /**
+   * Create the call for the given ad units. They stay pending until the call is over, including the
+   * time it may wait for the user agent without holding a thread.
+   */
   @NonNull
-  private FutureTask<Void> createCdbCallTask(
+  private CdbCall createCdbCallTask(
       @NonNull List<CacheAdUnit> requestedAdUnits,
       @NonNull ContextData contextData,
       @NonNull CdbCallListener listener
   ) {
-    CdbCall task = new CdbCall(api, cdbRequestFactory, clock, requestedAdUnits, contextData, listener);
-
-    Runnable withRemovedPendingTasksAfterExecution = new Runnable() {
-      @Override
-      public void run() {
-        try {
-          task.run();
-        } finally {
-          removePendingTasksWithAdUnits(requestedAdUnits);
-        }
-      }
-    };
+    Deadline deadline = Deadline.after(clock, networkPolicy.getNetworkTimeoutInMillis());
+    CdbCall task = new CdbCall(
+        api,
+        cdbRequestFactory,
+        clock,
+        requestedAdUnits,
+        contextData,
+        listener,
+        deadline,
+        executor,
+        scheduledExecutorService
+    );
 
-    return new FutureTask<>(withRemovedPendingTasksAfterExecution, null);
+    task.getCompletion().whenComplete((ignored, throwable) -> removePendingTasksWithAdUnits(requestedAdUnits));
+    return task;
   }
 
   private void removePendingTasksWithAdUnits(List<CacheAdUnit> adUnits) {
@@ -172,10 +303,66 @@ public class BidRequestSender {
    */
   public void cancelAllPendingTasks() {
     synchronized (pendingTasksLock) {
-      for (Future<?> task : pendingTasks.values()) {
-        task.cancel(true);
+      for (CdbCall task : pendingTasks.values()) {
+        task.cancel();
       }
       pendingTasks.clear();
+      coalescedBidRequest = null;
+    }
+  }
+
+  /**
+   * Bid request accumulating the ad units requested during its coalescing window.
+   * <p>
+   * The list of ad units is only modified while the window is open, and under the pending tasks
+   * lock. So it is stable once the task is executed.
+   */
+  private class CoalescedBidRequest {
+
+    @NonNull
+    private final List<CacheAdUnit> adUnits;
+
+    @NonNull
+    private final ContextData contextData;
+
+    @NonNull
+    private final CdbCallListener listener;
+
+    @NonNull
+    private final CdbCall task;
+
+    private CoalescedBidRequest(
+        @NonNull List<CacheAdUnit> adUnits,
+        @NonNull ContextData contextData,
+        @NonNull CdbCallListener listener
+    ) {
+      this.adUnits = new ArrayList<>(adUnits);
+      this.contextData = contextData;
+      this.listener = listener;
+      this.task = createCdbCallTask(this.adUnits, contextData, listener);
+    }
+
+    private boolean canMerge(
+        @NonNull List<CacheAdUnit> otherAdUnits,
+        @NonNull ContextData otherContextData,
+        @NonNull CdbCallListener otherListener,
+        int chunkSize
+    ) {
+      return listener == otherListener
+          && contextData.equals(otherContextData)
+          && adUnits.size() + otherAdUnits.size() <= chunkSize;
+    }
+
+    private void merge(@NonNull List<CacheAdUnit> otherAdUnits) {
+      adUnits.addAll(otherAdUnits);
+    }
+  }
+
+  private class ConnectionWarmUpCall extends SafeRunnable {
+
+    @Override
+    public void runSafely() throws IOException {
+      api.warmUpCdbConnection();
     }
   }
 
@@ -184,15 +371,34 @@ public class BidRequestSender {
     @NonNull
     private final Config configToUpdate;
 
-    private RemoteConfigCall(@NonNull Config configToUpdate) {
+    @NonNull
+    private final String requestKey;
+
+    private RemoteConfigCall(@NonNull Config configToUpdate, @NonNull String requestKey) {
       this.configToUpdate = configToUpdate;
+      this.requestKey = requestKey;
     }
 
     @Override
     public void runSafely() throws IOException {
       RemoteConfigRequest request = remoteConfigRequestFactory.createRequest();
-      RemoteConfigResponse response = api.loadConfig(request);
-      configToUpdate.refreshConfig(response);
+      ConditionalResponse<RemoteConfigResponse> response = api.loadConfig(
+          request,
+          configToUpdate.getRemoteConfigETag(requestKey)
+      );
+
+      long expirationTimeInMillis = clock.getCurrentTimeInMillis() + response.getMaxAgeInMillis();
+      RemoteConfigResponse body = response.getBody();
+      if (body == null) {
+        configToUpdate.extendRemoteConfigFreshness(requestKey, expirationTimeInMillis);
+      } else {
+        configToUpdate.refreshConfig(
+            body,
+            requestKey,
+            response.getETag(),
+            expirationTimeInMillis
+        );
+      }
     }
   }
 }
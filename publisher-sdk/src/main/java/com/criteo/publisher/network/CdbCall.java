@@ -17,19 +17,39 @@
 package com.criteo.publisher.network;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.criteo.publisher.CdbCallListener;
 import com.criteo.publisher.Clock;
 import com.criteo.publisher.SafeRunnable;
 import com.criteo.publisher.context.ContextData;
 import com.criteo.publisher.model.CacheAdUnit;
 import com.criteo.publisher.model.CdbRequest;
+import com.criteo.publisher.model.CdbRequestDeviceInfo;
 import com.criteo.publisher.model.CdbRequestFactory;
 import com.criteo.publisher.model.CdbResponse;
 import com.criteo.publisher.model.CdbResponseSlot;
+import com.criteo.publisher.network.RequestScheduler.BiddingExecutor;
+import com.criteo.publisher.util.CompletableFuture;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-class CdbCall extends SafeRunnable {
+/**
+ * Call to CDB for the given ad units.
+ * <p>
+ * The request is only created once the device information, such as the user agent, is known. If it
+ * is not known yet when this call starts, this call releases its thread and resumes on the executor
+ * once the information is available, or gives up when its deadline expires.
+ * <p>
+ * A call given up before its request is sent, because its deadline expired or because it could not
+ * be prepared or executed, is reported to {@link CdbCallListener#onCdbCallAbandoned(Exception)}.
+ */
+class CdbCall {
 
   @NonNull
   private final PubSdkApi pubSdkApi;
@@ -49,13 +69,34 @@ class CdbCall extends SafeRunnable {
   @NonNull
   private final CdbCallListener listener;
 
+  @NonNull
+  private final Deadline deadline;
+
+  @NonNull
+  private final Executor executor;
+
+  @NonNull
+  private final ScheduledExecutorService scheduledExecutorService;
+
+  @NonNull
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+  /**
+   * Task of the phase of this call currently scheduled or running on the executor, if any.
+   */
+  @Nullable
+  private volatile Future<?> currentPhase;
+
   CdbCall(
       @NonNull PubSdkApi pubSdkApi,
       @NonNull CdbRequestFactory cdbRequestFactory,
       @NonNull Clock clock,
       @NonNull List<CacheAdUnit> requestedAdUnits,
       @NonNull ContextData contextData,
-      @NonNull CdbCallListener listener
+      @NonNull CdbCallListener listener,
+      @NonNull Deadline deadline,
+      @NonNull Executor executor,
+      @NonNull ScheduledExecutorService scheduledExecutorService
   ) {
     this.pubSdkApi = pubSdkApi;
     this.cdbRequestFactory = cdbRequestFactory;
@@ -63,22 +104,141 @@ class CdbCall extends SafeRunnable {
     this.requestedAdUnits = requestedAdUnits;
     this.contextData = contextData;
     this.listener = listener;
+    this.deadline = deadline;
+    this.executor = executor;
+    this.scheduledExecutorService = scheduledExecutorService;
   }
 
-  @Override
-  public void runSafely() throws ExecutionException, InterruptedException {
-    CdbRequest cdbRequest = cdbRequestFactory.createRequest(requestedAdUnits, contextData);
-    String userAgent = cdbRequestFactory.getUserAgent().get();
+  /**
+   * Future completed when this call is over, successful or not.
+   */
+  @NonNull
+  CompletableFuture<Void> getCompletion() {
+    return completion;
+  }
 
-    listener.onCdbRequest(cdbRequest);
+  /**
+   * Start this call on the executor.
+   * <p>
+   * With a {@link BiddingExecutor}, the call is marked as in flight until it is over, even while
+   * none of its phases is running.
+   *
+   * @throws java.util.concurrent.RejectedExecutionException if the executor rejects the call. The
+   * call is then abandoned and its listener is notified.
+   */
+  void execute() {
+    if (executor instanceof BiddingExecutor) {
+      BiddingExecutor biddingExecutor = (BiddingExecutor) executor;
+      biddingExecutor.onBiddingStarted();
+      completion.whenComplete((ignored, throwable) -> biddingExecutor.onBiddingEnded());
+    }
 
     try {
-      CdbResponse cdbResponse = pubSdkApi.loadCdb(cdbRequest, userAgent);
+      executePhase(this::start);
+    } catch (RuntimeException e) {
+      abandon(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Cancel this call. Its request is not sent if it is not yet, else its thread is interrupted.
+   */
+  void cancel() {
+    completion.cancel(true);
+
+    Future<?> phase = currentPhase;
+    if (phase != null) {
+      phase.cancel(true);
+    }
+  }
+
+  private void start() throws Exception {
+    if (completion.isDone()) {
+      // Cancelled before having a thread
+      return;
+    }
+
+    // The call may have waited too long for a thread, there is no need to prepare it in this case
+    deadline.throwIfExpired();
+
+    CompletableFuture<CdbRequestDeviceInfo> deviceInfo = cdbRequestFactory.awaitDeviceInfo();
+    if (deviceInfo.isDone()) {
+      send(deviceInfo.get());
+      return;
+    }
+
+    // Do not hold the thread while the device information is resolved
+    deviceInfo
+        .withTimeout(deadline.getRemainingTimeInMillis(), TimeUnit.MILLISECONDS, scheduledExecutorService)
+        .whenComplete(this::resume);
+  }
+
+  private void resume(@Nullable CdbRequestDeviceInfo deviceInfo, @Nullable Throwable throwable) {
+    if (completion.isDone()) {
+      // Cancelled while waiting for the device information
+      return;
+    }
+
+    try {
+      executePhase(() -> {
+        if (throwable instanceof TimeoutException) {
+          throw new DeadlineExceededException();
+        } else if (throwable != null) {
+          throw new ExecutionException(throwable);
+        } else if (!completion.isDone()) {
+          send(deviceInfo);
+        }
+      });
+    } catch (RuntimeException e) {
+      // The executor is shutting down, this call is simply abandoned
+      abandon(e);
+    }
+  }
+
+  /**
+   * Give up this call before its request is sent, and notify the listener unless the call is
+   * already over, for instance because it was cancelled.
+   */
+  private void abandon(@NonNull Exception exception) {
+    if (completion.completeExceptionally(exception)) {
+      listener.onCdbCallAbandoned(exception);
+    }
+  }
+
+  private void executePhase(@NonNull Phase phase) {
+    SafeRunnable safePhase = new SafeRunnable() {
+      @Override
+      public void runSafely() throws Exception {
+        try {
+          phase.run();
+        } catch (Exception e) {
+          abandon(e);
+          throw e;
+        }
+      }
+    };
+
+    // Keep failures of the call within its task, as for any other future task of the executor
+    FutureTask<Void> task = new FutureTask<>(safePhase, null);
+    currentPhase = task;
+    executor.execute(task);
+  }
+
+  private void send(@NonNull CdbRequestDeviceInfo deviceInfo) {
+    CdbRequest cdbRequest = cdbRequestFactory.createRequest(requestedAdUnits, contextData, deviceInfo);
+
+    try {
+      listener.onCdbRequest(cdbRequest);
+
+      CdbResponse cdbResponse = pubSdkApi.loadCdb(cdbRequest, deviceInfo.getUserAgent(), deadline);
       setTimeOfDownload(cdbResponse);
       listener.onCdbResponse(cdbRequest, cdbResponse);
     } catch (Exception e) {
       listener.onCdbError(cdbRequest, e);
     }
+
+    completion.complete(null);
   }
 
   private void setTimeOfDownload(@NonNull CdbResponse cdbResponse) {
@@ -87,4 +247,8 @@ class CdbCall extends SafeRunnable {
       slot.setTimeOfDownload(instant);
     }
   }
+
+  private interface Phase {
+    void run() throws Exception;
+  }
 }
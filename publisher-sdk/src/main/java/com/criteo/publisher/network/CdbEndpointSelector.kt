@@ -0,0 +1,180 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.Clock
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.util.BuildConfigWrapper
+
+/**
+ * Choose the CDB endpoint to send bid requests to, among the candidates given by [Config.getCdbUrls], or the
+ * [BuildConfigWrapper.getCdbUrl] if there is none.
+ *
+ * Each endpoint has a score made of its smoothed latency and its smoothed error rate, and traffic goes to the best
+ * score. Endpoints that were never tried have the best score, so each of them gets tried once, while endpoints that
+ * never answered have the worst one.
+ *
+ * A circuit breaker protects from a down endpoint: after [CIRCUIT_BREAKER_FAILURE_THRESHOLD] consecutive failures, it
+ * is not selected anymore during [CIRCUIT_BREAKER_COOL_DOWN_IN_MILLIS]. After that, it is half-opened: it can be
+ * selected again and a single failure opens the circuit again, while a success closes it.
+ */
+@OpenForTesting
+internal class CdbEndpointSelector(
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val config: Config,
+    private val clock: Clock
+) {
+
+  private val lock = Any()
+
+  @GuardedBy("lock")
+  private val healthPerEndpoint = mutableMapOf<String, EndpointHealth>()
+
+  /**
+   * Return the endpoint that should receive the next request, without tracking the request.
+   */
+  fun selectEndpoint(): String {
+    return selectEndpoint(null) ?: buildConfigWrapper.cdbUrl
+  }
+
+  /**
+   * Start a request to the best endpoint. The result of the request should be indicated to the returned attempt.
+   */
+  fun startAttempt(): Attempt {
+    return Attempt(selectEndpoint())
+  }
+
+  /**
+   * Start a new request to the best endpoint other than the one of the given failed attempt.
+   *
+   * @return the new attempt, or `null` if there is no other available endpoint
+   */
+  fun startFallbackAttempt(failedAttempt: Attempt): Attempt? {
+    return selectEndpoint(failedAttempt.endpoint)?.let { Attempt(it) }
+  }
+
+  private fun selectEndpoint(excludedEndpoint: String?): String? {
+    val candidates = getCandidates().filter { it != excludedEndpoint }
+    val now = clock.currentTimeInMillis
+
+    synchronized(lock) {
+      val available = candidates.filter { getHealth(it).isAvailable(now) }
+      if (available.isEmpty()) {
+        // All circuits are opened: fall back on the one that is going to be half-opened first
+        return candidates.minByOrNull { getHealth(it).openedUntilInMillis }
+      }
+
+      // In case of equality, the order of the candidates is kept
+      return available.minByOrNull { getHealth(it).getScore() }
+    }
+  }
+
+  private fun getCandidates(): List<String> {
+    val cdbUrls = config.cdbUrls.filter { it.isNotBlank() }
+    return cdbUrls.ifEmpty { listOf(buildConfigWrapper.cdbUrl) }
+  }
+
+  @GuardedBy("lock")
+  private fun getHealth(endpoint: String): EndpointHealth {
+    return healthPerEndpoint.getOrPut(endpoint) { EndpointHealth() }
+  }
+
+  private fun onSuccess(endpoint: String, latencyInMillis: Long) {
+    synchronized(lock) {
+      getHealth(endpoint).onSuccess(latencyInMillis)
+    }
+  }
+
+  private fun onFailure(endpoint: String) {
+    val now = clock.currentTimeInMillis
+
+    synchronized(lock) {
+      getHealth(endpoint).onFailure(now)
+    }
+  }
+
+  /**
+   * Request being sent to an [endpoint]. Its result feeds the score of the endpoint.
+   */
+  inner class Attempt internal constructor(val endpoint: String) {
+    private val startTimeInMillis = clock.currentTimeInMillis
+
+    /**
+     * Indicate that the endpoint answered. The time elapsed since the start of this attempt is accounted as latency.
+     */
+    fun onSucceeded() {
+      onSuccess(endpoint, clock.currentTimeInMillis - startTimeInMillis)
+    }
+
+    /**
+     * Indicate that the endpoint did not answer, or answered with a server error.
+     */
+    fun onFailed() {
+      onFailure(endpoint)
+    }
+  }
+
+  private class EndpointHealth {
+    var smoothedLatencyInMillis: Double? = null
+    var smoothedErrorRate = 0.0
+    var consecutiveFailures = 0
+    var openedUntilInMillis = 0L
+
+    fun isAvailable(now: Long): Boolean = now >= openedUntilInMillis
+
+    fun getScore(): Double {
+      val latency = smoothedLatencyInMillis ?: return if (consecutiveFailures == 0) 0.0 else Double.MAX_VALUE
+      return latency * (1 + ERROR_RATE_PENALTY * smoothedErrorRate)
+    }
+
+    fun onSuccess(latencyInMillis: Long) {
+      smoothedLatencyInMillis = smooth(smoothedLatencyInMillis, latencyInMillis.toDouble())
+      smoothedErrorRate = smooth(smoothedErrorRate, 0.0)
+      consecutiveFailures = 0
+      openedUntilInMillis = 0L
+    }
+
+    fun onFailure(now: Long) {
+      smoothedErrorRate = smooth(smoothedErrorRate, 1.0)
+      consecutiveFailures++
+      if (consecutiveFailures >= CIRCUIT_BREAKER_FAILURE_THRESHOLD) {
+        openedUntilInMillis = now + CIRCUIT_BREAKER_COOL_DOWN_IN_MILLIS
+      }
+    }
+
+    private fun smooth(previous: Double?, sample: Double): Double {
+      return previous?.let { SMOOTHING_FACTOR * sample + (1 - SMOOTHING_FACTOR) * it } ?: sample
+    }
+  }
+
+  private companion object {
+    /**
+     * Weight of a new sample in the smoothed latency and error rate.
+     */
+    const val SMOOTHING_FACTOR = 0.2
+
+    /**
+     * An endpoint always failing has a score this number of times higher than its latency, on top of its latency.
+     */
+    const val ERROR_RATE_PENALTY = 4.0
+
+    const val CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3
+    const val CIRCUIT_BREAKER_COOL_DOWN_IN_MILLIS = 30_000L
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.annotation.OpenForTesting
+
+/**
+ * Client side of the CDB bid request sessions, used to avoid sending again and again the same context in all bid
+ * requests.
+ *
+ * Sessions are opt-in by CDB: as long as it does not return a session token, full bid requests are sent. Once CDB
+ * returns a token, it has registered the static context (publisher, user, privacy, ...) of the request under it.
+ * Next bid requests only contain the dynamic part of the request (id, slots), the token, and a
+ * [JSON merge patch](https://tools.ietf.org/html/rfc7386) of the static context since the registered one.
+ *
+ * CDB may return a new token when it registers a new context. Registered contexts are immutable, so concurrent bid
+ * requests based on an older token are still valid. If CDB does not know a token anymore, the caller should
+ * [reset] the session and send again the full request.
+ *
+ * Tokens are only known by the CDB endpoint that issued them. So there is one session per endpoint, and a request
+ * sent to another endpoint (on failover or while probing) is a full one, without ending the session of the first
+ * endpoint.
+ */
+@OpenForTesting
+internal class CdbSession {
+
+  /**
+   * Bid request to send, along with the full static context it represents and the token it is based on, if any.
+   */
+  data class Payload(
+      val body: Map<String, Any?>,
+      val context: Map<String, Any?>,
+      val token: String?
+  )
+
+  private data class Registration(
+      val token: String,
+      val context: Map<String, Any?>
+  )
+
+  private val lock = Any()
+
+  @GuardedBy("lock")
+  private val registrations = mutableMapOf<String, Registration>()
+
+  /**
+   * Indicate if a session is opened with the given CDB endpoint.
+   */
+  fun isActive(endpoint: String): Boolean = synchronized(lock) { registrations.containsKey(endpoint) }
+
+  /**
+   * Prepare the body of the given bid request, represented as plain JSON values, to send to the given CDB endpoint.
+   *
+   * If there is no active session with this endpoint, the body is the full request.
+   */
+  fun prepare(endpoint: String, request: Map<String, Any?>): Payload {
+    val context = request.filterKeys { it in STATIC_KEYS }
+
+    val registration = synchronized(lock) { registrations[endpoint] }
+        ?: return Payload(request, context, null)
+
+    val body = request.filterKeys { it !in STATIC_KEYS }.toMutableMap()
+    val patch = createMergePatch(registration.context, context)
+    if (patch.isNotEmpty()) {
+      body[CONTEXT_PATCH] = patch
+    }
+    body[SESSION_TOKEN] = registration.token
+    return Payload(body, context, registration.token)
+  }
+
+  /**
+   * Update the session with the given CDB endpoint according to the token it returned for a request having the given
+   * static context.
+   *
+   * If CDB returns no token, sessions are not supported (anymore) and following requests are full ones.
+   */
+  fun onResponse(endpoint: String, context: Map<String, Any?>, responseToken: String?) {
+    synchronized(lock) {
+      if (responseToken == null) {
+        registrations.remove(endpoint)
+      } else if (responseToken != registrations[endpoint]?.token) {
+        registrations[endpoint] = Registration(responseToken, context)
+      }
+    }
+  }
+
+  /**
+   * Forget the session with the given CDB endpoint so the next request to it is a full one.
+   */
+  fun reset(endpoint: String) {
+    onResponse(endpoint, emptyMap(), null)
+  }
+
+  companion object {
+    const val SESSION_TOKEN = "sessionToken"
+    const val CONTEXT_PATCH = "contextPatch"
+
+    /**
+     * Parts of the bid request that are the same from one request to the other, until the publisher integration,
+     * the user or its consent change.
+     */
+    val STATIC_KEYS = setOf("publisher", "user", "sdkVersion", "profileId", "gdprConsent", "regs")
+
+    /**
+     * Create the JSON merge patch transforming the source into the target: changed values are replaced, removed
+     * values are set to `null` and nested objects are patched recursively.
+     */
+    fun createMergePatch(source: Map<String, Any?>, target: Map<String, Any?>): Map<String, Any?> {
+      val patch = mutableMapOf<String, Any?>()
+
+      target.forEach { (key, targetValue) ->
+        val sourceValue = source[key]
+        if (!source.containsKey(key) || sourceValue != targetValue) {
+          patch[key] = if (sourceValue is Map<*, *> && targetValue is Map<*, *>) {
+            @Suppress("UNCHECKED_CAST")
+            createMergePatch(sourceValue as Map<String, Any?>, targetValue as Map<String, Any?>)
+          } else {
+            targetValue
+          }
+        }
+      }
+
+      source.keys.filterNot { target.containsKey(it) }.forEach { patch[it] = null }
+
+      return patch
+    }
+  }
+}
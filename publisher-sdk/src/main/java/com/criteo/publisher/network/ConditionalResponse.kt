@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+/**
+ * Response of a conditional request, with the cache validators sent back by the server.
+ */
+internal data class ConditionalResponse<T> @JvmOverloads constructor(
+    /**
+     * Body of the response, or `null` if the server indicated that the resource is not modified since the version
+     * identified by the validator sent in the request.
+     */
+    val body: T?,
+
+    /**
+     * Opaque identifier of the version of the resource, to send back on next request, if any.
+     */
+    val eTag: String? = null,
+
+    /**
+     * Duration during which the resource is considered fresh and does not need to be requested again.
+     */
+    val maxAgeInMillis: Long = 0
+)
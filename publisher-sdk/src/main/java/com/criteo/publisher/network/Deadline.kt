@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import com.criteo.publisher.Clock
+import com.criteo.publisher.annotation.OpenForTesting
+
+/**
+ * Point in time after which a call is not worth being continued.
+ *
+ * A deadline is created when a call is requested and passed along with it, so every blocking step of the call (waiting
+ * for the user agent, connecting, reading, ...) is bounded by the time remaining, instead of having its own timeout.
+ * This also accounts for the time spent waiting for an available thread.
+ */
+@OpenForTesting
+internal class Deadline(
+    private val clock: Clock,
+    private val expirationTimeInMillis: Long
+) {
+
+  /**
+   * Time left before the expiration of this deadline, or `0` if it is already expired.
+   */
+  fun getRemainingTimeInMillis(): Long = maxOf(0, expirationTimeInMillis - clock.currentTimeInMillis)
+
+  fun isExpired(): Boolean = getRemainingTimeInMillis() == 0L
+
+  /**
+   * @throws DeadlineExceededException if this deadline is already expired
+   */
+  @Throws(DeadlineExceededException::class)
+  fun throwIfExpired() {
+    if (isExpired()) {
+      throw DeadlineExceededException()
+    }
+  }
+
+  companion object {
+    /**
+     * Create a deadline expiring after the given duration from now.
+     */
+    @JvmStatic
+    fun after(clock: Clock, durationInMillis: Long): Deadline {
+      return Deadline(clock, clock.currentTimeInMillis + durationInMillis)
+    }
+  }
+}
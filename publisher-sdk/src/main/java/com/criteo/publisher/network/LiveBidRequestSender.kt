@@ -24,42 +24,68 @@ import com.criteo.publisher.context.ContextData
 import com.criteo.publisher.model.CacheAdUnit
 import com.criteo.publisher.model.CdbRequestFactory
 import com.criteo.publisher.model.Config
+import java.util.concurrent.CancellationException
 import java.util.concurrent.Executor
 import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
 import java.util.concurrent.TimeUnit
 
 @OpenForTesting
-class LiveBidRequestSender(
+class LiveBidRequestSender internal constructor(
     private val pubSdkApi: PubSdkApi,
     private val cdbRequestFactory: CdbRequestFactory,
     private val clock: Clock,
     private val executor: Executor,
     private val scheduledExecutorService: ScheduledExecutorService,
-    private val config: Config
+    private val config: Config,
+    private val networkPolicy: NetworkPolicy
 ) {
 
+  /**
+   * Asynchronously send a live bid request for the given ad unit.
+   *
+   * The listener is notified of the time budget expiration, while the call itself is bounded by a [Deadline] based on
+   * the network timeout: a response received after the time budget can still be cached for a next bid request.
+   *
+   * The time budget timer and the call are bound to the request: the timer is cancelled as soon as the call is over,
+   * and both are cancelled if the requester gives up the bid before it is served. As the timer may be the only thing
+   * left to serve the bid, the listener is notified of a failed call before its timer is cancelled.
+   */
   fun sendLiveBidRequest(
       cacheAdUnit: CacheAdUnit,
       contextData: ContextData,
       liveCdbCallListener: LiveCdbCallListener
   ) {
-    scheduleTimeBudgetExceeded(liveCdbCallListener)
+    val timeBudget = scheduleTimeBudgetExceeded(liveCdbCallListener)
 
-    executor.execute(
-        CdbCall(
-            pubSdkApi,
-            cdbRequestFactory,
-            clock,
-            listOf(cacheAdUnit),
-            contextData,
-            liveCdbCallListener
-        )
+    val cdbCall = CdbCall(
+        pubSdkApi,
+        cdbRequestFactory,
+        clock,
+        listOf(cacheAdUnit),
+        contextData,
+        liveCdbCallListener,
+        Deadline.after(clock, networkPolicy.getNetworkTimeoutInMillis().toLong()),
+        executor,
+        scheduledExecutorService
     )
+
+    // Cancelling the call completes it, which also cancels the timer
+    cdbCall.completion.whenComplete { _, throwable ->
+      if (throwable != null && throwable !is CancellationException) {
+        // Serve the bid from the cache if nothing did, whatever made the call fail
+        liveCdbCallListener.onTimeBudgetExceeded()
+      }
+      timeBudget.cancel(false)
+    }
+    liveCdbCallListener.invokeOnCancellation { cdbCall.cancel() }
+
+    cdbCall.execute()
   }
 
   @VisibleForTesting
-  internal fun scheduleTimeBudgetExceeded(liveCdbCallListener: LiveCdbCallListener) {
-    scheduledExecutorService.schedule({
+  internal fun scheduleTimeBudgetExceeded(liveCdbCallListener: LiveCdbCallListener): ScheduledFuture<*> {
+    return scheduledExecutorService.schedule({
       liveCdbCallListener.onTimeBudgetExceeded()
     }, config.liveBiddingTimeBudgetInMillis.toLong(), TimeUnit.MILLISECONDS)
   }
@@ -16,17 +16,23 @@
 
 package com.criteo.publisher.network
 
+import android.util.Log
 import com.criteo.publisher.logging.LogMessage
 
 internal object NetworkLogMessage {
 
+  /**
+   * Level of the messages logging CDB payloads. Payloads are only serialized for logging when this level is loggable.
+   */
+  const val CdbPayloadLogLevel = Log.INFO
+
   @JvmStatic
-  fun onCdbCallStarted(requestPayload: String) = LogMessage(message =
+  fun onCdbCallStarted(requestPayload: String) = LogMessage(level = CdbPayloadLogLevel, message =
     "CDB Request initiated: $requestPayload"
   )
 
   @JvmStatic
-  fun onCdbCallFinished(responsePayload: String) = LogMessage(message =
+  fun onCdbCallFinished(responsePayload: String) = LogMessage(level = CdbPayloadLogLevel, message =
     "CDB Response received: $responsePayload"
   )
 }
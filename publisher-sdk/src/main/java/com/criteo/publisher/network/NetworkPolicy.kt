@@ -0,0 +1,136 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import androidx.annotation.VisibleForTesting
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.context.ConnectionTypeFetcher.ConnectionType
+import com.criteo.publisher.util.BuildConfigWrapper
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Adapt network related parameters to the quality of the current connection.
+ *
+ * Static values of [BuildConfigWrapper] are tailored for an average connection. This policy scales them depending on
+ * the [ConnectionClass] reported by the [com.criteo.publisher.context.ConnectivityMonitor]:
+ * - on fast connections, timeouts are shortened so a dead route is detected sooner,
+ * - on slow connections, timeouts are lengthened and payloads are split in smaller requests,
+ * - when offline, callers are expected to not emit any request at all.
+ *
+ * Until the first connectivity information is received, the policy behaves as for a moderate connection, i.e. static
+ * values are used as is.
+ */
+@OpenForTesting
+internal class NetworkPolicy(
+    private val buildConfigWrapper: BuildConfigWrapper
+) {
+
+  private val connectionClass = AtomicReference(ConnectionClass.MODERATE)
+
+  private val listeners = CopyOnWriteArrayList<Listener>()
+
+  fun addListener(listener: Listener) {
+    listeners.add(listener)
+  }
+
+  /**
+   * Update the policy with the latest known connectivity state.
+   *
+   * Listeners are notified if the device was offline and is now connected.
+   *
+   * @param isConnected `true` if the device has a usable network
+   * @param connectionType type of the active network, `null` if unknown
+   */
+  fun onConnectivityChanged(isConnected: Boolean, connectionType: ConnectionType?) {
+    val newConnectionClass = if (isConnected) ConnectionClass.from(connectionType) else ConnectionClass.OFFLINE
+    // Swap atomically, so concurrent updates cannot both see the offline state and notify twice
+    val oldConnectionClass = connectionClass.getAndSet(newConnectionClass)
+
+    if (oldConnectionClass == ConnectionClass.OFFLINE && newConnectionClass != ConnectionClass.OFFLINE) {
+      listeners.forEach { it.onConnectivityRestored() }
+    }
+  }
+
+  @VisibleForTesting
+  fun getConnectionClass(): ConnectionClass = connectionClass.get()
+
+  /**
+   * Indicate if the device is known to have no network. In this case, requests would fail anyway, so they should not
+   * be sent.
+   */
+  fun isOffline(): Boolean = connectionClass.get() == ConnectionClass.OFFLINE
+
+  /**
+   * Duration in milliseconds for the network layer to drop a call and consider it timeouted.
+   */
+  fun getNetworkTimeoutInMillis(): Int {
+    val baseTimeout = buildConfigWrapper.networkTimeoutInMillis.toLong()
+    return (baseTimeout * connectionClass.get().timeoutPercent / PERCENT).toInt()
+  }
+
+  /**
+   * Maximum number of ad units to put in a single prefetch request.
+   */
+  fun getPrefetchChunkSize(defaultChunkSize: Int): Int = scaleSize(defaultChunkSize)
+
+  /**
+   * Maximum number of metrics to send in a single CSM request.
+   */
+  fun getCsmBatchSize(): Int = scaleSize(buildConfigWrapper.csmBatchSize)
+
+  /**
+   * Maximum number of logs to send in a single remote logs request.
+   */
+  fun getRemoteLogBatchSize(): Int = scaleSize(buildConfigWrapper.remoteLogBatchSize)
+
+  private fun scaleSize(size: Int): Int = maxOf(1, size / connectionClass.get().sizeDivisor)
+
+  @Suppress("MagicNumber")
+  internal enum class ConnectionClass(val timeoutPercent: Int, val sizeDivisor: Int) {
+    OFFLINE(100, 1),
+    SLOW(150, 2),
+    MODERATE(100, 1),
+    FAST(50, 1);
+
+    companion object {
+      fun from(connectionType: ConnectionType?): ConnectionClass {
+        return when (connectionType) {
+          ConnectionType.WIRED,
+          ConnectionType.WIFI,
+          ConnectionType.CELLULAR_5G -> FAST
+          ConnectionType.CELLULAR_2G,
+          ConnectionType.CELLULAR_3G -> SLOW
+          ConnectionType.CELLULAR_4G,
+          ConnectionType.CELLULAR_UNKNOWN,
+          null -> MODERATE
+        }
+      }
+    }
+  }
+
+  fun interface Listener {
+    /**
+     * Called when the device goes back online after a period without network.
+     */
+    fun onConnectivityRestored()
+  }
+
+  private companion object {
+    const val PERCENT = 100
+  }
+}
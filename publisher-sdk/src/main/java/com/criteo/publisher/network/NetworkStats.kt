@@ -0,0 +1,215 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import androidx.annotation.VisibleForTesting
+import com.criteo.publisher.Clock
+import com.criteo.publisher.annotation.OpenForTesting
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * In-process accounting of the network usage of the SDK, per endpoint.
+ *
+ * For each endpoint, it counts requests, failures, bytes sent and received (bodies only, headers are not accounted),
+ * response status codes and keeps histograms of the connection time, the time to first byte and the total time of
+ * exchanges. DNS resolution is not exposed by [java.net.HttpURLConnection], so it is part of the connection time.
+ *
+ * Requests that are not sent at all, because the device is offline or because their deadline is already exceeded, are
+ * not accounted.
+ */
+@OpenForTesting
+internal class NetworkStats(private val clock: Clock) {
+
+  enum class Endpoint {
+    CDB,
+    CONFIG,
+    CSM,
+    REMOTE_LOGS,
+    TELEMETRY,
+    APP_EVENT,
+    PIXEL,
+    CREATIVE,
+    WARM_UP
+  }
+
+  private val counters = Endpoint.values().associateWith { EndpointCounters() }
+
+  /**
+   * Start accounting a new exchange with the given endpoint. The exchange should be notified of its progress and
+   * ended either by [Exchange.onCompleted] or [Exchange.onFailed].
+   */
+  fun startExchange(endpoint: Endpoint): Exchange {
+    return Exchange(counters.getValue(endpoint), clock.currentTimeInMillis)
+  }
+
+  /**
+   * Snapshot of the statistics of the given endpoint since the start of the SDK.
+   */
+  fun getStats(endpoint: Endpoint): EndpointStats = counters.getValue(endpoint).snapshot()
+
+  /**
+   * Snapshot of the statistics of all endpoints since the start of the SDK.
+   */
+  fun getAllStats(): Map<Endpoint, EndpointStats> = counters.mapValues { it.value.snapshot() }
+
+  inner class Exchange internal constructor(
+      private val counters: EndpointCounters,
+      private val startTimeInMillis: Long
+  ) {
+    private val isEnded = AtomicBoolean(false)
+
+    init {
+      counters.requestCount.incrementAndGet()
+    }
+
+    fun onConnected() {
+      counters.connectLatency.record(elapsedTimeInMillis())
+    }
+
+    fun onBytesSent(count: Long) {
+      counters.bytesSent.addAndGet(count)
+    }
+
+    fun onResponseReceived(statusCode: Int) {
+      counters.timeToFirstByte.record(elapsedTimeInMillis())
+      counters.statusCodes.getOrPut(statusCode) { AtomicLong() }.incrementAndGet()
+    }
+
+    fun onBytesReceived(count: Long) {
+      counters.bytesReceived.addAndGet(count)
+    }
+
+    fun onCompleted() {
+      if (isEnded.compareAndSet(false, true)) {
+        counters.totalLatency.record(elapsedTimeInMillis())
+      }
+    }
+
+    fun onFailed() {
+      if (isEnded.compareAndSet(false, true)) {
+        counters.failureCount.incrementAndGet()
+        counters.totalLatency.record(elapsedTimeInMillis())
+      }
+    }
+
+    /**
+     * Wrap the given response body so that bytes read from it are accounted, and the exchange is completed once it
+     * is closed.
+     */
+    fun trackResponseBody(inputStream: InputStream): InputStream {
+      return object : FilterInputStream(inputStream) {
+        override fun read(): Int {
+          val byte = super.read()
+          if (byte >= 0) {
+            onBytesReceived(1)
+          }
+          return byte
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+          val count = super.read(b, off, len)
+          if (count > 0) {
+            onBytesReceived(count.toLong())
+          }
+          return count
+        }
+
+        override fun close() {
+          try {
+            super.close()
+          } finally {
+            onCompleted()
+          }
+        }
+      }
+    }
+
+    private fun elapsedTimeInMillis() = maxOf(0, clock.currentTimeInMillis - startTimeInMillis)
+  }
+
+  data class EndpointStats(
+      val requestCount: Long,
+      val failureCount: Long,
+      val bytesSent: Long,
+      val bytesReceived: Long,
+      val statusCodes: Map<Int, Long>,
+      val connectLatency: LatencyHistogram,
+      val timeToFirstByte: LatencyHistogram,
+      val totalLatency: LatencyHistogram
+  )
+
+  /**
+   * Distribution of latencies: `counts[i]` is the number of latencies lower than `upperBoundsInMillis[i]` and greater
+   * or equal to the previous bound. The last count is for latencies above all bounds.
+   */
+  data class LatencyHistogram(
+      val upperBoundsInMillis: List<Long>,
+      val counts: List<Long>
+  ) {
+    val totalCount: Long
+      get() = counts.sum()
+  }
+
+  @VisibleForTesting
+  internal class EndpointCounters {
+    val requestCount = AtomicLong()
+    val failureCount = AtomicLong()
+    val bytesSent = AtomicLong()
+    val bytesReceived = AtomicLong()
+    val statusCodes = ConcurrentHashMap<Int, AtomicLong>()
+    val connectLatency = LatencyRecorder()
+    val timeToFirstByte = LatencyRecorder()
+    val totalLatency = LatencyRecorder()
+
+    fun snapshot() = EndpointStats(
+        requestCount.get(),
+        failureCount.get(),
+        bytesSent.get(),
+        bytesReceived.get(),
+        statusCodes.mapValues { it.value.get() },
+        connectLatency.snapshot(),
+        timeToFirstByte.snapshot(),
+        totalLatency.snapshot()
+    )
+  }
+
+  @VisibleForTesting
+  internal class LatencyRecorder {
+    private val counts = AtomicLongArray(LATENCY_UPPER_BOUNDS_IN_MILLIS.size + 1)
+
+    fun record(latencyInMillis: Long) {
+      var index = LATENCY_UPPER_BOUNDS_IN_MILLIS.indexOfFirst { latencyInMillis < it }
+      if (index < 0) {
+        index = LATENCY_UPPER_BOUNDS_IN_MILLIS.size
+      }
+      counts.incrementAndGet(index)
+    }
+
+    fun snapshot() = LatencyHistogram(
+        LATENCY_UPPER_BOUNDS_IN_MILLIS,
+        List(counts.length()) { counts.get(it) }
+    )
+  }
+
+  private companion object {
+    val LATENCY_UPPER_BOUNDS_IN_MILLIS = listOf(50L, 100L, 250L, 500L, 1000L, 2500L, 5000L)
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.csm.MetricSendingQueueConsumer
+import com.criteo.publisher.logging.RemoteLogSendingQueueConsumer
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.util.BuildConfigWrapper
+import java.util.concurrent.Future
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Coordinate the background uploads of the SDK (CSM, remote logs) with its latency-critical requests, so they share
+ * the same radio wake-ups.
+ *
+ * Waking up the cellular radio costs seconds of high-power tail time after the last byte is exchanged. So instead of
+ * waking it up on their own, uploads are deferred until a bid request wakes it up: see [onRadioWindowOpened]. As
+ * uploads go through the [RequestScheduler.Priority.TELEMETRY] priority, they are then sent right after the bid
+ * requests, during the tail time of the radio.
+ *
+ * If no bid request happens, deferred uploads are sent anyway after
+ * [BuildConfigWrapper.getMaxDeferredUploadDelayInMillis].
+ *
+ * When [Config.isTelemetryEnvelopeEnabled], metrics and logs are sent together in a single request by the
+ * [TelemetrySendingQueueConsumer], instead of one request per queue.
+ */
+@OpenForTesting
+internal class NetworkWorkCoordinator(
+    private val metricSendingQueueConsumer: MetricSendingQueueConsumer,
+    private val remoteLogSendingQueueConsumer: RemoteLogSendingQueueConsumer,
+    private val telemetrySendingQueueConsumer: TelemetrySendingQueueConsumer,
+    private val scheduledExecutorService: ScheduledExecutorService,
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val config: Config
+) {
+
+  private val lock = Any()
+
+  @GuardedBy("lock")
+  private var pendingUploads: Future<*>? = null
+
+  /**
+   * Request an upload of the accumulated telemetry at the next radio window, or after the maximum delay at last.
+   *
+   * Many requests before a window are merged into a single upload.
+   */
+  fun deferUploads() {
+    synchronized(lock) {
+      if (pendingUploads != null) {
+        return
+      }
+
+      pendingUploads = scheduledExecutorService.schedule(
+          { onMaxDelayElapsed() },
+          buildConfigWrapper.maxDeferredUploadDelayInMillis.toLong(),
+          TimeUnit.MILLISECONDS
+      )
+    }
+  }
+
+  /**
+   * Indicate that a latency-critical request is about to wake up the radio. Accumulated telemetry piggybacks on it.
+   */
+  fun onRadioWindowOpened() {
+    synchronized(lock) {
+      pendingUploads?.cancel(false)
+      pendingUploads = null
+    }
+
+    sendUploads()
+  }
+
+  private fun onMaxDelayElapsed() {
+    synchronized(lock) {
+      pendingUploads = null
+    }
+
+    sendUploads()
+  }
+
+  private fun sendUploads() {
+    if (config.isTelemetryEnvelopeEnabled) {
+      telemetrySendingQueueConsumer.sendTelemetryBatch()
+      return
+    }
+
+    metricSendingQueueConsumer.sendMetricBatch()
+    remoteLogSendingQueueConsumer.sendRemoteLogBatch()
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import com.squareup.moshi.Json
+import com.squareup.moshi.JsonClass
+import java.net.URL
+
+/**
+ * Impression pixel that is not delivered yet.
+ *
+ * @param id unique ID of this pixel, identifying it in the [PixelStore]
+ * @param url URL of the pixel to fire
+ * @param attempt number of failed delivery attempts so far
+ * @param nextAttemptTimeInMillis epoch time from which this pixel can be fired again
+ */
+@JsonClass(generateAdapter = true)
+internal data class PendingPixel(
+    @Json(name = "id") val id: String,
+    @Json(name = "url") val url: URL,
+    @Json(name = "attempt") val attempt: Int = 0,
+    @Json(name = "nextAttemptTimeInMillis") val nextAttemptTimeInMillis: Long = 0
+)
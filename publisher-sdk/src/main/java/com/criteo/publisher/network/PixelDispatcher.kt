@@ -0,0 +1,310 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.Clock
+import com.criteo.publisher.SafeRunnable
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.bid.UniqueIdGenerator
+import com.criteo.publisher.logging.LoggerFactory
+import com.criteo.publisher.network.NetworkStats.Endpoint
+import com.criteo.publisher.util.BuildConfigWrapper
+import java.io.IOException
+import java.io.InputStream
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.PriorityQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Fire impression pixels while protecting the shared executor and the accuracy of impressions.
+ *
+ * - At most [BuildConfigWrapper.getMaxInFlightPixels] pixels are fired at the same time, others wait in memory for a
+ * free slot.
+ * - Responses are fully read before being closed, so the underlying connection goes back to the pool and is reused
+ * for the next pixel to the same host.
+ * - Every pixel is written in the [PixelStore] while it waits to be fired, so pixels waiting for a free slot or for a
+ * retry survive an app restart. It is deleted from the store just before being fired and written again only if it
+ * failed without being delivered: a pixel whose outcome is unknown when the process dies is not fired twice, so
+ * impressions are not double-counted.
+ * - Pixels failing because of a network or a server error are retried with an exponential backoff. Each pixel keeps
+ * the time of its next attempt, and is only fired once it is due.
+ * - Pixels failing because the device is offline are kept without consuming a retry, and are fired again once the
+ * connectivity is restored.
+ */
+@OpenForTesting
+internal class PixelDispatcher(
+    private val api: PubSdkApi,
+    private val pixelStore: PixelStore,
+    private val uniqueIdGenerator: UniqueIdGenerator,
+    private val clock: Clock,
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val executor: Executor,
+    private val scheduledExecutorService: ScheduledExecutorService
+) : NetworkPolicy.Listener {
+
+  private val logger = LoggerFactory.getLogger(javaClass)
+
+  private val lock = Any()
+
+  /**
+   * Pixels waiting to be fired, the next due first.
+   */
+  @GuardedBy("lock")
+  private val waitingPixels = PriorityQueue<PendingPixel>(INITIAL_CAPACITY, compareBy { it.nextAttemptTimeInMillis })
+
+  /**
+   * Pixels that did not reach the network, waiting for the connectivity to be restored.
+   */
+  @GuardedBy("lock")
+  private val offlinePixels = mutableListOf<PendingPixel>()
+
+  @GuardedBy("lock")
+  private var inFlightCount = 0
+
+  /**
+   * Timer draining the waiting pixels when the next of them is due, and its time.
+   */
+  @GuardedBy("lock")
+  private var wakeUp: ScheduledFuture<*>? = null
+
+  @GuardedBy("lock")
+  private var wakeUpTimeInMillis = Long.MAX_VALUE
+
+  private val loadLock = Any()
+
+  @GuardedBy("loadLock")
+  private var isLoaded = false
+
+  private val firedCounter = AtomicLong()
+  private val failedCounter = AtomicLong()
+  private val retriedCounter = AtomicLong()
+
+  /**
+   * Number of pixels successfully delivered since the start of the SDK.
+   */
+  val firedCount: Long
+    get() = firedCounter.get()
+
+  /**
+   * Number of pixels dropped after exhausting their retries, or because the server rejected them.
+   */
+  val failedCount: Long
+    get() = failedCounter.get()
+
+  /**
+   * Number of retries scheduled for pixels that failed to be delivered.
+   */
+  val retriedCount: Long
+    get() = retriedCounter.get()
+
+  /**
+   * Fire and forget the given pixels.
+   *
+   * Each pixel is persisted then fired asynchronously and independently. This means that if one fails, others
+   * continue.
+   */
+  fun dispatch(pixels: Iterable<URL>) {
+    val urls = pixels.toList()
+    executor.execute(object : SafeRunnable() {
+      override fun runSafely() {
+        loadPersistedPixelsOnce()
+
+        val now = clock.currentTimeInMillis
+        urls.forEach {
+          val pixel = PendingPixel(uniqueIdGenerator.generateId(), it, nextAttemptTimeInMillis = now)
+
+          // A pixel that could not be persisted is still fired, it is only not protected against a restart
+          pixelStore.save(pixel)
+          synchronized(lock) {
+            waitingPixels.offer(pixel)
+          }
+        }
+
+        drain()
+      }
+    })
+  }
+
+  /**
+   * Asynchronously reload the pixels persisted on disk, and fire them once they are due.
+   *
+   * This is expected to be called when the SDK starts, so pixels left undelivered by a previous session are not lost.
+   */
+  fun resumePendingPixels() {
+    executor.execute(object : SafeRunnable() {
+      override fun runSafely() {
+        loadPersistedPixelsOnce()
+        drain()
+      }
+    })
+  }
+
+  /**
+   * Only pixels that failed because the device was offline are fired again: the others keep waiting for their retry.
+   */
+  override fun onConnectivityRestored() {
+    synchronized(lock) {
+      val now = clock.currentTimeInMillis
+      offlinePixels.forEach { waitingPixels.offer(it.copy(nextAttemptTimeInMillis = now)) }
+      offlinePixels.clear()
+    }
+    drain()
+  }
+
+  /**
+   * Load the pixels left by a previous session, before any new pixel is persisted, so none is loaded twice.
+   */
+  private fun loadPersistedPixelsOnce() {
+    synchronized(loadLock) {
+      if (isLoaded) {
+        return
+      }
+      isLoaded = true
+
+      val persistedPixels = pixelStore.loadAll()
+      synchronized(lock) {
+        waitingPixels.addAll(persistedPixels)
+      }
+    }
+  }
+
+  private fun drain() {
+    val duePixels = mutableListOf<PendingPixel>()
+
+    synchronized(lock) {
+      val now = clock.currentTimeInMillis
+      while (inFlightCount < buildConfigWrapper.maxInFlightPixels) {
+        val pixel = waitingPixels.peek() ?: break
+        if (pixel.nextAttemptTimeInMillis > now) {
+          scheduleWakeUp(pixel.nextAttemptTimeInMillis, now)
+          break
+        }
+
+        waitingPixels.poll()
+        inFlightCount++
+        duePixels += pixel
+      }
+    }
+
+    // The task releasing a slot will drain the remaining pixels
+    duePixels.forEach {
+      try {
+        executor.execute(PixelTask(it))
+      } catch (e: RejectedExecutionException) {
+        // No task is going to release a slot and drain this pixel: try again later
+        synchronized(lock) {
+          inFlightCount--
+          waitingPixels.offer(it)
+          val now = clock.currentTimeInMillis
+          scheduleWakeUp(now + buildConfigWrapper.pixelRetryBaseDelayInMillis, now)
+        }
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private fun scheduleWakeUp(timeInMillis: Long, now: Long) {
+    if (timeInMillis >= wakeUpTimeInMillis) {
+      // An earlier wake-up drains this pixel as well
+      return
+    }
+
+    wakeUp?.cancel(false)
+    wakeUpTimeInMillis = timeInMillis
+    wakeUp = scheduledExecutorService.schedule({
+      synchronized(lock) {
+        wakeUp = null
+        wakeUpTimeInMillis = Long.MAX_VALUE
+      }
+      drain()
+    }, timeInMillis - now, TimeUnit.MILLISECONDS)
+  }
+
+  private fun onFailure(pixel: PendingPixel, exception: IOException) {
+    if (exception is NoConnectivityException) {
+      // The pixel did not reach the network: keep it for when the connectivity is restored
+      pixelStore.save(pixel)
+      synchronized(lock) {
+        offlinePixels += pixel
+      }
+      return
+    }
+
+    val nextAttempt = pixel.attempt + 1
+    if (!isRetryable(exception) || nextAttempt > buildConfigWrapper.maxPixelRetries) {
+      failedCounter.incrementAndGet()
+      logger.debug("Impression pixel dropped after $nextAttempt attempt(s)", exception)
+      return
+    }
+
+    retriedCounter.incrementAndGet()
+
+    val delayInMillis = buildConfigWrapper.pixelRetryBaseDelayInMillis.toLong() shl (nextAttempt - 1)
+    val retriedPixel = pixel.copy(
+        attempt = nextAttempt,
+        nextAttemptTimeInMillis = clock.currentTimeInMillis + delayInMillis
+    )
+
+    pixelStore.save(retriedPixel)
+    synchronized(lock) {
+      waitingPixels.offer(retriedPixel)
+    }
+  }
+
+  private fun isRetryable(exception: IOException): Boolean {
+    // Client errors are not going to be fixed by retrying the same request
+    return exception !is HttpResponseException || exception.status >= HttpURLConnection.HTTP_INTERNAL_ERROR
+  }
+
+  private inner class PixelTask(private val pixel: PendingPixel) : SafeRunnable() {
+    override fun runSafely() {
+      // Once the request is sent, the pixel may be counted even if the process dies before getting the response
+      pixelStore.delete(pixel)
+
+      try {
+        api.executeRawGet(pixel.url, null, Endpoint.PIXEL).use { it.drain() }
+        firedCounter.incrementAndGet()
+      } catch (e: IOException) {
+        onFailure(pixel, e)
+      } finally {
+        synchronized(lock) {
+          inFlightCount--
+        }
+        drain()
+      }
+    }
+
+    private fun InputStream.drain() {
+      val buffer = ByteArray(BUFFER_SIZE)
+      while (read(buffer) != -1) {
+        // discard the body, only the connection matters
+      }
+    }
+  }
+
+  private companion object {
+    const val BUFFER_SIZE = 1024
+    const val INITIAL_CAPACITY = 16
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import android.content.Context
+import android.util.AtomicFile
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.logging.LoggerFactory
+import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.JsonSerializer
+import java.io.BufferedInputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+
+/**
+ * Persistent store of the impression pixels that are not delivered yet.
+ *
+ * Each pixel is kept in its own file named after its ID. So a pixel is written when it is dispatched or when its retry
+ * is scheduled, and deleted just before being fired: a pixel waiting for a free slot or for its retry is found again if
+ * the process dies meanwhile, while a pixel that may have reached the server is never fired twice.
+ */
+@OpenForTesting
+internal class PixelStore(
+    private val context: Context,
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val jsonSerializer: JsonSerializer
+) {
+
+  private val logger = LoggerFactory.getLogger(javaClass)
+
+  private val lock = Any()
+
+  /**
+   * Number of pixels on disk. The directory is listed once, then this count is kept up to date by this store, so
+   * saving a pixel does not list the directory on each impression.
+   */
+  @GuardedBy("lock")
+  private var pixelCount = UNKNOWN_COUNT
+
+  /**
+   * Write the given pixel, replacing its previous version if any.
+   *
+   * A new pixel is not written if the store already holds [BuildConfigWrapper.getMaxPendingPixels] pixels.
+   *
+   * @return `true` if the pixel is persisted
+   */
+  fun save(pixel: PendingPixel): Boolean {
+    val file = getPixelFile(pixel.id)
+    val isNew = !file.exists()
+    if (isNew && !reserveSlot()) {
+      return false
+    }
+
+    val atomicFile = AtomicFile(file)
+    var fos: FileOutputStream? = null
+    return try {
+      // The serializer writes its buffered output at once, there is no need to buffer the file
+      fos = atomicFile.startWrite()
+      jsonSerializer.write(pixel, fos)
+      atomicFile.finishWrite(fos)
+      true
+    } catch (e: IOException) {
+      atomicFile.failWrite(fos)
+      if (isNew) {
+        releaseSlot()
+      }
+      logger.debug("Impression pixel could not be persisted", e)
+      false
+    }
+  }
+
+  fun delete(pixel: PendingPixel) {
+    deleteFile(getPixelFile(pixel.id))
+  }
+
+  /**
+   * Read all the persisted pixels. Files that cannot be read are deleted.
+   */
+  fun loadAll(): List<PendingPixel> {
+    val files = listFiles()
+    synchronized(lock) {
+      pixelCount = files.size
+    }
+
+    return files.mapNotNull { file ->
+      try {
+        BufferedInputStream(AtomicFile(file).openRead()).use { jsonSerializer.read(PendingPixel::class.java, it) }
+      } catch (e: IOException) {
+        logger.debug("Impression pixel could not be read", e)
+        deleteFile(file)
+        null
+      }
+    }
+  }
+
+  private fun reserveSlot(): Boolean {
+    synchronized(lock) {
+      if (pixelCount == UNKNOWN_COUNT) {
+        pixelCount = listFiles().size
+      }
+
+      if (pixelCount >= buildConfigWrapper.maxPendingPixels) {
+        return false
+      }
+      pixelCount++
+      return true
+    }
+  }
+
+  private fun releaseSlot() {
+    synchronized(lock) {
+      if (pixelCount > 0) {
+        pixelCount--
+      }
+    }
+  }
+
+  private fun deleteFile(file: File) {
+    val exists = file.exists()
+    AtomicFile(file).delete()
+    if (exists) {
+      releaseSlot()
+    }
+  }
+
+  private fun listFiles(): List<File> {
+    return getDirectory().listFiles { _, name -> name.endsWith(PIXEL_FILE_EXTENSION) }?.toList().orEmpty()
+  }
+
+  private fun getPixelFile(id: String) = File(getDirectory(), id + PIXEL_FILE_EXTENSION)
+
+  private fun getDirectory(): File = context.getDir(buildConfigWrapper.pixelDirectoryName, Context.MODE_PRIVATE)
+
+  private companion object {
+    const val PIXEL_FILE_EXTENSION = ".pixel"
+    const val UNKNOWN_COUNT = -1
+  }
+}
@@ -18,29 +18,42 @@ package com.criteo.publisher.network;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.csm.MetricRequest;
 import com.criteo.publisher.logging.Logger;
 import com.criteo.publisher.logging.LoggerFactory;
 import com.criteo.publisher.logging.RemoteLogRecords;
 import com.criteo.publisher.model.CdbRequest;
 import com.criteo.publisher.model.CdbResponse;
+import com.criteo.publisher.model.Config;
 import com.criteo.publisher.model.RemoteConfigRequest;
 import com.criteo.publisher.model.RemoteConfigResponse;
+import com.criteo.publisher.model.TelemetryRequest;
+import com.criteo.publisher.model.TelemetryResponse;
+import com.criteo.publisher.network.NetworkStats.Endpoint;
+import com.criteo.publisher.network.NetworkStats.Exchange;
 import com.criteo.publisher.util.BuildConfigWrapper;
+import com.criteo.publisher.util.CborSerializer;
 import com.criteo.publisher.util.JsonSerializer;
 import com.criteo.publisher.util.StreamUtil;
 import com.criteo.publisher.util.TextUtils;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -51,6 +64,9 @@ public class PubSdkApi {
   private static final String EVENT_TYPE = "eventType";
   private static final String LIMITED_AD_TRACKING = "limitedAdTracking";
   private static final String GDPR_CONSENT = "gdpr_consent";
+  private static final String MAX_AGE_DIRECTIVE = "max-age=";
+  private static final String CONTENT_TYPE_CBOR = "application/cbor";
+  private static final String CONTENT_TYPE_JSON = "application/json";
 
   @NonNull
   private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -61,40 +77,426 @@ public class PubSdkApi {
   @NonNull
   private final JsonSerializer jsonSerializer;
 
+  @NonNull
+  private final CborSerializer cborSerializer;
+
+  @NonNull
+  private final NetworkPolicy networkPolicy;
+
+  @NonNull
+  private final NetworkStats networkStats;
+
+  @NonNull
+  private final Config config;
+
+  @NonNull
+  private final CdbSession cdbSession;
+
+  @NonNull
+  private final CdbEndpointSelector cdbEndpointSelector;
+
+  /**
+   * Indicate if CDB rejected a binary bid request. If so, only JSON is used until the SDK restarts.
+   */
+  @NonNull
+  private final AtomicBoolean isBinaryProtocolRejected = new AtomicBoolean(false);
+
   public PubSdkApi(
       @NonNull BuildConfigWrapper buildConfigWrapper,
-      @NonNull JsonSerializer jsonSerializer
+      @NonNull JsonSerializer jsonSerializer,
+      @NonNull CborSerializer cborSerializer,
+      @NonNull NetworkPolicy networkPolicy,
+      @NonNull NetworkStats networkStats,
+      @NonNull Config config,
+      @NonNull CdbSession cdbSession,
+      @NonNull CdbEndpointSelector cdbEndpointSelector
   ) {
     this.buildConfigWrapper = buildConfigWrapper;
     this.jsonSerializer = jsonSerializer;
+    this.cborSerializer = cborSerializer;
+    this.networkPolicy = networkPolicy;
+    this.networkStats = networkStats;
+    this.config = config;
+    this.cdbSession = cdbSession;
+    this.cdbEndpointSelector = cdbEndpointSelector;
   }
 
+  /**
+   * Fetch the remote config unconditionally.
+   *
+   * @see #loadConfig(RemoteConfigRequest, String)
+   */
   @NonNull
   public RemoteConfigResponse loadConfig(@NonNull RemoteConfigRequest request) throws IOException {
+    RemoteConfigResponse body = loadConfig(request, null).getBody();
+    if (body == null) {
+      // Without ETag, the config cannot be "not modified": a body is read, or an error is thrown
+      throw new EOFException();
+    }
+    return body;
+  }
+
+  /**
+   * Fetch the remote config only if it changed since the version identified by the given ETag.
+   * <p>
+   * If the server indicates that the config is not modified, the returned response has no body.
+   * In any case, the new ETag and the max-age indicated by the server are returned along.
+   * <p>
+   * Server contract: the config is fetched with a POST, for which RFC 7232 specifies that a
+   * matching <code>If-None-Match</code> yields a <code>412 Precondition Failed</code>, while the
+   * config endpoint answers a <code>304 Not Modified</code> as for a GET. Both are accepted as "not
+   * modified", but only when an ETag was sent, so a 412 cannot be misread otherwise. The ETag and
+   * the <code>Cache-Control: max-age</code> are expected to be the same for all requests sharing a
+   * SDK version, a publisher ID and a bundle ID: callers scope them accordingly.
+   */
+  @NonNull
+  public ConditionalResponse<RemoteConfigResponse> loadConfig(
+      @NonNull RemoteConfigRequest request,
+      @Nullable String eTag
+  ) throws IOException {
     URL url = new URL(buildConfigWrapper.getCdbUrl() + "/config/app");
     HttpURLConnection urlConnection = prepareConnection(url, null, "POST");
-    writePayload(urlConnection, request);
+    if (!TextUtils.isEmpty(eTag)) {
+      urlConnection.setRequestProperty("If-None-Match", eTag);
+    }
+    Exchange exchange = networkStats.startExchange(Endpoint.CONFIG);
+
+    RemoteConfigResponse body = null;
+    try {
+      writePayload(urlConnection, request, exchange);
 
-    try (InputStream inputStream = readResponseStreamIfSuccess(urlConnection)) {
-      return jsonSerializer.read(RemoteConfigResponse.class, inputStream);
+      int status = urlConnection.getResponseCode();
+      if (isNotModified(status, eTag)) {
+        // There is no body to read, but the stream is closed so the connection can be reused
+        exchange.onResponseReceived(status);
+        InputStream responseStream = status == HttpURLConnection.HTTP_NOT_MODIFIED
+            ? urlConnection.getInputStream()
+            : urlConnection.getErrorStream();
+        if (responseStream != null) {
+          exchange.trackResponseBody(responseStream).close();
+        }
+      } else {
+        try (InputStream inputStream = readResponseStreamIfSuccess(urlConnection, exchange)) {
+          body = jsonSerializer.read(RemoteConfigResponse.class, inputStream);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      exchange.onFailed();
+      throw e;
+    }
+
+    String newETag = urlConnection.getHeaderField("ETag");
+    if (newETag == null && body == null) {
+      // Validators are kept by the server when omitted from a 304 response
+      newETag = eTag;
+    }
+
+    return new ConditionalResponse<>(
+        body,
+        newETag,
+        getMaxAgeInMillis(urlConnection.getHeaderField("Cache-Control"))
+    );
+  }
+
+  private static boolean isNotModified(int status, @Nullable String sentETag) {
+    return !TextUtils.isEmpty(sentETag) && (status == HttpURLConnection.HTTP_NOT_MODIFIED
+        || status == HttpURLConnection.HTTP_PRECON_FAILED);
+  }
+
+  /**
+   * Extract the <code>max-age</code> directive from the given <code>Cache-Control</code> header.
+   * <p>
+   * Responses without this directive, or indicating that they should not be cached, are considered
+   * stale immediately.
+   */
+  @VisibleForTesting
+  static long getMaxAgeInMillis(@Nullable String cacheControl) {
+    if (cacheControl == null) {
+      return 0;
+    }
+
+    long maxAgeInSeconds = 0;
+    for (String directive : cacheControl.split(",")) {
+      String trimmed = directive.trim().toLowerCase(Locale.ROOT);
+      if (trimmed.equals("no-cache") || trimmed.equals("no-store")) {
+        return 0;
+      }
+
+      if (trimmed.startsWith(MAX_AGE_DIRECTIVE)) {
+        try {
+          maxAgeInSeconds = Long.parseLong(trimmed.substring(MAX_AGE_DIRECTIVE.length()).trim());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
     }
+    return TimeUnit.SECONDS.toMillis(Math.max(0, maxAgeInSeconds));
   }
 
   @NonNull
   public CdbResponse loadCdb(@NonNull CdbRequest request, @NonNull String userAgent) throws Exception {
-    URL url = new URL(buildConfigWrapper.getCdbUrl() + "/inapp/v2");
-    HttpURLConnection urlConnection = prepareConnection(url, userAgent, "POST");
-    urlConnection.setDoOutput(true);
-    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-      jsonSerializer.write(request, baos);
-      logger.log(NetworkLogMessage.onCdbCallStarted(baos.toString("UTF-8")));
-      urlConnection.getOutputStream().write(baos.toByteArray());
+    return loadCdb(request, userAgent, null);
+  }
+
+  /**
+   * Send a bid request to CDB.
+   * <p>
+   * If a deadline is given, the connect and read timeouts are bounded by the time remaining before
+   * it, and the call is aborted with a {@link DeadlineExceededException} if it is expired before
+   * the request is sent or before the response is read.
+   * <p>
+   * If the binary protocol is {@linkplain Config#isCdbBinaryProtocolEnabled() enabled}, the request
+   * is encoded in CBOR and both CBOR and JSON responses are accepted. If CDB does not support CBOR
+   * requests, the request is sent again in JSON, and JSON is used for all the next ones.
+   * <p>
+   * If CDB opened a {@linkplain CdbSession session}, only the changes of the request context are
+   * sent. If CDB does not know the session anymore, the full request is sent again.
+   * <p>
+   * The request is sent to the CDB endpoint {@linkplain CdbEndpointSelector selected} for its
+   * latency and error rate. If this endpoint fails, the request is sent once again to another
+   * endpoint, if any, and if the deadline is not expired.
+   */
+  @NonNull
+  public CdbResponse loadCdb(
+      @NonNull CdbRequest request,
+      @NonNull String userAgent,
+      @Nullable Deadline deadline
+  ) throws Exception {
+    CdbEndpointSelector.Attempt attempt = cdbEndpointSelector.startAttempt();
+
+    try {
+      return loadCdb(attempt, request, userAgent, deadline);
+    } catch (Exception e) {
+      if (!isCdbEndpointFailure(e)) {
+        throw e;
+      }
+
+      CdbEndpointSelector.Attempt fallbackAttempt =
+          cdbEndpointSelector.startFallbackAttempt(attempt);
+      if (fallbackAttempt == null || (deadline != null && deadline.isExpired())) {
+        throw e;
+      }
+
+      logger.debug(
+          "CDB endpoint %s failed, failing over to %s",
+          attempt.getEndpoint(),
+          fallbackAttempt.getEndpoint()
+      );
+      return loadCdb(fallbackAttempt, request, userAgent, deadline);
+    }
+  }
+
+  @NonNull
+  private CdbResponse loadCdb(
+      @NonNull CdbEndpointSelector.Attempt attempt,
+      @NonNull CdbRequest request,
+      @NonNull String userAgent,
+      @Nullable Deadline deadline
+  ) throws Exception {
+    try {
+      CdbResponse response = loadCdbWithProtocolFallback(
+          attempt.getEndpoint(),
+          request,
+          userAgent,
+          deadline
+      );
+      attempt.onSucceeded();
+      return response;
+    } catch (Exception e) {
+      if (isCdbEndpointFailure(e)) {
+        attempt.onFailed();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Indicate if the given error is caused by the CDB endpoint itself (unreachable, too slow or
+   * answering with a server error), rather than by the request or the state of the device.
+   */
+  private static boolean isCdbEndpointFailure(@NonNull Exception e) {
+    if (e instanceof HttpResponseException) {
+      return ((HttpResponseException) e).getStatus() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+    return e instanceof IOException
+        && !(e instanceof DeadlineExceededException)
+        && !(e instanceof NoConnectivityException);
+  }
+
+  @NonNull
+  private CdbResponse loadCdbWithProtocolFallback(
+      @NonNull String cdbUrl,
+      @NonNull CdbRequest request,
+      @NonNull String userAgent,
+      @Nullable Deadline deadline
+  ) throws Exception {
+    boolean isBinary = config.isCdbBinaryProtocolEnabled() && !isBinaryProtocolRejected.get();
+
+    try {
+      return loadCdbInSession(cdbUrl, request, userAgent, deadline, isBinary);
+    } catch (HttpResponseException e) {
+      if (!isBinary || e.getStatus() != HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+        throw e;
+      }
+
+      logger.debug("CDB does not support binary bid requests, falling back to JSON");
+      isBinaryProtocolRejected.set(true);
+      return loadCdbInSession(cdbUrl, request, userAgent, deadline, false);
     }
+  }
+
+  @NonNull
+  private CdbResponse loadCdbInSession(
+      @NonNull String cdbUrl,
+      @NonNull CdbRequest request,
+      @NonNull String userAgent,
+      @Nullable Deadline deadline,
+      boolean isBinary
+  ) throws Exception {
+    boolean wasInSession = cdbSession.isActive(cdbUrl);
 
-    try (InputStream inputStream = readResponseStreamIfSuccess(urlConnection)) {
-      String response = StreamUtil.readStream(inputStream);
-      logger.log(NetworkLogMessage.onCdbCallFinished(response));
-      return CdbResponse.fromJson(readJson(response));
+    try {
+      return loadCdb(cdbUrl, request, userAgent, deadline, isBinary);
+    } catch (HttpResponseException e) {
+      if (!wasInSession || e.getStatus() != HttpURLConnection.HTTP_CONFLICT) {
+        throw e;
+      }
+
+      logger.debug("CDB does not know the bid request session, sending the full request");
+      cdbSession.reset(cdbUrl);
+      return loadCdb(cdbUrl, request, userAgent, deadline, isBinary);
+    }
+  }
+
+  @NonNull
+  private CdbResponse loadCdb(
+      @NonNull String cdbUrl,
+      @NonNull CdbRequest request,
+      @NonNull String userAgent,
+      @Nullable Deadline deadline,
+      boolean isBinary
+  ) throws Exception {
+    URL url = new URL(cdbUrl + "/inapp/v2");
+    HttpURLConnection urlConnection = prepareConnection(url, userAgent, "POST", deadline);
+    if (isBinary) {
+      urlConnection.setRequestProperty("Content-Type", CONTENT_TYPE_CBOR);
+      urlConnection.setRequestProperty("Accept", CONTENT_TYPE_CBOR + ", " + CONTENT_TYPE_JSON);
+    }
+    Exchange exchange = networkStats.startExchange(Endpoint.CDB);
+
+    // Plain JSON values are only needed when the request is transformed before being written
+    CdbSession.Payload payload = null;
+
+    // Payloads are only turned into text when someone is going to read it
+    boolean isPayloadLogged = logger.isLoggable(NetworkLogMessage.CdbPayloadLogLevel);
+
+    try {
+      if (isBinary || cdbSession.isActive(cdbUrl)) {
+        payload = cdbSession.prepare(cdbUrl, toJsonMap(request));
+      }
+
+      urlConnection.setDoOutput(true);
+      connect(urlConnection, exchange);
+      try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        if (payload == null) {
+          jsonSerializer.write(request, baos);
+        } else if (isBinary) {
+          cborSerializer.write(payload.getBody(), baos);
+        } else {
+          jsonSerializer.writeJsonValue(payload.getBody(), baos);
+        }
+
+        if (isPayloadLogged) {
+          String json = isBinary
+              ? String.valueOf(JSONObject.wrap(payload.getBody()))
+              : baos.toString("UTF-8");
+          logger.log(NetworkLogMessage.onCdbCallStarted(json));
+        }
+        urlConnection.getOutputStream().write(baos.toByteArray());
+        exchange.onBytesSent(baos.size());
+      }
+
+      // Connection and upload consumed a part of the remaining time
+      urlConnection.setReadTimeout(getTimeoutInMillis(deadline));
+
+      try (InputStream inputStream = readResponseStreamIfSuccess(urlConnection, exchange)) {
+        CdbResponse cdbResponse;
+        if (isCborContent(urlConnection.getContentType())) {
+          cdbResponse = readCborCdbResponse(inputStream, isPayloadLogged);
+        } else {
+          String responseString = StreamUtil.readStream(inputStream);
+          if (isPayloadLogged) {
+            logger.log(NetworkLogMessage.onCdbCallFinished(responseString));
+          }
+          cdbResponse = CdbResponse.fromJson(readJson(responseString));
+        }
+        onCdbSessionResponse(cdbUrl, request, payload, cdbResponse.getSessionToken());
+        return cdbResponse;
+      }
+    } catch (Exception e) {
+      exchange.onFailed();
+      throw e;
+    }
+  }
+
+  private void onCdbSessionResponse(
+      @NonNull String cdbUrl,
+      @NonNull CdbRequest request,
+      @Nullable CdbSession.Payload payload,
+      @Nullable String sessionToken
+  ) throws IOException {
+    if (payload == null) {
+      if (sessionToken == null) {
+        // No session is active nor is opened: nothing to do
+        return;
+      }
+      payload = cdbSession.prepare(cdbUrl, toJsonMap(request));
+    }
+    cdbSession.onResponse(cdbUrl, payload.getContext(), sessionToken);
+  }
+
+  @NonNull
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> toJsonMap(@NonNull CdbRequest request) throws IOException {
+    Object jsonValue = jsonSerializer.toJsonValue(request);
+    if (!(jsonValue instanceof Map)) {
+      throw new IOException("Bid request is not serialized as a JSON object: " + jsonValue);
+    }
+    return (Map<String, Object>) jsonValue;
+  }
+
+  /**
+   * Open a connection to the selected CDB endpoint without sending any actual request.
+   * <p>
+   * This pays upfront the DNS resolution, the TCP connection and the TLS handshake. Once the
+   * response is read, the connection goes back to the keep-alive pool of {@link HttpURLConnection}
+   * and the negotiated TLS session stays in the client session cache. So following calls to CDB
+   * (prefetch, remote config, first live bid, ...) can reuse them instead of paying them again.
+   * <p>
+   * The response status is ignored: any answer of CDB is enough to get a warm connection.
+   */
+  public void warmUpCdbConnection() throws IOException {
+    URL url = new URL(cdbEndpointSelector.selectEndpoint());
+    HttpURLConnection urlConnection = prepareConnection(url, null, "HEAD");
+    Exchange exchange = networkStats.startExchange(Endpoint.WARM_UP);
+
+    try {
+      connect(urlConnection, exchange);
+      int status = urlConnection.getResponseCode();
+      exchange.onResponseReceived(status);
+      logger.debug("CDB connection warmed up with status %d", status);
+
+      // Body should be fully consumed and closed so the connection is released into the pool.
+      InputStream inputStream = status < HttpURLConnection.HTTP_BAD_REQUEST
+          ? urlConnection.getInputStream()
+          : urlConnection.getErrorStream();
+      if (inputStream != null) {
+        StreamUtil.readStream(exchange.trackResponseBody(inputStream));
+      }
+      exchange.onCompleted();
+    } catch (IOException | RuntimeException e) {
+      exchange.onFailed();
+      throw e;
     }
   }
 
@@ -125,44 +527,104 @@ public class PubSdkApi {
 
     String query = "/appevent/v1/" + senderId + "?" + getParamsString(parameters);
     URL url = new URL(buildConfigWrapper.getEventUrl() + query);
-    try (InputStream inputStream = executeRawGet(url, userAgent)) {
+    try (InputStream inputStream = executeRawGet(url, userAgent, Endpoint.APP_EVENT)) {
       return readJson(inputStream);
     }
   }
 
-  @Nullable
-  public InputStream executeRawGet(URL url) throws IOException {
-    return executeRawGet(url, null);
-  }
-
   public void postCsm(@NonNull MetricRequest request) throws IOException {
-    postToCdb("/csm", request);
+    postToCdb("/csm", request, Endpoint.CSM);
   }
 
   public void postLogs(@NonNull List<RemoteLogRecords> request) throws IOException {
-    postToCdb("/inapp/logs", request);
+    postToCdb("/inapp/logs", request, Endpoint.REMOTE_LOGS);
+  }
+
+  /**
+   * Upload CSM metrics and remote logs in a single request.
+   * <p>
+   * The response indicates which parts were acknowledged by the server. Other parts should be
+   * uploaded again later.
+   */
+  @NonNull
+  public TelemetryResponse postTelemetry(@NonNull TelemetryRequest request) throws IOException {
+    URL url = new URL(buildConfigWrapper.getCdbUrl() + "/inapp/telemetry");
+    HttpURLConnection urlConnection = prepareConnection(url, null, "POST");
+    Exchange exchange = networkStats.startExchange(Endpoint.TELEMETRY);
+
+    try {
+      writePayload(urlConnection, request, exchange);
+
+      try (InputStream inputStream = readResponseStreamIfSuccess(urlConnection, exchange)) {
+        return jsonSerializer.read(TelemetryResponse.class, inputStream);
+      }
+    } catch (IOException | RuntimeException e) {
+      exchange.onFailed();
+      throw e;
+    }
   }
 
-  private void postToCdb(@NonNull String apiPath, @NonNull Object request) throws IOException {
+  private void postToCdb(
+      @NonNull String apiPath,
+      @NonNull Object request,
+      @NonNull Endpoint endpoint
+  ) throws IOException {
     URL url = new URL(buildConfigWrapper.getCdbUrl() + apiPath);
     HttpURLConnection urlConnection = prepareConnection(url, null, "POST");
-    writePayload(urlConnection, request);
-    readResponseStreamIfSuccess(urlConnection).close();
+    Exchange exchange = networkStats.startExchange(endpoint);
+
+    try {
+      writePayload(urlConnection, request, exchange);
+      readResponseStreamIfSuccess(urlConnection, exchange).close();
+    } catch (IOException | RuntimeException e) {
+      exchange.onFailed();
+      throw e;
+    }
   }
 
+  /**
+   * Execute a GET request on the given URL, such as a pixel or a creative, and return the body of
+   * the response.
+   *
+   * @param endpoint endpoint under which the exchange is accounted in network stats
+   */
   @NonNull
-  public InputStream executeRawGet(URL url, @Nullable String userAgent) throws IOException {
+  public InputStream executeRawGet(
+      @NonNull URL url,
+      @Nullable String userAgent,
+      @NonNull Endpoint endpoint
+  ) throws IOException {
     HttpURLConnection urlConnection = prepareConnection(url, userAgent, "GET");
-    return readResponseStreamIfSuccess(urlConnection);
+    Exchange exchange = networkStats.startExchange(endpoint);
+
+    try {
+      connect(urlConnection, exchange);
+      return readResponseStreamIfSuccess(urlConnection, exchange);
+    } catch (IOException | RuntimeException e) {
+      exchange.onFailed();
+      throw e;
+    }
   }
 
   @NonNull
   private HttpURLConnection prepareConnection(@NonNull URL url,
       @Nullable String userAgent, String method) throws IOException {
+    return prepareConnection(url, userAgent, method, null);
+  }
+
+  @NonNull
+  private HttpURLConnection prepareConnection(@NonNull URL url,
+      @Nullable String userAgent, String method, @Nullable Deadline deadline) throws IOException {
+    if (networkPolicy.isOffline()) {
+      // Fail fast instead of waiting for the timeout of a request that cannot succeed
+      throw new NoConnectivityException();
+    }
+
+    int timeoutInMillis = getTimeoutInMillis(deadline);
     HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
     urlConnection.setRequestMethod(method);
-    urlConnection.setReadTimeout(buildConfigWrapper.getNetworkTimeoutInMillis());
-    urlConnection.setConnectTimeout(buildConfigWrapper.getNetworkTimeoutInMillis());
+    urlConnection.setReadTimeout(timeoutInMillis);
+    urlConnection.setConnectTimeout(timeoutInMillis);
     urlConnection.setRequestProperty("Content-Type", "text/plain");
     if (!TextUtils.isEmpty(userAgent)) {
       urlConnection.setRequestProperty("User-Agent", userAgent);
@@ -170,11 +632,51 @@ public class PubSdkApi {
     return urlConnection;
   }
 
+  /**
+   * Timeout to apply on the next blocking network operation: the one of the network policy, bounded
+   * by the time remaining before the given deadline, if any.
+   *
+   * @throws DeadlineExceededException if the deadline is already expired
+   */
+  private int getTimeoutInMillis(@Nullable Deadline deadline) throws DeadlineExceededException {
+    int timeoutInMillis = networkPolicy.getNetworkTimeoutInMillis();
+    if (deadline == null) {
+      return timeoutInMillis;
+    }
+
+    // A zero timeout means an infinite one for HttpURLConnection, so an expired deadline must fail
+    long remainingTimeInMillis = deadline.getRemainingTimeInMillis();
+    if (remainingTimeInMillis <= 0) {
+      throw new DeadlineExceededException();
+    }
+    return (int) Math.min(timeoutInMillis, remainingTimeInMillis);
+  }
+
+  private static void connect(
+      @NonNull HttpURLConnection urlConnection,
+      @NonNull Exchange exchange
+  ) throws IOException {
+    // Connecting explicitly, instead of implicitly when the request is sent, isolates the time
+    // spent on DNS resolution, TCP connection and TLS handshake.
+    urlConnection.connect();
+    exchange.onConnected();
+  }
+
+  /**
+   * Return the body of the response if it is successful.
+   * <p>
+   * The bytes read from the returned stream are accounted in the given exchange, which is completed
+   * once the stream is closed.
+   */
   @NonNull
-  private static InputStream readResponseStreamIfSuccess(@NonNull HttpURLConnection urlConnection) throws IOException {
+  private static InputStream readResponseStreamIfSuccess(
+      @NonNull HttpURLConnection urlConnection,
+      @NonNull Exchange exchange
+  ) throws IOException {
     int status = urlConnection.getResponseCode();
+    exchange.onResponseReceived(status);
     if (status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NO_CONTENT) {
-      return urlConnection.getInputStream();
+      return exchange.trackResponseBody(urlConnection.getInputStream());
     } else {
       throw new HttpResponseException(status);
     }
@@ -186,6 +688,40 @@ public class PubSdkApi {
     return readJson(response);
   }
 
+  /**
+   * Decode a CBOR bid response directly from the plain values read from the stream, without going
+   * through an intermediate JSON representation.
+   */
+  @NonNull
+  @SuppressWarnings("unchecked")
+  private CdbResponse readCborCdbResponse(
+      @NonNull InputStream inputStream,
+      boolean isPayloadLogged
+  ) throws IOException {
+    PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream);
+    int firstByte = pushbackInputStream.read();
+    if (firstByte == -1) {
+      // No content (i.e. no bid)
+      return CdbResponse.fromJsonValue(Collections.emptyMap(), jsonSerializer);
+    }
+    pushbackInputStream.unread(firstByte);
+
+    Object value = cborSerializer.read(pushbackInputStream);
+    if (isPayloadLogged) {
+      logger.log(NetworkLogMessage.onCdbCallFinished(String.valueOf(JSONObject.wrap(value))));
+    }
+
+    if (!(value instanceof Map)) {
+      throw new IOException("Expected a CBOR map but got " + value);
+    }
+    return CdbResponse.fromJsonValue((Map<String, Object>) value, jsonSerializer);
+  }
+
+  private static boolean isCborContent(@Nullable String contentType) {
+    return contentType != null
+        && contentType.toLowerCase(Locale.ROOT).startsWith(CONTENT_TYPE_CBOR);
+  }
+
   private static JSONObject readJson(@NonNull String json) throws JSONException {
     if (TextUtils.isEmpty(json)) {
       return new JSONObject();
@@ -195,11 +731,21 @@ public class PubSdkApi {
 
   private void writePayload(
       @NonNull HttpURLConnection urlConnection,
-      @NonNull Object request) throws IOException {
+      @NonNull Object request,
+      @NonNull Exchange exchange) throws IOException {
     urlConnection.setDoOutput(true);
+    connect(urlConnection, exchange);
+
+    byte[] payload;
+    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+      jsonSerializer.write(request, baos);
+      payload = baos.toByteArray();
+    }
+
     try (OutputStream outputStream = urlConnection.getOutputStream()) {
-      jsonSerializer.write(request, outputStream);
+      outputStream.write(payload);
     }
+    exchange.onBytesSent(payload.length);
   }
 
   private String getParamsString(Map<String, String> params) {
@@ -0,0 +1,179 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import androidx.annotation.GuardedBy
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.logging.LoggerFactory
+import com.criteo.publisher.util.BuildConfigWrapper
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Schedule outbound requests on the shared executor according to their priority, so latency-critical bid requests do
+ * not compete with background uploads on constrained links.
+ *
+ * - [Priority.BIDDING] tasks (live and prefetch bids, remote config) are executed immediately and are tracked while
+ * they are in flight. A bid request running as several tasks is tracked as a whole through [BiddingExecutor], so it
+ * stays in flight between its tasks, for instance while it waits for the device information.
+ * - [Priority.DELIVERY] tasks (creatives, pixels) are executed immediately: they are visible to the user.
+ * - [Priority.TELEMETRY] tasks (CSM, remote logs, app events) are executed immediately if no bidding task is in
+ * flight. Else they are deferred until all bidding tasks are over. To protect them from starvation under a
+ * continuous flow of bids, deferred tasks are released anyway after
+ * [BuildConfigWrapper.getMaxTelemetryDeferralInMillis].
+ */
+@OpenForTesting
+internal class RequestScheduler(
+    private val executor: Executor,
+    private val scheduledExecutorService: ScheduledExecutorService,
+    private val buildConfigWrapper: BuildConfigWrapper
+) {
+
+  enum class Priority {
+    BIDDING,
+    DELIVERY,
+    TELEMETRY
+  }
+
+  private val logger = LoggerFactory.getLogger(javaClass)
+
+  private val lock = Any()
+
+  @GuardedBy("lock")
+  private var biddingInFlightCount = 0
+
+  @GuardedBy("lock")
+  private val deferredTasks = ArrayDeque<Runnable>()
+
+  /**
+   * Executor of bidding tasks, able to keep a bid request in flight across all its tasks.
+   */
+  interface BiddingExecutor : Executor {
+
+    /**
+     * Mark a bid request as in flight, until [onBiddingEnded] is called once for it.
+     */
+    fun onBiddingStarted()
+
+    fun onBiddingEnded()
+  }
+
+  private val biddingExecutor = object : BiddingExecutor {
+    override fun execute(command: Runnable) = execute(Priority.BIDDING, command)
+    override fun onBiddingStarted() = beginBidding()
+    override fun onBiddingEnded() = endBidding()
+  }
+
+  /**
+   * Executor submitting all its tasks with the given priority. The one of [Priority.BIDDING] is a [BiddingExecutor].
+   */
+  fun executorFor(priority: Priority): Executor = when (priority) {
+    Priority.BIDDING -> biddingExecutor
+    else -> Executor { execute(priority, it) }
+  }
+
+  fun execute(priority: Priority, command: Runnable) {
+    when (priority) {
+      Priority.BIDDING -> executeBidding(command)
+      Priority.DELIVERY -> executor.execute(command)
+      Priority.TELEMETRY -> executeTelemetry(command)
+    }
+  }
+
+  private fun executeBidding(command: Runnable) {
+    beginBidding()
+
+    try {
+      executor.execute {
+        try {
+          command.run()
+        } finally {
+          endBidding()
+        }
+      }
+    } catch (e: RejectedExecutionException) {
+      endBidding()
+      throw e
+    }
+  }
+
+  private fun beginBidding() {
+    synchronized(lock) {
+      biddingInFlightCount++
+    }
+  }
+
+  private fun endBidding() {
+    val releasedTasks = synchronized(lock) {
+      biddingInFlightCount--
+      if (biddingInFlightCount > 0) {
+        return
+      }
+
+      val tasks = deferredTasks.toList()
+      deferredTasks.clear()
+      tasks
+    }
+
+    releasedTasks.forEach { executeReleased(it) }
+  }
+
+  /**
+   * Execute a task that was deferred. A rejection is only logged, so it does not prevent the next released tasks
+   * from being executed, nor escape into the bidding task that released them.
+   */
+  private fun executeReleased(command: Runnable) {
+    try {
+      executor.execute(command)
+    } catch (e: RejectedExecutionException) {
+      logger.debug("Deferred telemetry task rejected", e)
+    }
+  }
+
+  private fun executeTelemetry(command: Runnable) {
+    val isDeferred = synchronized(lock) {
+      if (biddingInFlightCount > 0) {
+        deferredTasks.addLast(command)
+        true
+      } else {
+        false
+      }
+    }
+
+    if (!isDeferred) {
+      executor.execute(command)
+      return
+    }
+
+    scheduledExecutorService.schedule(
+        { releaseIfStillDeferred(command) },
+        buildConfigWrapper.maxTelemetryDeferralInMillis.toLong(),
+        TimeUnit.MILLISECONDS
+    )
+  }
+
+  private fun releaseIfStillDeferred(command: Runnable) {
+    val isReleased = synchronized(lock) {
+      deferredTasks.remove(command)
+    }
+
+    if (isReleased) {
+      executeReleased(command)
+    }
+  }
+}
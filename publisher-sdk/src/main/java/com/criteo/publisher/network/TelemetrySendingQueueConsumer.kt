@@ -0,0 +1,102 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import com.criteo.publisher.SafeRunnable
+import com.criteo.publisher.annotation.OpenForTesting
+import com.criteo.publisher.csm.Metric
+import com.criteo.publisher.csm.MetricSendingQueue
+import com.criteo.publisher.csm.MetricSendingTask
+import com.criteo.publisher.logging.RemoteLogRecords
+import com.criteo.publisher.logging.RemoteLogSendingQueue
+import com.criteo.publisher.logging.RemoteLogSendingQueueConsumer.RemoteLogSendingTask
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.model.TelemetryRequest
+import com.criteo.publisher.model.TelemetryResponse
+import com.criteo.publisher.util.AdvertisingInfo
+import com.criteo.publisher.util.BuildConfigWrapper
+import java.util.concurrent.Executor
+
+/**
+ * Upload CSM metrics and remote logs together in a single [TelemetryRequest], instead of one request per queue.
+ *
+ * Each queue keeps its own rollback semantics: elements of a part that is not acknowledged by the server are pushed
+ * back into their queue, while acknowledged parts are dropped.
+ */
+@OpenForTesting
+internal class TelemetrySendingQueueConsumer(
+    private val metricSendingQueue: MetricSendingQueue,
+    private val remoteLogSendingQueue: RemoteLogSendingQueue,
+    private val api: PubSdkApi,
+    private val buildConfigWrapper: BuildConfigWrapper,
+    private val advertisingInfo: AdvertisingInfo,
+    private val config: Config,
+    private val networkPolicy: NetworkPolicy,
+    private val executor: Executor
+) {
+
+  /**
+   * Send asynchronously a new batch of metrics and logs. If the device is offline, they stay in their queues until a
+   * next batch.
+   */
+  fun sendTelemetryBatch() {
+    if (networkPolicy.isOffline()) {
+      return
+    }
+
+    executor.execute(TelemetrySendingTask())
+  }
+
+  private inner class TelemetrySendingTask : SafeRunnable() {
+    override fun runSafely() {
+      val metrics = if (config.isCsmEnabled) {
+        metricSendingQueue.poll(networkPolicy.getCsmBatchSize())
+      } else {
+        emptyList()
+      }
+      val remoteLogRecords = remoteLogSendingQueue.poll(networkPolicy.getRemoteLogBatchSize())
+      if (metrics.isEmpty() && remoteLogRecords.isEmpty()) {
+        return
+      }
+
+      var response: TelemetryResponse? = null
+      try {
+        RemoteLogSendingTask.injectMissingDeviceId(remoteLogRecords, advertisingInfo)
+        val metricRequests = MetricSendingTask.createRequests(metrics, buildConfigWrapper.sdkVersion).keys
+        response = api.postTelemetry(TelemetryRequest(metricRequests.toList(), remoteLogRecords))
+      } finally {
+        if (response?.isCsmAcknowledged != true) {
+          rollbackMetrics(metrics)
+        }
+        if (response?.isLogsAcknowledged != true) {
+          rollbackRemoteLogs(remoteLogRecords)
+        }
+      }
+    }
+
+    private fun rollbackMetrics(metrics: List<Metric>) {
+      metrics.forEach {
+        metricSendingQueue.offer(it)
+      }
+    }
+
+    private fun rollbackRemoteLogs(remoteLogRecords: List<RemoteLogRecords>) {
+      remoteLogRecords.forEach {
+        remoteLogSendingQueue.offer(it)
+      }
+    }
+  }
+}
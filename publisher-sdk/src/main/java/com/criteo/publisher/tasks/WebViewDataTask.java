@@ -24,6 +24,7 @@ import androidx.annotation.VisibleForTesting;
 import com.criteo.publisher.SafeRunnable;
 import com.criteo.publisher.model.DeviceInfo;
 import com.criteo.publisher.model.WebViewData;
+import com.criteo.publisher.network.NetworkStats.Endpoint;
 import com.criteo.publisher.network.PubSdkApi;
 import com.criteo.publisher.util.StreamUtil;
 import com.criteo.publisher.util.TextUtils;
@@ -82,7 +83,7 @@ public class WebViewDataTask extends SafeRunnable {
     URL url = new URL(displayUrl);
     String userAgent = deviceInfo.getUserAgent().get();
 
-    try (InputStream stream = api.executeRawGet(url, userAgent)) {
+    try (InputStream stream = api.executeRawGet(url, userAgent, Endpoint.CREATIVE)) {
       return StreamUtil.readStream(stream);
     }
   }
@@ -47,6 +47,12 @@ public class AdvertisingInfo {
   @NonNull
   private final AtomicReference<AdvertisingIdResult> resultRef = new AtomicReference<>();
 
+  /**
+   * Fetch being executed, if any. It is shared by concurrent callers of {@link #fetchAsync()}.
+   */
+  @NonNull
+  private final AtomicReference<CompletableFuture<String>> pendingFetchRef = new AtomicReference<>();
+
   public AdvertisingInfo(
       @NonNull Context context,
       @NonNull Executor executor,
@@ -58,12 +64,62 @@ public class AdvertisingInfo {
   }
 
   public void prefetchAsync() {
-    executor.execute(new SafeRunnable() {
-      @Override
-      public void runSafely() {
-        getAdvertisingId();
+    fetchAsync();
+  }
+
+  /**
+   * Fetch the advertising ID on a worker thread, if it is not known yet.
+   * <p>
+   * The returned future is completed once the fetch is over, even if it failed, with the fetched
+   * advertising ID. Callers can chain on this future instead of blocking a thread on the Google
+   * API. As failures are not cached, they should use this ID rather than calling
+   * {@link #getAdvertisingId()} again, which would fetch it again.
+   *
+   * @return future completed with the advertising ID, or <code>null</code> if it is not available
+   */
+  @NonNull
+  public CompletableFuture<String> fetchAsync() {
+    while (true) {
+      if (resultRef.get() != null) {
+        return CompletableFuture.completedFuture(getAdvertisingId());
+      }
+
+      CompletableFuture<String> pendingFetch = pendingFetchRef.get();
+      if (pendingFetch != null) {
+        return pendingFetch;
+      }
+
+      CompletableFuture<String> fetch = new CompletableFuture<>();
+      if (pendingFetchRef.compareAndSet(null, fetch)) {
+        executeFetch(fetch);
+        return fetch;
       }
-    });
+    }
+  }
+
+  private void executeFetch(@NonNull CompletableFuture<String> fetch) {
+    boolean isScheduled = false;
+    try {
+      executor.execute(new SafeRunnable() {
+        @Override
+        public void runSafely() {
+          String advertisingId = null;
+          try {
+            advertisingId = getAdvertisingId();
+          } finally {
+            // Failures are not cached, so the next fetch tries again
+            pendingFetchRef.compareAndSet(fetch, null);
+            fetch.complete(advertisingId);
+          }
+        }
+      });
+      isScheduled = true;
+    } finally {
+      if (!isScheduled) {
+        pendingFetchRef.compareAndSet(fetch, null);
+        fetch.complete(null);
+      }
+    }
   }
 
   @Nullable
@@ -80,12 +136,7 @@ public class AdvertisingInfo {
     if (advertisingIdResult == null) {
       // Multiple concurrent tasks are accepted. Only one commit is accepted then.
       if (isMainThread()) {
-        executor.execute(new SafeRunnable() {
-          @Override
-          public void runSafely() {
-            fetchResultOnWorkerThread();
-          }
-        });
+        fetchAsync();
       } else {
         fetchResultOnWorkerThread();
       }
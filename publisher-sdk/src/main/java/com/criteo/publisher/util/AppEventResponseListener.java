@@ -16,7 +16,17 @@
 
 package com.criteo.publisher.util;
 
+import androidx.annotation.NonNull;
+
 public interface AppEventResponseListener {
 
   void setThrottle(int throttle);
+
+  /**
+   * Called when an app event could not be sent, before the error is handled by the task.
+   *
+   * @param throwable error that happened while sending the event
+   */
+  default void onAppEventFailed(@NonNull Throwable throwable) {
+  }
 }
@@ -22,19 +22,22 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 import com.criteo.publisher.AppEvents.AppEvents;
 import com.criteo.publisher.BidManager;
+import com.criteo.publisher.concurrent.SdkExecutors;
 
 public class AppLifecycleUtil implements Application.ActivityLifecycleCallbacks {
 
   private final AppEvents appEvents;
   private final BidManager bidManager;
+  private final SdkExecutors sdkExecutors;
   private int started;
   private int resumed;
   private boolean transitionPossible;
   private boolean created;
 
-  public AppLifecycleUtil(AppEvents appEvents, BidManager bidmanager) {
+  public AppLifecycleUtil(AppEvents appEvents, BidManager bidmanager, SdkExecutors sdkExecutors) {
     this.appEvents = appEvents;
     this.bidManager = bidmanager;
+    this.sdkExecutors = sdkExecutors;
     started = 0;
     resumed = 0;
     transitionPossible = false;
@@ -78,6 +81,7 @@ public class AppLifecycleUtil implements Application.ActivityLifecycleCallbacks
       }
       appEvents.onApplicationStopped();
       bidManager.onApplicationStopped();
+      sdkExecutors.onApplicationStopped();
     }
     transitionPossible = false;
     started -= 1;
@@ -157,4 +157,98 @@ public class BuildConfigWrapper {
   public String getRemoteLogQueueFilename() {
     return BuildConfig.remoteLogQueueFilename;
   }
+
+  /**
+   * Maximum number of impression pixels being fired at the same time.
+   */
+  public int getMaxInFlightPixels() {
+    return BuildConfig.maxInFlightPixels;
+  }
+
+  /**
+   * Maximum number of retries for an impression pixel that failed to be delivered.
+   */
+  public int getMaxPixelRetries() {
+    return BuildConfig.maxPixelRetries;
+  }
+
+  /**
+   * Delay (in milliseconds) before the first retry of a pixel. It is doubled on each new retry.
+   */
+  public int getPixelRetryBaseDelayInMillis() {
+    return BuildConfig.pixelRetryBaseDelayInMillis;
+  }
+
+  /**
+   * Maximum number of impression pixels persisted while they are not delivered.
+   */
+  public int getMaxPendingPixels() {
+    return BuildConfig.maxPendingPixels;
+  }
+
+  /**
+   * The relative path in application folder of the folder used to store impression pixel files
+   */
+  @NonNull
+  public String getPixelDirectoryName() {
+    return BuildConfig.pixelDirectoryName;
+  }
+
+  /**
+   * Maximum number of app events sent each time the app event sending queue is flushed.
+   */
+  public int getAppEventBatchSize() {
+    return BuildConfig.appEventBatchSize;
+  }
+
+  /**
+   * Duration (in milliseconds) under which an Inactive/Active pair of app events is dropped.
+   */
+  public int getAppEventCoalescingWindowInMillis() {
+    return BuildConfig.appEventCoalescingWindowInMillis;
+  }
+
+  /**
+   * Maximum size (in bytes) of elements stored in the app event sending queue.
+   */
+  public int getMaxSizeOfAppEventSendingQueue() {
+    return BuildConfig.maxSizeOfAppEventSendingQueue;
+  }
+
+  /**
+   * Estimated size (in bytes) of elements stored in the app event sending queue.
+   */
+  public int getEstimatedSizeOfAppEvent() {
+    return BuildConfig.estimatedSizeOfAppEvent;
+  }
+
+  /**
+   * The relative path in application folder of the sending queue file for app events
+   */
+  @NonNull
+  public String getAppEventQueueFilename() {
+    return BuildConfig.appEventQueueFilename;
+  }
+
+  /**
+   * Maximum size (in bytes) of the prefetched interstitial creatives kept in memory.
+   */
+  public int getMaxSizeOfInterstitialCreativeCache() {
+    return BuildConfig.maxSizeOfInterstitialCreativeCache;
+  }
+
+  /**
+   * Maximum duration (in milliseconds) a telemetry request is held while bid requests are in flight.
+   */
+  public int getMaxTelemetryDeferralInMillis() {
+    return BuildConfig.maxTelemetryDeferralInMillis;
+  }
+
+  /**
+   * Maximum duration (in milliseconds) an upload of accumulated telemetry waits for a radio window
+   * opened by a bid request.
+   */
+  public int getMaxDeferredUploadDelayInMillis() {
+    return BuildConfig.maxDeferredUploadDelayInMillis;
+  }
 }
@@ -0,0 +1,395 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal <a href="https://www.rfc-editor.org/rfc/rfc8949">CBOR</a> codec for JSON-like values.
+ * <p>
+ * Supported values are the ones of a JSON document: {@link Map} with string keys, {@link List},
+ * {@link String}, {@link Number}, {@link Boolean} and <code>null</code>. Such values are for
+ * instance produced by {@link JsonSerializer#toJsonValue(Object)}.
+ * <p>
+ * Integers are read as {@link Long} and floating point numbers as {@link Double}. Only definite
+ * lengths are written, while both definite and indefinite lengths are read. Tags are ignored and
+ * byte strings are not supported since they have no JSON equivalent.
+ * <p>
+ * Optionally, a dictionary of map keys can be given: keys found in it are written as their index
+ * in the dictionary instead of their text, and integer keys are read back from it. Both sides
+ * should then agree on the same dictionary.
+ */
+public class CborSerializer {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int MAJOR_TYPE_UNSIGNED_INT = 0;
+  private static final int MAJOR_TYPE_NEGATIVE_INT = 1;
+  private static final int MAJOR_TYPE_BYTE_STRING = 2;
+  private static final int MAJOR_TYPE_TEXT_STRING = 3;
+  private static final int MAJOR_TYPE_ARRAY = 4;
+  private static final int MAJOR_TYPE_MAP = 5;
+  private static final int MAJOR_TYPE_TAG = 6;
+
+  private static final int FALSE = 0xF4;
+  private static final int TRUE = 0xF5;
+  private static final int NULL = 0xF6;
+  private static final int FLOAT_32 = 0xFA;
+  private static final int FLOAT_64 = 0xFB;
+  private static final int BREAK = 0xFF;
+
+  private static final int INDEFINITE_LENGTH = 31;
+
+  @NonNull
+  private final List<String> keyDictionary;
+
+  @NonNull
+  private final Map<String, Integer> keyIndexes = new HashMap<>();
+
+  public CborSerializer() {
+    this(Collections.emptyList());
+  }
+
+  public CborSerializer(@NonNull List<String> keyDictionary) {
+    this.keyDictionary = keyDictionary;
+    for (int i = 0; i < keyDictionary.size(); i++) {
+      keyIndexes.put(keyDictionary.get(i), i);
+    }
+  }
+
+  /**
+   * Write the given value in the given output.
+   * <p>
+   * The given output is not {@linkplain OutputStream#close() closed}. If it should be, then it is
+   * the responsibility of the caller to do so.
+   *
+   * @param value JSON-like value to write in output
+   * @param outputStream output where to write in
+   * @throws IOException if the value contains unsupported types, or if any error occurs while
+   * writing
+   */
+  public void write(@Nullable Object value, @NonNull OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outputStream);
+    writeValue(out, value);
+    out.flush();
+  }
+
+  /**
+   * Read a value from the given input.
+   * <p>
+   * The given input is not {@linkplain InputStream#close() closed}. If it should be, then it is the
+   * responsibility of the caller to do so.
+   *
+   * @param inputStream input where to read from
+   * @return JSON-like value read from the stream
+   * @throws IOException if the input is malformed or contains unsupported items, or if any error
+   * occurs while reading
+   */
+  @Nullable
+  public Object read(@NonNull InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(inputStream);
+    Object value = readValue(in, in.readUnsignedByte());
+    if (value == Break.INSTANCE) {
+      throw new IOException("Unexpected break outside of an indefinite length item");
+    }
+    return value;
+  }
+
+  private void writeValue(
+      @NonNull DataOutputStream out,
+      @Nullable Object value
+  ) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof String) {
+      byte[] bytes = ((String) value).getBytes(UTF_8);
+      writeHeader(out, MAJOR_TYPE_TEXT_STRING, bytes.length);
+      out.write(bytes);
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+        || value instanceof Byte) {
+      writeInteger(out, ((Number) value).longValue());
+    } else if (value instanceof Number) {
+      writeFloatingPoint(out, ((Number) value).doubleValue());
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      writeHeader(out, MAJOR_TYPE_MAP, map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeKey(out, String.valueOf(entry.getKey()));
+        writeValue(out, entry.getValue());
+      }
+    } else if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      writeHeader(out, MAJOR_TYPE_ARRAY, collection.size());
+      for (Object element : collection) {
+        writeValue(out, element);
+      }
+    } else {
+      throw new IOException("Unsupported type: " + value.getClass());
+    }
+  }
+
+  private void writeKey(@NonNull DataOutputStream out, @NonNull String key) throws IOException {
+    Integer keyIndex = keyIndexes.get(key);
+    if (keyIndex == null) {
+      writeValue(out, key);
+    } else {
+      writeInteger(out, keyIndex);
+    }
+  }
+
+  private void writeInteger(@NonNull DataOutputStream out, long value) throws IOException {
+    if (value >= 0) {
+      writeHeader(out, MAJOR_TYPE_UNSIGNED_INT, value);
+    } else {
+      writeHeader(out, MAJOR_TYPE_NEGATIVE_INT, -1 - value);
+    }
+  }
+
+  private void writeFloatingPoint(@NonNull DataOutputStream out, double value) throws IOException {
+    float floatValue = (float) value;
+    if (floatValue == value) {
+      // No precision is lost, so use the shorter encoding
+      out.writeByte(FLOAT_32);
+      out.writeFloat(floatValue);
+    } else {
+      out.writeByte(FLOAT_64);
+      out.writeDouble(value);
+    }
+  }
+
+  private void writeHeader(
+      @NonNull DataOutputStream out,
+      int majorType,
+      long argument
+  ) throws IOException {
+    int type = majorType << 5;
+    if (argument < 24) {
+      out.writeByte(type | (int) argument);
+    } else if (argument <= 0xFF) {
+      out.writeByte(type | 24);
+      out.writeByte((int) argument);
+    } else if (argument <= 0xFFFF) {
+      out.writeByte(type | 25);
+      out.writeShort((int) argument);
+    } else if (argument <= 0xFFFFFFFFL) {
+      out.writeByte(type | 26);
+      out.writeInt((int) argument);
+    } else {
+      out.writeByte(type | 27);
+      out.writeLong(argument);
+    }
+  }
+
+  @Nullable
+  private Object readValue(@NonNull DataInputStream in, int initialByte) throws IOException {
+    int majorType = initialByte >>> 5;
+    int additionalInfo = initialByte & 0x1F;
+
+    switch (majorType) {
+      case MAJOR_TYPE_UNSIGNED_INT:
+        return readArgument(in, additionalInfo);
+      case MAJOR_TYPE_NEGATIVE_INT:
+        return -1 - readArgument(in, additionalInfo);
+      case MAJOR_TYPE_BYTE_STRING:
+        throw new IOException("Byte strings are not supported");
+      case MAJOR_TYPE_TEXT_STRING:
+        return readText(in, additionalInfo);
+      case MAJOR_TYPE_ARRAY:
+        return readArray(in, additionalInfo);
+      case MAJOR_TYPE_MAP:
+        return readMap(in, additionalInfo);
+      case MAJOR_TYPE_TAG:
+        readArgument(in, additionalInfo);
+        return readValue(in, in.readUnsignedByte());
+      default:
+        return readSimpleValue(in, initialByte);
+    }
+  }
+
+  @NonNull
+  private String readText(@NonNull DataInputStream in, int additionalInfo) throws IOException {
+    if (additionalInfo != INDEFINITE_LENGTH) {
+      byte[] bytes = new byte[readLength(in, additionalInfo)];
+      in.readFully(bytes);
+      return new String(bytes, UTF_8);
+    }
+
+    StringBuilder builder = new StringBuilder();
+    Object chunk;
+    while ((chunk = readValue(in, in.readUnsignedByte())) != Break.INSTANCE) {
+      if (!(chunk instanceof String)) {
+        throw new IOException("Indefinite length text contains a non-text chunk");
+      }
+      builder.append((String) chunk);
+    }
+    return builder.toString();
+  }
+
+  @NonNull
+  private List<Object> readArray(
+      @NonNull DataInputStream in,
+      int additionalInfo
+  ) throws IOException {
+    List<Object> list = new ArrayList<>();
+    if (additionalInfo != INDEFINITE_LENGTH) {
+      int length = readLength(in, additionalInfo);
+      for (int i = 0; i < length; i++) {
+        list.add(readItem(in));
+      }
+      return list;
+    }
+
+    Object element;
+    while ((element = readValue(in, in.readUnsignedByte())) != Break.INSTANCE) {
+      list.add(element);
+    }
+    return list;
+  }
+
+  @NonNull
+  private Map<String, Object> readMap(
+      @NonNull DataInputStream in,
+      int additionalInfo
+  ) throws IOException {
+    Map<String, Object> map = new LinkedHashMap<>();
+    if (additionalInfo != INDEFINITE_LENGTH) {
+      int length = readLength(in, additionalInfo);
+      for (int i = 0; i < length; i++) {
+        map.put(toKey(readItem(in)), readItem(in));
+      }
+      return map;
+    }
+
+    Object key;
+    while ((key = readValue(in, in.readUnsignedByte())) != Break.INSTANCE) {
+      map.put(toKey(key), readItem(in));
+    }
+    return map;
+  }
+
+  @NonNull
+  private String toKey(@Nullable Object key) {
+    if (key instanceof Long) {
+      long keyIndex = (Long) key;
+      if (keyIndex >= 0 && keyIndex < keyDictionary.size()) {
+        return keyDictionary.get((int) keyIndex);
+      }
+    }
+    return String.valueOf(key);
+  }
+
+  @Nullable
+  private Object readItem(@NonNull DataInputStream in) throws IOException {
+    Object item = readValue(in, in.readUnsignedByte());
+    if (item == Break.INSTANCE) {
+      throw new IOException("Unexpected break in a definite length item");
+    }
+    return item;
+  }
+
+  @Nullable
+  private Object readSimpleValue(@NonNull DataInputStream in, int initialByte) throws IOException {
+    switch (initialByte) {
+      case FALSE:
+        return false;
+      case TRUE:
+        return true;
+      case NULL:
+      case NULL + 1: // undefined
+        return null;
+      case FLOAT_32 - 1:
+        return decodeHalfFloat(in.readUnsignedShort());
+      case FLOAT_32:
+        return (double) in.readFloat();
+      case FLOAT_64:
+        return in.readDouble();
+      case BREAK:
+        return Break.INSTANCE;
+      default:
+        throw new IOException("Unsupported simple value: " + initialByte);
+    }
+  }
+
+  private int readLength(@NonNull DataInputStream in, int additionalInfo) throws IOException {
+    long length = readArgument(in, additionalInfo);
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Length too large: " + length);
+    }
+    return (int) length;
+  }
+
+  private long readArgument(@NonNull DataInputStream in, int additionalInfo) throws IOException {
+    if (additionalInfo < 24) {
+      return additionalInfo;
+    }
+
+    switch (additionalInfo) {
+      case 24:
+        return in.readUnsignedByte();
+      case 25:
+        return in.readUnsignedShort();
+      case 26:
+        return in.readInt() & 0xFFFFFFFFL;
+      case 27:
+        long argument = in.readLong();
+        if (argument < 0) {
+          throw new IOException("Integer too large");
+        }
+        return argument;
+      default:
+        throw new IOException("Malformed argument: " + additionalInfo);
+    }
+  }
+
+  private static double decodeHalfFloat(int bits) {
+    int exponent = (bits >> 10) & 0x1F;
+    int mantissa = bits & 0x3FF;
+
+    double value;
+    if (exponent == 0) {
+      value = mantissa * Math.pow(2, -24);
+    } else if (exponent == 0x1F) {
+      value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+    } else {
+      value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+    }
+    return (bits & 0x8000) == 0 ? value : -value;
+  }
+
+  /**
+   * Marker of the end of an indefinite length item.
+   */
+  private enum Break {
+    INSTANCE
+  }
+}
@@ -16,15 +16,19 @@
 
 package com.criteo.publisher.util;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Partial very light implementation of {@link java.util.concurrent.CompletableFuture}.
@@ -33,17 +37,23 @@ import java.util.concurrent.atomic.AtomicReference;
  * available for Android < 24, and they are not added in the compat libraries. We could add an
  * unofficial compat library, but we should first fix EE-589.
  * <p>
+ * Dependent actions are registered as callbacks, so that no thread is blocked while waiting for
+ * the result. They are run by the thread completing this future, or immediately by the thread
+ * registering them if this future is already completed. Only {@link #get()} blocks the caller.
+ * <p>
  * See <a href="https://stackoverflow.com/a/38375991">streamsupport-cfuture</a>
  */
 public class CompletableFuture<T> implements Future<T> {
 
-  private final AtomicReference<Result<T>> valueRef = new AtomicReference<>();
-  private final CountDownLatch isDone = new CountDownLatch(1);
-  private final FutureTask<T> task;
+  private final Object lock = new Object();
 
-  public CompletableFuture() {
-    task = new FutureTask<>(new CompletableCallable());
-  }
+  @Nullable
+  @GuardedBy("lock")
+  private Result<T> result;
+
+  @Nullable
+  @GuardedBy("lock")
+  private List<Callback<? super T>> callbacks = new ArrayList<>();
 
   public static <T> CompletableFuture<T> completedFuture(T value) {
     CompletableFuture<T> future = new CompletableFuture<>();
@@ -51,71 +61,290 @@ public class CompletableFuture<T> implements Future<T> {
     return future;
   }
 
-  public void complete(T value) {
-    valueRef.compareAndSet(null, new Result<>(value));
-    isDone.countDown();
+  public static <T> CompletableFuture<T> failedFuture(@NonNull Throwable throwable) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(throwable);
+    return future;
+  }
+
+  /**
+   * Complete this future with the given value, if it is not already completed.
+   *
+   * @param value result of this future
+   * @return <code>true</code> if this call completed this future
+   */
+  public boolean complete(T value) {
+    return setResult(new Result<>(value, null));
   }
 
-  public void completeExceptionally(Exception exception) {
-    valueRef.compareAndSet(null, new Result<>(exception));
-    isDone.countDown();
+  /**
+   * Complete this future with the given error, if it is not already completed.
+   *
+   * @param throwable failure of this future
+   * @return <code>true</code> if this call completed this future
+   */
+  public boolean completeExceptionally(@NonNull Throwable throwable) {
+    return setResult(new Result<T>(null, throwable));
   }
 
+  /**
+   * Complete this future with a {@link CancellationException}, if it is not already completed.
+   * <p>
+   * There is no running task to interrupt, so the given flag has no effect.
+   */
   @Override
   public boolean cancel(boolean mayInterruptIfRunning) {
-    return task.cancel(mayInterruptIfRunning);
+    return completeExceptionally(new CancellationException());
   }
 
   @Override
   public boolean isCancelled() {
-    return task.isCancelled();
+    synchronized (lock) {
+      return result != null && result.throwable instanceof CancellationException;
+    }
   }
 
   @Override
   public boolean isDone() {
-    return task.isDone();
+    synchronized (lock) {
+      return result != null;
+    }
   }
 
   @Override
   public T get() throws InterruptedException, ExecutionException {
-    task.run();
-    return task.get();
+    synchronized (lock) {
+      while (result == null) {
+        lock.wait();
+      }
+      return result.get();
+    }
   }
 
   @Override
   public T get(long timeout, @NonNull TimeUnit unit)
       throws InterruptedException, ExecutionException, TimeoutException {
-    task.run();
-    return task.get(timeout, unit);
+    long deadlineInNanos = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (lock) {
+      while (result == null) {
+        long remainingInNanos = deadlineInNanos - System.nanoTime();
+        if (remainingInNanos <= 0) {
+          throw new TimeoutException();
+        }
+        TimeUnit.NANOSECONDS.timedWait(lock, remainingInNanos);
+      }
+      return result.get();
+    }
+  }
+
+  /**
+   * Register the given callback to be notified of the result of this future.
+   *
+   * @param callback callback to notify
+   * @return this future
+   */
+  @NonNull
+  public CompletableFuture<T> whenComplete(@NonNull Callback<? super T> callback) {
+    Result<T> currentResult;
+    synchronized (lock) {
+      currentResult = result;
+      if (currentResult == null) {
+        callbacks.add(callback);
+        return this;
+      }
+    }
+
+    callback.onComplete(currentResult.value, currentResult.throwable);
+    return this;
+  }
+
+  /**
+   * Return a new future completed with the result of the given function applied on the value of
+   * this future.
+   * <p>
+   * If this future fails, or if the function throws, the new future fails with the same error.
+   */
+  @NonNull
+  public <U> CompletableFuture<U> thenApply(@NonNull Function<? super T, ? extends U> function) {
+    CompletableFuture<U> future = new CompletableFuture<>();
+    whenComplete((value, throwable) -> {
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+        return;
+      }
+
+      try {
+        future.complete(function.apply(value));
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Return a new future completed with the result of the future returned by the given function
+   * applied on the value of this future.
+   * <p>
+   * If this future fails, or if the function throws, the new future fails with the same error.
+   */
+  @NonNull
+  public <U> CompletableFuture<U> thenCompose(
+      @NonNull Function<? super T, ? extends CompletableFuture<U>> function
+  ) {
+    CompletableFuture<U> future = new CompletableFuture<>();
+    whenComplete((value, throwable) -> {
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+        return;
+      }
+
+      try {
+        function.apply(value).whenComplete((composedValue, composedThrowable) -> {
+          if (composedThrowable != null) {
+            future.completeExceptionally(composedThrowable);
+          } else {
+            future.complete(composedValue);
+          }
+        });
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    return future;
   }
 
-  private class CompletableCallable implements Callable<T> {
+  /**
+   * Same as {@link #thenApply(Function)}, but the function is always run on the given executor.
+   */
+  @NonNull
+  public <U> CompletableFuture<U> thenApplyAsync(
+      @NonNull Function<? super T, ? extends U> function,
+      @NonNull Executor executor
+  ) {
+    CompletableFuture<U> future = new CompletableFuture<>();
+    whenComplete((value, throwable) -> {
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+        return;
+      }
+
+      try {
+        executor.execute(() -> {
+          try {
+            future.complete(function.apply(value));
+          } catch (Throwable t) {
+            future.completeExceptionally(t);
+          }
+        });
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    return future;
+  }
 
-    @Override
-    public T call() throws Exception {
-      isDone.await();
-      return valueRef.get().get();
+  /**
+   * Return a new future completed with the result of this future, or failing with a
+   * {@link TimeoutException} if this future is not completed within the given time.
+   * <p>
+   * Contrary to Java 9 <code>orTimeout</code>, this future is left untouched on timeout, so it
+   * can be shared between callers having different deadlines.
+   *
+   * @param timeout maximum time to wait for this future
+   * @param unit unit of the timeout
+   * @param scheduledExecutorService scheduler triggering the timeout
+   * @return future bounded by the given timeout
+   */
+  @NonNull
+  public CompletableFuture<T> withTimeout(
+      long timeout,
+      @NonNull TimeUnit unit,
+      @NonNull ScheduledExecutorService scheduledExecutorService
+  ) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    if (isDone()) {
+      whenComplete(future::completeWith);
+      return future;
     }
+
+    ScheduledFuture<?> timeoutTask = scheduledExecutorService.schedule(
+        () -> {
+          future.completeExceptionally(new TimeoutException());
+        },
+        timeout,
+        unit
+    );
+
+    whenComplete((value, throwable) -> {
+      if (timeoutTask != null) {
+        timeoutTask.cancel(false);
+      }
+      future.completeWith(value, throwable);
+    });
+    return future;
+  }
+
+  private void completeWith(@Nullable T value, @Nullable Throwable throwable) {
+    if (throwable != null) {
+      completeExceptionally(throwable);
+    } else {
+      complete(value);
+    }
+  }
+
+  private boolean setResult(@NonNull Result<T> newResult) {
+    List<Callback<? super T>> callbacksToNotify;
+    synchronized (lock) {
+      if (result != null) {
+        return false;
+      }
+
+      result = newResult;
+      callbacksToNotify = callbacks;
+      callbacks = null;
+      lock.notifyAll();
+    }
+
+    for (Callback<? super T> callback : callbacksToNotify) {
+      callback.onComplete(newResult.value, newResult.throwable);
+    }
+    return true;
+  }
+
+  /**
+   * Action run with the result of a future: either its value, or its error.
+   */
+  public interface Callback<T> {
+    void onComplete(@Nullable T value, @Nullable Throwable throwable);
+  }
+
+  /**
+   * Backport of {@link java.util.function.Function}, which is not available for Android < 24.
+   */
+  public interface Function<T, R> {
+    R apply(T value) throws Exception;
   }
 
   private static final class Result<T> {
 
+    @Nullable
     private final T value;
-    private final Exception exception;
 
-    Result(T value) {
-      this.value = value;
-      this.exception = null;
-    }
+    @Nullable
+    private final Throwable throwable;
 
-    Result(Exception exception) {
-      this.value = null;
-      this.exception = exception;
+    Result(@Nullable T value, @Nullable Throwable throwable) {
+      this.value = value;
+      this.throwable = throwable;
     }
 
-    T get() throws Exception {
-      if (exception != null) {
-        throw exception;
+    T get() throws ExecutionException {
+      if (throwable instanceof CancellationException) {
+        throw (CancellationException) throwable;
+      }
+      if (throwable != null) {
+        throw new ExecutionException(throwable);
       }
       return value;
     }
@@ -0,0 +1,62 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.util;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Lower case hexadecimal formatting through a lookup table, without the parsing and boxing cost of
+ * {@link String#format(String, Object...)}.
+ */
+public class HexEncoder {
+
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+  private HexEncoder() {
+  }
+
+  /**
+   * Format the given bytes into hexadecimal, two digits per byte.
+   *
+   * @param bytes bytes to format
+   * @return lower case hexadecimal representation of the bytes
+   */
+  @NonNull
+  public static String encode(@NonNull byte[] bytes) {
+    char[] chars = new char[bytes.length << 1];
+    for (int i = 0; i < bytes.length; i++) {
+      int value = bytes[i] & 0xFF;
+      chars[i << 1] = DIGITS[value >>> 4];
+      chars[(i << 1) + 1] = DIGITS[value & 0xF];
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Write the given value into hexadecimal, as 16 digits padded with zeros, in the given buffer.
+   *
+   * @param value       value to format
+   * @param destination buffer where to write the digits
+   * @param offset      index in the buffer of the first digit
+   */
+  public static void encode(long value, @NonNull char[] destination, int offset) {
+    for (int i = 15; i >= 0; i--) {
+      destination[offset + i] = DIGITS[(int) (value & 0xF)];
+      value >>>= 4;
+    }
+  }
+}
@@ -17,15 +17,23 @@
 package com.criteo.publisher.util;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.JsonDataException;
 import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import okio.BufferedSink;
+import java.util.Map;
+import okio.Buffer;
 import okio.Okio;
 
 public class JsonSerializer {
@@ -33,8 +41,64 @@ public class JsonSerializer {
   @NonNull
   private final Moshi moshi;
 
+  /**
+   * Adapters of the types serialized by the SDK, resolved once at creation.
+   * <p>
+   * Lists are registered with their element type, e.g. <code>List&lt;RemoteLogRecords&gt;</code>,
+   * so they are written with a typed adapter instead of the untyped <code>List</code> one, which
+   * looks up an adapter for each element.
+   */
+  @NonNull
+  private final Map<Type, JsonAdapter<?>> registeredAdapters;
+
+  /**
+   * Adapter of plain JSON values, resolved once instead of at each
+   * {@link #writeJsonValue(Object, OutputStream)}.
+   */
+  @NonNull
+  private final JsonAdapter<Object> jsonValueAdapter;
+
+  /**
+   * Buffer in which objects are written before being copied to the output. Okio already recycles
+   * the memory segments of buffers, so this only saves the buffered sink allocated at each write.
+   */
+  @NonNull
+  private final ThreadLocal<Buffer> writeBuffer = new ThreadLocal<Buffer>() {
+    @Override
+    protected Buffer initialValue() {
+      return new Buffer();
+    }
+  };
+
+  /**
+   * Create a serializer without registered types: adapters are looked up on each call.
+   * <p>
+   * This is only meant for types that are not serialized by the SDK, such as nested types read on
+   * their own in tests. The SDK serializer registers all its types, and a type missing from its
+   * registry is reported by {@link PreconditionsUtil#throwOrLog(Throwable)}.
+   */
   public JsonSerializer(@NonNull Moshi moshi) {
+    this(moshi, Collections.emptyList());
+  }
+
+  public JsonSerializer(@NonNull Moshi moshi, @NonNull Collection<Type> registeredTypes) {
     this.moshi = moshi;
+
+    Map<Type, JsonAdapter<?>> adapters = new HashMap<>();
+    for (Type type : registeredTypes) {
+      adapters.put(Types.canonicalize(type), moshi.adapter(type));
+    }
+    this.registeredAdapters = Collections.unmodifiableMap(adapters);
+    this.jsonValueAdapter = moshi.adapter(Object.class).serializeNulls();
+  }
+
+  /**
+   * Return the adapters resolved at creation, indexed by their type.
+   */
+  @NonNull
+  @VisibleForTesting
+  Map<Type, JsonAdapter<?>> getRegisteredAdapters() {
+    return registeredAdapters;
   }
 
   /**
@@ -53,26 +117,139 @@ public class JsonSerializer {
       @NonNull T object,
       @NonNull OutputStream outputStream
   ) throws IOException {
+    Buffer buffer = writeBuffer.get();
     try {
-      BufferedSink out = Okio.buffer(Okio.sink(outputStream));
-      JsonAdapter adapter;
-
-      // At runtime we will have specific implementation of list (e.g. ArrayList)
-      // Moshi does not support serialization of specific list subtypes out of the box
-      // If we receive such instance just create JsonAdapter for List
-      if (object instanceof List) {
-        adapter = moshi.adapter(List.class);
-      } else {
-        adapter = moshi.adapter((Class<T>) object.getClass());
-      }
+      adapterFor(object).toJson(buffer, object);
+      buffer.writeTo(outputStream);
+      outputStream.flush();
+    } catch (JsonDataException e) {
+      throw new IOException(e);
+    } finally {
+      // Release the segments of an aborted write, so the next one starts from an empty buffer
+      buffer.clear();
+    }
+  }
 
-      adapter.toJson(out, object);
-      out.flush();
+  /**
+   * Convert the given object into the plain values of its JSON representation: maps, lists,
+   * strings, numbers, booleans and <code>null</code>.
+   * <p>
+   * This is the same representation as {@link #write(Object, OutputStream)}, without the cost of
+   * producing the JSON text. It is suitable for encoding the object in another format.
+   *
+   * @param object object to convert
+   * @return plain values representing the object
+   * @throws IOException if any error occurs
+   */
+  @Nullable
+  public <T> Object toJsonValue(@NonNull T object) throws IOException {
+    try {
+      return adapterFor(object).toJsonValue(object);
     } catch (JsonDataException e) {
       throw new IOException(e);
     }
   }
 
+  /**
+   * Write the given plain JSON values in the given output.
+   * <p>
+   * Contrary to {@link #write(Object, OutputStream)}, <code>null</code> values in maps are kept, as
+   * they may be meaningful (e.g. in a JSON merge patch).
+   *
+   * @param jsonValue plain values to write, as returned by {@link #toJsonValue(Object)}
+   * @param outputStream output where to write in
+   * @throws IOException if any error occurs
+   */
+  public void writeJsonValue(
+      @Nullable Object jsonValue,
+      @NonNull OutputStream outputStream
+  ) throws IOException {
+    Buffer buffer = writeBuffer.get();
+    try {
+      jsonValueAdapter.toJson(buffer, jsonValue);
+      buffer.writeTo(outputStream);
+      outputStream.flush();
+    } catch (JsonDataException e) {
+      throw new IOException(e);
+    } finally {
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Convert the given plain JSON values into an object of the expected class.
+   * <p>
+   * This is the reverse of {@link #toJsonValue(Object)}, for objects decoded from another format.
+   *
+   * @param expectedClass type of the object to read
+   * @param jsonValue plain values representing the object
+   * @return object read from the values
+   * @throws IOException if the values do not represent an object of the expected class
+   */
+  @NonNull
+  public <T> T fromJsonValue(
+      @NonNull Class<T> expectedClass,
+      @Nullable Object jsonValue
+  ) throws IOException {
+    T object;
+    try {
+      object = adapterFor(expectedClass).fromJsonValue(jsonValue);
+    } catch (JsonDataException | IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+
+    if (object == null) {
+      throw new EOFException();
+    }
+
+    return object;
+  }
+
+  @NonNull
+  @SuppressWarnings("unchecked")
+  private <T> JsonAdapter<T> adapterFor(@NonNull T object) {
+    // At runtime we will have specific implementation of list (e.g. ArrayList)
+    // Moshi does not support serialization of specific list subtypes out of the box
+    // If we receive such instance just create JsonAdapter for List
+    if (object instanceof List) {
+      List<?> list = (List<?>) object;
+      if (!list.isEmpty() && list.get(0) != null) {
+        Type listType = Types.newParameterizedType(List.class, list.get(0).getClass());
+        JsonAdapter<T> adapter = (JsonAdapter<T>) registeredAdapters.get(listType);
+        if (adapter != null) {
+          return adapter;
+        }
+        onUnregisteredType(listType);
+      }
+      return (JsonAdapter<T>) moshi.adapter(List.class);
+    } else {
+      return adapterFor((Class<T>) object.getClass());
+    }
+  }
+
+  @NonNull
+  @SuppressWarnings("unchecked")
+  private <T> JsonAdapter<T> adapterFor(@NonNull Class<T> type) {
+    JsonAdapter<T> adapter = (JsonAdapter<T>) registeredAdapters.get(type);
+    if (adapter != null) {
+      return adapter;
+    }
+    onUnregisteredType(type);
+    return moshi.adapter(type);
+  }
+
+  /**
+   * Report a type missing from the registry, so it is added to it during development instead of
+   * silently resolving its adapter on each call. Release builds still fall back on Moshi.
+   */
+  private void onUnregisteredType(@NonNull Type type) {
+    if (!registeredAdapters.isEmpty()) {
+      PreconditionsUtil.throwOrLog(
+          new IllegalArgumentException("No JSON adapter registered for " + type)
+      );
+    }
+  }
+
   /**
    * Read an expected class object from the given input.
    * <p>
@@ -93,7 +270,7 @@ public class JsonSerializer {
   ) throws IOException {
     T object;
     try {
-      object = moshi.adapter(expectedClass).fromJson(Okio.buffer(Okio.source(inputStream)));
+      object = adapterFor(expectedClass).fromJson(Okio.buffer(Okio.source(inputStream)));
     } catch (JsonDataException e) {
       throw new IOException(e);
     }
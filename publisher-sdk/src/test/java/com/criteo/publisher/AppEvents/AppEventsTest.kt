@@ -0,0 +1,414 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.AppEvents
+
+import android.content.Context
+import com.criteo.publisher.Clock
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.mock.SpyBean
+import com.criteo.publisher.model.DeviceInfo
+import com.criteo.publisher.network.HttpResponseException
+import com.criteo.publisher.network.NetworkPolicy
+import com.criteo.publisher.network.PubSdkApi
+import com.criteo.publisher.privacy.UserPrivacyUtil
+import com.criteo.publisher.util.AdvertisingInfo
+import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.CompletableFuture.completedFuture
+import org.assertj.core.api.Assertions.assertThat
+import org.json.JSONObject
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.never
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyZeroInteractions
+import org.mockito.kotlin.whenever
+import java.io.IOException
+import java.util.concurrent.Executor
+import java.util.concurrent.ScheduledExecutorService
+
+class AppEventsTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var context: Context
+
+  @Mock
+  private lateinit var advertisingInfo: AdvertisingInfo
+
+  @Mock
+  private lateinit var clock: Clock
+
+  @Mock
+  private lateinit var api: PubSdkApi
+
+  @Mock
+  private lateinit var userPrivacyUtil: UserPrivacyUtil
+
+  @Mock
+  private lateinit var deviceInfo: DeviceInfo
+
+  @SpyBean
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  @Mock
+  private lateinit var scheduledExecutorService: ScheduledExecutorService
+
+  private val executor = Executor { it.run() }
+
+  private val scheduledTasks = mutableListOf<Runnable>()
+
+  private val sendingQueue = InMemoryAppEventSendingQueue()
+
+  private lateinit var networkPolicy: NetworkPolicy
+
+  private lateinit var appEvents: AppEvents
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { preconditionThrowsOnException() } doReturn false
+      on { appEventBatchSize } doReturn 20
+      on { appEventCoalescingWindowInMillis } doReturn 1000
+    }
+
+    whenever(context.packageName).doReturn("com.criteo.test")
+    whenever(deviceInfo.userAgent).doReturn(completedFuture("myUserAgent"))
+    whenever(userPrivacyUtil.isCCPAConsentGivenOrNotApplicable).doReturn(true)
+    givenApiReturning(JSONObject())
+
+    scheduledExecutorService.stub {
+      on { schedule(any<Runnable>(), any(), any()) } doAnswer {
+        scheduledTasks.add(it.getArgument(0))
+        null
+      }
+    }
+
+    networkPolicy = NetworkPolicy(buildConfigWrapper)
+
+    appEvents = AppEvents(
+        context,
+        advertisingInfo,
+        clock,
+        api,
+        userPrivacyUtil,
+        deviceInfo,
+        executor,
+        scheduledExecutorService,
+        sendingQueue,
+        buildConfigWrapper,
+        networkPolicy
+    )
+  }
+
+  @Test
+  fun sendLaunchEvent_GivenConsent_SendItAndEmptyQueue() {
+    appEvents.sendLaunchEvent()
+    runScheduledFlushes()
+
+    verifyEventSent("Launch")
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendLaunchEvent_GivenCoalescingWindow_FlushItDirectly() {
+    appEvents.sendLaunchEvent()
+
+    verifyEventSent("Launch")
+    verifyZeroInteractions(scheduledExecutorService)
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendLaunchEvent_GivenEventBeingSent_KeepItInQueueUntilSent() {
+    var queueWhileSending: List<PendingAppEvent>? = null
+    api.stub {
+      on { postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull()) } doAnswer {
+        queueWhileSending = sendingQueue.elements.toList()
+        JSONObject()
+      }
+    }
+    whenever(clock.currentTimeInMillis).doReturn(42)
+
+    appEvents.sendLaunchEvent()
+
+    verifyEventSent("Launch")
+    assertThat(queueWhileSending).containsExactly(PendingAppEvent("Launch", 42))
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendLaunchEvent_GivenCcpaOptOut_DoNotSendNorPersistIt() {
+    whenever(userPrivacyUtil.isCCPAConsentGivenOrNotApplicable).doReturn(false)
+
+    appEvents.sendLaunchEvent()
+
+    verify(api, never()).postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull())
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendActiveEvent_GivenSilenceWindow_DoNotSendNorPersistIt() {
+    whenever(clock.currentTimeInMillis).doReturn(0)
+    appEvents.setThrottle(10)
+
+    whenever(clock.currentTimeInMillis).doReturn(9_999)
+    appEvents.sendActiveEvent()
+
+    verify(api, never()).postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull())
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendActiveEvent_GivenSilenceRequestedDuringBatch_DropRemainingEvents() {
+    givenApiReturning(JSONObject().put("throttleSec", 60))
+    sendingQueue.elements.add(PendingAppEvent("Launch", 0))
+
+    appEvents.sendActiveEvent()
+    runScheduledFlushes()
+
+    verify(api, times(1)).postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull())
+    verifyEventSent("Launch")
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendActiveEvent_GivenOfflineDevice_KeepEventUntilConnectivityIsRestored() {
+    whenever(clock.currentTimeInMillis).doReturn(42)
+    networkPolicy.onConnectivityChanged(false, null)
+
+    appEvents.sendActiveEvent()
+    runScheduledFlushes()
+
+    verify(api, never()).postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull())
+    assertThat(sendingQueue.elements).containsExactly(PendingAppEvent("Active", 42))
+
+    networkPolicy.addListener(appEvents)
+    networkPolicy.onConnectivityChanged(true, null)
+
+    verifyEventSent("Active")
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendActiveEvent_GivenNetworkError_KeepEventForNextFlush() {
+    whenever(clock.currentTimeInMillis).doReturn(42)
+    whenever(api.postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull()))
+        .doThrow(IOException())
+
+    appEvents.sendActiveEvent()
+    runScheduledFlushes()
+
+    assertThat(sendingQueue.elements).containsExactly(PendingAppEvent("Active", 42))
+  }
+
+  @Test
+  fun sendActiveEvent_GivenPendingInactiveEventInQueue_CoalesceThem() {
+    sendingQueue.elements.add(PendingAppEvent("Launch", 0))
+    sendingQueue.elements.add(PendingAppEvent("Active", 0))
+    sendingQueue.elements.add(PendingAppEvent("Inactive", 100))
+    whenever(clock.currentTimeInMillis).doReturn(500)
+
+    appEvents.sendActiveEvent()
+    runScheduledFlushes()
+
+    verifyEventSent("Launch")
+    verifyEventSent("Active")
+    verify(api, times(2)).postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull())
+  }
+
+  @Test
+  fun sendEvents_GivenCoalescingWindow_FlushOnceAfterIt() {
+    whenever(clock.currentTimeInMillis).doReturn(0)
+    appEvents.sendInactiveEvent()
+
+    whenever(clock.currentTimeInMillis).doReturn(500)
+    appEvents.sendActiveEvent()
+
+    verify(scheduledExecutorService, times(1)).schedule(any<Runnable>(), eq(1000L), any())
+    verify(api, never()).postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull())
+
+    whenever(clock.currentTimeInMillis).doReturn(1000)
+    runScheduledFlushes()
+
+    verify(api, never()).postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull())
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun sendInactiveEvent_GivenFlushWithinItsWindow_HoldItBackUntilEndOfWindow() {
+    whenever(clock.currentTimeInMillis).doReturn(0)
+    appEvents.sendLaunchEvent()
+
+    whenever(clock.currentTimeInMillis).doReturn(900)
+    appEvents.sendInactiveEvent()
+
+    whenever(clock.currentTimeInMillis).doReturn(1000)
+    runScheduledFlush()
+
+    verifyEventSent("Launch")
+    verify(api, never()).postAppEvent(any(), any(), anyOrNull(), eq("Inactive"), any(), any(), anyOrNull())
+    assertThat(sendingQueue.elements).containsExactly(PendingAppEvent("Inactive", 900))
+
+    whenever(clock.currentTimeInMillis).doReturn(2000)
+    runScheduledFlushes()
+
+    verifyEventSent("Inactive")
+    assertThat(sendingQueue.elements).isEmpty()
+  }
+
+  @Test
+  fun flush_GivenServerError_KeepEventsInOrderBeforeNewerOnes() {
+    whenever(buildConfigWrapper.appEventBatchSize).doReturn(1)
+    whenever(api.postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull()))
+        .doThrow(HttpResponseException(503))
+    sendingQueue.elements.add(PendingAppEvent("Launch", 0))
+
+    whenever(clock.currentTimeInMillis).doReturn(5000)
+    appEvents.sendActiveEvent()
+    runScheduledFlushes()
+
+    verifyEventSent("Launch")
+    assertThat(sendingQueue.elements).containsExactly(
+        PendingAppEvent("Launch", 0),
+        PendingAppEvent("Active", 5000)
+    )
+  }
+
+  @Test
+  fun flush_GivenClientError_DropFailingEventOnly() {
+    whenever(api.postAppEvent(any(), any(), anyOrNull(), eq("Launch"), any(), any(), anyOrNull()))
+        .doThrow(HttpResponseException(400))
+    sendingQueue.elements.add(PendingAppEvent("Launch", 0))
+    sendingQueue.elements.add(PendingAppEvent("Active", 10))
+
+    whenever(clock.currentTimeInMillis).doReturn(5000)
+    appEvents.sendLaunchEvent()
+
+    assertThat(sendingQueue.elements).containsExactly(
+        PendingAppEvent("Active", 10),
+        PendingAppEvent("Launch", 5000)
+    )
+  }
+
+  @Test
+  fun coalesce_GivenFlapsWithinWindow_DropThem() {
+    val events = listOf(
+        PendingAppEvent("Launch", 0),
+        PendingAppEvent("Active", 10),
+        PendingAppEvent("Inactive", 20),
+        PendingAppEvent("Active", 30),
+        PendingAppEvent("Inactive", 40)
+    )
+
+    val coalesced = AppEvents.coalesce(events, 100)
+
+    assertThat(coalesced).containsExactly(
+        PendingAppEvent("Launch", 0),
+        PendingAppEvent("Active", 10),
+        PendingAppEvent("Inactive", 40)
+    )
+  }
+
+  @Test
+  fun coalesce_GivenTransitionsOutsideWindow_KeepThem() {
+    val events = listOf(
+        PendingAppEvent("Active", 0),
+        PendingAppEvent("Inactive", 1000),
+        PendingAppEvent("Active", 2000)
+    )
+
+    val coalesced = AppEvents.coalesce(events, 100)
+
+    assertThat(coalesced).isEqualTo(events)
+  }
+
+  @Test
+  fun coalesce_GivenRepeatedStates_KeepFirstOne() {
+    val events = listOf(
+        PendingAppEvent("Active", 0),
+        PendingAppEvent("Active", 1000),
+        PendingAppEvent("Launch", 2000),
+        PendingAppEvent("Launch", 3000)
+    )
+
+    val coalesced = AppEvents.coalesce(events, 100)
+
+    assertThat(coalesced).containsExactly(
+        PendingAppEvent("Active", 0),
+        PendingAppEvent("Launch", 2000),
+        PendingAppEvent("Launch", 3000)
+    )
+  }
+
+  private fun givenApiReturning(json: JSONObject) {
+    api.stub {
+      on { postAppEvent(any(), any(), anyOrNull(), any(), any(), any(), anyOrNull()) } doReturn json
+    }
+  }
+
+  private fun runScheduledFlush() {
+    scheduledTasks.removeAt(0).run()
+  }
+
+  private fun runScheduledFlushes() {
+    while (scheduledTasks.isNotEmpty()) {
+      runScheduledFlush()
+    }
+  }
+
+  private fun verifyEventSent(eventType: String) {
+    verify(api).postAppEvent(any(), any(), anyOrNull(), eq(eventType), any(), eq("myUserAgent"), anyOrNull())
+  }
+
+  private class InMemoryAppEventSendingQueue : AppEventSendingQueue {
+    val elements = mutableListOf<PendingAppEvent>()
+
+    override fun offer(element: PendingAppEvent) = elements.add(element)
+
+    override fun poll(max: Int): List<PendingAppEvent> {
+      val polled = elements.take(max)
+      elements.subList(0, polled.size).clear()
+      return polled
+    }
+
+    override fun peek(max: Int): List<PendingAppEvent> = elements.take(max)
+
+    override fun remove(count: Int) {
+      elements.subList(0, minOf(count, elements.size)).clear()
+    }
+
+    override val totalSize: Int
+      get() = elements.size
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher
+
+import com.criteo.publisher.model.CdbResponseSlot
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyNoInteractions
+import org.mockito.kotlin.verifyNoMoreInteractions
+
+class CancellableBidListenerTest {
+
+  private val delegate = mock<BidListener>()
+
+  private val callback = mock<Runnable>()
+
+  private val cancellableBidListener = CancellableBidListener(delegate)
+
+  @Test
+  fun onBidResponse_GivenNotCancelled_DelegateOnlyOnce() {
+    val slot = mock<CdbResponseSlot>()
+
+    cancellableBidListener.onBidResponse(slot)
+    cancellableBidListener.onNoBid()
+
+    verify(delegate).onBidResponse(slot)
+    verifyNoMoreInteractions(delegate)
+  }
+
+  @Test
+  fun onNoBid_GivenNotCancelled_DelegateOnlyOnce() {
+    cancellableBidListener.onNoBid()
+    cancellableBidListener.onNoBid()
+
+    verify(delegate).onNoBid()
+    verifyNoMoreInteractions(delegate)
+  }
+
+  @Test
+  fun onBidResponse_GivenCancelled_DoNotDelegate() {
+    cancellableBidListener.cancel()
+
+    cancellableBidListener.onBidResponse(mock())
+    cancellableBidListener.onNoBid()
+
+    verifyNoInteractions(delegate)
+  }
+
+  @Test
+  fun isCancelled_GivenCancelled_ReturnTrue() {
+    assertThat(cancellableBidListener.isCancelled).isFalse()
+
+    cancellableBidListener.cancel()
+
+    assertThat(cancellableBidListener.isCancelled).isTrue()
+  }
+
+  @Test
+  fun isCancelled_GivenNotifiedBeforeCancel_ReturnFalse() {
+    cancellableBidListener.onNoBid()
+
+    cancellableBidListener.cancel()
+
+    assertThat(cancellableBidListener.isCancelled).isFalse()
+  }
+
+  @Test
+  fun cancel_GivenRegisteredCallback_RunItOnlyOnce() {
+    cancellableBidListener.invokeOnCancellation(callback)
+
+    cancellableBidListener.cancel()
+    cancellableBidListener.cancel()
+
+    verify(callback).run()
+  }
+
+  @Test
+  fun invokeOnCancellation_GivenAlreadyCancelled_RunCallbackImmediately() {
+    cancellableBidListener.cancel()
+
+    cancellableBidListener.invokeOnCancellation(callback)
+
+    verify(callback).run()
+  }
+
+  @Test
+  fun cancel_GivenAlreadyNotified_DoNotRunCallback() {
+    cancellableBidListener.invokeOnCancellation(callback)
+    cancellableBidListener.onNoBid()
+
+    cancellableBidListener.cancel()
+    cancellableBidListener.invokeOnCancellation(callback)
+
+    verify(callback, never()).run()
+  }
+}
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -285,6 +286,22 @@ public class CriteoBannerAdWebViewTest {
     verify(controller).displayAd("fake_display_data");
   }
 
+  @Test
+  public void destroy_GivenLoadedAd_CancelPendingBidsOfController() throws Exception {
+    bannerView.loadAd(contextData);
+
+    bannerView.destroy();
+
+    verify(controller).cancelPendingBids();
+  }
+
+  @Test
+  public void destroy_GivenNoLoadedAd_DoNotCreateController() throws Exception {
+    bannerView.destroy();
+
+    verify(criteo, never()).createBannerController(any());
+  }
+
   @Test
   public void provideMraidController_ShouldDelegateToDependencyProviderWithInlineType() {
     doReturn(mock(MraidController.class)).when(DependencyProvider.getInstance())
@@ -33,11 +33,16 @@ import android.app.Application;
 import com.criteo.publisher.activity.TopActivityFinder;
 import com.criteo.publisher.bid.BidLifecycleListener;
 import com.criteo.publisher.concurrent.DirectMockRunOnUiThreadExecutor;
+import com.criteo.publisher.context.ConnectivityMonitor;
 import com.criteo.publisher.context.ContextData;
 import com.criteo.publisher.headerbidding.HeaderBidding;
 import com.criteo.publisher.model.AdUnit;
+import com.criteo.publisher.model.CdbRequestTemplateCache;
 import com.criteo.publisher.model.Config;
 import com.criteo.publisher.model.DeviceInfo;
+import com.criteo.publisher.network.BidRequestSender;
+import com.criteo.publisher.network.NetworkPolicy;
+import com.criteo.publisher.network.PixelDispatcher;
 import com.criteo.publisher.privacy.UserPrivacyUtil;
 import com.criteo.publisher.util.AdvertisingInfo;
 import com.criteo.publisher.util.AppLifecycleUtil;
@@ -275,6 +280,60 @@ public class CriteoInternalUnitTest {
     verify(deviceInfo).initialize();
   }
 
+  @Test
+  public void whenCreatingNewCriteo_GivenBidRequestSender_WarmUpCdbConnection() throws Exception {
+    BidRequestSender bidRequestSender = mock(BidRequestSender.class);
+    doReturn(bidRequestSender).when(dependencyProvider).provideBidRequestSender();
+
+    createCriteo();
+
+    verify(bidRequestSender).sendConnectionWarmUpRequest();
+  }
+
+  @Test
+  public void whenCreatingNewCriteo_GivenConnectivityMonitor_RegisterIt() throws Exception {
+    ConnectivityMonitor connectivityMonitor = mock(ConnectivityMonitor.class);
+    doReturn(connectivityMonitor).when(dependencyProvider).provideConnectivityMonitor();
+
+    createCriteo();
+
+    verify(connectivityMonitor).register();
+  }
+
+  @Test
+  public void whenCreatingNewCriteo_GivenCdbRequestTemplateCache_RegisterIt() throws Exception {
+    CdbRequestTemplateCache templateCache = mock(CdbRequestTemplateCache.class);
+    doReturn(templateCache).when(dependencyProvider).provideCdbRequestTemplateCache();
+
+    createCriteo();
+
+    verify(templateCache).register();
+  }
+
+  @Test
+  public void whenCreatingNewCriteo_GivenNetworkPolicy_RegisterBidManagerAsListener() throws Exception {
+    NetworkPolicy networkPolicy = mock(NetworkPolicy.class);
+    BidManager bidManager = givenMockedBidManager();
+    doReturn(networkPolicy).when(dependencyProvider).provideNetworkPolicy();
+
+    createCriteo();
+
+    verify(networkPolicy).addListener(bidManager);
+  }
+
+  @Test
+  public void whenCreatingNewCriteo_GivenPixelDispatcher_ResumePendingPixelsAndListenToConnectivity() throws Exception {
+    PixelDispatcher pixelDispatcher = mock(PixelDispatcher.class);
+    NetworkPolicy networkPolicy = mock(NetworkPolicy.class);
+    doReturn(pixelDispatcher).when(dependencyProvider).providePixelDispatcher();
+    doReturn(networkPolicy).when(dependencyProvider).provideNetworkPolicy();
+
+    createCriteo();
+
+    verify(pixelDispatcher).resumePendingPixels();
+    verify(networkPolicy).addListener(pixelDispatcher);
+  }
+
   @Test
   public void whenCreatingNewCriteo_GivenAdvertisingInfo_PrefetchIt() throws Exception {
     AdvertisingInfo advertisingInfo = mock(AdvertisingInfo.class);
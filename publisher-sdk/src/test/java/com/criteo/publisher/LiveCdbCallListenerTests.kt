@@ -21,6 +21,7 @@ import com.criteo.publisher.model.CacheAdUnit
 import com.criteo.publisher.model.CdbRequest
 import com.criteo.publisher.model.CdbResponse
 import com.criteo.publisher.model.CdbResponseSlot
+import com.criteo.publisher.network.DeadlineExceededException
 import com.criteo.publisher.privacy.ConsentData
 import org.junit.Rule
 import org.junit.Test
@@ -28,9 +29,11 @@ import org.mockito.InjectMocks
 import org.mockito.Mock
 import org.mockito.junit.MockitoJUnit
 import org.mockito.kotlin.any
+import org.mockito.kotlin.mock
 import org.mockito.kotlin.never
 import org.mockito.kotlin.times
 import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyZeroInteractions
 import org.mockito.kotlin.whenever
 
 class LiveCdbCallListenerTests {
@@ -184,6 +187,16 @@ class LiveCdbCallListenerTests {
     verify(bidLifecycleListener).onCdbCallFailed(cdbRequest, exception)
   }
 
+  @Test
+  fun onCdbCallAbandoned_givenTimeBudgetNotExceeded_ThenConsumeCacheOnce() {
+    liveCdbCallListener.onCdbCallAbandoned(DeadlineExceededException())
+    liveCdbCallListener.onTimeBudgetExceeded()
+
+    verify(bidManager).consumeCachedBid(cacheAdUnit, bidListener)
+    verifyZeroInteractions(bidListener)
+    verifyZeroInteractions(bidLifecycleListener)
+  }
+
   @Test
   fun onBidResponse_givenConsentGiven_ThenUpdateConsentDataAccordingly() {
     whenever(cdbResponse.consentGiven).thenReturn(true)
@@ -210,4 +223,64 @@ class LiveCdbCallListenerTests {
 
     verify(consentData, never()).setConsentGiven(any())
   }
+
+  @Test
+  fun invokeOnCancellation_GivenCancellableBidListenerCancelled_RunCallback() {
+    val cancellableBidListener = CancellableBidListener(bidListener)
+    val callback = mock<Runnable>()
+    val liveCdbCallListener = LiveCdbCallListener(
+        cancellableBidListener,
+        bidLifecycleListener,
+        bidManager,
+        cacheAdUnit,
+        consentData
+    )
+
+    liveCdbCallListener.invokeOnCancellation(callback)
+    cancellableBidListener.cancel()
+
+    verify(callback).run()
+  }
+
+  @Test
+  fun invokeOnCancellation_GivenCancellableBidListenerAlreadyServed_DoNotRunCallback() {
+    val cancellableBidListener = CancellableBidListener(bidListener)
+    val callback = mock<Runnable>()
+    val liveCdbCallListener = LiveCdbCallListener(
+        cancellableBidListener,
+        bidLifecycleListener,
+        bidManager,
+        cacheAdUnit,
+        consentData
+    )
+    whenever(cdbResponse.slots).thenReturn(listOf())
+
+    liveCdbCallListener.onCdbResponse(cdbRequest, cdbResponse)
+    liveCdbCallListener.invokeOnCancellation(callback)
+    cancellableBidListener.cancel()
+
+    verify(bidListener).onNoBid()
+    verify(callback, never()).run()
+  }
+
+  @Test
+  fun onBidResponse_GivenCancellableBidListenerCancelled_ThenCache_AndDoNotConsumeBid() {
+    val cancellableBidListener = CancellableBidListener(bidListener)
+    val liveCdbCallListener = LiveCdbCallListener(
+        cancellableBidListener,
+        bidLifecycleListener,
+        bidManager,
+        cacheAdUnit,
+        consentData
+    )
+    whenever(freshCdbResponseSlot.isValid()).thenReturn(true)
+    whenever(cdbResponse.slots).thenReturn(listOf(freshCdbResponseSlot))
+
+    cancellableBidListener.cancel()
+    liveCdbCallListener.onCdbResponse(cdbRequest, cdbResponse)
+
+    verify(bidManager).setCacheAdUnits(listOf(freshCdbResponseSlot))
+    verify(bidLifecycleListener, never()).onBidConsumed(any(), any())
+    verifyZeroInteractions(bidListener)
+  }
 }
@@ -50,6 +50,7 @@ import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.eq
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
 import org.mockito.kotlin.spy
 import org.mockito.kotlin.stub
 import org.mockito.kotlin.verify
@@ -215,6 +216,19 @@ class CriteoNativeLoaderTest(private val liveBiddingEnabled: Boolean) {
     runOnUiThreadExecutor.verifyExpectations()
   }
 
+  @Test
+  fun loadAd_GivenNativeBidWithMalformedUrls_NotifyListenerOnUiThreadForFailure() {
+    expectListenerToBeCalledOnUiThread()
+    givenNativeBidAvailable(isMaterializable = false)
+
+    nativeLoader.loadAdWithContext()
+
+    verify(listener).onAdFailedToReceive(CriteoErrorCode.ERROR_CODE_NO_FILL)
+    verifyNoMoreInteractions(listener)
+    verify(nativeAdMapper, never()).map(any(), any(), any())
+    runOnUiThreadExecutor.verifyExpectations()
+  }
+
   @Test
   fun loadAd_GivenNotANativeBid_NotifyListenerOnUiThreadForFailure() {
     expectListenerToBeCalledOnUiThread()
@@ -252,8 +266,10 @@ class CriteoNativeLoaderTest(private val liveBiddingEnabled: Boolean) {
     }.whenever(bidManager).getBidForAdUnit(eq(adUnit), eq(contextData), any())
   }
 
-  private fun givenNativeBidAvailable(): CriteoNativeAd {
-    val nativeAssets = mock<NativeAssets>()
+  private fun givenNativeBidAvailable(isMaterializable: Boolean = true): CriteoNativeAd {
+    val nativeAssets = mock<NativeAssets> {
+      on { materialize() } doReturn isMaterializable
+    }
     val nativeAd = mock<CriteoNativeAd>()
     val slot = mock<CdbResponseSlot> {
       on { this.nativeAssets } doReturn nativeAssets
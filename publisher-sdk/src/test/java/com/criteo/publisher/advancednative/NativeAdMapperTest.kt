@@ -27,6 +27,7 @@ import com.criteo.publisher.mock.MockBean
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.model.nativeads.NativeAssets
 import com.criteo.publisher.model.nativeads.NativeProduct
+import com.criteo.publisher.network.NetworkStats.Endpoint
 import com.criteo.publisher.network.PubSdkApi
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.Rule
@@ -153,8 +154,8 @@ class NativeAdMapperTest {
 
     // then
     verify(listener, times(1)).onAdImpression()
-    verify(api, times(1)).executeRawGet(pixel1)
-    verify(api, times(1)).executeRawGet(pixel2)
+    verify(api, times(1)).executeRawGet(pixel1, null, Endpoint.PIXEL)
+    verify(api, times(1)).executeRawGet(pixel2, null, Endpoint.PIXEL)
   }
 
   @Test
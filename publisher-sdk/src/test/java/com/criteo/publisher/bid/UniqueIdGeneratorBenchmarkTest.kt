@@ -0,0 +1,83 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.bid
+
+import com.criteo.publisher.EpochClock
+import com.criteo.publisher.benchmark.Benchmark
+import com.criteo.publisher.benchmark.measureTimePerOperation
+import com.criteo.publisher.benchmark.reportComparison
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import java.util.UUID
+
+/**
+ * Compare the generation time of unique IDs between the previous implementation, based on [UUID.randomUUID] and
+ * [String.format], and the current one, on a single thread and under contention. The output format is asserted,
+ * timings are only reported by the [Benchmark] tests.
+ */
+class UniqueIdGeneratorBenchmarkTest {
+
+  private val clock = EpochClock()
+  private val generator = UniqueIdGenerator(clock)
+
+  @Test
+  fun generateId_SameFormatAsLegacyImplementation() {
+    assertThat(generator.generateId()).hasSameSizeAs(generateLegacyId()).matches("[0-9a-f]{32}")
+    assertThat(generator.generateId().substring(0, 8)).isEqualTo(generateLegacyId().substring(0, 8))
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun generateId_SingleThread() {
+    report(
+        "single thread (ns/id)",
+        measureNanos(threads = 1) { generateLegacyId() },
+        measureNanos(threads = 1) { generator.generateId() }
+    )
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun generateId_UnderContention() {
+    report(
+        "$CONTENDED_THREADS threads (ns/id)",
+        measureNanos(threads = CONTENDED_THREADS) { generateLegacyId() },
+        measureNanos(threads = CONTENDED_THREADS) { generator.generateId() }
+    )
+  }
+
+  private fun generateLegacyId(): String {
+    val uuid = UUID.randomUUID()
+    val timeInSecond = clock.currentTimeInMillis / 1000
+    val msb = (timeInSecond shl 32) or (uuid.mostSignificantBits and 0xFFFFFFFFL)
+    return String.format("%016x%016x", msb, uuid.leastSignificantBits)
+  }
+
+  private fun measureNanos(threads: Int, operation: () -> Unit) =
+      measureTimePerOperation(WARM_UP_ITERATIONS, MEASURED_ITERATIONS, threads = threads, operation = operation)
+
+  private fun report(metric: String, legacy: Double, current: Double) {
+    reportComparison("Unique ID", metric, "legacy" to legacy, "current" to current)
+  }
+
+  private companion object {
+    const val CONTENDED_THREADS = 8
+    const val WARM_UP_ITERATIONS = 10_000
+    const val MEASURED_ITERATIONS = 50_000
+  }
+}
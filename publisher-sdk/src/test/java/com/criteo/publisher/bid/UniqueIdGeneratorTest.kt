@@ -16,11 +16,21 @@
 
 package com.criteo.publisher.bid
 
+import com.criteo.publisher.Clock
 import com.criteo.publisher.EpochClock
+import com.criteo.publisher.bid.UniqueIdGenerator.RandomBuffer
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import java.security.SecureRandom
 import java.util.UUID
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 class UniqueIdGeneratorTest {
 
@@ -53,4 +63,50 @@ class UniqueIdGeneratorTest {
       assertThat(ids).hasSize(expectedSize)
     }
   }
+
+  @Test
+  fun generateId_GivenClock_ReturnTimestampInSecondsThenRandomDigits() {
+    val clock = mock<Clock> {
+      on { currentTimeInMillis } doReturn 1234567890_123L
+    }
+
+    val generator = UniqueIdGenerator(clock)
+    val id = generator.generateId()
+
+    assertThat(id).hasSize(32).matches("[0-9a-f]{32}").startsWith("499602d2")
+  }
+
+  @Test
+  fun generateId_GivenManyThreads_AllAreUnique() {
+    val generator = UniqueIdGenerator(EpochClock())
+    val executor = Executors.newFixedThreadPool(8)
+
+    val futures = (0 until 8).map {
+      executor.submit<List<String>> { (0 until 10_000).map { generator.generateId() } }
+    }
+    val ids = futures.flatMap { it.get() }
+    executor.shutdown()
+    executor.awaitTermination(1, TimeUnit.SECONDS)
+
+    assertThat(ids.toSet()).hasSize(80_000)
+  }
+
+  @Test
+  fun randomBuffer_GivenBytesFromGenerator_ReadThemInOrderAndRefillWhenExhausted() {
+    val secureRandom = mock<SecureRandom> {
+      on { nextBytes(any()) } doAnswer {
+        val bytes = it.getArgument<ByteArray>(0)
+        bytes.indices.forEach { i -> bytes[i] = (i + 1).toByte() }
+      }
+    }
+
+    val buffer = RandomBuffer(secureRandom, 12)
+
+    assertThat(buffer.nextInt()).isEqualTo(0x01020304)
+    assertThat(buffer.nextLong()).isEqualTo(0x05060708090a0b0cL)
+    verify(secureRandom, times(1)).nextBytes(any())
+
+    assertThat(buffer.nextLong()).isEqualTo(0x0102030405060708L)
+    verify(secureRandom, times(2)).nextBytes(any())
+  }
 }
@@ -0,0 +1,110 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.After
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.RejectedExecutionHandler
+import java.util.concurrent.TimeUnit
+
+class InstrumentedThreadPoolExecutorTest {
+
+  private val rejectedExecutionHandler = mock<RejectedExecutionHandler>()
+
+  private val executor = InstrumentedThreadPoolExecutor(
+      "test",
+      1,
+      1,
+      1, TimeUnit.SECONDS,
+      LinkedBlockingQueue(1),
+      Executors.defaultThreadFactory(),
+      rejectedExecutionHandler
+  )
+
+  @After
+  fun tearDown() {
+    executor.shutdownNow()
+  }
+
+  @Test
+  fun getStats_GivenRunningQueuedAndRejectedTasks_CountThem() {
+    val isRunning = CountDownLatch(1)
+    val release = CountDownLatch(1)
+    val task = mock<Runnable>()
+
+    executor.execute {
+      isRunning.countDown()
+      release.await()
+    }
+    assertThat(isRunning.await(1, TimeUnit.SECONDS)).isTrue()
+    executor.execute(task)
+    executor.execute(task)
+
+    val stats = executor.stats
+    assertThat(stats.name).isEqualTo("test")
+    assertThat(stats.activeCount).isEqualTo(1)
+    assertThat(stats.queuedCount).isEqualTo(1)
+    assertThat(stats.rejectedCount).isEqualTo(1L)
+    verify(rejectedExecutionHandler).rejectedExecution(task, executor)
+
+    release.countDown()
+    executor.shutdown()
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue()
+
+    assertThat(executor.stats.completedCount).isEqualTo(2L)
+    assertThat(executor.stats.queuedCount).isZero()
+  }
+
+  @Test
+  fun getStats_GivenTaskWaitingForThread_RecordWaitTimeInHistogram() {
+    val release = CountDownLatch(1)
+
+    executor.execute { release.await() }
+    executor.execute { }
+    Thread.sleep(60)
+    release.countDown()
+    executor.shutdown()
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue()
+
+    val stats = executor.stats
+    assertThat(stats.waitTimeUpperBoundsInMillis).isEqualTo(InstrumentedThreadPoolExecutor.WAIT_TIME_UPPER_BOUNDS_IN_MILLIS)
+    assertThat(stats.waitTimeCounts).hasSize(stats.waitTimeUpperBoundsInMillis.size + 1)
+    assertThat(stats.waitTimeCounts.sum()).isEqualTo(2L)
+
+    // The second task waited at least 60ms, so it is above the 50ms bound
+    val firstBucketAbove50Ms = stats.waitTimeUpperBoundsInMillis.indexOf(50L) + 1
+    assertThat(stats.waitTimeCounts.drop(firstBucketAbove50Ms).sum()).isEqualTo(1L)
+  }
+
+  @Test
+  fun execute_GivenTask_RunItOnPool() {
+    val threadName = LinkedBlockingQueue<String>()
+
+    executor.execute { threadName.add(Thread.currentThread().name) }
+
+    assertThat(threadName.poll(1, TimeUnit.SECONDS)).isNotEqualTo(Thread.currentThread().name)
+    verify(rejectedExecutionHandler, never()).rejectedExecution(any(), any())
+  }
+}
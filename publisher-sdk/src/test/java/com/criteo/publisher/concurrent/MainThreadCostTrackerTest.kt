@@ -0,0 +1,104 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+import com.criteo.publisher.MainThreadCostListener
+import com.criteo.publisher.concurrent.AllocationMeter.Companion.UNKNOWN
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.check
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.spy
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyNoInteractions
+
+class MainThreadCostTrackerTest {
+
+  private val listener = mock<MainThreadCostListener>()
+
+  private var allocatedBytes = 0L
+
+  private val allocationMeter = AllocationMeter { allocatedBytes }
+
+  @Test
+  fun start_GivenNoListener_DoNotMeasure() {
+    val tracker = givenTracker(isMainThread = true)
+
+    tracker.start("api").stop()
+
+    verify(tracker, never()).isMainThread()
+    verifyNoInteractions(listener)
+  }
+
+  @Test
+  fun start_GivenListenerAndCallFromOtherThread_DoNotMeasure() {
+    val tracker = givenTracker(isMainThread = false)
+    tracker.listener = listener
+
+    tracker.start("api").stop()
+
+    verifyNoInteractions(listener)
+  }
+
+  @Test
+  fun stop_GivenListenerAndCallFromMainThread_NotifyCostOfTheCall() {
+    val tracker = givenTracker(isMainThread = true)
+    tracker.listener = listener
+
+    allocatedBytes = 1000
+    val measurement = tracker.start("api")
+    Thread.sleep(10)
+    allocatedBytes = 1042
+    measurement.stop()
+
+    verify(listener).onMainThreadCost(eq("api"), check {
+      assertThat(it).isGreaterThanOrEqualTo(10_000_000L)
+    }, eq(42))
+  }
+
+  @Test
+  fun stop_GivenUnknownAllocations_NotifyUnknownAllocations() {
+    val tracker = givenTracker(isMainThread = true)
+    tracker.listener = listener
+
+    allocatedBytes = UNKNOWN
+    tracker.start("api").stop()
+
+    verify(listener).onMainThreadCost(eq("api"), any(), eq(UNKNOWN))
+  }
+
+  @Test
+  fun start_GivenListenerRemoved_DoNotMeasure() {
+    val tracker = givenTracker(isMainThread = true)
+    tracker.listener = listener
+    tracker.listener = null
+
+    tracker.start("api").stop()
+
+    verify(listener, never()).onMainThreadCost(any(), any(), any())
+  }
+
+  private fun givenTracker(isMainThread: Boolean): MainThreadCostTracker {
+    return spy(MainThreadCostTracker(allocationMeter)) {
+      on { isMainThread() } doReturn isMainThread
+    }
+  }
+}
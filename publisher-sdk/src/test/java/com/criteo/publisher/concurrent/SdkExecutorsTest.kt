@@ -0,0 +1,56 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+import android.util.Log
+import com.criteo.publisher.logging.Logger
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.mock.SpyBean
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.kotlin.check
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.verify
+import java.util.concurrent.Executor
+
+class SdkExecutorsTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule().withSpiedLogger()
+
+  @SpyBean
+  private lateinit var logger: Logger
+
+  @Test
+  fun onApplicationStopped_GivenInstrumentedAndPlainExecutors_LogStatsOfInstrumentedOnesInDebug() {
+    val stats = InstrumentedThreadPoolExecutor.Stats("criteo-network", 1, 2, 3, 4, listOf(10L), listOf(5L, 6L))
+    val networkExecutor = mock<InstrumentedThreadPoolExecutor> {
+      on { it.stats } doReturn stats
+    }
+    val sdkExecutors = SdkExecutors(networkExecutor, mock<Executor>(), mock<Executor>())
+
+    sdkExecutors.onApplicationStopped()
+
+    verify(logger).log(check {
+      assertThat(it.level).isEqualTo(Log.DEBUG)
+      assertThat(it.message).contains("criteo-network")
+    })
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.concurrent
+
+import android.util.Log
+import com.criteo.publisher.concurrent.ThreadPoolExecutorFactory.Pool
+import com.criteo.publisher.logging.Logger
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.mock.SpyBean
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.kotlin.argThat
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+class ThreadPoolExecutorFactoryTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule().withSpiedLogger()
+
+  @SpyBean
+  private lateinit var logger: Logger
+
+  @Test
+  fun create_GivenEachPool_RunTasksOnNamedThreadsWithPoolPriority() {
+    val expectedPriorities = mapOf(
+        Pool.NETWORK to Thread.NORM_PRIORITY,
+        Pool.DISK to Thread.MIN_PRIORITY,
+        Pool.CPU to Thread.NORM_PRIORITY
+    )
+
+    Pool.values().forEach { pool ->
+      val executor = ThreadPoolExecutorFactory(pool).create()
+      val threads = LinkedBlockingQueue<Thread>()
+
+      executor.execute { threads.add(Thread.currentThread()) }
+
+      val thread = threads.poll(1, TimeUnit.SECONDS)!!
+      assertThat(executor.name).isEqualTo("criteo-${pool.name.lowercase()}")
+      assertThat(thread.name).isEqualTo("criteo-${pool.name.lowercase()}-1")
+      assertThat(thread.priority).isEqualTo(expectedPriorities[pool])
+      executor.shutdown()
+    }
+  }
+
+  @Test
+  fun create_GivenSaturatedNetworkPool_RunTasksOnBackupAndCountThem() {
+    val executor = ThreadPoolExecutorFactory(Pool.NETWORK).create()
+    val release = CountDownLatch(1)
+    val allStarted = CountDownLatch(21)
+
+    repeat(21) {
+      executor.execute {
+        allStarted.countDown()
+        release.await()
+      }
+    }
+
+    assertThat(allStarted.await(1, TimeUnit.SECONDS)).isTrue()
+    assertThat(executor.stats.activeCount).isEqualTo(20)
+    assertThat(executor.stats.rejectedCount).isEqualTo(1L)
+
+    release.countDown()
+    executor.shutdown()
+  }
+
+  @Test
+  fun create_GivenSaturatedDiskPool_DropTasksAndCountAndLogThem() {
+    val executor = ThreadPoolExecutorFactory(Pool.DISK).create()
+    val release = CountDownLatch(1)
+    val isRunning = CountDownLatch(1)
+
+    executor.execute {
+      isRunning.countDown()
+      release.await()
+    }
+    assertThat(isRunning.await(1, TimeUnit.SECONDS)).isTrue()
+    repeat(257) { executor.execute { } }
+
+    assertThat(executor.stats.queuedCount).isEqualTo(256)
+    assertThat(executor.stats.rejectedCount).isEqualTo(1L)
+
+    release.countDown()
+    executor.shutdown()
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue()
+    assertThat(executor.stats.completedCount).isEqualTo(257L)
+    verify(logger).log(argThat {
+      level == Log.WARN && logId == "onTasksDiscarded" && message!!.contains("criteo-disk")
+    })
+  }
+
+  @Test
+  fun create_GivenDiskPoolDiscardingManyTasks_LogOnlyAtPowersOfTwo() {
+    val executor = ThreadPoolExecutorFactory(Pool.DISK).create()
+    val release = CountDownLatch(1)
+    val isRunning = CountDownLatch(1)
+
+    executor.execute {
+      isRunning.countDown()
+      release.await()
+    }
+    assertThat(isRunning.await(1, TimeUnit.SECONDS)).isTrue()
+    repeat(256 + 10) { executor.execute { } }
+
+    assertThat(executor.stats.rejectedCount).isEqualTo(10L)
+    verify(logger, times(4)).log(argThat { logId == "onTasksDiscarded" })
+
+    release.countDown()
+    executor.shutdown()
+  }
+}
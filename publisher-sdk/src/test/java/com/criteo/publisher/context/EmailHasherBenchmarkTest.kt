@@ -0,0 +1,86 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.context
+
+import com.criteo.publisher.benchmark.Benchmark
+import com.criteo.publisher.benchmark.measureTimePerOperation
+import com.criteo.publisher.benchmark.reportComparison
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import java.security.MessageDigest
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compare the hashing time of emails between the previous implementation, looking up a new digest and formatting each
+ * byte with [String.format], and the current one. Hashes are asserted identical, timings are only reported by the
+ * [Benchmark] tests.
+ */
+class EmailHasherBenchmarkTest {
+
+  private val emails = listOf(
+      "john.doe@gmail.com",
+      " John.Doe@gmail.com ",
+      "Dörte@Sörensen.example.com",
+      "коля@пример.рф",
+      "χρήστης@παράδειγμα.ελ"
+  )
+
+  @Test
+  fun hash_ReturnSameHashesThanLegacyImplementation() {
+    emails.forEach {
+      assertThat(EmailHasher.hash(it)).isEqualTo(legacyHash(it))
+    }
+    assertThat(EmailHasher.hash("john.doe@gmail.com"))
+        .isEqualTo("000e3171a5110c35c69d060112bd0ba55d9631c7c2ec93f1840e4570095b263a")
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun hash_Benchmark() {
+    report(
+        "hash (µs/op)",
+        measureMicros { emails.forEach { legacyHash(it) } } / emails.size,
+        measureMicros { emails.forEach { EmailHasher.hash(it) } } / emails.size
+    )
+  }
+
+  private fun legacyHash(email: String): String {
+    return email.trim().toLowerCase(Locale.ROOT).toLegacyHash("MD5").toLegacyHash("SHA-256")
+  }
+
+  private fun String.toLegacyHash(type: String): String {
+    return MessageDigest.getInstance(type)
+        .digest(toByteArray())
+        .joinToString("") {
+          "%02x".format(it)
+        }
+  }
+
+  private fun measureMicros(operation: () -> Unit) =
+      measureTimePerOperation(WARM_UP_ITERATIONS, MEASURED_ITERATIONS, TimeUnit.MICROSECONDS, operation = operation)
+
+  private fun report(metric: String, legacy: Double, current: Double) {
+    reportComparison("Email hasher", metric, "legacy" to legacy, "current" to current)
+  }
+
+  private companion object {
+    const val WARM_UP_ITERATIONS = 2000
+    const val MEASURED_ITERATIONS = 10_000
+  }
+}
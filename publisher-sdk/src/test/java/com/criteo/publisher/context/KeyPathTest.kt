@@ -0,0 +1,61 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.context
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+
+class KeyPathTest {
+
+  @Test
+  fun of_GivenSinglePart_ReturnIt() {
+    val keyPath = KeyPath.of("a")
+
+    assertThat(keyPath!!.parts).containsExactly("a")
+  }
+
+  @Test
+  fun of_GivenDottedKey_SplitOnDots() {
+    val keyPath = KeyPath.of("user.geo.country")
+
+    assertThat(keyPath!!.parts).containsExactly("user", "geo", "country")
+  }
+
+  @Test
+  fun of_GivenEmptyParts_ReturnNull() {
+    assertThat(KeyPath.of("")).isNull()
+    assertThat(KeyPath.of(".a")).isNull()
+    assertThat(KeyPath.of("a.")).isNull()
+    assertThat(KeyPath.of("a..b")).isNull()
+  }
+
+  @Test
+  fun of_GivenSameKeyTwice_ReturnSameInstance() {
+    val keyPath1 = KeyPath.of(String(charArrayOf('a', '.', 'b')))
+    val keyPath2 = KeyPath.of(String(charArrayOf('a', '.', 'b')))
+
+    assertThat(keyPath2).isSameAs(keyPath1)
+  }
+
+  @Test
+  fun of_GivenKeysSharingParts_ShareInternedParts() {
+    val keyPath1 = KeyPath.of("device.make")
+    val keyPath2 = KeyPath.of("device.model")
+
+    assertThat(keyPath2!!.parts[0]).isSameAs(keyPath1!!.parts[0])
+  }
+}
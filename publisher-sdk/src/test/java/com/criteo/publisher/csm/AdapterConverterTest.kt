@@ -0,0 +1,153 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.csm
+
+import com.criteo.publisher.csm.ObjectQueueFactory.AdapterConverter
+import com.criteo.publisher.logging.RemoteLogRecords
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogContext
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogLevel
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogRecord
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.util.JsonSerializer
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatCode
+import org.junit.Rule
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import javax.inject.Inject
+
+class AdapterConverterTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @Inject
+  private lateinit var jsonSerializer: JsonSerializer
+
+  @Test
+  fun toStream_GivenMetric_WriteItInVersionedBinaryFormatReadableBack() {
+    val converter = AdapterConverter(jsonSerializer, Metric::class.java)
+    val metric = givenMetric()
+
+    val bytes = converter.write(metric)
+
+    assertThat(bytes[0].toInt()).isEqualTo(AdapterConverter.BINARY_FORMAT_V1)
+    assertThat(converter.from(bytes)).isEqualTo(metric)
+  }
+
+  @Test
+  fun toStream_GivenRemoteLogs_WriteItInVersionedBinaryFormatReadableBack() {
+    val converter = AdapterConverter(jsonSerializer, RemoteLogRecords::class.java)
+    val logs = givenRemoteLogs()
+
+    val bytes = converter.write(logs)
+
+    assertThat(bytes[0].toInt()).isEqualTo(AdapterConverter.BINARY_FORMAT_V1)
+    assertThat(converter.from(bytes)).isEqualTo(logs)
+  }
+
+  @Test
+  fun toStream_GivenElements_WriteLessBytesThanJson() {
+    val metric = givenMetric()
+    val logs = givenRemoteLogs()
+
+    val metricBytes = AdapterConverter(jsonSerializer, Metric::class.java).write(metric)
+    val logsBytes = AdapterConverter(jsonSerializer, RemoteLogRecords::class.java).write(logs)
+
+    assertThat(metricBytes.size).isLessThan(writeJson(metric).size / 2)
+    assertThat(logsBytes.size).isLessThan(writeJson(logs).size)
+  }
+
+  @Test
+  fun from_GivenElementWrittenInJsonByPreviousVersion_ReadIt() {
+    val converter = AdapterConverter(jsonSerializer, Metric::class.java)
+    val metric = givenMetric()
+
+    val read = converter.from(writeJson(metric))
+
+    assertThat(read).isEqualTo(metric)
+  }
+
+  @Test
+  fun from_GivenUnknownFormat_ThrowIOException() {
+    val converter = AdapterConverter(jsonSerializer, Metric::class.java)
+
+    assertThatCode {
+      converter.from(byteArrayOf(0x02, 0x00))
+    }.isInstanceOf(IOException::class.java)
+  }
+
+  @Test
+  fun from_GivenEmptyBytes_ThrowIOException() {
+    val converter = AdapterConverter(jsonSerializer, Metric::class.java)
+
+    assertThatCode {
+      converter.from(byteArrayOf())
+    }.isInstanceOf(IOException::class.java)
+  }
+
+  @Test
+  fun keyDictionary_GivenQueuedElements_ContainsAllTheirFieldNamesOnlyOnce() {
+    val metricKeys = jsonSerializer.toJsonValue(givenMetric()) as Map<*, *>
+    val logs = jsonSerializer.toJsonValue(givenRemoteLogs()) as Map<*, *>
+    val logContextKeys = logs["context"] as Map<*, *>
+    val logRecordKeys = (logs["errors"] as List<*>).first() as Map<*, *>
+
+    assertThat(AdapterConverter.KEY_DICTIONARY_V1)
+        .doesNotHaveDuplicates()
+        .containsAll(metricKeys.keys.map { it.toString() })
+        .containsAll(logs.keys.map { it.toString() })
+        .containsAll(logContextKeys.keys.map { it.toString() })
+        .containsAll(logRecordKeys.keys.map { it.toString() })
+  }
+
+  private fun <T> AdapterConverter<T>.write(element: T): ByteArray = ByteArrayOutputStream().use {
+    toStream(element, it)
+    it.toByteArray()
+  }
+
+  private fun writeJson(element: Any): ByteArray = ByteArrayOutputStream().use {
+    jsonSerializer.write(element, it)
+    it.toByteArray()
+  }
+
+  private fun givenMetric() = Metric.builder("5def5cbbab53a9a7dea0639f43924c71")
+      .setRequestGroupId("3c4ed5ec2d3c4c6a8a6b4a3d6b1c2e9f")
+      .setCdbCallStartTimestamp(1_697_000_000_000L)
+      .setCdbCallEndTimestamp(1_697_000_000_250L)
+      .setElapsedTimestamp(1_697_000_001_000L)
+      .setZoneId(1234)
+      .setProfileId(235)
+      .setReadyToSend(true)
+      .build()
+
+  private fun givenRemoteLogs() = RemoteLogRecords(
+      RemoteLogContext(
+          "4.10.0",
+          "com.criteo.publisher.tests",
+          "021a86de-ef82-4f69-867b-61ca66688c9c",
+          "5def5cbbab53a9a7dea0639f43924c71",
+          235,
+          "java.lang.IllegalStateException",
+          "onUncaughtErrorAtPublicApi",
+          "android-33"
+      ),
+      listOf(RemoteLogRecord(RemoteLogLevel.ERROR, listOf("Uncaught error at public API")))
+  )
+}
@@ -56,6 +56,26 @@ class BoundedSendingQueueTest {
     assertThat(metrics).containsExactly(metric)
   }
 
+  @Test
+  fun peek_GivenDelegate_DelegateToIt() {
+    val metric = mock<Metric>()
+
+    delegate.stub {
+      on { peek(42) } doReturn listOf(metric)
+    }
+
+    val metrics = queue.peek(42)
+
+    assertThat(metrics).containsExactly(metric)
+  }
+
+  @Test
+  fun remove_GivenDelegate_DelegateToIt() {
+    queue.remove(42)
+
+    verify(delegate).remove(42)
+  }
+
   @Test
   fun getTotalSize_GivenDelegate_DelegateToIt() {
     delegate.stub {
@@ -17,10 +17,12 @@
 package com.criteo.publisher.csm
 
 import com.criteo.publisher.concurrent.DirectMockExecutor
+import com.criteo.publisher.context.ConnectionTypeFetcher.ConnectionType
 import com.criteo.publisher.integration.Integration.FALLBACK
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.mock.SpyBean
 import com.criteo.publisher.model.Config
+import com.criteo.publisher.network.NetworkPolicy
 import com.criteo.publisher.network.PubSdkApi
 import com.criteo.publisher.util.BuildConfigWrapper
 import org.junit.Before
@@ -66,6 +68,8 @@ class MetricSendingQueueConsumerTest {
 
   private val executor = DirectMockExecutor()
 
+  private lateinit var networkPolicy: NetworkPolicy
+
   private lateinit var consumer: MetricSendingQueueConsumer
 
   @Before
@@ -74,11 +78,14 @@ class MetricSendingQueueConsumerTest {
       on { preconditionThrowsOnException() } doReturn false
     }
 
+    networkPolicy = NetworkPolicy(buildConfigWrapper)
+
     consumer = MetricSendingQueueConsumer(
         queue,
         api,
         buildConfigWrapper,
         config,
+        networkPolicy,
         executor
     )
   }
@@ -110,6 +117,28 @@ class MetricSendingQueueConsumerTest {
     verifyZeroInteractions(api)
   }
 
+  @Test
+  fun sendMetricBatch_GivenOfflineDevice_DoNothing() {
+    networkPolicy.onConnectivityChanged(false, null)
+
+    consumer.sendMetricBatch()
+
+    verifyZeroInteractions(queue)
+    verifyZeroInteractions(api)
+  }
+
+  @Test
+  fun sendMetricBatch_GivenSlowConnection_PollSmallerBatch() {
+    buildConfigWrapper.stub {
+      on { csmBatchSize } doReturn 42
+    }
+    networkPolicy.onConnectivityChanged(true, ConnectionType.CELLULAR_2G)
+
+    consumer.sendMetricBatch()
+
+    verify(queue).poll(21)
+  }
+
   @Test
   fun sendMetricBatch_GivenSomeMetricsAndIOException_RollbackMetrics() {
     val metric1 = Metric.builder("id1").build()
@@ -0,0 +1,173 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.csm
+
+import com.criteo.publisher.benchmark.Benchmark
+import com.criteo.publisher.benchmark.measureTimePerOperation
+import com.criteo.publisher.benchmark.reportComparison
+import com.criteo.publisher.csm.ObjectQueueFactory.AdapterConverter
+import com.criteo.publisher.logging.RemoteLogRecords
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogContext
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogLevel
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogRecord
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.util.JsonSerializer
+import com.squareup.tape.FileObjectQueue
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import org.junit.rules.TemporaryFolder
+import java.io.ByteArrayInputStream
+import java.io.OutputStream
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+
+/**
+ * Compare the size on disk and the offer/poll time of the metric and remote log queues between the previous JSON
+ * elements and the versioned binary ones. Sizes are asserted, timings are only reported by the [Benchmark] tests.
+ */
+class QueueElementFormatBenchmarkTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @Rule
+  @JvmField
+  val tempFolder = TemporaryFolder()
+
+  @Inject
+  private lateinit var jsonSerializer: JsonSerializer
+
+  @Test
+  fun metricQueue_BinaryIsSmallerThanJson() {
+    assertBinaryIsSmallerThanJson(Metric::class.java, givenMetrics())
+  }
+
+  @Test
+  fun remoteLogQueue_BinaryIsSmallerThanJson() {
+    assertBinaryIsSmallerThanJson(RemoteLogRecords::class.java, givenRemoteLogs())
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun metricQueue_Benchmark() {
+    benchmark("metric", Metric::class.java, givenMetrics())
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun remoteLogQueue_Benchmark() {
+    benchmark("remote log", RemoteLogRecords::class.java, givenRemoteLogs())
+  }
+
+  private fun <T : Any> assertBinaryIsSmallerThanJson(elementClass: Class<T>, elements: List<T>) {
+    val jsonSize = offerAll(JsonConverter(jsonSerializer, elementClass), elements)
+    val binarySize = offerAll(AdapterConverter(jsonSerializer, elementClass), elements)
+
+    assertThat(binarySize).isLessThan(jsonSize)
+  }
+
+  private fun <T : Any> benchmark(queueName: String, elementClass: Class<T>, elements: List<T>) {
+    val jsonConverter = JsonConverter(jsonSerializer, elementClass)
+    val binaryConverter = AdapterConverter(jsonSerializer, elementClass)
+
+    report(
+        "$queueName queue file (bytes)",
+        offerAll(jsonConverter, elements).toDouble(),
+        offerAll(binaryConverter, elements).toDouble()
+    )
+    report(
+        "$queueName offer+poll (µs/element)",
+        measureMicros { offerAndPollAll(jsonConverter, elements) } / elements.size,
+        measureMicros { offerAndPollAll(binaryConverter, elements) } / elements.size
+    )
+  }
+
+  private fun <T> offerAll(converter: FileObjectQueue.Converter<T>, elements: List<T>): Long {
+    val file = tempFolder.newFile()
+    file.delete()
+    val queue = FileObjectQueue(file, converter)
+    elements.forEach { queue.add(it) }
+    return file.length()
+  }
+
+  private fun <T> offerAndPollAll(converter: FileObjectQueue.Converter<T>, elements: List<T>) {
+    val file = tempFolder.newFile()
+    file.delete()
+    val queue = FileObjectQueue(file, converter)
+    elements.forEach { queue.add(it) }
+    while (queue.size() > 0) {
+      assertThat(queue.peek()).isNotNull
+      queue.remove()
+    }
+    file.delete()
+  }
+
+  private fun measureMicros(operation: () -> Unit) =
+      measureTimePerOperation(WARM_UP_ITERATIONS, MEASURED_ITERATIONS, TimeUnit.MICROSECONDS, operation = operation)
+
+  private fun report(metric: String, json: Double, binary: Double) {
+    reportComparison("Queue format", metric, "json" to json, "binary" to binary)
+  }
+
+  private fun givenMetrics() = (1..ELEMENTS_PER_QUEUE).map { givenMetric(it) }
+
+  private fun givenRemoteLogs() = (1..ELEMENTS_PER_QUEUE).map { givenRemoteLogs(it) }
+
+  private fun givenMetric(index: Int) = Metric.builder("5def5cbbab53a9a7dea0639f4392${1000 + index}")
+      .setRequestGroupId("3c4ed5ec2d3c4c6a8a6b4a3d6b1c${1000 + index}")
+      .setCdbCallStartTimestamp(1_697_000_000_000L + index)
+      .setCdbCallEndTimestamp(1_697_000_000_250L + index)
+      .setElapsedTimestamp(1_697_000_001_000L + index)
+      .setZoneId(1234)
+      .setProfileId(235)
+      .setReadyToSend(true)
+      .build()
+
+  private fun givenRemoteLogs(index: Int) = RemoteLogRecords(
+      RemoteLogContext(
+          "4.10.0",
+          "com.criteo.publisher.tests",
+          "021a86de-ef82-4f69-867b-61ca66688c9c",
+          "5def5cbbab53a9a7dea0639f43924c71",
+          235,
+          "java.lang.IllegalStateException",
+          "onUncaughtErrorAtPublicApi",
+          "android-33"
+      ),
+      listOf(RemoteLogRecord(RemoteLogLevel.ERROR, listOf("Uncaught error at public API #$index")))
+  )
+
+  /**
+   * Converter of the previous versions of the SDK, writing elements as JSON.
+   */
+  private class JsonConverter<T>(
+      private val jsonSerializer: JsonSerializer,
+      private val elementClass: Class<T>
+  ) : FileObjectQueue.Converter<T> {
+    override fun from(bytes: ByteArray): T = jsonSerializer.read(elementClass, ByteArrayInputStream(bytes))
+    override fun toStream(o: T, bytes: OutputStream) = jsonSerializer.write(o, bytes)
+  }
+
+  private companion object {
+    const val ELEMENTS_PER_QUEUE = 50
+    const val WARM_UP_ITERATIONS = 20
+    const val MEASURED_ITERATIONS = 100
+  }
+}
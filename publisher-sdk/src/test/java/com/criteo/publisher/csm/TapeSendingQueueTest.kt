@@ -122,7 +122,8 @@ class TapeSendingQueueTest(private val tapeImplementation: TapeImplementation) {
 
   @Test
   fun getTotalSize_AfterFewOperations_ReturnSizeGreaterThanEstimation() {
-    val estimatedSizePerMetric = 170
+    // Binary encoding of the smallest mocked metric, with its Tape header
+    val estimatedSizePerMetric = 28
 
     (0 until 1000).forEach {
       queue.offer(mockMetric(it))
@@ -298,6 +299,55 @@ class TapeSendingQueueTest(private val tapeImplementation: TapeImplementation) {
     assertThat(metrics).hasSize(2).containsExactly(metric1, metric4)
   }
 
+  @Test
+  fun peek_AfterOfferOperations_ReturnFirstMetricsWithoutRemovingThem() {
+    val metric1 = mockMetric(1)
+    val metric2 = mockMetric(2)
+    val metric3 = mockMetric(3)
+
+    queue.offer(metric1)
+    queue.offer(metric2)
+    queue.offer(metric3)
+
+    val metrics = queue.peek(2)
+
+    assertThat(metrics).containsExactly(metric1, metric2)
+    assertThat(queue.poll(3)).containsExactly(metric1, metric2, metric3)
+  }
+
+  @Test
+  fun peek_GivenZeroMaxElement_ReturnEmptyList() {
+    val metrics = queue.peek(0)
+
+    assertThat(metrics).isEmpty()
+    verifyZeroInteractions(tapeQueue)
+  }
+
+  @Test
+  fun remove_AfterPeek_RemoveOnlyHeadMetrics() {
+    val metric1 = mockMetric(1)
+    val metric2 = mockMetric(2)
+    val metric3 = mockMetric(3)
+
+    queue.offer(metric1)
+    queue.offer(metric2)
+    queue.offer(metric3)
+
+    queue.peek(2)
+    queue.remove(2)
+
+    assertThat(queue.poll(3)).containsExactly(metric3)
+  }
+
+  @Test
+  fun remove_GivenMoreThanQueueSize_EmptyTheQueue() {
+    queue.offer(mockMetric())
+
+    queue.remove(2)
+
+    assertThat(tapeQueue.size()).isEqualTo(0)
+  }
+
   @Test
   fun poll_GivenManyWorkersInParallel_ShouldNotProduceDuplicate() {
     for (id in 0 until 2000) {
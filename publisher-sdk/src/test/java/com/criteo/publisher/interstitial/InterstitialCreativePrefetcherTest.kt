@@ -0,0 +1,223 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.interstitial
+
+import com.criteo.publisher.Clock
+import com.criteo.publisher.cache.SdkCache
+import com.criteo.publisher.model.AdSize
+import com.criteo.publisher.model.CacheAdUnit
+import com.criteo.publisher.model.CdbResponseSlot
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.model.DeviceInfo
+import com.criteo.publisher.network.NetworkStats.Endpoint
+import com.criteo.publisher.network.PubSdkApi
+import com.criteo.publisher.util.AdUnitType
+import com.criteo.publisher.util.AdUnitType.CRITEO_BANNER
+import com.criteo.publisher.util.AdUnitType.CRITEO_INTERSTITIAL
+import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.CompletableFuture.completedFuture
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyZeroInteractions
+import org.mockito.kotlin.whenever
+import java.io.ByteArrayInputStream
+import java.net.URL
+import java.util.concurrent.Executor
+
+class InterstitialCreativePrefetcherTest {
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var api: PubSdkApi
+
+  @Mock
+  private lateinit var deviceInfo: DeviceInfo
+
+  @Mock
+  private lateinit var sdkCache: SdkCache
+
+  @Mock
+  private lateinit var config: Config
+
+  @Mock
+  private lateinit var clock: Clock
+
+  @Mock
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  private var executor = Executor { it.run() }
+
+  private lateinit var prefetcher: InterstitialCreativePrefetcher
+
+  @Before
+  fun setUp() {
+    whenever(config.isInterstitialCreativePrefetchEnabled).doReturn(true)
+    whenever(deviceInfo.userAgent).doReturn(completedFuture("myUserAgent"))
+    whenever(buildConfigWrapper.maxSizeOfInterstitialCreativeCache).doReturn(1024)
+
+    givenNewPrefetcher()
+  }
+
+  private fun givenNewPrefetcher() {
+    prefetcher = InterstitialCreativePrefetcher(
+        api,
+        deviceInfo,
+        sdkCache,
+        config,
+        clock,
+        buildConfigWrapper,
+        executor
+    )
+  }
+
+  @Test
+  fun onBidCached_GivenDisabledFeature_DoNotDownloadCreative() {
+    whenever(config.isInterstitialCreativePrefetchEnabled).doReturn(false)
+    val slot = givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL)
+
+    prefetcher.onBidCached(slot)
+
+    verifyZeroInteractions(api)
+    assertThat(prefetcher.consume("https://creative.com/1")).isNull()
+  }
+
+  @Test
+  fun onBidCached_GivenNonInterstitialBid_DoNotDownloadCreative() {
+    val slot = givenSlot("https://creative.com/1", CRITEO_BANNER)
+
+    prefetcher.onBidCached(slot)
+
+    verifyZeroInteractions(api)
+  }
+
+  @Test
+  fun onBidCached_GivenSilentBid_DoNotDownloadCreative() {
+    val slot = givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL, cpm = "0.0")
+
+    prefetcher.onBidCached(slot)
+
+    verifyZeroInteractions(api)
+  }
+
+  @Test
+  fun onBidCached_GivenInterstitialBid_DownloadCreativeAvailableOnce() {
+    val slot = givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL)
+    givenCreative("https://creative.com/1", "myCreative")
+
+    prefetcher.onBidCached(slot)
+
+    verify(api).executeRawGet(URL("https://creative.com/1"), "myUserAgent", Endpoint.CREATIVE)
+    assertThat(prefetcher.consume("https://creative.com/1")).isEqualTo("myCreative")
+    assertThat(prefetcher.consume("https://creative.com/1")).isNull()
+  }
+
+  @Test
+  fun onBidCached_GivenSameBidCachedTwice_DownloadCreativeOnlyOnce() {
+    val slot = givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL)
+    givenCreative("https://creative.com/1", "myCreative")
+
+    prefetcher.onBidCached(slot)
+    prefetcher.onBidCached(slot)
+
+    verify(api, times(1)).executeRawGet(any(), any(), eq(Endpoint.CREATIVE))
+  }
+
+  @Test
+  fun onBidCached_GivenDownloadInProgress_DoNotDownloadItAgain() {
+    val pendingTasks = mutableListOf<Runnable>()
+    executor = Executor { pendingTasks.add(it) }
+    givenNewPrefetcher()
+    val slot = givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL)
+
+    prefetcher.onBidCached(slot)
+    prefetcher.onBidCached(slot)
+
+    assertThat(pendingTasks).hasSize(1)
+  }
+
+  @Test
+  fun consume_GivenExpiredBid_ReturnNull() {
+    val slot = givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL, ttlInSeconds = 10, timeOfDownload = 1000)
+    givenCreative("https://creative.com/1", "myCreative")
+
+    prefetcher.onBidCached(slot)
+    whenever(clock.currentTimeInMillis).doReturn(11_000)
+
+    assertThat(prefetcher.consume("https://creative.com/1")).isNull()
+  }
+
+  @Test
+  fun onBidCached_GivenFullCache_EvictOldestCreatives() {
+    whenever(buildConfigWrapper.maxSizeOfInterstitialCreativeCache).doReturn(10)
+    givenCreative("https://creative.com/1", "12345")
+    givenCreative("https://creative.com/2", "67890")
+    givenCreative("https://creative.com/3", "abcde")
+
+    prefetcher.onBidCached(givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL))
+    prefetcher.onBidCached(givenSlot("https://creative.com/2", CRITEO_INTERSTITIAL))
+    prefetcher.onBidCached(givenSlot("https://creative.com/3", CRITEO_INTERSTITIAL))
+
+    assertThat(prefetcher.consume("https://creative.com/1")).isNull()
+    assertThat(prefetcher.consume("https://creative.com/2")).isEqualTo("67890")
+    assertThat(prefetcher.consume("https://creative.com/3")).isEqualTo("abcde")
+  }
+
+  @Test
+  fun onBidCached_GivenCreativeBiggerThanCache_DoNotKeepIt() {
+    whenever(buildConfigWrapper.maxSizeOfInterstitialCreativeCache).doReturn(4)
+    givenCreative("https://creative.com/1", "12345")
+
+    prefetcher.onBidCached(givenSlot("https://creative.com/1", CRITEO_INTERSTITIAL))
+
+    assertThat(prefetcher.consume("https://creative.com/1")).isNull()
+  }
+
+  private fun givenSlot(
+      displayUrl: String,
+      adUnitType: AdUnitType,
+      cpm: String = "1.0",
+      ttlInSeconds: Int = 60,
+      timeOfDownload: Long = 0
+  ): CdbResponseSlot {
+    val slot: CdbResponseSlot = mock {
+      on { it.displayUrl } doReturn displayUrl
+      on { cpmAsNumber } doReturn cpm.toDouble()
+      on { it.ttlInSeconds } doReturn ttlInSeconds
+      on { it.timeOfDownload } doReturn timeOfDownload
+    }
+    whenever(sdkCache.detectCacheAdUnit(slot)).doReturn(CacheAdUnit(AdSize(320, 480), "myPlacement", adUnitType))
+    return slot
+  }
+
+  private fun givenCreative(displayUrl: String, content: String) {
+    whenever(api.executeRawGet(eq(URL(displayUrl)), any(), eq(Endpoint.CREATIVE))).thenAnswer {
+      ByteArrayInputStream(content.toByteArray())
+    }
+  }
+}
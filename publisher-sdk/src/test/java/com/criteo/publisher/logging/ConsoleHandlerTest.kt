@@ -74,6 +74,15 @@ class ConsoleHandlerTest {
     verify(handler, never()).println(any(), any(), any())
   }
 
+  @Test
+  fun isLoggable_GivenMinLogLevel_ReturnTrueOnlyForLevelsAboveOrEqual() {
+    handler.minLogLevel = Log.INFO
+
+    assertThat(handler.isLoggable(Log.DEBUG)).isFalse()
+    assertThat(handler.isLoggable(Log.INFO)).isTrue()
+    assertThat(handler.isLoggable(Log.ERROR)).isTrue()
+  }
+
   @Test
   fun log_GivenMessageAndThrowable_PrintMessageThenStacktrace() {
     val exception = Exception()
@@ -23,6 +23,7 @@ import com.criteo.publisher.mock.MockBean
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.model.Config
 import com.criteo.publisher.privacy.ConsentData
+import org.assertj.core.api.Assertions.assertThat
 import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
@@ -89,6 +90,22 @@ class RemoteHandlerTest {
     verifyNoMoreInteractions(remoteLogRecordsFactory)
   }
 
+  @Test
+  fun isLoggable_GivenConfiguredRemoteLogLevel_ReturnTrueOnlyForLevelsAboveOrEqual() {
+    whenever(config.remoteLogLevel).doReturn(RemoteLogLevel.WARNING)
+
+    assertThat(remoteHandler.isLoggable(Log.INFO)).isFalse()
+    assertThat(remoteHandler.isLoggable(Log.WARN)).isTrue()
+    assertThat(remoteHandler.isLoggable(Log.ERROR)).isTrue()
+  }
+
+  @Test
+  fun isLoggable_GivenConsentNotGiven_ReturnFalse() {
+    whenever(consentData.isConsentGiven()).thenReturn(false)
+
+    assertThat(remoteHandler.isLoggable(Log.ERROR)).isFalse()
+  }
+
   @Test
   fun log_GivenNoRemoteLogFromFactory_DoesNothing() {
     val logMessage = LogMessage(message = null)
@@ -20,6 +20,7 @@ import com.criteo.publisher.concurrent.DirectMockExecutor
 import com.criteo.publisher.csm.ConcurrentSendingQueue
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.mock.SpyBean
+import com.criteo.publisher.network.NetworkPolicy
 import com.criteo.publisher.network.PubSdkApi
 import com.criteo.publisher.util.AdvertisingInfo
 import com.criteo.publisher.util.BuildConfigWrapper
@@ -35,6 +36,7 @@ import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.never
 import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyZeroInteractions
 import org.mockito.kotlin.whenever
 import java.io.IOException
 
@@ -62,21 +64,35 @@ class RemoteLogSendingQueueConsumerTest {
 
   private val executor = DirectMockExecutor()
 
+  private lateinit var networkPolicy: NetworkPolicy
+
   private lateinit var consumer: RemoteLogSendingQueueConsumer
 
   @Before
   fun setUp() {
     doReturn(false).whenever(buildConfigWrapper).preconditionThrowsOnException()
 
+    networkPolicy = NetworkPolicy(buildConfigWrapper)
+
     consumer = RemoteLogSendingQueueConsumer(
         queue,
         api,
-        buildConfigWrapper,
         advertisingInfo,
+        networkPolicy,
         executor
     )
   }
 
+  @Test
+  fun sendRemoteLogBatch_GivenOfflineDevice_DoNothing() {
+    networkPolicy.onConnectivityChanged(false, null)
+
+    consumer.sendRemoteLogBatch()
+
+    verifyZeroInteractions(queue)
+    verifyZeroInteractions(api)
+  }
+
   @Test
   fun sendRemoteLogBatch_GivenSomeLogsAndIOException_RollbackLogs() {
     val logs1 = mock<RemoteLogRecords>()
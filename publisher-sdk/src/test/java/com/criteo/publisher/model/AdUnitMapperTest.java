@@ -25,6 +25,8 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -32,6 +34,7 @@ import static org.mockito.Mockito.when;
 
 import com.criteo.publisher.integration.Integration;
 import com.criteo.publisher.integration.IntegrationRegistry;
+import com.criteo.publisher.network.NetworkPolicy;
 import com.criteo.publisher.util.DeviceUtil;
 import java.util.List;
 import org.junit.Before;
@@ -52,13 +55,38 @@ public class AdUnitMapperTest {
   @Mock
   private IntegrationRegistry integrationRegistry;
 
+  @Mock
+  private NetworkPolicy networkPolicy;
+
   private AdUnitMapper mapper;
 
   @Before
   public void setUp() throws Exception {
     when(integrationRegistry.readIntegration()).thenReturn(Integration.FALLBACK);
+    when(networkPolicy.getPrefetchChunkSize(anyInt())).thenAnswer(returnsFirstArg());
+
+    mapper = new AdUnitMapper(deviceUtil, integrationRegistry, networkPolicy);
+  }
+
+  @Test
+  public void mapToChunks_GivenNetworkPolicyChunkSize_SplitWithThisSize() throws Exception {
+    when(networkPolicy.getPrefetchChunkSize(anyInt())).thenReturn(2);
+    AdUnit adUnit1 = new BannerAdUnit("adUnit1", new AdSize(1, 1));
+    AdUnit adUnit2 = new BannerAdUnit("adUnit2", new AdSize(1, 1));
+    AdUnit adUnit3 = new BannerAdUnit("adUnit3", new AdSize(1, 1));
+
+    List<List<CacheAdUnit>> chunks = mapper.mapToChunks(asList(adUnit1, adUnit2, adUnit3));
+
+    assertThat(chunks).hasSize(2);
+    assertThat(chunks.get(0)).hasSize(2);
+    assertThat(chunks.get(1)).hasSize(1);
+  }
+
+  @Test
+  public void getChunkSize_GivenNetworkPolicy_ReturnItsChunkSizeForDefaultOne() throws Exception {
+    when(networkPolicy.getPrefetchChunkSize(8)).thenReturn(4);
 
-    mapper = new AdUnitMapper(deviceUtil, integrationRegistry);
+    assertThat(mapper.getChunkSize()).isEqualTo(4);
   }
 
   @Test
@@ -28,6 +28,8 @@ import com.criteo.publisher.privacy.gdpr.GdprData
 import com.criteo.publisher.util.AdUnitType.CRITEO_BANNER
 import com.criteo.publisher.util.AdvertisingInfo
 import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.CompletableFuture
+import com.criteo.publisher.util.CompletableFuture.completedFuture
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.Before
 import org.junit.Rule
@@ -37,8 +39,8 @@ import org.mockito.junit.MockitoJUnit
 import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.stub
+import org.mockito.kotlin.verifyZeroInteractions
 import org.mockito.kotlin.whenever
-import java.util.concurrent.Future
 import java.util.concurrent.atomic.AtomicInteger
 
 class CdbRequestFactoryTest {
@@ -79,6 +81,8 @@ class CdbRequestFactoryTest {
 
   private val adUnitId = AtomicInteger()
 
+  private val requestDeviceInfo = CdbRequestDeviceInfo("myUserAgent", null)
+
   @Before
   fun setUp() {
     whenever(userPrivacyUtil.iabUsPrivacyString).thenReturn("iabUsPrivacyString")
@@ -89,23 +93,57 @@ class CdbRequestFactoryTest {
         cpId,
         deviceInfo,
         advertisingInfo,
-        userPrivacyUtil,
         uniqueIdGenerator,
-        buildConfigWrapper,
-        integrationRegistry,
-        contextProvider,
-        userDataHolder
+        CdbRequestTemplateCache(
+            context,
+            userPrivacyUtil,
+            buildConfigWrapper,
+            integrationRegistry,
+            contextProvider,
+            userDataHolder,
+            mock(),
+            mock()
+        )
     )
   }
 
   @Test
-  fun userAgent_GivenDeviceInfo_DelegateToIt() {
-    val expected: Future<String> = mock()
-    whenever(deviceInfo.userAgent).thenReturn(expected)
+  fun awaitDeviceInfo_GivenUserAgentAndFetchedAdvertisingId_ReturnThem() {
+    whenever(deviceInfo.userAgent).thenReturn(completedFuture("myUserAgent"))
+    whenever(advertisingInfo.fetchAsync()).thenReturn(completedFuture("myAdvertisingId"))
+
+    val requestDeviceInfo = factory.awaitDeviceInfo()
+
+    assertThat(requestDeviceInfo.isDone).isTrue()
+    assertThat(requestDeviceInfo.get()).isEqualTo(CdbRequestDeviceInfo("myUserAgent", "myAdvertisingId"))
+  }
+
+  @Test
+  fun awaitDeviceInfo_GivenAdvertisingIdBeingFetched_CompleteOnlyOnceFetched() {
+    val advertisingIdFetch = CompletableFuture<String>()
+    whenever(deviceInfo.userAgent).thenReturn(completedFuture("myUserAgent"))
+    whenever(advertisingInfo.fetchAsync()).thenReturn(advertisingIdFetch)
+
+    val requestDeviceInfo = factory.awaitDeviceInfo()
+
+    assertThat(requestDeviceInfo.isDone).isFalse()
+
+    advertisingIdFetch.complete(null)
+
+    assertThat(requestDeviceInfo.isDone).isTrue()
+    assertThat(requestDeviceInfo.get()).isEqualTo(CdbRequestDeviceInfo("myUserAgent", null))
+  }
+
+  @Test
+  fun createRequest_GivenDeviceInfo_UseItsAdvertisingIdWithoutFetchingItAgain() {
+    whenever(context.packageName).thenReturn("bundle.id")
+    whenever(uniqueIdGenerator.generateId()).thenReturn("myRequestId")
+    whenever(buildConfigWrapper.sdkVersion).thenReturn("1.1.1")
 
-    val userAgent = factory.userAgent
+    val request = factory.createRequest(emptyList(), ContextData(), CdbRequestDeviceInfo("", "myAdvertisingId"))
 
-    assertThat(userAgent).isSameAs(expected)
+    assertThat(request.user.deviceId).isEqualTo("myAdvertisingId")
+    verifyZeroInteractions(advertisingInfo)
   }
 
   @Test
@@ -162,7 +200,7 @@ class CdbRequestFactoryTest {
         )
     )
 
-    val request = factory.createRequest(adUnits, contextData)
+    val request = factory.createRequest(adUnits, contextData, requestDeviceInfo)
 
     assertThat(request.id).isEqualTo("myRequestId")
     assertThat(request.publisher).isEqualTo(expectedPublisher)
@@ -204,7 +242,7 @@ class CdbRequestFactoryTest {
         .thenReturn("myRequestId")
         .thenReturn("impId")
 
-    var request = factory.createRequest(adUnits, contextData)
+    var request = factory.createRequest(adUnits, contextData, requestDeviceInfo)
 
     assertThat(request.id).isEqualTo("myRequestId")
     assertThat(request.publisher).isEqualTo(Publisher("bundle.id", "myCpId", mapOf()))
@@ -221,7 +259,7 @@ class CdbRequestFactoryTest {
       on { iabUsPrivacyString } doReturn ""
     }
 
-    request = factory.createRequest(adUnits, contextData)
+    request = factory.createRequest(adUnits, contextData, requestDeviceInfo)
 
     assertThat(request.user.uspIab).isNull()
     assertThat(request.user.uspOptout).isNull()
@@ -259,7 +297,7 @@ class CdbRequestFactoryTest {
     whenever(context.packageName).thenReturn("bundle.id")
     whenever(integrationRegistry.profileId).thenReturn(1337)
 
-    val request = factory.createRequest(adUnits, contextData)
+    val request = factory.createRequest(adUnits, contextData, requestDeviceInfo)
 
     assertThat(request.slots).containsExactlyInAnyOrder(expectedSlot1, expectedSlot2)
   }
@@ -311,6 +349,34 @@ class CdbRequestFactoryTest {
     assertThat(nestedMap).isEqualTo(expectedMap)
   }
 
+  @Test
+  fun mergeToNestedMap_GivenPathGoingThroughLeaf_PutLastPartWhereTheWalkStopped() {
+    val map1 = mapOf(
+        "a.b" to mapOf("c" to "map as value"),
+        "d" to "leaf"
+    )
+
+    val map2 = mapOf(
+        "a.b.c.d" to "under a",
+        "a.b.e" to "also under a",
+        "d.e.f" to "at root"
+    )
+
+    val expectedMap = mapOf(
+        "a" to mapOf(
+            "b" to mapOf("c" to "map as value"),
+            "d" to "under a",
+            "e" to "also under a"
+        ),
+        "d" to "leaf",
+        "f" to "at root"
+    )
+
+    val nestedMap = factory.mergeToNestedMap(map1, map2)
+
+    assertThat(nestedMap).isEqualTo(expectedMap)
+  }
+
   @Test
   fun createRequest_GivenNullTagForChildDirectedTreatment_CreateRequestWithNullCdbRegs() {
     whenever(userPrivacyUtil.tagForChildDirectedTreatment).thenReturn(null)
@@ -320,7 +386,7 @@ class CdbRequestFactoryTest {
         .thenReturn("myRequestId")
     whenever(buildConfigWrapper.sdkVersion).thenReturn("1.1.1")
 
-    val request = factory.createRequest(emptyList(), ContextData())
+    val request = factory.createRequest(emptyList(), ContextData(), requestDeviceInfo)
 
     assertThat(request.regs).isNull()
   }
@@ -334,7 +400,7 @@ class CdbRequestFactoryTest {
         .thenReturn("myRequestId")
     whenever(buildConfigWrapper.sdkVersion).thenReturn("1.1.1")
 
-    val request = factory.createRequest(emptyList(), ContextData())
+    val request = factory.createRequest(emptyList(), ContextData(), requestDeviceInfo)
 
     assertThat(request.regs).isNotNull
     assertThat(request.regs!!.tagForChildDirectedTreatment).isTrue
@@ -349,7 +415,7 @@ class CdbRequestFactoryTest {
         .thenReturn("myRequestId")
     whenever(buildConfigWrapper.sdkVersion).thenReturn("1.1.1")
 
-    val request = factory.createRequest(emptyList(), ContextData())
+    val request = factory.createRequest(emptyList(), ContextData(), requestDeviceInfo)
 
     assertThat(request.regs).isNotNull
     assertThat(request.regs!!.tagForChildDirectedTreatment).isFalse
@@ -23,6 +23,7 @@ import com.criteo.publisher.util.AdUnitType.CRITEO_INTERSTITIAL
 import com.criteo.publisher.util.AdUnitType.CRITEO_REWARDED
 import com.criteo.publisher.util.JsonSerializer
 import com.criteo.publisher.util.writeIntoString
+import com.squareup.moshi.Moshi
 import org.assertj.core.api.Assertions.assertThat
 import org.json.JSONArray
 import org.json.JSONObject
@@ -37,7 +38,10 @@ class CdbRequestSlotTest {
   val mockedDependenciesRule = MockedDependenciesRule()
 
   @Inject
-  private lateinit var serializer: JsonSerializer
+  private lateinit var moshi: Moshi
+
+  // Nested types are not registered in the SDK serializer: they are only serialized on their own in tests
+  private val serializer by lazy { JsonSerializer(moshi) }
 
   private companion object {
     const val IMPRESSION_ID = "impId"
@@ -0,0 +1,249 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.model
+
+import android.content.Context
+import android.content.SharedPreferences
+import com.criteo.publisher.context.ConnectivityMonitor
+import com.criteo.publisher.context.ContextProvider
+import com.criteo.publisher.context.UserData
+import com.criteo.publisher.context.UserDataHolder
+import com.criteo.publisher.integration.IntegrationRegistry
+import com.criteo.publisher.privacy.UserPrivacyUtil
+import com.criteo.publisher.util.BuildConfigWrapper
+import com.criteo.publisher.util.SharedPreferencesFactory
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
+
+class CdbRequestTemplateCacheTest {
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var context: Context
+
+  @Mock
+  private lateinit var userPrivacyUtil: UserPrivacyUtil
+
+  @Mock
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  @Mock
+  private lateinit var integrationRegistry: IntegrationRegistry
+
+  @Mock
+  private lateinit var contextProvider: ContextProvider
+
+  @Mock
+  private lateinit var connectivityMonitor: ConnectivityMonitor
+
+  private val applicationSharedPreferences: SharedPreferences = mock()
+
+  private val internalSharedPreferences: SharedPreferences = mock()
+
+  private val sharedPreferencesFactory: SharedPreferencesFactory = mock {
+    on { application } doReturn applicationSharedPreferences
+    on { internal } doReturn internalSharedPreferences
+  }
+
+  private val userDataHolder = UserDataHolder()
+
+  private lateinit var cache: CdbRequestTemplateCache
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { sdkVersion } doReturn "1.2.3"
+    }
+
+    userPrivacyUtil.stub {
+      on { iabUsPrivacyString } doReturn "iabUsPrivacyString"
+      on { usPrivacyOptout } doReturn ""
+    }
+
+    whenever(integrationRegistry.profileId).thenReturn(42)
+    whenever(contextProvider.fetchUserContext()).thenReturn(mapOf("device.make" to "make"))
+
+    cache = CdbRequestTemplateCache(
+        context,
+        userPrivacyUtil,
+        buildConfigWrapper,
+        integrationRegistry,
+        contextProvider,
+        userDataHolder,
+        sharedPreferencesFactory,
+        connectivityMonitor
+    )
+  }
+
+  @Test
+  fun get_GivenValues_CreateTemplateFromThem() {
+    whenever(userPrivacyUtil.tagForChildDirectedTreatment).thenReturn(true)
+
+    val template = cache.get()
+
+    assertThat(template.userData).isSameAs(userDataHolder.get())
+    assertThat(template.userContext).isEqualTo(mapOf("device.make" to "make"))
+    assertThat(template.uspIab).isEqualTo("iabUsPrivacyString")
+    assertThat(template.uspOptout).isNull()
+    assertThat(template.sdkVersion).isEqualTo("1.2.3")
+    assertThat(template.profileId).isEqualTo(42)
+    assertThat(template.regs).isEqualTo(CdbRegs(true))
+  }
+
+  @Test
+  fun get_GivenNotRegistered_CreateNewTemplateEachTime() {
+    cache.get()
+    whenever(integrationRegistry.profileId).thenReturn(1337)
+    val template = cache.get()
+
+    assertThat(template.profileId).isEqualTo(1337)
+    verify(contextProvider, times(2)).fetchUserContext()
+  }
+
+  @Test
+  fun register_RegisterToAllChangeSignals() {
+    cache.register()
+    cache.register()
+
+    verify(context).registerComponentCallbacks(cache)
+    verify(applicationSharedPreferences).registerOnSharedPreferenceChangeListener(cache)
+    verify(internalSharedPreferences).registerOnSharedPreferenceChangeListener(cache)
+    verify(connectivityMonitor).addListener(cache)
+  }
+
+  @Test
+  fun get_GivenRegistered_ReuseTemplate() {
+    cache.register()
+
+    val template1 = cache.get()
+    whenever(integrationRegistry.profileId).thenReturn(1337)
+    val template2 = cache.get()
+
+    assertThat(template2).isEqualTo(template1)
+    verify(contextProvider, times(1)).fetchUserContext()
+  }
+
+  @Test
+  fun get_GivenRegisteredAndSharedPreferencesChange_CreateNewTemplate() {
+    cache.register()
+
+    cache.get()
+    whenever(userPrivacyUtil.usPrivacyOptout).thenReturn("true")
+    cache.onSharedPreferenceChanged(applicationSharedPreferences, "USPrivacy_Optout")
+    val template = cache.get()
+
+    assertThat(template.uspOptout).isEqualTo("true")
+  }
+
+  @Test
+  fun get_GivenRegisteredAndConfigurationChange_CreateNewTemplate() {
+    cache.register()
+
+    cache.get()
+    whenever(contextProvider.fetchUserContext()).thenReturn(mapOf("data.orientation" to "Landscape"))
+    cache.onConfigurationChanged(mock())
+    val template = cache.get()
+
+    assertThat(template.userContext).isEqualTo(mapOf("data.orientation" to "Landscape"))
+  }
+
+  @Test
+  fun get_GivenRegisteredAndConnectivityChange_CreateNewTemplate() {
+    cache.register()
+
+    cache.get()
+    whenever(contextProvider.fetchUserContext()).thenReturn(mapOf("device.contype" to 2))
+    cache.onConnectivityChanged()
+    val template = cache.get()
+
+    assertThat(template.userContext).isEqualTo(mapOf("device.contype" to 2))
+  }
+
+  @Test
+  fun get_GivenRegisteredAndNewUserData_CreateNewTemplate() {
+    cache.register()
+
+    cache.get()
+    val userData = UserData()
+    userDataHolder.set(userData)
+    val template = cache.get()
+
+    assertThat(template.userData).isSameAs(userData)
+  }
+
+  @Test
+  fun get_GivenRegisteredAndNewTagForChildDirectedTreatment_CreateNewTemplate() {
+    cache.register()
+
+    cache.get()
+    whenever(userPrivacyUtil.tagForChildDirectedTreatment).thenReturn(false)
+    val template = cache.get()
+
+    assertThat(template.regs).isEqualTo(CdbRegs(false))
+  }
+
+  @Test
+  fun get_GivenRegisteredAndInvalidatedWhileCreatingTemplate_DoNotReuseIt() {
+    cache.register()
+
+    whenever(integrationRegistry.profileId).thenAnswer {
+      cache.invalidate()
+      42
+    }
+    cache.get()
+    whenever(integrationRegistry.profileId).thenReturn(1337)
+    val template = cache.get()
+
+    assertThat(template.profileId).isEqualTo(1337)
+  }
+
+  @Test
+  fun get_GivenRegisteredAndReusedTemplate_RefreshSessionDuration() {
+    cache.register()
+    whenever(contextProvider.fetchUserContext()).thenReturn(
+        mapOf(
+            "device.make" to "make",
+            "data.sessionDuration" to 1
+        )
+    )
+    whenever(contextProvider.fetchSessionDuration()).thenReturn(45)
+
+    cache.get()
+    val template = cache.get()
+
+    assertThat(template.userContext).isEqualTo(
+        mapOf(
+            "device.make" to "make",
+            "data.sessionDuration" to 45
+        )
+    )
+    verify(contextProvider, times(1)).fetchUserContext()
+  }
+}
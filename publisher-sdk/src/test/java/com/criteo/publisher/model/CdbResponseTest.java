@@ -23,6 +23,10 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.criteo.publisher.DependencyProvider;
+import com.criteo.publisher.util.JsonSerializer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -157,4 +161,66 @@ public class CdbResponseTest {
     assertThat(cdbResponse.getConsentGiven()).isFalse();
   }
 
+  @Test
+  public void fromJson_GivenSessionToken_ReadIt() throws Exception {
+    String json = "{\"slots\":[], \"sessionToken\": \"myToken\"}";
+    CdbResponse cdbResponse = CdbResponse.fromJson(new JSONObject(json));
+
+    assertThat(cdbResponse.getSessionToken()).isEqualTo("myToken");
+  }
+
+  @Test
+  public void fromJson_GivenNoSessionToken_ReturnNull() throws Exception {
+    String json = "{\"slots\":[]}";
+    CdbResponse cdbResponse = CdbResponse.fromJson(new JSONObject(json));
+
+    assertThat(cdbResponse.getSessionToken()).isNull();
+  }
+
+  @Test
+  public void fromJsonValue_GivenPlainValues_ReadThemLikeJson() throws Exception {
+    Map<String, Object> slot = new LinkedHashMap<>();
+    slot.put("placementId", "adunit_1");
+    slot.put("cpm", "1.00");
+    slot.put("width", 320L);
+    slot.put("height", 50L);
+    slot.put("ttl", 3000L);
+
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("slots", asList(slot, "notASlot"));
+    json.put("timeToNextCall", 42L);
+    json.put("consentGiven", true);
+    json.put("sessionToken", "myToken");
+
+    CdbResponse cdbResponse = CdbResponse.fromJsonValue(json, givenJsonSerializer());
+
+    assertThat(cdbResponse.getTimeToNextCall()).isEqualTo(42);
+    assertThat(cdbResponse.getConsentGiven()).isTrue();
+    assertThat(cdbResponse.getSessionToken()).isEqualTo("myToken");
+    assertThat(cdbResponse.getSlots()).hasSize(1);
+    assertThat(cdbResponse.getSlots().get(0).getPlacementId()).isEqualTo("adunit_1");
+    assertThat(cdbResponse.getSlots().get(0).getWidth()).isEqualTo(320);
+    assertThat(cdbResponse.getSlots().get(0).getTtlInSeconds()).isEqualTo(3000);
+  }
+
+  @Test
+  public void fromJsonValue_GivenInvalidTypes_IgnoreThem() throws Exception {
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("slots", "notAList");
+    json.put("timeToNextCall", "xyz");
+    json.put("consentGiven", "true");
+    json.put("sessionToken", 42L);
+
+    CdbResponse cdbResponse = CdbResponse.fromJsonValue(json, givenJsonSerializer());
+
+    assertThat(cdbResponse.getTimeToNextCall()).isZero();
+    assertThat(cdbResponse.getSlots()).isEmpty();
+    assertThat(cdbResponse.getConsentGiven()).isNull();
+    assertThat(cdbResponse.getSessionToken()).isNull();
+  }
+
+  private JsonSerializer givenJsonSerializer() {
+    return DependencyProvider.getInstance().provideJsonSerializer();
+  }
+
 }
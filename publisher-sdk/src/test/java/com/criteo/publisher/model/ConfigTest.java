@@ -18,15 +18,19 @@ package com.criteo.publisher.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalAnswers.answerVoid;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +45,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Function;
 import org.junit.Before;
 import org.junit.Rule;
@@ -224,6 +230,56 @@ public class ConfigTest {
     refreshConfig_assertItIsUnchanged(newConfig, Config::isMraidEnabled);
   }
 
+  @Test
+  public void refreshConfig_GivenMissingInterstitialCreativePrefetchEnabled_ItIsUnchanged() throws Exception {
+    givenNewConfig();
+
+    RemoteConfigResponse newConfig = givenFullNewPayload(config);
+    when(newConfig.getInterstitialCreativePrefetchEnabled()).thenReturn(null);
+
+    refreshConfig_assertItIsUnchanged(newConfig, Config::isInterstitialCreativePrefetchEnabled);
+  }
+
+  @Test
+  public void refreshConfig_GivenMissingCdbBinaryProtocolEnabled_ItIsUnchanged() throws Exception {
+    givenNewConfig();
+
+    RemoteConfigResponse newConfig = givenFullNewPayload(config);
+    when(newConfig.getCdbBinaryProtocolEnabled()).thenReturn(null);
+
+    refreshConfig_assertItIsUnchanged(newConfig, Config::isCdbBinaryProtocolEnabled);
+  }
+
+  @Test
+  public void refreshConfig_GivenMissingBidRequestCoalescingWindow_ItIsUnchanged() throws Exception {
+    givenNewConfig();
+
+    RemoteConfigResponse newConfig = givenFullNewPayload(config);
+    when(newConfig.getBidRequestCoalescingWindowInMillis()).thenReturn(null);
+
+    refreshConfig_assertItIsUnchanged(newConfig, Config::getBidRequestCoalescingWindowInMillis);
+  }
+
+  @Test
+  public void refreshConfig_GivenMissingTelemetryEnvelopeEnabled_ItIsUnchanged() throws Exception {
+    givenNewConfig();
+
+    RemoteConfigResponse newConfig = givenFullNewPayload(config);
+    when(newConfig.getTelemetryEnvelopeEnabled()).thenReturn(null);
+
+    refreshConfig_assertItIsUnchanged(newConfig, Config::isTelemetryEnvelopeEnabled);
+  }
+
+  @Test
+  public void refreshConfig_GivenMissingCdbUrls_ItIsUnchanged() throws Exception {
+    givenNewConfig();
+
+    RemoteConfigResponse newConfig = givenFullNewPayload(config);
+    when(newConfig.getCdbUrls()).thenReturn(null);
+
+    refreshConfig_assertItIsUnchanged(newConfig, Config::getCdbUrls);
+  }
+
   private <T> void refreshConfig_assertItIsUnchanged(
       RemoteConfigResponse newConfig,
       Function<Config, T> projection
@@ -253,7 +309,12 @@ public class ConfigTest {
         42,
         false,
         RemoteLogLevel.ERROR,
-        false
+        false,
+        false,
+        false,
+        0,
+        false,
+        null
     );
 
     doAnswer(answerVoid((RemoteConfigResponse ignored, OutputStream outputStream) -> {
@@ -296,6 +357,11 @@ public class ConfigTest {
     boolean liveBiddingEnabled = config.isLiveBiddingEnabled();
     int liveBiddingTimeBudgetInMillis = config.getLiveBiddingTimeBudgetInMillis();
     boolean isMraidEnabled = config.isMraidEnabled();
+    boolean interstitialCreativePrefetchEnabled = config.isInterstitialCreativePrefetchEnabled();
+    boolean cdbBinaryProtocolEnabled = config.isCdbBinaryProtocolEnabled();
+    int bidRequestCoalescingWindowInMillis = config.getBidRequestCoalescingWindowInMillis();
+    boolean telemetryEnvelopeEnabled = config.isTelemetryEnvelopeEnabled();
+    List<String> cdbUrls = config.getCdbUrls();
 
     RemoteConfigResponse newConfig = givenFullNewPayload(config);
 
@@ -310,6 +376,146 @@ public class ConfigTest {
     assertEquals(liveBiddingEnabled, !config.isLiveBiddingEnabled());
     assertEquals(1 + liveBiddingTimeBudgetInMillis, config.getLiveBiddingTimeBudgetInMillis());
     assertEquals(isMraidEnabled, !config.isMraidEnabled());
+    assertEquals(interstitialCreativePrefetchEnabled, !config.isInterstitialCreativePrefetchEnabled());
+    assertEquals(cdbBinaryProtocolEnabled, !config.isCdbBinaryProtocolEnabled());
+    assertEquals(
+        1 + bidRequestCoalescingWindowInMillis,
+        config.getBidRequestCoalescingWindowInMillis()
+    );
+    assertEquals(telemetryEnvelopeEnabled, !config.isTelemetryEnvelopeEnabled());
+    assertEquals(Collections.singletonList("https://new.cdb"), config.getCdbUrls());
+    assertFalse(cdbUrls.contains("https://new.cdb"));
+  }
+
+  @Test
+  public void new_GivenEmptyLocalStorage_RemoteConfigIsStaleWithoutETag() {
+    givenNewConfig();
+
+    assertFalse(config.isRemoteConfigFresh("requestKey", 0));
+    assertNull(config.getRemoteConfigETag("requestKey"));
+  }
+
+  @Test
+  public void new_GivenValidatorsInLocalStorage_UseThem() {
+    givenValidatorsInLocalStorage("requestKey", "eTag", 1000L);
+
+    givenNewConfig();
+
+    assertEquals("eTag", config.getRemoteConfigETag("requestKey"));
+    assertTrue(config.isRemoteConfigFresh("requestKey", 999));
+    assertFalse(config.isRemoteConfigFresh("requestKey", 1000));
+  }
+
+  @Test
+  public void new_GivenValidatorsInLocalStorageOfAnotherRequestKey_IgnoreThem() {
+    givenValidatorsInLocalStorage("oldRequestKey", "eTag", 1000L);
+
+    givenNewConfig();
+
+    assertNull(config.getRemoteConfigETag("requestKey"));
+    assertFalse(config.isRemoteConfigFresh("requestKey", 0));
+  }
+
+  @Test
+  public void new_GivenValidatorsInLocalStorageWithoutRequestKey_IgnoreThem() {
+    givenValidatorsInLocalStorage(null, "eTag", 1000L);
+
+    givenNewConfig();
+
+    assertNull(config.getRemoteConfigETag("requestKey"));
+    assertFalse(config.isRemoteConfigFresh("requestKey", 0));
+  }
+
+  @Test
+  public void refreshConfig_GivenValidators_PersistThemAlongSerializedRemoteConfig() throws Exception {
+    Editor editor = mock(Editor.class);
+    when(sharedPreferences.edit()).thenReturn(editor);
+
+    givenNewConfig();
+
+    RemoteConfigResponse newConfig = RemoteConfigResponse.createEmpty().withKillSwitch(true);
+
+    doAnswer(answerVoid((RemoteConfigResponse ignored, OutputStream outputStream) -> {
+      outputStream.write("serialized".getBytes(StandardCharsets.UTF_8));
+    })).when(jsonSerializer).write(any(), any());
+
+    config.refreshConfig(newConfig, "requestKey", "eTag", 1000);
+
+    InOrder inOrder = inOrder(editor);
+    inOrder.verify(editor).putString("CriteoCachedConfig", "serialized");
+    inOrder.verify(editor).putString("CriteoCachedConfigRequestKey", "requestKey");
+    inOrder.verify(editor).putString("CriteoCachedConfigETag", "eTag");
+    inOrder.verify(editor).putLong("CriteoCachedConfigExpiration", 1000);
+    inOrder.verify(editor).apply();
+    inOrder.verifyNoMoreInteractions();
+
+    assertTrue(config.isKillSwitchEnabled());
+    assertEquals("eTag", config.getRemoteConfigETag("requestKey"));
+    assertTrue(config.isRemoteConfigFresh("requestKey", 999));
+    assertNull(config.getRemoteConfigETag("otherRequestKey"));
+    assertFalse(config.isRemoteConfigFresh("otherRequestKey", 999));
+  }
+
+  @Test
+  public void refreshConfig_GivenNoETag_RemovePersistedOne() throws Exception {
+    Editor editor = mock(Editor.class);
+    when(sharedPreferences.edit()).thenReturn(editor);
+    givenValidatorsInLocalStorage("requestKey", "oldETag", 0L);
+
+    givenNewConfig();
+
+    config.refreshConfig(RemoteConfigResponse.createEmpty(), "requestKey", null, 0);
+
+    verify(editor).remove("CriteoCachedConfigETag");
+    verify(editor).apply();
+    assertNull(config.getRemoteConfigETag("requestKey"));
+  }
+
+  @Test
+  public void extendRemoteConfigFreshness_GivenTime_PersistOnlyTheTime() throws Exception {
+    Editor editor = mock(Editor.class, Answers.RETURNS_SELF);
+    when(sharedPreferences.edit()).thenReturn(editor);
+    givenValidatorsInLocalStorage("requestKey", "eTag", 0L);
+
+    givenNewConfig();
+    boolean killSwitchEnabled = config.isKillSwitchEnabled();
+
+    config.extendRemoteConfigFreshness("requestKey", 1000);
+
+    InOrder inOrder = inOrder(editor);
+    inOrder.verify(editor).putLong("CriteoCachedConfigExpiration", 1000);
+    inOrder.verify(editor).apply();
+    inOrder.verifyNoMoreInteractions();
+    verify(jsonSerializer, never()).write(any(), any());
+
+    assertEquals(killSwitchEnabled, config.isKillSwitchEnabled());
+    assertTrue(config.isRemoteConfigFresh("requestKey", 999));
+  }
+
+  @Test
+  public void extendRemoteConfigFreshness_GivenAnotherRequestKey_IgnoreIt() throws Exception {
+    Editor editor = mock(Editor.class, Answers.RETURNS_SELF);
+    when(sharedPreferences.edit()).thenReturn(editor);
+    givenValidatorsInLocalStorage("requestKey", "eTag", 0L);
+
+    givenNewConfig();
+
+    config.extendRemoteConfigFreshness("otherRequestKey", 1000);
+
+    verifyNoInteractions(editor);
+    assertFalse(config.isRemoteConfigFresh("requestKey", 999));
+    assertFalse(config.isRemoteConfigFresh("otherRequestKey", 999));
+  }
+
+  private void givenValidatorsInLocalStorage(
+      String requestKey,
+      String eTag,
+      long expirationTimeInMillis
+  ) {
+    when(sharedPreferences.getString(eq("CriteoCachedConfigRequestKey"), any())).thenReturn(requestKey);
+    when(sharedPreferences.getString(eq("CriteoCachedConfigETag"), any())).thenReturn(eTag);
+    when(sharedPreferences.getLong(eq("CriteoCachedConfigExpiration"), anyLong()))
+        .thenReturn(expirationTimeInMillis);
   }
 
   private void givenNewConfig() {
@@ -335,6 +541,13 @@ public class ConfigTest {
 
     when(response.getRemoteLogLevel()).thenReturn(otherLogLevel);
     when(response.isMraidEnabled()).thenReturn(!config.isMraidEnabled());
+    when(response.getInterstitialCreativePrefetchEnabled())
+        .thenReturn(!config.isInterstitialCreativePrefetchEnabled());
+    when(response.getCdbBinaryProtocolEnabled()).thenReturn(!config.isCdbBinaryProtocolEnabled());
+    when(response.getBidRequestCoalescingWindowInMillis())
+        .thenReturn(1 + config.getBidRequestCoalescingWindowInMillis());
+    when(response.getTelemetryEnvelopeEnabled()).thenReturn(!config.isTelemetryEnvelopeEnabled());
+    when(response.getCdbUrls()).thenReturn(Collections.singletonList("https://new.cdb"));
 
     return response;
   }
@@ -353,6 +566,11 @@ public class ConfigTest {
     assertFalse(config.isLiveBiddingEnabled());
     assertEquals(8000, config.getLiveBiddingTimeBudgetInMillis());
     assertFalse(config.isMraidEnabled());
+    assertFalse(config.isInterstitialCreativePrefetchEnabled());
+    assertFalse(config.isCdbBinaryProtocolEnabled());
+    assertEquals(0, config.getBidRequestCoalescingWindowInMillis());
+    assertFalse(config.isTelemetryEnvelopeEnabled());
+    assertTrue(config.getCdbUrls().isEmpty());
   }
 
 }
\ No newline at end of file
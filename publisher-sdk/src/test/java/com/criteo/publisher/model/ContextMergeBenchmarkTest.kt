@@ -0,0 +1,167 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.model
+
+import com.criteo.publisher.benchmark.Benchmark
+import com.criteo.publisher.benchmark.measureTimePerOperation
+import com.criteo.publisher.benchmark.reportComparison
+import com.criteo.publisher.context.ContextData
+import com.criteo.publisher.context.ContextUtil.toMap
+import com.criteo.publisher.context.UserData
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import org.mockito.kotlin.mock
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compare the merge of context key-paths into the nested structure of bid requests, between the previous
+ * implementation (regex split and identity tracking of sub nodes) and the current one (interned key-paths and typed
+ * sub nodes). Results are asserted equal, timings are only reported by the [Benchmark] tests.
+ */
+class ContextMergeBenchmarkTest {
+
+  private val factory = CdbRequestFactory(mock(), "myCpId", mock(), mock(), mock(), mock())
+
+  @Test
+  fun publisherContext_SameResultAsPreviousMerge() {
+    val publisherContext = toMap(givenPublisherContextData())
+
+    assertThat(factory.mergeToNestedMap(publisherContext)).isEqualTo(legacyMergeToNestedMap(publisherContext))
+  }
+
+  @Test
+  fun userContext_SameResultAsPreviousMerge() {
+    val deviceContext = givenDeviceContext()
+    val userData = toMap(givenUserData())
+
+    assertThat(factory.mergeToNestedMap(deviceContext, userData))
+        .isEqualTo(legacyMergeToNestedMap(deviceContext, userData))
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun publisherContext_Benchmark() {
+    val publisherContext = toMap(givenPublisherContextData())
+
+    report(
+        "publisher ext (µs/op)",
+        measureMicros { legacyMergeToNestedMap(publisherContext) },
+        measureMicros { factory.mergeToNestedMap(publisherContext) }
+    )
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun userContext_Benchmark() {
+    val deviceContext = givenDeviceContext()
+    val userData = toMap(givenUserData())
+
+    report(
+        "user ext (µs/op)",
+        measureMicros { legacyMergeToNestedMap(deviceContext, userData) },
+        measureMicros { factory.mergeToNestedMap(deviceContext, userData) }
+    )
+  }
+
+  private fun measureMicros(operation: () -> Unit) =
+      measureTimePerOperation(WARM_UP_ITERATIONS, MEASURED_ITERATIONS, TimeUnit.MICROSECONDS, operation = operation)
+
+  private fun report(metric: String, previous: Double, current: Double) {
+    reportComparison("Context merge", metric, "previous" to previous, "current" to current)
+  }
+
+  /**
+   * Typical publisher context: content and app data, a few custom keys sharing prefixes.
+   */
+  private fun givenPublisherContextData() = ContextData()
+      .set(ContextData.CONTENT_URL, "https://www.criteo.com/news/article-1337")
+      .set("content.keywords", listOf("sport", "football", "league"))
+      .set("content.language", "en")
+      .set("content.category", "IAB17")
+      .set("content.livestream", 0)
+      .set("data.pageType", "article")
+      .set("data.section", "sport")
+      .set("data.subsection", "football")
+      .set("data.premium", 1)
+      .set("data.abTest", "variant-b")
+
+  /**
+   * Same keys as the ones fetched by the device context.
+   */
+  private fun givenDeviceContext(): Map<String, Any> = mapOf(
+      "device.make" to "Google",
+      "device.model" to "Pixel 7",
+      "device.contype" to 2,
+      "device.w" to 1080,
+      "device.h" to 2400,
+      "data.orientation" to "Portrait",
+      "user.geo.country" to "FR",
+      "data.inputLanguage" to listOf("fr", "en"),
+      "data.sessionDuration" to 45
+  )
+
+  private fun givenUserData() = UserData()
+      .set(UserData.HASHED_EMAIL, "000e3171a5110c35c69d060112bd0ba55d9631c7c2ec93f1840e4570095b263a")
+      .set(UserData.DEV_USER_ID, "d1b4ed5b-4bc2-4f5c-8a8d-07b1f0e4a1c2")
+      .set("user.geo.zip", "75009")
+      .set("user.geo.zip.plus4", "0001")
+      .set("user.yob", 1985)
+      .set("data.loyaltyLevel", "gold")
+      .set("device.make", "skipped")
+
+  @Suppress("UNCHECKED_CAST", "NestedBlockDepth")
+  private fun legacyMergeToNestedMap(vararg flattenMaps: Map<String, Any>): Map<String, Any> {
+    val nestedMap = LinkedHashMap<String, Any>()
+    val subNodes = Collections.newSetFromMap(IdentityHashMap<Any, Boolean>())
+
+    for (flattenMap in flattenMaps) {
+      for ((key, value) in flattenMap) {
+        var node: MutableMap<String, Any> = nestedMap
+        val pathParts = key.split("\\.".toRegex())
+        if (pathParts.any { it.isEmpty() }) {
+          continue
+        }
+
+        for (pathPart in pathParts.dropLast(1)) {
+          val nestedValue = node[pathPart]
+          if (nestedValue == null) {
+            val newNode = LinkedHashMap<String, Any>()
+            subNodes.add(newNode)
+            node[pathPart] = newNode
+            node = newNode
+          } else if (nestedValue in subNodes) {
+            node = nestedValue as MutableMap<String, Any>
+          } else {
+            break
+          }
+        }
+
+        node.putIfAbsent(pathParts.last(), value)
+      }
+    }
+
+    return nestedMap
+  }
+
+  private companion object {
+    const val WARM_UP_ITERATIONS = 2000
+    const val MEASURED_ITERATIONS = 20000
+  }
+}
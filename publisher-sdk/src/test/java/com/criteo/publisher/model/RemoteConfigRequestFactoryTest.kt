@@ -28,6 +28,7 @@ import org.mockito.Mock
 import org.mockito.junit.MockitoJUnit
 import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.stub
+import org.mockito.kotlin.verifyNoMoreInteractions
 
 class RemoteConfigRequestFactoryTest {
 
@@ -86,4 +87,37 @@ class RemoteConfigRequestFactoryTest {
         assertThat(request.profileId).isEqualTo(456)
         assertThat(request.deviceId).isEqualTo("myAdvertisingId")
     }
+
+    @Test
+    fun createRequestKey_GivenDifferentSdkVersions_ReturnDifferentKeys() {
+        context.stub {
+            on { packageName } doReturn "my.bundle"
+        }
+
+        buildConfigWrapper.stub {
+            on { sdkVersion } doReturn "1.2.3"
+        }
+        val key1 = factory.createRequestKey()
+
+        buildConfigWrapper.stub {
+            on { sdkVersion } doReturn "1.2.4"
+        }
+        val key2 = factory.createRequestKey()
+
+        assertThat(key1).isNotEqualTo(key2)
+    }
+
+    @Test
+    fun createRequestKey_GivenSameInput_ReturnSameKeyWithoutReadingAdvertisingId() {
+        buildConfigWrapper.stub {
+            on { sdkVersion } doReturn "1.2.3"
+        }
+
+        context.stub {
+            on { packageName } doReturn "my.bundle"
+        }
+
+        assertThat(factory.createRequestKey()).isEqualTo(factory.createRequestKey())
+        verifyNoMoreInteractions(advertisingInfo)
+    }
 }
@@ -87,7 +87,12 @@ class RemoteConfigResponseTest {
       "liveBiddingTimeBudgetInMillis": 42,
       "prefetchOnInitEnabled": true,
       "remoteLogLevel": "Warning",
-      "mraidEnabled": true
+      "mraidEnabled": true,
+      "interstitialCreativePrefetchEnabled": true,
+      "cdbBinaryProtocolEnabled": true,
+      "bidRequestCoalescingWindowInMillis": 10,
+      "telemetryEnvelopeEnabled": true,
+      "cdbUrls": ["https://cdb1.criteo.com", "https://cdb2.criteo.com"]
     }""".trimIndent()
 
     val response = readFromString(json)
@@ -103,6 +108,11 @@ class RemoteConfigResponseTest {
     assertThat(response.prefetchOnInitEnabled).isTrue()
     assertThat(response.remoteLogLevel).isEqualTo(RemoteLogLevel.WARNING)
     assertThat(response.isMraidEnabled).isTrue
+    assertThat(response.interstitialCreativePrefetchEnabled).isTrue
+    assertThat(response.cdbBinaryProtocolEnabled).isTrue
+    assertThat(response.bidRequestCoalescingWindowInMillis).isEqualTo(10)
+    assertThat(response.telemetryEnvelopeEnabled).isTrue
+    assertThat(response.cdbUrls).containsExactly("https://cdb1.criteo.com", "https://cdb2.criteo.com")
   }
 
   @Test
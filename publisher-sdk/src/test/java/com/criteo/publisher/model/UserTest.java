@@ -22,6 +22,7 @@ import static org.junit.Assert.assertFalse;
 import com.criteo.publisher.mock.MockedDependenciesRule;
 import com.criteo.publisher.util.JsonSerializer;
 import com.criteo.publisher.util.JsonSerializerExtKt;
+import com.squareup.moshi.Moshi;
 import java.io.IOException;
 import java.util.HashMap;
 import javax.inject.Inject;
@@ -36,7 +37,7 @@ public class UserTest {
   public final MockedDependenciesRule mockedDependenciesRule = new MockedDependenciesRule();
 
   @Inject
-  private JsonSerializer serializer;
+  private Moshi moshi;
 
   @Test
   public void testToJson_AllFieldsProvided() throws Exception {
@@ -72,6 +73,9 @@ public class UserTest {
   }
 
   private JSONObject toJson(User user) throws IOException, JSONException {
+    // Nested types are not registered in the SDK serializer: they are only serialized on their own
+    // in tests
+    JsonSerializer serializer = new JsonSerializer(moshi);
     return new JSONObject(JsonSerializerExtKt.writeIntoString(serializer, user));
   }
 }
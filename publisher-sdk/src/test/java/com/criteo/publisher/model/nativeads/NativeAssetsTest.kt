@@ -18,6 +18,7 @@ package com.criteo.publisher.model.nativeads
 
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.util.JsonSerializer
+import com.squareup.moshi.Moshi
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatCode
 import org.junit.Rule
@@ -34,7 +35,10 @@ class NativeAssetsTest {
   var mockedDependenciesRule = MockedDependenciesRule()
 
   @Inject
-  private lateinit var jsonSerializer: JsonSerializer
+  private lateinit var moshi: Moshi
+
+  // Nested types are not registered in the SDK serializer: they are only serialized on their own in tests
+  private val jsonSerializer by lazy { JsonSerializer(moshi) }
 
   @Test
   fun fromJson_GivenSampleData_ReadThem() {
@@ -100,6 +104,48 @@ class NativeAssetsTest {
     }.isInstanceOf(IOException::class.java)
   }
 
+  @Test
+  fun materialize_GivenValidUrls_ReturnTrueAndReadThem() {
+    val assets = read<NativeAssets>(getAssetsJson(getProductJson()))
+
+    val isMaterialized = assets.materialize()
+
+    assertThat(isMaterialized).isTrue()
+    assertThat(assets.product.clickUrl.toString()).isEqualTo("http://click.url")
+    assertThat(assets.impressionPixels.map { it.toString() }).containsExactly("http://pixel.url")
+  }
+
+  @Test
+  fun materialize_GivenMalformedUrl_ParseThenReturnFalse() {
+    val productJson = getProductJson().replace("http://image.url", "not a url")
+
+    val assets = read<NativeAssets>(getAssetsJson(productJson))
+
+    assertThat(assets.materialize()).isFalse()
+  }
+
+  @Test
+  fun materialize_GivenMalformedUri_ParseThenReturnFalse() {
+    val productJson = getProductJson().replace("http://click.url", "http://click url")
+
+    val assets = read<NativeAssets>(getAssetsJson(productJson))
+
+    assertThat(assets.materialize()).isFalse()
+  }
+
+  private fun getAssetsJson(productJson: String): String {
+    return """{
+      |  "products": [
+      |    $productJson
+      |  ],
+      |  "advertiser": ${getAdvertiserJson()},
+      |  "privacy": ${getPrivacyJson()},
+      |  "impressionPixels": [
+      |    $impressionPixelJson
+      |  ]
+      |}""".trimMargin()
+  }
+
   private fun getProductJson(): String {
     return """{
         |      "title": "myTitle",
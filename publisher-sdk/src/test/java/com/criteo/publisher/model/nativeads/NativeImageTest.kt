@@ -18,6 +18,7 @@ package com.criteo.publisher.model.nativeads
 
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.util.JsonSerializer
+import com.squareup.moshi.Moshi
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatCode
 import org.junit.Rule
@@ -34,23 +35,30 @@ class NativeImageTest {
   var mockedDependenciesRule = MockedDependenciesRule()
 
   @Inject
-  private lateinit var jsonSerializer: JsonSerializer
+  private lateinit var moshi: Moshi
+
+  // Nested types are not registered in the SDK serializer: they are only serialized on their own in tests
+  private val jsonSerializer by lazy { JsonSerializer(moshi) }
 
   @Test
-  fun fromJson_GivenEmptyUrl_ThrowAnException() {
+  fun fromJson_GivenEmptyUrl_ThrowAnExceptionWhenReadingIt() {
     val json = """{"url": ""}"""
 
+    val parsed = read(json)
+
     assertThatCode {
-      read(json)
+      parsed.url
     }.isInstanceOf(IOException::class.java)
   }
 
   @Test
-  fun fromJson_GivenMalformedUrl_ThrowAnException() {
+  fun fromJson_GivenMalformedUrl_ThrowAnExceptionWhenReadingIt() {
     val json = """{"url": "not a url"}"""
 
+    val parsed = read(json)
+
     assertThatCode {
-      read(json)
+      parsed.url
     }.isInstanceOf(IOException::class.java)
   }
 
@@ -18,6 +18,7 @@ package com.criteo.publisher.model.nativeads
 
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.util.JsonSerializer
+import com.squareup.moshi.Moshi
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.Rule
 import org.junit.Test
@@ -32,7 +33,10 @@ class NativePrivacyTest {
   var mockedDependenciesRule = MockedDependenciesRule()
 
   @Inject
-  private lateinit var jsonSerializer: JsonSerializer
+  private lateinit var moshi: Moshi
+
+  // Nested types are not registered in the SDK serializer: they are only serialized on their own in tests
+  private val jsonSerializer by lazy { JsonSerializer(moshi) }
 
   @Test
   fun fromJson_GivenEmptyDataExceptUrl_ReturnsPrivacyWithEmptyData() {
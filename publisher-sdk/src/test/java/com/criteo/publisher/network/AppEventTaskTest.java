@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -35,6 +36,7 @@ import com.criteo.publisher.privacy.UserPrivacyUtil;
 import com.criteo.publisher.privacy.gdpr.GdprData;
 import com.criteo.publisher.util.AdvertisingInfo;
 import com.criteo.publisher.util.AppEventResponseListener;
+import java.io.IOException;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Rule;
@@ -140,6 +142,19 @@ public class AppEventTaskTest {
     ));
   }
 
+  @Test
+  public void backgroundTask_GivenNetworkError_NotifyListenerOfFailure() throws Exception {
+    IOException exception = new IOException();
+
+    whenApiPostAppEvent().thenThrow(exception);
+
+    AppEventTask appEventTask = createTask("eventType");
+    appEventTask.run();
+
+    verify(responseListener).onAppEventFailed(exception);
+    verify(responseListener, never()).setThrottle(anyInt());
+  }
+
   private void givenApiReturning(JSONObject json) throws Exception {
     whenApiPostAppEvent().thenReturn(json);
   }
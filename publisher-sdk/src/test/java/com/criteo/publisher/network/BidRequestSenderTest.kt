@@ -21,15 +21,19 @@ import com.criteo.publisher.Clock
 import com.criteo.publisher.concurrent.DirectMockExecutor
 import com.criteo.publisher.context.ContextData
 import com.criteo.publisher.model.AdSize
+import com.criteo.publisher.model.AdUnitMapper
 import com.criteo.publisher.model.CacheAdUnit
 import com.criteo.publisher.model.CdbRequest
+import com.criteo.publisher.model.CdbRequestDeviceInfo
 import com.criteo.publisher.model.CdbRequestFactory
 import com.criteo.publisher.model.CdbResponse
 import com.criteo.publisher.model.Config
 import com.criteo.publisher.model.RemoteConfigRequest
 import com.criteo.publisher.model.RemoteConfigRequestFactory
 import com.criteo.publisher.model.RemoteConfigResponse
+import com.criteo.publisher.network.RequestScheduler.Priority
 import com.criteo.publisher.util.AdUnitType.CRITEO_BANNER
+import com.criteo.publisher.util.CompletableFuture
 import com.criteo.publisher.util.CompletableFuture.completedFuture
 import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatCode
@@ -41,11 +45,14 @@ import org.mockito.junit.MockitoJUnit
 import org.mockito.kotlin.any
 import org.mockito.kotlin.anyOrNull
 import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.check
 import org.mockito.kotlin.doAnswer
 import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.eq
 import org.mockito.kotlin.inOrder
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
 import org.mockito.kotlin.spy
 import org.mockito.kotlin.stub
 import org.mockito.kotlin.times
@@ -58,6 +65,7 @@ import java.util.concurrent.CyclicBarrier
 import java.util.concurrent.Executor
 import java.util.concurrent.Executors
 import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicInteger
 
@@ -79,15 +87,32 @@ class BidRequestSenderTest {
     @Mock
     private lateinit var api: PubSdkApi
 
+    @Mock
+    private lateinit var networkPolicy: NetworkPolicy
+
+    @Mock
+    private lateinit var config: Config
+
+    @Mock
+    private lateinit var adUnitMapper: AdUnitMapper
+
+    @Mock
+    private lateinit var scheduledExecutorService: ScheduledExecutorService
+
     private var executor = Executor(Runnable::run)
 
     private lateinit var sender: BidRequestSender
 
     private val adUnitId = AtomicInteger(0)
 
+    private val deviceInfo = CdbRequestDeviceInfo("", null)
+
     @Before
     fun setUp() {
-        whenever(cdbRequestFactory.userAgent).doReturn(completedFuture(""))
+        whenever(cdbRequestFactory.awaitDeviceInfo()).doReturn(completedFuture(deviceInfo))
+        whenever(networkPolicy.getNetworkTimeoutInMillis()).doReturn(1000)
+        whenever(adUnitMapper.chunkSize).doReturn(8)
+        whenever(remoteConfigRequestFactory.createRequestKey()).doReturn("requestKey")
 
         givenNewSender()
     }
@@ -98,28 +123,91 @@ class BidRequestSenderTest {
             remoteConfigRequestFactory,
             clock,
             api,
-            executor
+            executor,
+            networkPolicy,
+            config,
+            adUnitMapper,
+            scheduledExecutorService
         )
     }
 
+    @Test
+    fun sendConnectionWarmUpRequest_GivenExecutor_WarmUpConnectionInExecutor() {
+        val executor = DirectMockExecutor()
+        givenNewSender(executor = executor)
+
+        doAnswer {
+            executor.expectIsRunningInExecutor()
+            null
+        }.whenever(api).warmUpCdbConnection()
+
+        sender.sendConnectionWarmUpRequest()
+
+        verify(api).warmUpCdbConnection()
+        executor.verifyExpectations()
+    }
+
+    @Test
+    fun sendConnectionWarmUpRequest_GivenException_DoNotThrow() {
+        doThrow(IOException()).whenever(api).warmUpCdbConnection()
+
+        assertThatCode {
+            sender.sendConnectionWarmUpRequest()
+        }.doesNotThrowAnyException()
+    }
+
     @Test
     fun sendRemoteConfigRequest_GivenSuccessfulResponse_RefreshConfig() {
-        val configToUpdate: Config = mock()
+        val configToUpdate: Config = mock {
+            on { getRemoteConfigETag("requestKey") } doReturn "oldETag"
+        }
         val request: RemoteConfigRequest = mock()
         val response: RemoteConfigResponse = mock()
 
+        whenever(clock.currentTimeInMillis).doReturn(1000)
         whenever(remoteConfigRequestFactory.createRequest()).doReturn(request)
-        whenever(api.loadConfig(request)).doReturn(response)
+        whenever(api.loadConfig(request, "oldETag")).doReturn(ConditionalResponse(response, "newETag", 42))
 
         sender.sendRemoteConfigRequest(configToUpdate)
 
-        verify(configToUpdate).refreshConfig(response)
+        verify(configToUpdate).refreshConfig(response, "requestKey", "newETag", 1042)
+    }
+
+    @Test
+    fun sendRemoteConfigRequest_GivenNotModifiedResponse_OnlyExtendFreshness() {
+        val configToUpdate: Config = mock {
+            on { getRemoteConfigETag("requestKey") } doReturn "eTag"
+        }
+        val request: RemoteConfigRequest = mock()
+
+        whenever(clock.currentTimeInMillis).doReturn(1000)
+        whenever(remoteConfigRequestFactory.createRequest()).doReturn(request)
+        whenever(api.loadConfig(request, "eTag")).doReturn(ConditionalResponse(null, "eTag", 42))
+
+        sender.sendRemoteConfigRequest(configToUpdate)
+
+        verify(configToUpdate).extendRemoteConfigFreshness("requestKey", 1042)
+        verify(configToUpdate, never()).refreshConfig(any())
+        verify(configToUpdate, never()).refreshConfig(any(), any(), anyOrNull(), any())
+    }
+
+    @Test
+    fun sendRemoteConfigRequest_GivenFreshConfig_DoNotSendRequest() {
+        val configToUpdate: Config = mock {
+            on { isRemoteConfigFresh("requestKey", 1000) } doReturn true
+        }
+        whenever(clock.currentTimeInMillis).doReturn(1000)
+
+        sender.sendRemoteConfigRequest(configToUpdate)
+
+        verifyZeroInteractions(api)
+        verify(configToUpdate, never()).refreshConfig(any(), any(), anyOrNull(), any())
     }
 
     @Test
     fun sendRemoteConfigRequest_GivenException_DoNotThrow() {
         val configToUpdate: Config = mock()
-        whenever(api.loadConfig(any())).doThrow(IOException::class)
+        whenever(api.loadConfig(anyOrNull(), anyOrNull())).doThrow(IOException::class)
 
         assertThatCode {
             sender.sendRemoteConfigRequest(configToUpdate)
@@ -133,8 +221,8 @@ class BidRequestSenderTest {
 
         doAnswer {
             executor.expectIsRunningInExecutor()
-            null
-        }.whenever(api).loadConfig(anyOrNull())
+            ConditionalResponse<RemoteConfigResponse>(null)
+        }.whenever(api).loadConfig(anyOrNull(), anyOrNull())
 
         sender.sendRemoteConfigRequest(mock())
 
@@ -149,14 +237,15 @@ class BidRequestSenderTest {
         val listener: CdbCallListener = mock()
         val request: CdbRequest = mock()
         val userAgent = "myUserAgent"
+        val deviceInfo = CdbRequestDeviceInfo(userAgent, "myAdvertisingId")
         val response: CdbResponse = mock()
 
         cdbRequestFactory.stub {
-            on { createRequest(adUnits, contextData) } doReturn request
-            on { it.userAgent } doReturn completedFuture(userAgent)
+            on { createRequest(adUnits, contextData, deviceInfo) } doReturn request
+            on { awaitDeviceInfo() } doReturn completedFuture(deviceInfo)
         }
 
-        whenever(api.loadCdb(request, userAgent)).doReturn(response)
+        whenever(api.loadCdb(eq(request), eq(userAgent), any())).doReturn(response)
 
         sender.sendBidRequest(adUnits, contextData, listener)
 
@@ -174,14 +263,15 @@ class BidRequestSenderTest {
         val listener: CdbCallListener = mock()
         val request: CdbRequest = mock()
         val userAgent = "myUserAgent"
+        val deviceInfo = CdbRequestDeviceInfo(userAgent, "myAdvertisingId")
         val exception = IOException("")
 
         cdbRequestFactory.stub {
-            on { createRequest(adUnits, contextData) } doReturn request
-            on { it.userAgent } doReturn completedFuture(userAgent)
+            on { createRequest(adUnits, contextData, deviceInfo) } doReturn request
+            on { awaitDeviceInfo() } doReturn completedFuture(deviceInfo)
         }
 
-        whenever(api.loadCdb(request, userAgent)).doThrow(exception)
+        whenever(api.loadCdb(eq(request), eq(userAgent), any())).doThrow(exception)
 
         sender.sendBidRequest(adUnits, contextData, listener)
 
@@ -191,6 +281,135 @@ class BidRequestSenderTest {
         inOrder.verifyNoMoreInteractions()
     }
 
+    @Test
+    fun sendBidRequest_GivenNetworkTimeout_CallApiWithDeadlineBoundedByIt() {
+        whenever(clock.currentTimeInMillis).doReturn(42)
+        whenever(networkPolicy.getNetworkTimeoutInMillis()).doReturn(500)
+
+        sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
+
+        verify(api).loadCdb(anyOrNull(), any(), check {
+            assertThat(it.getRemainingTimeInMillis()).isEqualTo(500)
+        })
+    }
+
+    @Test
+    fun sendBidRequest_GivenDeadlineExpiredBeforeExecution_DoNotCallApiAndNotifyListener() {
+        val asyncExecutor = mutableListOf<Runnable>()
+        executor = Executor { asyncExecutor.add(it) }
+        givenNewSender()
+        val listener: CdbCallListener = mock()
+
+        whenever(clock.currentTimeInMillis).doReturn(0)
+        sender.sendBidRequest(listOf(createAdUnit()), mock(), listener)
+
+        whenever(clock.currentTimeInMillis).doReturn(1000)
+        asyncExecutor.forEach { it.run() }
+
+        verifyZeroInteractions(api)
+        verify(listener).onCdbCallAbandoned(any<DeadlineExceededException>())
+        verify(listener, never()).onCdbRequest(any())
+        assertThat(sender.pendingTaskAdUnits).isEmpty()
+    }
+
+    @Test
+    fun sendBidRequest_GivenErrorWhileCreatingRequest_NotifyListener() {
+        val listener: CdbCallListener = mock()
+        val exception = IllegalStateException()
+        whenever(cdbRequestFactory.createRequest(any(), any(), any())).doThrow(exception)
+
+        sender.sendBidRequest(listOf(createAdUnit()), mock(), listener)
+
+        verifyZeroInteractions(api)
+        verify(listener).onCdbCallAbandoned(exception)
+        verify(listener, never()).onCdbRequest(any())
+        assertThat(sender.pendingTaskAdUnits).isEmpty()
+    }
+
+    @Test
+    fun sendBidRequest_GivenDeviceInfoNotAvailableBeforeDeadline_DoNotCallApiAndNotifyListener() {
+        whenever(networkPolicy.getNetworkTimeoutInMillis()).doReturn(10)
+        whenever(cdbRequestFactory.awaitDeviceInfo()).doReturn(CompletableFuture())
+        val listener: CdbCallListener = mock()
+
+        sender.sendBidRequest(listOf(createAdUnit()), mock(), listener)
+
+        argumentCaptor<Runnable> {
+            verify(scheduledExecutorService).schedule(capture(), eq(10L), eq(TimeUnit.MILLISECONDS))
+            firstValue.run()
+        }
+
+        verifyZeroInteractions(api)
+        verify(listener).onCdbCallAbandoned(any<DeadlineExceededException>())
+        verify(listener, never()).onCdbRequest(any())
+        assertThat(sender.pendingTaskAdUnits).isEmpty()
+    }
+
+    @Test
+    fun sendBidRequest_GivenDeviceInfoNotAvailableYet_ReleaseThreadAndResumeInExecutorOnceAvailable() {
+        val asyncExecutor = mutableListOf<Runnable>()
+        executor = Executor { asyncExecutor.add(it) }
+        givenNewSender()
+
+        val pendingDeviceInfo = CompletableFuture<CdbRequestDeviceInfo>()
+        val adUnit = createAdUnit()
+        val request: CdbRequest = mock()
+        cdbRequestFactory.stub {
+            on { awaitDeviceInfo() } doReturn pendingDeviceInfo
+            on { createRequest(any(), any(), any()) } doReturn request
+        }
+
+        sender.sendBidRequest(listOf(adUnit), mock(), mock())
+        asyncExecutor.removeAt(0).run()
+
+        verifyZeroInteractions(api)
+        assertThat(asyncExecutor).isEmpty()
+        assertThat(sender.pendingTaskAdUnits).containsExactly(adUnit)
+
+        pendingDeviceInfo.complete(CdbRequestDeviceInfo("myUserAgent", null))
+        verifyZeroInteractions(api)
+        asyncExecutor.removeAt(0).run()
+
+        verify(api).loadCdb(eq(request), eq("myUserAgent"), any())
+        assertThat(sender.pendingTaskAdUnits).isEmpty()
+    }
+
+    @Test
+    fun sendBidRequest_GivenRequestSchedulerAndCallWaitingForDeviceInfo_KeepTelemetryDeferredUntilCallIsOver() {
+        val scheduler = RequestScheduler(executor, scheduledExecutorService, mock {
+            on { maxTelemetryDeferralInMillis } doReturn 5000
+        })
+        givenNewSender(executor = scheduler.executorFor(Priority.BIDDING))
+
+        val pendingDeviceInfo = CompletableFuture<CdbRequestDeviceInfo>()
+        whenever(cdbRequestFactory.awaitDeviceInfo()).doReturn(pendingDeviceInfo)
+        val telemetry: Runnable = mock()
+
+        sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
+        scheduler.execute(Priority.TELEMETRY, telemetry)
+
+        verify(telemetry, never()).run()
+
+        pendingDeviceInfo.complete(deviceInfo)
+
+        val inOrder = inOrder(api, telemetry)
+        inOrder.verify(api).loadCdb(any(), any(), any())
+        inOrder.verify(telemetry).run()
+    }
+
+    @Test
+    fun cancelAllPendingTasks_GivenCallWaitingForDeviceInfo_DoNotCallApiOnceAvailable() {
+        val pendingDeviceInfo = CompletableFuture<CdbRequestDeviceInfo>()
+        whenever(cdbRequestFactory.awaitDeviceInfo()).doReturn(pendingDeviceInfo)
+
+        sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
+        sender.cancelAllPendingTasks()
+        pendingDeviceInfo.complete(deviceInfo)
+
+        verifyZeroInteractions(api)
+        assertThat(sender.pendingTaskAdUnits).isEmpty()
+    }
+
     @Test
     fun sendBidRequest_GivenExecutor_IsWorkingInExecutor() {
         val executor = DirectMockExecutor()
@@ -199,7 +418,7 @@ class BidRequestSenderTest {
         doAnswer {
             executor.expectIsRunningInExecutor()
             null
-        }.whenever(api).loadCdb(anyOrNull(), anyOrNull())
+        }.whenever(api).loadCdb(anyOrNull(), anyOrNull(), anyOrNull())
 
         sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
 
@@ -216,7 +435,7 @@ class BidRequestSenderTest {
         doAnswer {
             bothRequestsAreInParallel.await()
             null
-        }.whenever(api).loadCdb(anyOrNull(), anyOrNull())
+        }.whenever(api).loadCdb(anyOrNull(), anyOrNull(), anyOrNull())
 
         sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
         sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
@@ -229,7 +448,7 @@ class BidRequestSenderTest {
         executor = spy(Executors.newFixedThreadPool(2))
         givenNewSender()
 
-        whenever(api.loadCdb(any(), any())).doReturn(mock())
+        whenever(api.loadCdb(any(), any(), any())).doReturn(mock())
 
         val adUnit = createAdUnit()
 
@@ -263,7 +482,7 @@ class BidRequestSenderTest {
         assertThat(requestsAreDone.await(1, TimeUnit.SECONDS)).isTrue()
 
         argumentCaptor<List<CacheAdUnit>> {
-            verify(cdbRequestFactory, times(2)).createRequest(capture(), any())
+            verify(cdbRequestFactory, times(2)).createRequest(capture(), any(), any())
 
             assertThat(allValues).containsExactlyInAnyOrder(listOf(adUnit), listOf(otherAdUnit))
         }
@@ -278,7 +497,7 @@ class BidRequestSenderTest {
 
     @Test
     fun sendBidRequest_GivenExceptionDuringCall_TaskIsCleaned() {
-        whenever(api.loadCdb(any(), any())).doThrow(RuntimeException::class)
+        whenever(api.loadCdb(any(), any(), any())).doThrow(RuntimeException::class)
 
         sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
 
@@ -290,10 +509,13 @@ class BidRequestSenderTest {
         executor = Executor { throw RejectedExecutionException() }
         givenNewSender()
 
+        val listener: CdbCallListener = mock()
+
         assertThatCode {
-            sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
+            sender.sendBidRequest(listOf(createAdUnit()), mock(), listener)
         }.isInstanceOf(RuntimeException::class.java)
 
+        verify(listener).onCdbCallAbandoned(any<RejectedExecutionException>())
         assertThat(sender.pendingTaskAdUnits).isEmpty()
     }
 
@@ -322,7 +544,7 @@ class BidRequestSenderTest {
                 throw e
             }
             null
-        }.whenever(api).loadCdb(anyOrNull(), anyOrNull())
+        }.whenever(api).loadCdb(anyOrNull(), anyOrNull(), anyOrNull())
 
         sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
         sender.sendBidRequest(listOf(createAdUnit()), mock(), mock())
@@ -333,6 +555,113 @@ class BidRequestSenderTest {
         assertThat(bothCallsAreInterrupted.await(1, TimeUnit.SECONDS)).isTrue()
     }
 
+    @Test
+    fun sendBidRequest_GivenCoalescingWindow_MergeRequestsArrivingWithinIt() {
+        whenever(config.bidRequestCoalescingWindowInMillis).doReturn(10)
+        val adUnit1 = createAdUnit()
+        val adUnit2 = createAdUnit()
+        val contextData = ContextData()
+        val listener: CdbCallListener = mock()
+        val request: CdbRequest = mock()
+
+        cdbRequestFactory.stub {
+            on { createRequest(listOf(adUnit1, adUnit2), contextData, deviceInfo) } doReturn request
+        }
+
+        sender.sendBidRequest(listOf(adUnit1), contextData, listener)
+        sender.sendBidRequest(listOf(adUnit2), ContextData(), listener)
+
+        verifyZeroInteractions(listener)
+        assertThat(sender.pendingTaskAdUnits).containsExactlyInAnyOrder(adUnit1, adUnit2)
+
+        argumentCaptor<Runnable>().apply {
+            verify(scheduledExecutorService).schedule(capture(), eq(10L), eq(TimeUnit.MILLISECONDS))
+            firstValue.run()
+        }
+
+        verify(listener).onCdbRequest(request)
+        verify(api).loadCdb(eq(request), any(), any())
+        assertThat(sender.pendingTaskAdUnits).isEmpty()
+    }
+
+    @Test
+    fun sendBidRequest_GivenCoalescedRequestReachingChunkSize_SendItWithoutWaitingEndOfWindow() {
+        whenever(config.bidRequestCoalescingWindowInMillis).doReturn(10)
+        whenever(adUnitMapper.chunkSize).doReturn(2)
+        val adUnit1 = createAdUnit()
+        val adUnit2 = createAdUnit()
+        val adUnit3 = createAdUnit()
+        val contextData = ContextData()
+        val listener: CdbCallListener = mock()
+
+        sender.sendBidRequest(listOf(adUnit1), contextData, listener)
+        sender.sendBidRequest(listOf(adUnit2), contextData, listener)
+        sender.sendBidRequest(listOf(adUnit3), contextData, listener)
+
+        verify(cdbRequestFactory).createRequest(listOf(adUnit1, adUnit2), contextData, deviceInfo)
+        verify(cdbRequestFactory, never()).createRequest(listOf(adUnit3), contextData, deviceInfo)
+
+        argumentCaptor<Runnable>().apply {
+            verify(scheduledExecutorService, times(2)).schedule(capture(), any(), any())
+
+            // The end of the first window is a no-op as its request was already sent
+            firstValue.run()
+            verify(cdbRequestFactory, times(1)).createRequest(any(), any(), any())
+
+            secondValue.run()
+            verify(cdbRequestFactory).createRequest(listOf(adUnit3), contextData, deviceInfo)
+        }
+    }
+
+    @Test
+    fun sendBidRequest_GivenCoalescingWindowAndDifferentListeners_SendThemSeparately() {
+        whenever(config.bidRequestCoalescingWindowInMillis).doReturn(10)
+        val adUnit1 = createAdUnit()
+        val adUnit2 = createAdUnit()
+        val contextData = ContextData()
+
+        sender.sendBidRequest(listOf(adUnit1), contextData, mock())
+        sender.sendBidRequest(listOf(adUnit2), contextData, mock())
+
+        verify(cdbRequestFactory).createRequest(listOf(adUnit2), contextData, deviceInfo)
+
+        argumentCaptor<Runnable>().apply {
+            verify(scheduledExecutorService).schedule(capture(), any(), any())
+            firstValue.run()
+        }
+
+        verify(cdbRequestFactory).createRequest(listOf(adUnit1), contextData, deviceInfo)
+    }
+
+    @Test
+    fun sendBidRequest_GivenCoalescingWindowAndFullRequest_SendItImmediately() {
+        whenever(config.bidRequestCoalescingWindowInMillis).doReturn(10)
+        whenever(adUnitMapper.chunkSize).doReturn(2)
+        val adUnits = listOf(createAdUnit(), createAdUnit())
+        val contextData = ContextData()
+
+        sender.sendBidRequest(adUnits, contextData, mock())
+
+        verify(cdbRequestFactory).createRequest(adUnits, contextData, deviceInfo)
+        verifyZeroInteractions(scheduledExecutorService)
+    }
+
+    @Test
+    fun cancelAllPendingTasks_GivenOpenCoalescingWindow_DoNotSendItsRequest() {
+        whenever(config.bidRequestCoalescingWindowInMillis).doReturn(10)
+
+        sender.sendBidRequest(listOf(createAdUnit()), ContextData(), mock())
+        sender.cancelAllPendingTasks()
+
+        argumentCaptor<Runnable>().apply {
+            verify(scheduledExecutorService).schedule(capture(), any(), any())
+            firstValue.run()
+        }
+
+        verifyZeroInteractions(api)
+        assertThat(sender.pendingTaskAdUnits).isEmpty()
+    }
+
     private fun createAdUnit(): CacheAdUnit {
         val id = "id" + adUnitId.incrementAndGet()
         return CacheAdUnit(AdSize(1, 2), id, CRITEO_BANNER)
@@ -0,0 +1,220 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import com.criteo.publisher.Clock
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.util.BuildConfigWrapper
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.whenever
+
+class CdbEndpointSelectorTest {
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  @Mock
+  private lateinit var config: Config
+
+  @Mock
+  private lateinit var clock: Clock
+
+  private var now = 0L
+
+  private lateinit var selector: CdbEndpointSelector
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { cdbUrl } doReturn "https://default.cdb"
+    }
+
+    config.stub {
+      on { cdbUrls } doReturn listOf("https://cdb1", "https://cdb2")
+    }
+
+    whenever(clock.currentTimeInMillis).doAnswer { now }
+
+    selector = CdbEndpointSelector(buildConfigWrapper, config, clock)
+  }
+
+  @Test
+  fun selectEndpoint_GivenNoCandidate_ReturnDefaultCdbUrl() {
+    whenever(config.cdbUrls).doReturn(listOf())
+
+    assertThat(selector.selectEndpoint()).isEqualTo("https://default.cdb")
+  }
+
+  @Test
+  fun selectEndpoint_GivenOnlyBlankCandidates_ReturnDefaultCdbUrl() {
+    whenever(config.cdbUrls).doReturn(listOf(" "))
+
+    assertThat(selector.selectEndpoint()).isEqualTo("https://default.cdb")
+  }
+
+  @Test
+  fun selectEndpoint_GivenNeverTriedCandidates_ReturnThemInOrder() {
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb1")
+
+    givenSuccess(latencyInMillis = 100)
+
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+  }
+
+  @Test
+  fun selectEndpoint_GivenMeasuredCandidates_ReturnTheFastest() {
+    givenSuccess(latencyInMillis = 300) // cdb1
+    givenSuccess(latencyInMillis = 100) // cdb2
+
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+  }
+
+  @Test
+  fun selectEndpoint_GivenFastestCandidateGettingSlower_SwitchToOtherOnceSmoothedLatencyIsHigher() {
+    givenSuccess(latencyInMillis = 300) // cdb1
+    givenSuccess(latencyInMillis = 100) // cdb2
+
+    // Smoothed latency of cdb2: 100 -> 140 -> 212 -> 309.6
+    givenSuccess(latencyInMillis = 300)
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+    givenSuccess(latencyInMillis = 500)
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+    givenSuccess(latencyInMillis = 700)
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb1")
+  }
+
+  @Test
+  fun selectEndpoint_GivenFailingCandidate_PenalizeItsScore() {
+    givenSuccess(latencyInMillis = 150) // cdb1
+    givenSuccess(latencyInMillis = 100) // cdb2
+    selector.startAttempt().onFailed() // cdb2
+
+    // Score of cdb2: 100 * (1 + 4 * 0.2) = 180
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb1")
+  }
+
+  @Test
+  fun selectEndpoint_GivenCandidateThatNeverAnswered_ReturnOtherOne() {
+    selector.startAttempt().onFailed() // cdb1
+    givenSuccess(latencyInMillis = 10_000) // cdb2
+
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+  }
+
+  @Test
+  fun selectEndpoint_GivenConsecutiveFailures_OpenCircuitUntilCoolDown() {
+    givenSuccess(latencyInMillis = 100) // cdb1
+    givenSuccess(latencyInMillis = 1_000) // cdb2
+
+    repeat(3) {
+      selector.startAttempt().onFailed() // cdb1, still better than cdb2 until the circuit opens
+    }
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+
+    now += 29_999
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+
+    now += 1
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb1")
+  }
+
+  @Test
+  fun selectEndpoint_GivenHalfOpenedCircuit_ReopenItOnSingleFailure() {
+    givenSuccess(latencyInMillis = 100) // cdb1
+    givenSuccess(latencyInMillis = 1_000) // cdb2
+    repeat(3) {
+      selector.startAttempt().onFailed() // cdb1
+    }
+    now += 30_000
+
+    val attempt = selector.startAttempt()
+    assertThat(attempt.endpoint).isEqualTo("https://cdb1")
+    attempt.onFailed()
+
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+  }
+
+  @Test
+  fun selectEndpoint_GivenHalfOpenedCircuitAndSuccess_CloseIt() {
+    givenSuccess(latencyInMillis = 100) // cdb1
+    givenSuccess(latencyInMillis = 1_000) // cdb2
+    repeat(3) {
+      selector.startAttempt().onFailed() // cdb1
+    }
+    now += 30_000
+
+    givenSuccess(latencyInMillis = 100) // cdb1
+    selector.startAttempt().onFailed() // cdb1
+
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb1")
+  }
+
+  @Test
+  fun selectEndpoint_GivenAllCircuitsOpened_ReturnTheFirstToBeHalfOpened() {
+    whenever(config.cdbUrls).doReturn(listOf("https://cdb2"))
+    repeat(3) {
+      selector.startAttempt().onFailed()
+    }
+    now += 1_000
+    whenever(config.cdbUrls).doReturn(listOf("https://cdb1"))
+    repeat(3) {
+      selector.startAttempt().onFailed()
+    }
+
+    whenever(config.cdbUrls).doReturn(listOf("https://cdb1", "https://cdb2"))
+    assertThat(selector.selectEndpoint()).isEqualTo("https://cdb2")
+  }
+
+  @Test
+  fun startFallbackAttempt_GivenOtherCandidate_ReturnIt() {
+    val attempt = selector.startAttempt()
+    attempt.onFailed()
+
+    val fallbackAttempt = selector.startFallbackAttempt(attempt)
+
+    assertThat(fallbackAttempt?.endpoint).isEqualTo("https://cdb2")
+  }
+
+  @Test
+  fun startFallbackAttempt_GivenSingleCandidate_ReturnNull() {
+    whenever(config.cdbUrls).doReturn(listOf())
+    val attempt = selector.startAttempt()
+    attempt.onFailed()
+
+    val fallbackAttempt = selector.startFallbackAttempt(attempt)
+
+    assertThat(fallbackAttempt).isNull()
+  }
+
+  private fun givenSuccess(latencyInMillis: Long) {
+    val attempt = selector.startAttempt()
+    now += latencyInMillis
+    attempt.onSucceeded()
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import com.criteo.publisher.StubConstants.STUB_NATIVE_JSON
+import com.criteo.publisher.benchmark.Benchmark
+import com.criteo.publisher.benchmark.measureTimePerOperation
+import com.criteo.publisher.benchmark.reportComparison
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.model.AdSize
+import com.criteo.publisher.model.CdbRegs
+import com.criteo.publisher.model.CdbRequest
+import com.criteo.publisher.model.CdbRequestSlot
+import com.criteo.publisher.model.CdbResponse
+import com.criteo.publisher.model.Publisher
+import com.criteo.publisher.model.User
+import com.criteo.publisher.privacy.gdpr.GdprData
+import com.criteo.publisher.util.AdUnitType
+import com.criteo.publisher.util.CborSerializer
+import com.criteo.publisher.util.JsonSerializer
+import org.assertj.core.api.Assertions.assertThat
+import org.json.JSONArray
+import org.json.JSONObject
+import org.junit.Rule
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+
+/**
+ * Compare the size and the encoding/decoding time of bid requests and responses between the JSON and the CBOR
+ * protocols. Sizes are asserted, timings are only reported by the [Benchmark] tests.
+ */
+class CdbProtocolBenchmarkTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @Inject
+  private lateinit var jsonSerializer: JsonSerializer
+
+  private val cborSerializer = CborSerializer()
+
+  @Test
+  fun request_CborIsSmallerThanJson() {
+    val request = givenBidRequestOfMaxChunkSize()
+
+    assertThat(encodeCbor(request).size).isLessThan(encodeJson(request).size)
+  }
+
+  @Test
+  fun response_CborIsSmallerThanJsonAndDecodedIdentically() {
+    val jsonBytes = givenBidResponseWithBannersAndNative().toByteArray()
+    val cborBytes = toCbor(jsonBytes)
+
+    assertThat(cborBytes.size).isLessThan(jsonBytes.size)
+    assertThat(decodeCbor(cborBytes).slots).isEqualTo(decodeJson(jsonBytes).slots)
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun request_Benchmark() {
+    val request = givenBidRequestOfMaxChunkSize()
+
+    report("request size (bytes)", encodeJson(request).size.toDouble(), encodeCbor(request).size.toDouble())
+    report(
+        "request encoding (µs/op)",
+        measureMicros { encodeJson(request) },
+        measureMicros { encodeCbor(request) }
+    )
+  }
+
+  @Test
+  @Category(Benchmark::class)
+  fun response_Benchmark() {
+    val jsonBytes = givenBidResponseWithBannersAndNative().toByteArray()
+    val cborBytes = toCbor(jsonBytes)
+
+    report("response size (bytes)", jsonBytes.size.toDouble(), cborBytes.size.toDouble())
+    report(
+        "response decoding (µs/op)",
+        measureMicros { decodeJson(jsonBytes) },
+        measureMicros { decodeCbor(cborBytes) }
+    )
+  }
+
+  private fun toCbor(jsonBytes: ByteArray): ByteArray = ByteArrayOutputStream().use {
+    cborSerializer.write(JSONObject(String(jsonBytes)).toJsonValue(), it)
+    it.toByteArray()
+  }
+
+  private fun encodeJson(request: CdbRequest): ByteArray = ByteArrayOutputStream().use {
+    jsonSerializer.write(request, it)
+    it.toByteArray()
+  }
+
+  private fun encodeCbor(request: CdbRequest): ByteArray = ByteArrayOutputStream().use {
+    cborSerializer.write(jsonSerializer.toJsonValue(request), it)
+    it.toByteArray()
+  }
+
+  private fun decodeJson(bytes: ByteArray): CdbResponse {
+    return CdbResponse.fromJson(JSONObject(String(bytes)))
+  }
+
+  @Suppress("UNCHECKED_CAST")
+  private fun decodeCbor(bytes: ByteArray): CdbResponse {
+    val value = cborSerializer.read(ByteArrayInputStream(bytes))
+    return CdbResponse.fromJsonValue(value as Map<String, Any?>, jsonSerializer)
+  }
+
+  private fun Any?.toJsonValue(): Any? = when (this) {
+    is JSONObject -> keys().asSequence().associateWith { get(it).toJsonValue() }
+    is JSONArray -> (0 until length()).map { get(it).toJsonValue() }
+    JSONObject.NULL -> null
+    else -> this
+  }
+
+  private fun measureMicros(operation: () -> Unit) =
+      measureTimePerOperation(WARM_UP_ITERATIONS, MEASURED_ITERATIONS, TimeUnit.MICROSECONDS, operation = operation)
+
+  private fun report(metric: String, json: Double, cbor: Double) {
+    reportComparison("CDB protocol", metric, "json" to json, "cbor" to cbor)
+  }
+
+  private fun givenBidRequestOfMaxChunkSize(): CdbRequest {
+    val slots = (1..8).map {
+      CdbRequestSlot(
+          "5def5cbbab53a9a7dea0639f43924c7$it",
+          "/140800857/Endeavour_320x50_$it",
+          AdUnitType.CRITEO_BANNER,
+          AdSize(320, 50)
+      )
+    }
+
+    return CdbRequest(
+        "3c4ed5ec-2d3c-4c6a-8a6b-4a3d6b1c2e9f",
+        Publisher(
+            "com.criteo.publisher.tests",
+            "B-056946",
+            mapOf("content" to mapOf("url" to "https://www.criteo.com", "keywords" to listOf("ads", "sdk")))
+        ),
+        User(
+            "021a86de-ef82-4f69-867b-61ca66688c9c",
+            "1YNN",
+            null,
+            mapOf("device" to mapOf("make" to "Google", "model" to "Pixel 7", "orientation" to "Portrait"))
+        ),
+        "4.10.0",
+        235,
+        GdprData("CPXxRfAPXxRfAAfKABENB-CgAAAAAAAAAAYgAAAAAAAA", true, 2),
+        slots,
+        CdbRegs(false)
+    )
+  }
+
+  @Suppress("MaxLineLength")
+  private fun givenBidResponseWithBannersAndNative(): String {
+    val bannerSlots = (1..7).joinToString(",") {
+      """
+        {
+          "impId": "5def5cbbab53a9a7dea0639f43924c7$it",
+          "placementId": "/140800857/Endeavour_320x50_$it",
+          "arbitrageId": "0b391763-60db-4e4c-ac40-296eb083b3f$it",
+          "zoneId": 1234,
+          "cpm": "1.12",
+          "currency": "EUR",
+          "width": 320,
+          "height": 50,
+          "ttl": 3600,
+          "displayUrl": "https://cas.eu.criteo.com/delivery/ajs.php?width=320&height=50&impId=5def5cbbab53a9a7dea0639f43924c7$it"
+        }
+      """
+    }
+
+    val nativeSlot = """
+      {
+        "impId": "5def5cbbab53a9a7dea0639f43924c78",
+        "placementId": "/140800857/Endeavour_Native",
+        "arbitrageId": "",
+        "cpm": "0.8",
+        "currency": "EUR",
+        "width": 2,
+        "height": 2,
+        "ttl": 3600,
+        "native": $STUB_NATIVE_JSON
+      }
+    """
+
+    return """{ "slots": [$bannerSlots, $nativeSlot], "timeToNextCall": 0 }"""
+  }
+
+  private companion object {
+    const val WARM_UP_ITERATIONS = 200
+    const val MEASURED_ITERATIONS = 1000
+  }
+}
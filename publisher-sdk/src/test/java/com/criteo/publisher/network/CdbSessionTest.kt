@@ -0,0 +1,182 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import com.criteo.publisher.network.CdbSession.Companion.createMergePatch
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Test
+
+class CdbSessionTest {
+
+  private val endpoint = "https://cdb.criteo.com"
+
+  private lateinit var session: CdbSession
+
+  @Before
+  fun setUp() {
+    session = CdbSession()
+  }
+
+  @Test
+  fun prepare_GivenNoSession_ReturnFullRequest() {
+    val request = givenRequest("myBundleId")
+
+    val payload = session.prepare(endpoint, request)
+
+    assertThat(session.isActive(endpoint)).isFalse
+    assertThat(payload.body).isEqualTo(request)
+    assertThat(payload.context).containsOnlyKeys("publisher", "sdkVersion")
+    assertThat(payload.token).isNull()
+  }
+
+  @Test
+  fun prepare_GivenSessionWithSameContext_ReturnDynamicPartAndToken() {
+    val request = givenRequest("myBundleId")
+    session.onResponse(endpoint, session.prepare(endpoint, request).context, "myToken")
+
+    val payload = session.prepare(endpoint, request)
+
+    assertThat(session.isActive(endpoint)).isTrue
+    assertThat(payload.body).isEqualTo(
+        mapOf(
+            "id" to "myRequestId",
+            "slots" to listOf<Any>(),
+            "sessionToken" to "myToken"
+        )
+    )
+    assertThat(payload.token).isEqualTo("myToken")
+  }
+
+  @Test
+  fun prepare_GivenSessionWithChangedContext_ReturnPatchOfContext() {
+    session.onResponse(endpoint, session.prepare(endpoint, givenRequest("myBundleId")).context, "myToken")
+
+    val payload = session.prepare(endpoint, givenRequest("myNewBundleId") - "sdkVersion")
+
+    assertThat(payload.body["contextPatch"]).isEqualTo(
+        mapOf(
+            "publisher" to mapOf("bundleId" to "myNewBundleId"),
+            "sdkVersion" to null
+        )
+    )
+  }
+
+  @Test
+  fun onResponse_GivenNewToken_RegisterNewContext() {
+    session.onResponse(endpoint, session.prepare(endpoint, givenRequest("myBundleId")).context, "myToken")
+    session.onResponse(endpoint, session.prepare(endpoint, givenRequest("myNewBundleId")).context, "myNewToken")
+
+    val payload = session.prepare(endpoint, givenRequest("myNewBundleId"))
+
+    assertThat(payload.body).doesNotContainKey("contextPatch")
+    assertThat(payload.token).isEqualTo("myNewToken")
+  }
+
+  @Test
+  fun onResponse_GivenSameToken_KeepRegisteredContext() {
+    session.onResponse(endpoint, session.prepare(endpoint, givenRequest("myBundleId")).context, "myToken")
+    session.onResponse(endpoint, session.prepare(endpoint, givenRequest("myNewBundleId")).context, "myToken")
+
+    val payload = session.prepare(endpoint, givenRequest("myNewBundleId"))
+
+    assertThat(payload.body).containsKey("contextPatch")
+  }
+
+  @Test
+  fun onResponse_GivenNoToken_EndSession() {
+    session.onResponse(endpoint, session.prepare(endpoint, givenRequest("myBundleId")).context, "myToken")
+    session.onResponse(endpoint, emptyMap(), null)
+
+    assertThat(session.isActive(endpoint)).isFalse
+  }
+
+  @Test
+  fun reset_GivenActiveSession_EndIt() {
+    session.onResponse(endpoint, session.prepare(endpoint, givenRequest("myBundleId")).context, "myToken")
+
+    session.reset(endpoint)
+
+    val request = givenRequest("myBundleId")
+    assertThat(session.isActive(endpoint)).isFalse
+    assertThat(session.prepare(endpoint, request).body).isEqualTo(request)
+  }
+
+  @Test
+  fun prepare_GivenSessionWithAnotherEndpoint_ReturnFullRequest() {
+    val request = givenRequest("myBundleId")
+    session.onResponse(endpoint, session.prepare(endpoint, request).context, "myToken")
+
+    val payload = session.prepare("https://other.cdb.criteo.com", request)
+
+    assertThat(session.isActive("https://other.cdb.criteo.com")).isFalse
+    assertThat(payload.body).isEqualTo(request)
+    assertThat(payload.token).isNull()
+  }
+
+  @Test
+  fun onResponse_GivenNoTokenFromAnotherEndpoint_KeepSessionOfFirstEndpoint() {
+    val request = givenRequest("myBundleId")
+    session.onResponse(endpoint, session.prepare(endpoint, request).context, "myToken")
+
+    session.onResponse("https://other.cdb.criteo.com", emptyMap(), null)
+
+    assertThat(session.isActive(endpoint)).isTrue
+    assertThat(session.prepare(endpoint, request).token).isEqualTo("myToken")
+  }
+
+  @Test
+  fun createMergePatch_GivenVariousChanges_ReturnRfc7386Patch() {
+    val source = mapOf(
+        "a" to "b",
+        "c" to mapOf("d" to "e", "f" to "g"),
+        "h" to listOf(1L, 2L),
+        "i" to "j"
+    )
+    val target = mapOf(
+        "a" to "z",
+        "c" to mapOf("d" to "e"),
+        "h" to listOf(1L),
+        "k" to 42L
+    )
+
+    val patch = createMergePatch(source, target)
+
+    assertThat(patch).isEqualTo(
+        mapOf(
+            "a" to "z",
+            "c" to mapOf("f" to null),
+            "h" to listOf(1L),
+            "i" to null,
+            "k" to 42L
+        )
+    )
+  }
+
+  @Test
+  fun createMergePatch_GivenSameValues_ReturnEmptyPatch() {
+    val value = mapOf("a" to mapOf("b" to listOf("c")))
+
+    assertThat(createMergePatch(value, value)).isEmpty()
+  }
+
+  private fun givenRequest(bundleId: String): Map<String, Any?> = mapOf(
+      "id" to "myRequestId",
+      "publisher" to mapOf("bundleId" to bundleId, "cpId" to "myCpId"),
+      "sdkVersion" to "1.2.3",
+      "slots" to listOf<Any>()
+  )
+}
@@ -21,20 +21,32 @@ import com.criteo.publisher.LiveCdbCallListener
 import com.criteo.publisher.context.ContextData
 import com.criteo.publisher.model.CacheAdUnit
 import com.criteo.publisher.model.CdbRequest
+import com.criteo.publisher.model.CdbRequestDeviceInfo
 import com.criteo.publisher.model.CdbRequestFactory
 import com.criteo.publisher.model.CdbResponse
 import com.criteo.publisher.model.Config
+import com.criteo.publisher.util.CompletableFuture.completedFuture
+import org.assertj.core.api.Assertions.assertThat
 import org.junit.Rule
 import org.junit.Test
 import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyLong
 import org.mockito.ArgumentMatchers.eq
 import org.mockito.Mock
 import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.check
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.inOrder
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
 import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyNoInteractions
 import org.mockito.kotlin.whenever
 import java.util.concurrent.Executor
 import java.util.concurrent.Executors
-import java.util.concurrent.Future
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
 
 class LiveBidRequestSenderTest {
 
@@ -67,18 +79,20 @@ class LiveBidRequestSenderTest {
   private lateinit var cdbResponse: CdbResponse
 
   @Mock
-  private lateinit var userAgentFuture: Future<String>
+  private lateinit var clock: Clock
 
   @Mock
-  private lateinit var clock: Clock
+  private lateinit var networkPolicy: NetworkPolicy
+
+  private val deviceInfo = CdbRequestDeviceInfo("fake_user_agent", null)
 
   @Test
   fun timeBudgetTimerKicksOff_ThenTimeBudgetExceededTrigger() {
-    whenever(cdbRequestFactory.userAgent).thenReturn(userAgentFuture)
-    whenever(userAgentFuture.get()).thenReturn("fake_user_agent")
-    whenever(cdbRequestFactory.createRequest(eq(listOf(cacheAdUnit)), eq(contextData))).thenReturn(cdbRequest)
-    whenever(pubSdkApi.loadCdb(eq(cdbRequest), any())).thenReturn(cdbResponse)
+    whenever(cdbRequestFactory.awaitDeviceInfo()).thenReturn(completedFuture(deviceInfo))
+    whenever(cdbRequestFactory.createRequest(eq(listOf(cacheAdUnit)), eq(contextData), eq(deviceInfo))).thenReturn(cdbRequest)
+    whenever(pubSdkApi.loadCdb(eq(cdbRequest), any(), any())).thenReturn(cdbResponse)
     whenever(config.liveBiddingTimeBudgetInMillis).thenReturn(1)
+    whenever(networkPolicy.getNetworkTimeoutInMillis()).thenReturn(1000)
 
     val liveBidRequestSender = LiveBidRequestSender(
         pubSdkApi,
@@ -86,7 +100,8 @@ class LiveBidRequestSenderTest {
         clock,
         getDelayedExecutor(config.liveBiddingTimeBudgetInMillis.toLong() + 100),
         getScheduledExecutorService(),
-        config
+        config,
+        networkPolicy
     )
 
     liveBidRequestSender.sendLiveBidRequest(
@@ -98,6 +113,169 @@ class LiveBidRequestSenderTest {
     verify(liveCdbCallListener).onTimeBudgetExceeded()
   }
 
+  @Test
+  fun sendLiveBidRequest_GivenNetworkTimeout_CallApiWithDeadlineBoundedByIt() {
+    whenever(cdbRequestFactory.awaitDeviceInfo()).thenReturn(completedFuture(deviceInfo))
+    whenever(cdbRequestFactory.createRequest(eq(listOf(cacheAdUnit)), eq(contextData), eq(deviceInfo))).thenReturn(cdbRequest)
+    whenever(config.liveBiddingTimeBudgetInMillis).thenReturn(1000)
+    whenever(networkPolicy.getNetworkTimeoutInMillis()).thenReturn(500)
+    whenever(clock.currentTimeInMillis).thenReturn(42)
+
+    val liveBidRequestSender = LiveBidRequestSender(
+        pubSdkApi,
+        cdbRequestFactory,
+        clock,
+        Executor { it.run() },
+        getScheduledExecutorService(),
+        config,
+        networkPolicy
+    )
+
+    liveBidRequestSender.sendLiveBidRequest(
+        cacheAdUnit,
+        contextData,
+        liveCdbCallListener
+    )
+
+    verify(pubSdkApi).loadCdb(eq(cdbRequest), eq("fake_user_agent"), check {
+      assertThat(it.getRemainingTimeInMillis()).isEqualTo(500)
+    })
+  }
+
+  @Test
+  fun sendLiveBidRequest_GivenResponseWithinTimeBudget_CancelTimeBudgetTimer() {
+    whenever(cdbRequestFactory.awaitDeviceInfo()).thenReturn(completedFuture(deviceInfo))
+    whenever(cdbRequestFactory.createRequest(eq(listOf(cacheAdUnit)), eq(contextData), eq(deviceInfo))).thenReturn(cdbRequest)
+    whenever(pubSdkApi.loadCdb(eq(cdbRequest), any(), any())).thenReturn(cdbResponse)
+    whenever(config.liveBiddingTimeBudgetInMillis).thenReturn(1000)
+    whenever(networkPolicy.getNetworkTimeoutInMillis()).thenReturn(1000)
+    val timeBudget = mock<ScheduledFuture<*>>()
+    val scheduledExecutorService = mock<ScheduledExecutorService>()
+    doReturn(timeBudget).whenever(scheduledExecutorService).schedule(any(Runnable::class.java), anyLong(), any())
+
+    val liveBidRequestSender = LiveBidRequestSender(
+        pubSdkApi,
+        cdbRequestFactory,
+        clock,
+        Executor { it.run() },
+        scheduledExecutorService,
+        config,
+        networkPolicy
+    )
+
+    liveBidRequestSender.sendLiveBidRequest(
+        cacheAdUnit,
+        contextData,
+        liveCdbCallListener
+    )
+
+    verify(liveCdbCallListener).onCdbResponse(cdbRequest, cdbResponse)
+    verify(timeBudget).cancel(false)
+  }
+
+  @Test
+  fun sendLiveBidRequest_GivenRequesterGivingUpBeforeExecution_CancelTimeBudgetTimerAndCall() {
+    whenever(config.liveBiddingTimeBudgetInMillis).thenReturn(1000)
+    whenever(networkPolicy.getNetworkTimeoutInMillis()).thenReturn(1000)
+    val timeBudget = mock<ScheduledFuture<*>>()
+    val scheduledExecutorService = mock<ScheduledExecutorService>()
+    doReturn(timeBudget).whenever(scheduledExecutorService).schedule(any(Runnable::class.java), anyLong(), any())
+    val cancellation = argumentCaptor<Runnable>()
+    val pendingTasks = mutableListOf<Runnable>()
+
+    val liveBidRequestSender = LiveBidRequestSender(
+        pubSdkApi,
+        cdbRequestFactory,
+        clock,
+        Executor { pendingTasks.add(it) },
+        scheduledExecutorService,
+        config,
+        networkPolicy
+    )
+
+    liveBidRequestSender.sendLiveBidRequest(
+        cacheAdUnit,
+        contextData,
+        liveCdbCallListener
+    )
+
+    verify(liveCdbCallListener).invokeOnCancellation(cancellation.capture())
+    cancellation.firstValue.run()
+    pendingTasks.forEach { it.run() }
+
+    verify(timeBudget).cancel(false)
+    verify(liveCdbCallListener, never()).onTimeBudgetExceeded()
+    verifyNoInteractions(pubSdkApi)
+  }
+
+  @Test
+  fun sendLiveBidRequest_GivenCallFailingBeforeRequest_NotifyListenerBeforeCancellingTimeBudgetTimer() {
+    val exception = IllegalStateException()
+    whenever(cdbRequestFactory.awaitDeviceInfo()).thenReturn(completedFuture(deviceInfo))
+    whenever(cdbRequestFactory.createRequest(eq(listOf(cacheAdUnit)), eq(contextData), eq(deviceInfo))).thenThrow(exception)
+    whenever(config.liveBiddingTimeBudgetInMillis).thenReturn(1000)
+    whenever(networkPolicy.getNetworkTimeoutInMillis()).thenReturn(1000)
+    val timeBudget = mock<ScheduledFuture<*>>()
+    val scheduledExecutorService = mock<ScheduledExecutorService>()
+    doReturn(timeBudget).whenever(scheduledExecutorService).schedule(any(Runnable::class.java), anyLong(), any())
+
+    val liveBidRequestSender = LiveBidRequestSender(
+        pubSdkApi,
+        cdbRequestFactory,
+        clock,
+        Executor { it.run() },
+        scheduledExecutorService,
+        config,
+        networkPolicy
+    )
+
+    liveBidRequestSender.sendLiveBidRequest(
+        cacheAdUnit,
+        contextData,
+        liveCdbCallListener
+    )
+
+    val inOrder = inOrder(liveCdbCallListener, timeBudget)
+    inOrder.verify(liveCdbCallListener).onTimeBudgetExceeded()
+    inOrder.verify(timeBudget).cancel(false)
+    verifyNoInteractions(pubSdkApi)
+  }
+
+  @Test
+  fun sendLiveBidRequest_GivenDeadlineExpiredBeforeExecution_NotifyListenerBeforeCancellingTimeBudgetTimer() {
+    whenever(config.liveBiddingTimeBudgetInMillis).thenReturn(1000)
+    whenever(networkPolicy.getNetworkTimeoutInMillis()).thenReturn(1000)
+    whenever(clock.currentTimeInMillis).thenReturn(0)
+    val timeBudget = mock<ScheduledFuture<*>>()
+    val scheduledExecutorService = mock<ScheduledExecutorService>()
+    doReturn(timeBudget).whenever(scheduledExecutorService).schedule(any(Runnable::class.java), anyLong(), any())
+    val pendingTasks = mutableListOf<Runnable>()
+
+    val liveBidRequestSender = LiveBidRequestSender(
+        pubSdkApi,
+        cdbRequestFactory,
+        clock,
+        Executor { pendingTasks.add(it) },
+        scheduledExecutorService,
+        config,
+        networkPolicy
+    )
+
+    liveBidRequestSender.sendLiveBidRequest(
+        cacheAdUnit,
+        contextData,
+        liveCdbCallListener
+    )
+
+    whenever(clock.currentTimeInMillis).thenReturn(1000)
+    pendingTasks.forEach { it.run() }
+
+    val inOrder = inOrder(liveCdbCallListener, timeBudget)
+    inOrder.verify(liveCdbCallListener).onTimeBudgetExceeded()
+    inOrder.verify(timeBudget).cancel(false)
+    verifyNoInteractions(pubSdkApi)
+  }
+
   private fun getDelayedExecutor(delayInMillis: Long) =
       Executor {
         Thread.sleep(delayInMillis)
@@ -0,0 +1,159 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import com.criteo.publisher.context.ConnectionTypeFetcher.ConnectionType
+import com.criteo.publisher.network.NetworkPolicy.ConnectionClass
+import com.criteo.publisher.util.BuildConfigWrapper
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.verify
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class NetworkPolicyTest {
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  private lateinit var networkPolicy: NetworkPolicy
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { networkTimeoutInMillis } doReturn 1000
+      on { csmBatchSize } doReturn 24
+      on { remoteLogBatchSize } doReturn 200
+    }
+
+    networkPolicy = NetworkPolicy(buildConfigWrapper)
+  }
+
+  @Test
+  fun new_GivenNoConnectivityInformation_UseStaticValues() {
+    assertThat(networkPolicy.getConnectionClass()).isEqualTo(ConnectionClass.MODERATE)
+    assertThat(networkPolicy.isOffline()).isFalse
+    assertThat(networkPolicy.getNetworkTimeoutInMillis()).isEqualTo(1000)
+    assertThat(networkPolicy.getPrefetchChunkSize(8)).isEqualTo(8)
+    assertThat(networkPolicy.getCsmBatchSize()).isEqualTo(24)
+    assertThat(networkPolicy.getRemoteLogBatchSize()).isEqualTo(200)
+  }
+
+  @Test
+  fun onConnectivityChanged_GivenNotConnected_IsOffline() {
+    networkPolicy.onConnectivityChanged(false, ConnectionType.WIFI)
+
+    assertThat(networkPolicy.getConnectionClass()).isEqualTo(ConnectionClass.OFFLINE)
+    assertThat(networkPolicy.isOffline()).isTrue
+  }
+
+  @Test
+  fun onConnectivityChanged_GivenFastConnection_ShortenTimeout() {
+    networkPolicy.onConnectivityChanged(true, ConnectionType.WIFI)
+
+    assertThat(networkPolicy.getConnectionClass()).isEqualTo(ConnectionClass.FAST)
+    assertThat(networkPolicy.getNetworkTimeoutInMillis()).isEqualTo(500)
+    assertThat(networkPolicy.getPrefetchChunkSize(8)).isEqualTo(8)
+    assertThat(networkPolicy.getCsmBatchSize()).isEqualTo(24)
+  }
+
+  @Test
+  fun onConnectivityChanged_GivenSlowConnection_LengthenTimeoutAndShrinkPayloads() {
+    networkPolicy.onConnectivityChanged(true, ConnectionType.CELLULAR_2G)
+
+    assertThat(networkPolicy.getConnectionClass()).isEqualTo(ConnectionClass.SLOW)
+    assertThat(networkPolicy.getNetworkTimeoutInMillis()).isEqualTo(1500)
+    assertThat(networkPolicy.getPrefetchChunkSize(8)).isEqualTo(4)
+    assertThat(networkPolicy.getPrefetchChunkSize(1)).isEqualTo(1)
+    assertThat(networkPolicy.getCsmBatchSize()).isEqualTo(12)
+    assertThat(networkPolicy.getRemoteLogBatchSize()).isEqualTo(100)
+  }
+
+  @Test
+  fun onConnectivityChanged_GivenConnectedWithUnknownType_UseStaticValues() {
+    networkPolicy.onConnectivityChanged(true, null)
+
+    assertThat(networkPolicy.getConnectionClass()).isEqualTo(ConnectionClass.MODERATE)
+    assertThat(networkPolicy.getNetworkTimeoutInMillis()).isEqualTo(1000)
+  }
+
+  @Test
+  fun onConnectivityChanged_GivenBackOnline_NotifyListeners() {
+    val listener = mock<NetworkPolicy.Listener>()
+    networkPolicy.addListener(listener)
+
+    networkPolicy.onConnectivityChanged(false, null)
+    verify(listener, never()).onConnectivityRestored()
+
+    networkPolicy.onConnectivityChanged(true, ConnectionType.CELLULAR_4G)
+    verify(listener).onConnectivityRestored()
+  }
+
+  @Test
+  fun onConnectivityChanged_GivenStillOnline_DoNotNotifyListeners() {
+    val listener = mock<NetworkPolicy.Listener>()
+    networkPolicy.addListener(listener)
+
+    networkPolicy.onConnectivityChanged(true, ConnectionType.WIFI)
+    networkPolicy.onConnectivityChanged(true, ConnectionType.CELLULAR_3G)
+
+    verify(listener, never()).onConnectivityRestored()
+  }
+
+  @Test
+  fun onConnectivityChanged_GivenConcurrentReconnections_NotifyListenersOnce() {
+    val notifications = AtomicInteger()
+    networkPolicy.addListener { notifications.incrementAndGet() }
+    networkPolicy.onConnectivityChanged(false, null)
+
+    val nbWorkers = 10
+    val executor = Executors.newFixedThreadPool(nbWorkers)
+    val allAreReadyToWork = CyclicBarrier(nbWorkers)
+    val allAreDone = CountDownLatch(nbWorkers)
+
+    try {
+      (0 until nbWorkers).forEach {
+        executor.execute {
+          allAreReadyToWork.await()
+          networkPolicy.onConnectivityChanged(true, ConnectionType.WIFI)
+          allAreDone.countDown()
+        }
+      }
+
+      assertThat(allAreDone.await(1, TimeUnit.MINUTES)).isTrue
+    } finally {
+      executor.shutdown()
+    }
+
+    assertThat(notifications.get()).isEqualTo(1)
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import com.criteo.publisher.Clock
+import com.criteo.publisher.network.NetworkStats.Endpoint
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.entry
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.whenever
+import java.io.ByteArrayInputStream
+
+class NetworkStatsTest {
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var clock: Clock
+
+  private lateinit var networkStats: NetworkStats
+
+  @Before
+  fun setUp() {
+    networkStats = NetworkStats(clock)
+  }
+
+  @Test
+  fun getAllStats_GivenNoExchange_ReturnEmptyStatsForAllEndpoints() {
+    val allStats = networkStats.getAllStats()
+
+    assertThat(allStats).containsOnlyKeys(*Endpoint.values())
+    allStats.values.forEach {
+      assertThat(it.requestCount).isZero
+      assertThat(it.failureCount).isZero
+      assertThat(it.statusCodes).isEmpty()
+      assertThat(it.totalLatency.totalCount).isZero
+    }
+  }
+
+  @Test
+  fun startExchange_GivenCompletedExchange_AccountItOnlyInItsEndpoint() {
+    givenTime(1000)
+    val exchange = networkStats.startExchange(Endpoint.CDB)
+
+    givenTime(1030)
+    exchange.onConnected()
+    exchange.onBytesSent(42)
+
+    givenTime(1120)
+    exchange.onResponseReceived(200)
+    exchange.onBytesReceived(1337)
+
+    givenTime(1300)
+    exchange.onCompleted()
+
+    val stats = networkStats.getStats(Endpoint.CDB)
+    assertThat(stats.requestCount).isEqualTo(1L)
+    assertThat(stats.failureCount).isZero
+    assertThat(stats.bytesSent).isEqualTo(42L)
+    assertThat(stats.bytesReceived).isEqualTo(1337L)
+    assertThat(stats.statusCodes).containsOnly(entry(200, 1L))
+    assertThat(stats.connectLatency.counts).containsExactly(1L, 0L, 0L, 0L, 0L, 0L, 0L, 0L)
+    assertThat(stats.timeToFirstByte.counts).containsExactly(0L, 0L, 1L, 0L, 0L, 0L, 0L, 0L)
+    assertThat(stats.totalLatency.counts).containsExactly(0L, 0L, 0L, 1L, 0L, 0L, 0L, 0L)
+
+    assertThat(networkStats.getStats(Endpoint.CONFIG).requestCount).isZero
+  }
+
+  @Test
+  fun startExchange_GivenVeryLongExchange_AccountItInLastBucket() {
+    givenTime(0)
+    val exchange = networkStats.startExchange(Endpoint.PIXEL)
+
+    givenTime(60_000)
+    exchange.onCompleted()
+
+    val totalLatency = networkStats.getStats(Endpoint.PIXEL).totalLatency
+    assertThat(totalLatency.upperBoundsInMillis).hasSize(totalLatency.counts.size - 1)
+    assertThat(totalLatency.counts.last()).isEqualTo(1L)
+  }
+
+  @Test
+  fun onFailed_GivenFailedExchange_AccountFailureOnce() {
+    givenTime(0)
+    val exchange = networkStats.startExchange(Endpoint.CSM)
+
+    exchange.onResponseReceived(500)
+    exchange.onFailed()
+    exchange.onFailed()
+    exchange.onCompleted()
+
+    val stats = networkStats.getStats(Endpoint.CSM)
+    assertThat(stats.requestCount).isEqualTo(1L)
+    assertThat(stats.failureCount).isEqualTo(1L)
+    assertThat(stats.statusCodes).containsOnly(entry(500, 1L))
+    assertThat(stats.totalLatency.totalCount).isEqualTo(1L)
+  }
+
+  @Test
+  fun onCompleted_GivenSeveralExchanges_AccountEachStatusCode() {
+    givenTime(0)
+
+    networkStats.startExchange(Endpoint.CONFIG).apply {
+      onResponseReceived(200)
+      onCompleted()
+    }
+    networkStats.startExchange(Endpoint.CONFIG).apply {
+      onResponseReceived(304)
+      onCompleted()
+    }
+    networkStats.startExchange(Endpoint.CONFIG).apply {
+      onResponseReceived(200)
+      onCompleted()
+    }
+
+    val stats = networkStats.getStats(Endpoint.CONFIG)
+    assertThat(stats.requestCount).isEqualTo(3L)
+    assertThat(stats.statusCodes).containsOnly(entry(200, 2L), entry(304, 1L))
+  }
+
+  @Test
+  fun trackResponseBody_GivenStreamReadAndClosed_AccountBytesAndCompleteExchange() {
+    givenTime(0)
+    val exchange = networkStats.startExchange(Endpoint.CREATIVE)
+
+    val inputStream = exchange.trackResponseBody(ByteArrayInputStream("creative".toByteArray()))
+    inputStream.read()
+    inputStream.read(ByteArray(16))
+
+    assertThat(networkStats.getStats(Endpoint.CREATIVE).bytesReceived).isEqualTo(8L)
+    assertThat(networkStats.getStats(Endpoint.CREATIVE).totalLatency.totalCount).isZero
+
+    inputStream.close()
+
+    assertThat(networkStats.getStats(Endpoint.CREATIVE).totalLatency.totalCount).isEqualTo(1L)
+  }
+
+  private fun givenTime(timeInMillis: Long) {
+    whenever(clock.currentTimeInMillis).doReturn(timeInMillis)
+  }
+}
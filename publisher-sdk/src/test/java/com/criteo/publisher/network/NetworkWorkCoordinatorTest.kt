@@ -0,0 +1,156 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import com.criteo.publisher.csm.MetricSendingQueueConsumer
+import com.criteo.publisher.logging.RemoteLogSendingQueueConsumer
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.util.BuildConfigWrapper
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.never
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyNoInteractions
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+class NetworkWorkCoordinatorTest {
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var metricSendingQueueConsumer: MetricSendingQueueConsumer
+
+  @Mock
+  private lateinit var remoteLogSendingQueueConsumer: RemoteLogSendingQueueConsumer
+
+  @Mock
+  private lateinit var telemetrySendingQueueConsumer: TelemetrySendingQueueConsumer
+
+  @Mock
+  private lateinit var scheduledExecutorService: ScheduledExecutorService
+
+  @Mock
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  @Mock
+  private lateinit var config: Config
+
+  @Mock
+  private lateinit var scheduledFuture: ScheduledFuture<*>
+
+  private lateinit var coordinator: NetworkWorkCoordinator
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { maxDeferredUploadDelayInMillis } doReturn 60000
+    }
+
+    scheduledExecutorService.stub {
+      on { schedule(any<Runnable>(), any(), any()) } doReturn scheduledFuture
+    }
+
+    coordinator = NetworkWorkCoordinator(
+        metricSendingQueueConsumer,
+        remoteLogSendingQueueConsumer,
+        telemetrySendingQueueConsumer,
+        scheduledExecutorService,
+        buildConfigWrapper,
+        config
+    )
+  }
+
+  @Test
+  fun deferUploads_GivenNoRadioWindow_DoNotSendUntilMaxDelay() {
+    coordinator.deferUploads()
+
+    verifyNoInteractions(metricSendingQueueConsumer)
+    verifyNoInteractions(remoteLogSendingQueueConsumer)
+
+    argumentCaptor<Runnable>().apply {
+      verify(scheduledExecutorService).schedule(capture(), eq(60000L), eq(TimeUnit.MILLISECONDS))
+      firstValue.run()
+    }
+
+    verify(metricSendingQueueConsumer).sendMetricBatch()
+    verify(remoteLogSendingQueueConsumer).sendRemoteLogBatch()
+  }
+
+  @Test
+  fun deferUploads_CalledManyTimes_ScheduleMaxDelayOnlyOnce() {
+    coordinator.deferUploads()
+    coordinator.deferUploads()
+    coordinator.deferUploads()
+
+    verify(scheduledExecutorService).schedule(any<Runnable>(), any(), any())
+  }
+
+  @Test
+  fun onRadioWindowOpened_GivenDeferredUploads_SendThemAndCancelMaxDelay() {
+    coordinator.deferUploads()
+
+    coordinator.onRadioWindowOpened()
+
+    verify(metricSendingQueueConsumer).sendMetricBatch()
+    verify(remoteLogSendingQueueConsumer).sendRemoteLogBatch()
+    verify(scheduledFuture).cancel(false)
+  }
+
+  @Test
+  fun onRadioWindowOpened_GivenNoDeferredUploads_SendAccumulatedTelemetry() {
+    coordinator.onRadioWindowOpened()
+
+    verify(metricSendingQueueConsumer).sendMetricBatch()
+    verify(remoteLogSendingQueueConsumer).sendRemoteLogBatch()
+    verify(scheduledExecutorService, never()).schedule(any<Runnable>(), any(), any())
+  }
+
+  @Test
+  fun deferUploads_AfterRadioWindow_ScheduleNewMaxDelay() {
+    coordinator.deferUploads()
+    coordinator.onRadioWindowOpened()
+
+    coordinator.deferUploads()
+
+    verify(scheduledExecutorService, times(2)).schedule(any<Runnable>(), any(), any())
+  }
+
+  @Test
+  fun onRadioWindowOpened_GivenTelemetryEnvelopeEnabled_SendSingleEnvelope() {
+    config.stub {
+      on { isTelemetryEnvelopeEnabled } doReturn true
+    }
+
+    coordinator.onRadioWindowOpened()
+
+    verify(telemetrySendingQueueConsumer).sendTelemetryBatch()
+    verifyNoInteractions(metricSendingQueueConsumer)
+    verifyNoInteractions(remoteLogSendingQueueConsumer)
+  }
+}
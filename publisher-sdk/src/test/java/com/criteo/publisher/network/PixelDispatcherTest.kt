@@ -0,0 +1,383 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import com.criteo.publisher.Clock
+import com.criteo.publisher.bid.UniqueIdGenerator
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.mock.SpyBean
+import com.criteo.publisher.network.NetworkStats.Endpoint
+import com.criteo.publisher.util.BuildConfigWrapper
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.inOrder
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyZeroInteractions
+import org.mockito.kotlin.whenever
+import java.io.ByteArrayInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.net.URL
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class PixelDispatcherTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var api: PubSdkApi
+
+  @Mock
+  private lateinit var pixelStore: PixelStore
+
+  @Mock
+  private lateinit var uniqueIdGenerator: UniqueIdGenerator
+
+  @Mock
+  private lateinit var clock: Clock
+
+  @Mock
+  private lateinit var scheduledExecutorService: ScheduledExecutorService
+
+  @SpyBean
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  private val pendingTasks = mutableListOf<Runnable>()
+
+  private val executor = Executor { pendingTasks.add(it) }
+
+  private val pixelId = AtomicInteger()
+
+  private lateinit var dispatcher: PixelDispatcher
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { preconditionThrowsOnException() } doReturn false
+      on { maxInFlightPixels } doReturn 2
+      on { maxPixelRetries } doReturn 2
+      on { pixelRetryBaseDelayInMillis } doReturn 1000
+    }
+
+    whenever(uniqueIdGenerator.generateId()).thenAnswer { "id${pixelId.incrementAndGet()}" }
+    whenever(pixelStore.loadAll()).doReturn(listOf())
+    whenever(pixelStore.save(any())).doReturn(true)
+
+    dispatcher = PixelDispatcher(
+        api,
+        pixelStore,
+        uniqueIdGenerator,
+        clock,
+        buildConfigWrapper,
+        executor,
+        scheduledExecutorService
+    )
+  }
+
+  @Test
+  fun dispatch_GivenAPixel_PersistItThenDeleteItAndAskToApiToSendItAndReadWholeResponse() {
+    val stream = mock<InputStream>()
+    whenever(stream.read(any<ByteArray>())).doReturn(42, 42, -1)
+    whenever(api.executeRawGet(any(), anyOrNull(), any())).doReturn(stream)
+
+    dispatcher.dispatch(listOf(URL("http://my.pixel")))
+    runPendingTasks()
+
+    val pixel = PendingPixel("id1", URL("http://my.pixel"))
+    val inOrder = inOrder(pixelStore, api)
+    inOrder.verify(pixelStore).save(pixel)
+    inOrder.verify(pixelStore).delete(pixel)
+    inOrder.verify(api).executeRawGet(URL("http://my.pixel"), null, Endpoint.PIXEL)
+    verify(stream).close()
+    assertThat(dispatcher.firedCount).isEqualTo(1)
+    assertThat(dispatcher.failedCount).isZero
+    assertThat(dispatcher.retriedCount).isZero
+  }
+
+  @Test
+  fun dispatch_GivenMorePixelsThanInFlightLimit_WaitForAFreeSlot() {
+    whenever(api.executeRawGet(any(), anyOrNull(), any())).thenAnswer { ByteArrayInputStream(ByteArray(0)) }
+
+    dispatcher.dispatch(listOf(
+        URL("http://my.pixel.1"),
+        URL("http://my.pixel.2"),
+        URL("http://my.pixel.3")
+    ))
+    pendingTasks.removeAt(0).run()
+
+    assertThat(pendingTasks).hasSize(2)
+
+    pendingTasks.removeAt(0).run()
+
+    assertThat(pendingTasks).hasSize(2)
+
+    runPendingTasks()
+
+    verify(api).executeRawGet(URL("http://my.pixel.1"), null, Endpoint.PIXEL)
+    verify(api).executeRawGet(URL("http://my.pixel.2"), null, Endpoint.PIXEL)
+    verify(api).executeRawGet(URL("http://my.pixel.3"), null, Endpoint.PIXEL)
+    assertThat(dispatcher.firedCount).isEqualTo(3)
+  }
+
+  @Test
+  fun dispatch_GivenErrorOnOnePixel_ContinueOnOthers() {
+    doThrow(IOException::class)
+        .doReturn(null)
+        .doReturn(ByteArrayInputStream(ByteArray(0)))
+        .whenever(api).executeRawGet(any(), anyOrNull(), any())
+
+    dispatcher.dispatch(listOf(
+        URL("http://my.pixel.1"),
+        URL("http://my.pixel.2"),
+        URL("http://my.pixel.3")
+    ))
+    runPendingTasks()
+
+    verify(api).executeRawGet(URL("http://my.pixel.2"), null, Endpoint.PIXEL)
+    verify(api).executeRawGet(URL("http://my.pixel.3"), null, Endpoint.PIXEL)
+    assertThat(dispatcher.firedCount).isEqualTo(2)
+  }
+
+  @Test
+  fun dispatch_GivenNetworkError_PersistNextAttemptAndScheduleRetryWithBackoff() {
+    whenever(clock.currentTimeInMillis).doReturn(10_000)
+    doThrow(IOException::class).whenever(api).executeRawGet(any(), anyOrNull(), any())
+
+    dispatcher.dispatch(listOf(URL("http://my.pixel")))
+    runPendingTasks()
+
+    val inOrder = inOrder(pixelStore)
+    inOrder.verify(pixelStore).delete(PendingPixel("id1", URL("http://my.pixel")))
+    inOrder.verify(pixelStore).save(PendingPixel("id1", URL("http://my.pixel"), 1, 11_000))
+    verify(scheduledExecutorService).schedule(any<Runnable>(), eq(1000L), eq(TimeUnit.MILLISECONDS))
+    assertThat(dispatcher.retriedCount).isEqualTo(1)
+    assertThat(dispatcher.failedCount).isZero
+  }
+
+  @Test
+  fun dispatch_GivenRetriedPixelNotDueYet_DoNotFireItBeforeItsTime() {
+    whenever(clock.currentTimeInMillis).doReturn(10_000)
+    doThrow(IOException::class).doAnswer { ByteArrayInputStream(ByteArray(0)) }
+        .whenever(api).executeRawGet(any(), anyOrNull(), any())
+
+    dispatcher.dispatch(listOf(URL("http://my.pixel")))
+    runPendingTasks()
+
+    // Other triggers do not fire the pixel waiting for its retry
+    dispatcher.onConnectivityRestored()
+    dispatcher.resumePendingPixels()
+    runPendingTasks()
+    verify(api, times(1)).executeRawGet(any(), anyOrNull(), any())
+
+    whenever(clock.currentTimeInMillis).doReturn(11_000)
+    argumentCaptor<Runnable> {
+      verify(scheduledExecutorService).schedule(capture(), eq(1000L), eq(TimeUnit.MILLISECONDS))
+      firstValue.run()
+    }
+    runPendingTasks()
+
+    verify(api, times(2)).executeRawGet(URL("http://my.pixel"), null, Endpoint.PIXEL)
+    assertThat(dispatcher.firedCount).isEqualTo(1)
+  }
+
+  @Test
+  fun dispatch_GivenPixelsWithDifferentBackoffs_WakeUpForTheFirstDueOnly() {
+    whenever(clock.currentTimeInMillis).doReturn(0)
+    doThrow(HttpResponseException(503)).whenever(api).executeRawGet(any(), anyOrNull(), any())
+    pixelStore.stub {
+      on { loadAll() } doReturn listOf(
+          PendingPixel("id1", URL("http://my.pixel.1"), 1, 4000),
+          PendingPixel("id2", URL("http://my.pixel.2"), 1, 2000)
+      )
+    }
+
+    dispatcher.resumePendingPixels()
+    runPendingTasks()
+
+    verify(scheduledExecutorService).schedule(any<Runnable>(), eq(2000L), eq(TimeUnit.MILLISECONDS))
+    verifyZeroInteractions(api)
+  }
+
+  @Test
+  fun dispatch_GivenServerErrorOnRetriedPixel_DoubleTheBackoff() {
+    whenever(clock.currentTimeInMillis).doReturn(10_000)
+    doThrow(HttpResponseException(503)).whenever(api).executeRawGet(any(), anyOrNull(), any())
+    pixelStore.stub {
+      on { loadAll() } doReturn listOf(PendingPixel("id", URL("http://my.pixel"), 1))
+    }
+
+    dispatcher.resumePendingPixels()
+    runPendingTasks()
+
+    verify(pixelStore).save(PendingPixel("id", URL("http://my.pixel"), 2, 12_000))
+    verify(scheduledExecutorService).schedule(any<Runnable>(), eq(2000L), eq(TimeUnit.MILLISECONDS))
+  }
+
+  @Test
+  fun dispatch_GivenErrorOnLastRetry_DeletePixel() {
+    doThrow(IOException::class).whenever(api).executeRawGet(any(), anyOrNull(), any())
+    val pixel = PendingPixel("id", URL("http://my.pixel"), 2)
+    pixelStore.stub {
+      on { loadAll() } doReturn listOf(pixel)
+    }
+
+    dispatcher.resumePendingPixels()
+    runPendingTasks()
+
+    verify(pixelStore, never()).save(any())
+    verify(pixelStore).delete(pixel)
+    verifyZeroInteractions(scheduledExecutorService)
+    assertThat(dispatcher.failedCount).isEqualTo(1)
+  }
+
+  @Test
+  fun dispatch_GivenClientError_DeletePixelWithoutRetry() {
+    doThrow(HttpResponseException(404)).whenever(api).executeRawGet(any(), anyOrNull(), any())
+
+    dispatcher.dispatch(listOf(URL("http://my.pixel")))
+    runPendingTasks()
+
+    verify(pixelStore).save(PendingPixel("id1", URL("http://my.pixel")))
+    verify(pixelStore).delete(PendingPixel("id1", URL("http://my.pixel")))
+    verifyZeroInteractions(scheduledExecutorService)
+    assertThat(dispatcher.failedCount).isEqualTo(1)
+    assertThat(dispatcher.retriedCount).isZero
+  }
+
+  @Test
+  fun dispatch_GivenOfflineDevice_KeepPixelWithoutConsumingARetryUntilConnectivityIsRestored() {
+    doThrow(NoConnectivityException()).doAnswer { ByteArrayInputStream(ByteArray(0)) }
+        .whenever(api).executeRawGet(any(), anyOrNull(), any())
+
+    dispatcher.dispatch(listOf(URL("http://my.pixel")))
+    runPendingTasks()
+
+    // Saved once when dispatched, then again once the request failed
+    verify(pixelStore, times(2)).save(PendingPixel("id1", URL("http://my.pixel")))
+    verify(pixelStore, times(1)).delete(any())
+    verifyZeroInteractions(scheduledExecutorService)
+    assertThat(dispatcher.retriedCount).isZero
+    assertThat(dispatcher.failedCount).isZero
+
+    dispatcher.onConnectivityRestored()
+    runPendingTasks()
+
+    verify(api, times(2)).executeRawGet(URL("http://my.pixel"), null, Endpoint.PIXEL)
+    verify(pixelStore, times(2)).delete(any())
+    assertThat(dispatcher.firedCount).isEqualTo(1)
+  }
+
+  @Test
+  fun dispatch_GivenRejectedPixel_ScheduleWakeUpToFireItLater() {
+    whenever(clock.currentTimeInMillis).doReturn(10_000)
+    whenever(api.executeRawGet(any(), anyOrNull(), any())).thenAnswer { ByteArrayInputStream(ByteArray(0)) }
+    val executions = AtomicInteger()
+    val rejectingExecutor = Executor {
+      // The dispatching task is accepted, but not the first pixel task
+      if (executions.incrementAndGet() == 2) {
+        throw RejectedExecutionException()
+      }
+      pendingTasks.add(it)
+    }
+    dispatcher = PixelDispatcher(
+        api,
+        pixelStore,
+        uniqueIdGenerator,
+        clock,
+        buildConfigWrapper,
+        rejectingExecutor,
+        scheduledExecutorService
+    )
+
+    dispatcher.dispatch(listOf(URL("http://my.pixel")))
+    runPendingTasks()
+
+    verifyZeroInteractions(api)
+
+    argumentCaptor<Runnable> {
+      verify(scheduledExecutorService).schedule(capture(), eq(1000L), eq(TimeUnit.MILLISECONDS))
+      firstValue.run()
+    }
+    runPendingTasks()
+
+    verify(api).executeRawGet(URL("http://my.pixel"), null, Endpoint.PIXEL)
+    assertThat(dispatcher.firedCount).isEqualTo(1)
+  }
+
+  @Test
+  fun resumePendingPixels_GivenPersistedPixels_FireThemOnlyOnce() {
+    whenever(api.executeRawGet(any(), anyOrNull(), any())).thenAnswer { ByteArrayInputStream(ByteArray(0)) }
+    pixelStore.stub {
+      on { loadAll() } doReturn listOf(
+          PendingPixel("id1", URL("http://my.pixel.1")),
+          PendingPixel("id2", URL("http://my.pixel.2")),
+          PendingPixel("id3", URL("http://my.pixel.3"))
+      )
+    }
+
+    dispatcher.resumePendingPixels()
+    dispatcher.resumePendingPixels()
+    runPendingTasks()
+
+    verify(pixelStore, times(1)).loadAll()
+    verify(api).executeRawGet(URL("http://my.pixel.1"), null, Endpoint.PIXEL)
+    verify(api).executeRawGet(URL("http://my.pixel.2"), null, Endpoint.PIXEL)
+    verify(api).executeRawGet(URL("http://my.pixel.3"), null, Endpoint.PIXEL)
+    assertThat(dispatcher.firedCount).isEqualTo(3)
+  }
+
+  @Test
+  fun dispatch_GivenPixelsPersistedByPreviousSession_LoadThemBeforePersistingNewOnes() {
+    whenever(api.executeRawGet(any(), anyOrNull(), any())).thenAnswer { ByteArrayInputStream(ByteArray(0)) }
+
+    dispatcher.dispatch(listOf(URL("http://my.pixel")))
+    runPendingTasks()
+
+    val inOrder = inOrder(pixelStore)
+    inOrder.verify(pixelStore).loadAll()
+    inOrder.verify(pixelStore).save(any())
+  }
+
+  private fun runPendingTasks() {
+    while (pendingTasks.isNotEmpty()) {
+      pendingTasks.removeAt(0).run()
+    }
+  }
+}
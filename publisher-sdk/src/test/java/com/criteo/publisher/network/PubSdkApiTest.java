@@ -18,14 +18,18 @@ package com.criteo.publisher.network;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.AdditionalAnswers.answerVoid;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import androidx.annotation.NonNull;
+import com.criteo.publisher.EpochClock;
+import com.criteo.publisher.context.ConnectionTypeFetcher.ConnectionType;
 import com.criteo.publisher.csm.Metric;
 import com.criteo.publisher.csm.MetricRequest;
 import com.criteo.publisher.logging.RemoteLogRecords;
@@ -33,9 +37,17 @@ import com.criteo.publisher.mock.MockedDependenciesRule;
 import com.criteo.publisher.mock.SpyBean;
 import com.criteo.publisher.model.CdbRequest;
 import com.criteo.publisher.model.CdbResponse;
+import com.criteo.publisher.model.CdbResponseSlot;
+import com.criteo.publisher.model.Config;
 import com.criteo.publisher.model.RemoteConfigRequest;
+import com.criteo.publisher.model.RemoteConfigResponse;
+import com.criteo.publisher.model.TelemetryRequest;
+import com.criteo.publisher.model.TelemetryResponse;
+import com.criteo.publisher.network.NetworkStats.Endpoint;
+import com.criteo.publisher.network.NetworkStats.EndpointStats;
 import com.criteo.publisher.privacy.gdpr.GdprData;
 import com.criteo.publisher.util.BuildConfigWrapper;
+import com.criteo.publisher.util.CborSerializer;
 import com.criteo.publisher.util.JsonSerializer;
 import java.io.IOException;
 import java.io.InputStream;
@@ -44,11 +56,16 @@ import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -64,6 +81,9 @@ public class PubSdkApiTest {
   @Rule
   public MockWebServer mockWebServer = new MockWebServer();
 
+  @Rule
+  public MockWebServer otherMockWebServer = new MockWebServer();
+
   @Rule
   public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -78,6 +98,15 @@ public class PubSdkApiTest {
   @SpyBean
   private JsonSerializer serializer;
 
+  private NetworkPolicy networkPolicy;
+
+  private NetworkStats networkStats;
+
+  @Mock
+  private Config config;
+
+  private CborSerializer cborSerializer;
+
   private PubSdkApi api;
 
   @Before
@@ -91,7 +120,19 @@ public class PubSdkApiTest {
     when(gdprData.getGdprApplies()).thenReturn(false);
     when(gdprData.getVersion()).thenReturn(1);
 
-    api = new PubSdkApi(buildConfigWrapper, serializer);
+    networkPolicy = new NetworkPolicy(buildConfigWrapper);
+    networkStats = new NetworkStats(new EpochClock());
+    cborSerializer = new CborSerializer();
+    api = new PubSdkApi(
+        buildConfigWrapper,
+        serializer,
+        cborSerializer,
+        networkPolicy,
+        networkStats,
+        config,
+        new CdbSession(),
+        new CdbEndpointSelector(buildConfigWrapper, config, new EpochClock())
+    );
   }
 
   @Test
@@ -143,6 +184,59 @@ public class PubSdkApiTest {
     assertThatCode(() -> api.postLogs(request)).isInstanceOf(SocketTimeoutException.class);
   }
 
+  @Test
+  public void loadCdb_GivenOfflineDevice_FailFastWithoutSendingRequest() throws Exception {
+    networkPolicy.onConnectivityChanged(false, null);
+
+    assertThatCode(() -> api.loadCdb(mock(CdbRequest.class), "")).isInstanceOf(NoConnectivityException.class);
+    assertThat(mockWebServer.getRequestCount()).isZero();
+  }
+
+  @Test
+  public void postCsm_GivenFastConnection_UseShorterTimeout() throws Exception {
+    when(buildConfigWrapper.getNetworkTimeoutInMillis()).thenReturn(100);
+    networkPolicy.onConnectivityChanged(true, ConnectionType.WIFI);
+
+    mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(204)
+        .setHeadersDelay(75, TimeUnit.MILLISECONDS));
+
+    assertThatCode(() -> api.postCsm(givenMetricRequest())).isInstanceOf(SocketTimeoutException.class);
+  }
+
+  @Test
+  public void warmUpCdbConnection_GivenServer_SendHeadRequestToCdb() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+    api.warmUpCdbConnection();
+
+    RecordedRequest webRequest = mockWebServer.takeRequest();
+    assertThat(webRequest.getPath()).isEqualTo("/");
+    assertThat(webRequest.getMethod()).isEqualTo("HEAD");
+  }
+
+  @Test
+  public void warmUpCdbConnection_GivenNextCallToCdb_ReuseWarmedConnection() throws Exception {
+    MetricRequest request = givenMetricRequest();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(204));
+
+    api.warmUpCdbConnection();
+    api.postCsm(request);
+
+    RecordedRequest warmUpRequest = mockWebServer.takeRequest();
+    RecordedRequest csmRequest = mockWebServer.takeRequest();
+    assertThat(warmUpRequest.getSequenceNumber()).isEqualTo(0);
+    assertThat(csmRequest.getSequenceNumber()).isEqualTo(1);
+  }
+
+  @Test
+  public void warmUpCdbConnection_GivenConnectionError_ThrowIOException() throws Exception {
+    givenConnectionError();
+
+    assertThatCode(() -> api.warmUpCdbConnection()).isInstanceOf(IOException.class);
+  }
+
   @Test
   public void postCsm_GivenSerializedRequest_SendItWithPost() throws Exception {
     MetricRequest request = givenMetricRequest();
@@ -281,6 +375,62 @@ public class PubSdkApiTest {
     assertThat(webRequest.getBody().snapshot().utf8()).isEqualTo(json);
   }
 
+  @Test
+  public void loadCdb_GivenFirstEndpointWithServerError_FailOverToOtherEndpoint() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+    givenCdbUrls(mockWebServer, otherMockWebServer);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    otherMockWebServer.enqueue(new MockResponse().setBody("{\"timeToNextCall\":300}"));
+
+    CdbResponse cdbResponse = api.loadCdb(cdbRequest, "");
+
+    assertThat(cdbResponse.getTimeToNextCall()).isEqualTo(300);
+    assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    assertThat(otherMockWebServer.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void loadCdb_GivenFirstEndpointUnreachable_FailOverToOtherEndpoint() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+    givenCdbUrls(mockWebServer, otherMockWebServer);
+    mockWebServer.shutdown();
+
+    otherMockWebServer.enqueue(new MockResponse().setBody("{\"timeToNextCall\":300}"));
+
+    CdbResponse cdbResponse = api.loadCdb(cdbRequest, "");
+
+    assertThat(cdbResponse.getTimeToNextCall()).isEqualTo(300);
+    assertThat(otherMockWebServer.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void loadCdb_GivenFirstEndpointWithClientError_DoNotFailOver() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+    givenCdbUrls(mockWebServer, otherMockWebServer);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(400));
+
+    assertThatCode(() -> api.loadCdb(cdbRequest, "")).isInstanceOf(HttpResponseException.class);
+    assertThat(otherMockWebServer.getRequestCount()).isZero();
+  }
+
+  @Test
+  public void loadCdb_GivenFailedEndpoint_SendNextRequestsToOtherEndpoint() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+    givenCdbUrls(mockWebServer, otherMockWebServer);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    otherMockWebServer.enqueue(new MockResponse().setBody("{}"));
+    otherMockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+    api.loadCdb(cdbRequest, "");
+    api.loadCdb(cdbRequest, "");
+
+    assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    assertThat(otherMockWebServer.getRequestCount()).isEqualTo(2);
+  }
+
   @Test
   public void loadCdb_GivenBids_ReturnResponseWithBids() throws Exception {
     CdbRequest cdbRequest = givenEmptyCdbRequest();
@@ -396,6 +546,128 @@ public class PubSdkApiTest {
         .isInstanceOf(IOException.class);
   }
 
+  @Test
+  public void loadCdb_GivenExpiredDeadline_FailFastWithoutSendingRequest() throws Exception {
+    Deadline deadline = mock(Deadline.class);
+    when(deadline.getRemainingTimeInMillis()).thenReturn(0L);
+
+    assertThatCode(() -> api.loadCdb(mock(CdbRequest.class), "", deadline))
+        .isInstanceOf(DeadlineExceededException.class);
+    assertThat(mockWebServer.getRequestCount()).isZero();
+  }
+
+  @Test
+  public void loadCdb_GivenDeadlineShorterThanTimeout_ReadTimeoutIsBoundedByDeadline() throws Exception {
+    when(buildConfigWrapper.getNetworkTimeoutInMillis()).thenReturn(10_000);
+    Deadline deadline = mock(Deadline.class);
+    when(deadline.getRemainingTimeInMillis()).thenReturn(10L);
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+
+    mockWebServer.enqueue(new MockResponse()
+        .throttleBody(1, 100, TimeUnit.MILLISECONDS)
+        .setResponseCode(200)
+        .setBody("{}"));
+
+    assertThatCode(() -> api.loadCdb(cdbRequest, "", deadline)).isInstanceOf(SocketTimeoutException.class);
+  }
+
+  @Test
+  public void loadCdb_GivenBinaryProtocolEnabled_SendPostRequestWithCborPayload() throws Exception {
+    when(config.isCdbBinaryProtocolEnabled()).thenReturn(true);
+    CdbRequest cdbRequest = mock(CdbRequest.class);
+    Map<String, Object> jsonValue = new LinkedHashMap<>();
+    jsonValue.put("id", "myRequestId");
+    jsonValue.put("slots", new ArrayList<>());
+    doReturn(jsonValue).when(serializer).toJsonValue(cdbRequest);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(204));
+
+    api.loadCdb(cdbRequest, "");
+
+    RecordedRequest webRequest = mockWebServer.takeRequest();
+    assertThat(webRequest.getHeader("Content-Type")).isEqualTo("application/cbor");
+    assertThat(webRequest.getHeader("Accept")).isEqualTo("application/cbor, application/json");
+    assertThat(cborSerializer.read(webRequest.getBody().inputStream())).isEqualTo(jsonValue);
+  }
+
+  @Test
+  public void loadCdb_GivenCborResponse_ReturnResponseWithBids() throws Exception {
+    when(config.isCdbBinaryProtocolEnabled()).thenReturn(true);
+    CdbRequest cdbRequest = givenEmptyBinaryCdbRequest();
+
+    Map<String, Object> slot = new LinkedHashMap<>();
+    slot.put("impId", "5def5cbbab53a9a7dea0639f43924c70");
+    slot.put("placementId", "adunit_1");
+    slot.put("cpm", "1.00");
+    slot.put("currency", "EUR");
+    slot.put("width", 100);
+    slot.put("height", 100);
+    slot.put("displayUrl", "http://url.com");
+    slot.put("ttl", 0);
+
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("slots", Collections.singletonList(slot));
+    response.put("timeToNextCall", 42);
+
+    Buffer body = new Buffer();
+    cborSerializer.write(response, body.outputStream());
+    mockWebServer.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/cbor")
+        .setBody(body));
+
+    CdbResponse cdbResponse = api.loadCdb(cdbRequest, "");
+
+    assertThat(cdbResponse.getTimeToNextCall()).isEqualTo(42);
+    assertThat(cdbResponse.getSlots()).hasSize(1);
+    CdbResponseSlot responseSlot = cdbResponse.getSlots().get(0);
+    assertThat(responseSlot.getPlacementId()).isEqualTo("adunit_1");
+    assertThat(responseSlot.getCpm()).isEqualTo("1.00");
+    assertThat(responseSlot.getWidth()).isEqualTo(100);
+    assertThat(responseSlot.getDisplayUrl()).isEqualTo("http://url.com");
+  }
+
+  @Test
+  public void loadCdb_GivenJsonResponseToBinaryRequest_ReadJson() throws Exception {
+    when(config.isCdbBinaryProtocolEnabled()).thenReturn(true);
+    CdbRequest cdbRequest = givenEmptyBinaryCdbRequest();
+
+    mockWebServer.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/json")
+        .setBody("{\"timeToNextCall\": 42}"));
+
+    CdbResponse cdbResponse = api.loadCdb(cdbRequest, "");
+
+    assertThat(cdbResponse.getTimeToNextCall()).isEqualTo(42);
+  }
+
+  @Test
+  public void loadCdb_GivenBinaryRequestRejected_FallbackToJsonForThisAndNextRequests() throws Exception {
+    when(config.isCdbBinaryProtocolEnabled()).thenReturn(true);
+    CdbRequest cdbRequest = givenEmptyBinaryCdbRequest();
+    givenSerializerWriting(cdbRequest, "{}");
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(415));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(204));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(204));
+
+    api.loadCdb(cdbRequest, "");
+    api.loadCdb(cdbRequest, "");
+
+    assertThat(mockWebServer.takeRequest().getHeader("Content-Type")).isEqualTo("application/cbor");
+    assertThat(mockWebServer.takeRequest().getHeader("Content-Type")).isEqualTo("text/plain");
+    assertThat(mockWebServer.takeRequest().getHeader("Content-Type")).isEqualTo("text/plain");
+  }
+
+  @Test
+  public void loadCdb_GivenBinaryProtocolDisabledAndUnsupportedType_DoNotRetry() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(415));
+
+    assertThatCode(() -> api.loadCdb(cdbRequest, "")).isInstanceOf(HttpResponseException.class);
+    assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+  }
+
   @Test
   public void loadConfig_GivenInput_SendGetRequestWithQueryParameters() throws Exception {
     RemoteConfigRequest request = new RemoteConfigRequest(
@@ -426,11 +698,109 @@ public class PubSdkApiTest {
     assertThat(webRequest.getBody().snapshot().utf8()).isEqualToIgnoringWhitespace(expectedJson);
   }
 
+  @Test
+  public void loadConfig_GivenETag_SendConditionalRequest() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+    api.loadConfig(givenRemoteConfigRequest(), "\"v1\"");
+
+    RecordedRequest webRequest = mockWebServer.takeRequest();
+    assertThat(webRequest.getHeader("If-None-Match")).isEqualTo("\"v1\"");
+  }
+
+  @Test
+  public void loadConfig_GivenNoETag_SendUnconditionalRequest() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+
+    api.loadConfig(givenRemoteConfigRequest(), null);
+
+    RecordedRequest webRequest = mockWebServer.takeRequest();
+    assertThat(webRequest.getHeader("If-None-Match")).isNull();
+  }
+
+  @Test
+  public void loadConfig_GivenModifiedConfig_ReturnBodyAndValidators() throws Exception {
+    mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(200)
+        .setHeader("ETag", "\"v2\"")
+        .setHeader("Cache-Control", "public, max-age=3600")
+        .setBody("{\"killSwitch\": true}"));
+
+    ConditionalResponse<RemoteConfigResponse> response = api.loadConfig(
+        givenRemoteConfigRequest(),
+        "\"v1\""
+    );
+
+    assertThat(response.getBody()).isNotNull();
+    assertThat(response.getBody().getKillSwitch()).isTrue();
+    assertThat(response.getETag()).isEqualTo("\"v2\"");
+    assertThat(response.getMaxAgeInMillis()).isEqualTo(3_600_000L);
+  }
+
+  @Test
+  public void loadConfig_GivenNotModifiedConfig_ReturnNoBodyAndKeepETag() throws Exception {
+    mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(304)
+        .setHeader("Cache-Control", "max-age=60"));
+
+    ConditionalResponse<RemoteConfigResponse> response = api.loadConfig(
+        givenRemoteConfigRequest(),
+        "\"v1\""
+    );
+
+    assertThat(response.getBody()).isNull();
+    assertThat(response.getETag()).isEqualTo("\"v1\"");
+    assertThat(response.getMaxAgeInMillis()).isEqualTo(60_000L);
+  }
+
+  @Test
+  public void loadConfig_GivenPreconditionFailedOnSentETag_ReturnNoBodyAndKeepETag() throws Exception {
+    mockWebServer.enqueue(new MockResponse()
+        .setResponseCode(412)
+        .setHeader("Cache-Control", "max-age=60"));
+
+    ConditionalResponse<RemoteConfigResponse> response = api.loadConfig(
+        givenRemoteConfigRequest(),
+        "\"v1\""
+    );
+
+    assertThat(response.getBody()).isNull();
+    assertThat(response.getETag()).isEqualTo("\"v1\"");
+    assertThat(response.getMaxAgeInMillis()).isEqualTo(60_000L);
+  }
+
+  @Test
+  public void loadConfig_GivenPreconditionFailedWithoutSentETag_ThrowException() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(412));
+
+    assertThatCode(() -> api.loadConfig(givenRemoteConfigRequest(), null))
+        .isInstanceOf(HttpResponseException.class);
+  }
+
+  @Test
+  public void loadConfig_GivenHttpError_ThrowException() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+    assertThatCode(() -> api.loadConfig(givenRemoteConfigRequest(), "\"v1\""))
+        .isInstanceOf(HttpResponseException.class);
+  }
+
+  @Test
+  public void getMaxAgeInMillis_GivenVariousCacheControl_ReturnMaxAgeOrZero() throws Exception {
+    assertThat(PubSdkApi.getMaxAgeInMillis(null)).isZero();
+    assertThat(PubSdkApi.getMaxAgeInMillis("public")).isZero();
+    assertThat(PubSdkApi.getMaxAgeInMillis("max-age=10")).isEqualTo(10_000L);
+    assertThat(PubSdkApi.getMaxAgeInMillis("private, MAX-AGE=20")).isEqualTo(20_000L);
+    assertThat(PubSdkApi.getMaxAgeInMillis("max-age=10, no-cache")).isZero();
+    assertThat(PubSdkApi.getMaxAgeInMillis("max-age=-10")).isZero();
+    assertThat(PubSdkApi.getMaxAgeInMillis("max-age=abc")).isZero();
+  }
+
   @Test
   public void executeRawGet_GivenConnectionError_ThrowIt() throws Exception {
     givenConnectionError();
 
-    assertThatCode(() -> api.executeRawGet(serverUrl))
+    assertThatCode(() -> api.executeRawGet(serverUrl, null, Endpoint.PIXEL))
         .isInstanceOf(IOException.class);
   }
 
@@ -438,7 +808,7 @@ public class PubSdkApiTest {
   public void executeRawGet_GivenHttpError_ThrowIOException() throws Exception {
     mockWebServer.enqueue(new MockResponse().setResponseCode(400));
 
-    assertThatCode(() -> api.executeRawGet(serverUrl))
+    assertThatCode(() -> api.executeRawGet(serverUrl, null, Endpoint.PIXEL))
         .isInstanceOf(IOException.class);
   }
 
@@ -446,24 +816,272 @@ public class PubSdkApiTest {
   public void executeRawGet_GivenOkResponse_ReturnIt() throws Exception {
     mockWebServer.enqueue(new MockResponse().setBody("myResponse"));
 
-    InputStream response = api.executeRawGet(serverUrl);
+    InputStream response = api.executeRawGet(serverUrl, null, Endpoint.PIXEL);
 
     assertThat(response).hasContent("myResponse");
   }
 
+  @Test
+  public void postLogs_GivenSuccessfulExchange_AccountItInLogsEndpoint() throws Exception {
+    List<RemoteLogRecords> request = new ArrayList<>();
+    givenSerializerWriting(request, "{\"expectedJson\": 42}");
+    mockWebServer.enqueue(new MockResponse().setResponseCode(204));
+
+    api.postLogs(request);
+
+    EndpointStats stats = networkStats.getStats(Endpoint.REMOTE_LOGS);
+    assertThat(stats.getRequestCount()).isEqualTo(1);
+    assertThat(stats.getFailureCount()).isZero();
+    assertThat(stats.getBytesSent()).isEqualTo(20);
+    assertThat(stats.getStatusCodes()).containsOnly(entry(204, 1L));
+    assertThat(stats.getConnectLatency().getTotalCount()).isEqualTo(1);
+    assertThat(stats.getTimeToFirstByte().getTotalCount()).isEqualTo(1);
+    assertThat(stats.getTotalLatency().getTotalCount()).isEqualTo(1);
+    assertThat(networkStats.getStats(Endpoint.CSM).getRequestCount()).isZero();
+  }
+
+  @Test
+  public void postTelemetry_GivenPartialAcknowledgement_ReturnItAndAccountItInTelemetryEndpoint() throws Exception {
+    TelemetryRequest request = new TelemetryRequest(new ArrayList<>(), new ArrayList<>());
+    String json = "{\"expectedJson\": 42}";
+    givenSerializerWriting(request, json);
+    mockWebServer.enqueue(new MockResponse().setBody("{\"csmAcknowledged\": true}"));
+
+    TelemetryResponse response = api.postTelemetry(request);
+
+    RecordedRequest webRequest = mockWebServer.takeRequest();
+    assertThat(webRequest.getPath()).isEqualTo("/inapp/telemetry");
+    assertThat(webRequest.getMethod()).isEqualTo("POST");
+    assertThat(webRequest.getBody().snapshot().utf8()).isEqualTo(json);
+    assertThat(response).isEqualTo(new TelemetryResponse(true, false));
+    assertThat(networkStats.getStats(Endpoint.TELEMETRY).getRequestCount()).isEqualTo(1);
+    assertThat(networkStats.getStats(Endpoint.CSM).getRequestCount()).isZero();
+    assertThat(networkStats.getStats(Endpoint.REMOTE_LOGS).getRequestCount()).isZero();
+  }
+
+  @Test
+  public void postTelemetry_GivenHttpError_ThrowIOException() throws Exception {
+    TelemetryRequest request = new TelemetryRequest(new ArrayList<>(), new ArrayList<>());
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+    assertThatCode(() -> api.postTelemetry(request)).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void executeRawGet_GivenOkResponseFullyRead_AccountReceivedBytesInPixelEndpoint() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setBody("myResponse"));
+
+    try (InputStream response = api.executeRawGet(serverUrl, null, Endpoint.PIXEL)) {
+      assertThat(response).hasContent("myResponse");
+    }
+
+    EndpointStats stats = networkStats.getStats(Endpoint.PIXEL);
+    assertThat(stats.getRequestCount()).isEqualTo(1);
+    assertThat(stats.getBytesReceived()).isEqualTo(10);
+    assertThat(stats.getStatusCodes()).containsOnly(entry(200, 1L));
+    assertThat(stats.getTotalLatency().getTotalCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void executeRawGet_GivenCreativeEndpoint_AccountItInCreativeEndpoint() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setBody("myResponse"));
+
+    api.executeRawGet(serverUrl, "myUserAgent", Endpoint.CREATIVE).close();
+
+    assertThat(networkStats.getStats(Endpoint.CREATIVE).getRequestCount()).isEqualTo(1);
+    assertThat(networkStats.getStats(Endpoint.PIXEL).getRequestCount()).isZero();
+  }
+
+  @Test
+  public void loadCdb_GivenHttpError_AccountFailureAndStatusCode() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+    assertThatCode(() -> api.loadCdb(cdbRequest, "")).isInstanceOf(HttpResponseException.class);
+
+    EndpointStats stats = networkStats.getStats(Endpoint.CDB);
+    assertThat(stats.getRequestCount()).isEqualTo(1);
+    assertThat(stats.getFailureCount()).isEqualTo(1);
+    assertThat(stats.getBytesSent()).isEqualTo(2);
+    assertThat(stats.getStatusCodes()).containsOnly(entry(500, 1L));
+    assertThat(stats.getTotalLatency().getTotalCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void loadCdb_GivenConnectionError_AccountFailureWithoutStatusCode() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+    givenConnectionError();
+
+    assertThatCode(() -> api.loadCdb(cdbRequest, "")).isInstanceOf(IOException.class);
+
+    EndpointStats stats = networkStats.getStats(Endpoint.CDB);
+    assertThat(stats.getRequestCount()).isEqualTo(1);
+    assertThat(stats.getFailureCount()).isEqualTo(1);
+    assertThat(stats.getStatusCodes()).isEmpty();
+  }
+
+  @Test
+  public void loadCdb_GivenOfflineDevice_DoNotAccountAnyExchange() throws Exception {
+    networkPolicy.onConnectivityChanged(false, null);
+
+    assertThatCode(() -> api.loadCdb(mock(CdbRequest.class), "")).isInstanceOf(NoConnectivityException.class);
+
+    assertThat(networkStats.getStats(Endpoint.CDB).getRequestCount()).isZero();
+  }
+
+  @Test
+  public void loadConfig_GivenNotModifiedConfig_AccountSuccessfulExchange() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+
+    api.loadConfig(givenRemoteConfigRequest(), "\"myETag\"");
+
+    EndpointStats stats = networkStats.getStats(Endpoint.CONFIG);
+    assertThat(stats.getRequestCount()).isEqualTo(1);
+    assertThat(stats.getFailureCount()).isZero();
+    assertThat(stats.getStatusCodes()).containsOnly(entry(304, 1L));
+    assertThat(stats.getTotalLatency().getTotalCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void loadCdb_GivenSessionOpenedByCdb_SendOnlyTokenAndContextChangesInNextRequests() throws Exception {
+    CdbRequest cdbRequest = givenSessionCdbRequest("myBundleId");
+    CdbRequest nextCdbRequest = givenSessionCdbRequest("myNewBundleId");
+
+    mockWebServer.enqueue(new MockResponse().setBody("{\"sessionToken\": \"myToken\"}"));
+    mockWebServer.enqueue(new MockResponse().setBody("{\"sessionToken\": \"myToken\"}"));
+    mockWebServer.enqueue(new MockResponse().setBody("{\"sessionToken\": \"myToken\"}"));
+
+    api.loadCdb(cdbRequest, "");
+    api.loadCdb(cdbRequest, "");
+    api.loadCdb(nextCdbRequest, "");
+
+    mockWebServer.takeRequest();
+    JSONObject deltaRequest = new JSONObject(mockWebServer.takeRequest().getBody().readUtf8());
+    assertThat(deltaRequest.getString("sessionToken")).isEqualTo("myToken");
+    assertThat(deltaRequest.getString("id")).isEqualTo("myRequestId");
+    assertThat(deltaRequest.has("publisher")).isFalse();
+    assertThat(deltaRequest.has("contextPatch")).isFalse();
+
+    JSONObject patchedRequest = new JSONObject(mockWebServer.takeRequest().getBody().readUtf8());
+    assertThat(patchedRequest.getString("sessionToken")).isEqualTo("myToken");
+    assertThat(patchedRequest.getJSONObject("contextPatch").toString())
+        .isEqualTo("{\"publisher\":{\"bundleId\":\"myNewBundleId\"}}");
+  }
+
+  @Test
+  public void loadCdb_GivenUnknownSession_ResetItAndSendFullRequest() throws Exception {
+    CdbRequest cdbRequest = givenSessionCdbRequest("myBundleId");
+
+    mockWebServer.enqueue(new MockResponse().setBody("{\"sessionToken\": \"myToken\"}"));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(409));
+    mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+    api.loadCdb(cdbRequest, "");
+    CdbResponse cdbResponse = api.loadCdb(cdbRequest, "");
+
+    assertThat(cdbResponse.getSessionToken()).isNull();
+    mockWebServer.takeRequest();
+    JSONObject deltaRequest = new JSONObject(mockWebServer.takeRequest().getBody().readUtf8());
+    assertThat(deltaRequest.has("sessionToken")).isTrue();
+    JSONObject fullRequest = new JSONObject(mockWebServer.takeRequest().getBody().readUtf8());
+    assertThat(fullRequest.has("sessionToken")).isFalse();
+    assertThat(fullRequest.getJSONObject("publisher").getString("bundleId")).isEqualTo("myBundleId");
+  }
+
+  @Test
+  public void loadCdb_GivenSessionAndFailOver_SendFullRequestToOtherEndpoint() throws Exception {
+    CdbRequest cdbRequest = givenSessionCdbRequest("myBundleId");
+    givenCdbUrls(mockWebServer, otherMockWebServer);
+
+    mockWebServer.enqueue(new MockResponse().setBody("{\"sessionToken\": \"myToken\"}"));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    otherMockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+    api.loadCdb(cdbRequest, "");
+    api.loadCdb(cdbRequest, "");
+
+    JSONObject fullRequest = new JSONObject(otherMockWebServer.takeRequest().getBody().readUtf8());
+    assertThat(fullRequest.has("sessionToken")).isFalse();
+    assertThat(fullRequest.getJSONObject("publisher").getString("bundleId")).isEqualTo("myBundleId");
+  }
+
+  @Test
+  public void loadCdb_GivenNoSessionAndConflict_DoNotRetry() throws Exception {
+    CdbRequest cdbRequest = givenEmptyCdbRequest();
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(409));
+
+    assertThatCode(() -> api.loadCdb(cdbRequest, "")).isInstanceOf(HttpResponseException.class);
+    assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void loadCdb_GivenResponseWithoutSessionToken_SendFullNextRequest() throws Exception {
+    CdbRequest cdbRequest = givenSessionCdbRequest("myBundleId");
+
+    mockWebServer.enqueue(new MockResponse().setBody("{\"sessionToken\": \"myToken\"}"));
+    mockWebServer.enqueue(new MockResponse().setBody("{}"));
+    mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+    api.loadCdb(cdbRequest, "");
+    api.loadCdb(cdbRequest, "");
+    api.loadCdb(cdbRequest, "");
+
+    mockWebServer.takeRequest();
+    mockWebServer.takeRequest();
+    JSONObject fullRequest = new JSONObject(mockWebServer.takeRequest().getBody().readUtf8());
+    assertThat(fullRequest.has("sessionToken")).isFalse();
+    assertThat(fullRequest.has("publisher")).isTrue();
+  }
+
   @NonNull
+  private RemoteConfigRequest givenRemoteConfigRequest() {
+    return new RemoteConfigRequest("myCpId", "myAppId", "myVersion", 456, "myDeviceId");
+  }
+
   private CdbRequest givenEmptyCdbRequest() throws Exception {
     CdbRequest cdbRequest = mock(CdbRequest.class);
     givenSerializerWriting(cdbRequest, "{}");
     return cdbRequest;
   }
 
+  private CdbRequest givenEmptyBinaryCdbRequest() throws Exception {
+    CdbRequest cdbRequest = mock(CdbRequest.class);
+    doReturn(new LinkedHashMap<>()).when(serializer).toJsonValue(cdbRequest);
+    return cdbRequest;
+  }
+
+  private CdbRequest givenSessionCdbRequest(String bundleId) throws Exception {
+    Map<String, Object> publisher = new LinkedHashMap<>();
+    publisher.put("bundleId", bundleId);
+    publisher.put("cpId", "myCpId");
+
+    Map<String, Object> jsonValue = new LinkedHashMap<>();
+    jsonValue.put("id", "myRequestId");
+    jsonValue.put("publisher", publisher);
+    jsonValue.put("sdkVersion", "1.2.3");
+    jsonValue.put("slots", new ArrayList<>());
+
+    CdbRequest cdbRequest = mock(CdbRequest.class);
+    doReturn(jsonValue).when(serializer).toJsonValue(cdbRequest);
+    givenSerializerWriting(cdbRequest, new JSONObject(jsonValue).toString());
+    return cdbRequest;
+  }
+
   private void givenSerializerWriting(Object expected, String json) throws IOException {
     doAnswer(answerVoid((Object ignored, OutputStream stream) -> {
       stream.write(json.getBytes(StandardCharsets.UTF_8));
     })).when(serializer).write(eq(expected), any());
   }
 
+  private void givenCdbUrls(MockWebServer... servers) {
+    List<String> cdbUrls = new ArrayList<>();
+    for (MockWebServer server : servers) {
+      cdbUrls.add("http://localhost:" + server.getPort());
+    }
+    when(config.getCdbUrls()).thenReturn(cdbUrls);
+  }
+
   private void givenConnectionError() throws IOException {
     mockWebServer.shutdown();
   }
@@ -0,0 +1,238 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.network
+
+import com.criteo.publisher.network.RequestScheduler.Priority
+import com.criteo.publisher.util.BuildConfigWrapper
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatCode
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.verify
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+class RequestSchedulerTest {
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var scheduledExecutorService: ScheduledExecutorService
+
+  @Mock
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  private lateinit var executor: ManualExecutor
+
+  private lateinit var scheduler: RequestScheduler
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { maxTelemetryDeferralInMillis } doReturn 5000
+    }
+
+    executor = ManualExecutor()
+    scheduler = RequestScheduler(executor, scheduledExecutorService, buildConfigWrapper)
+  }
+
+  @Test
+  fun execute_GivenEachPriorityAndNoBidInFlight_ExecuteImmediately() {
+    val bidding = mock<Runnable>()
+    val delivery = mock<Runnable>()
+    val telemetry = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING, bidding)
+    scheduler.execute(Priority.DELIVERY, delivery)
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+    executor.runAll()
+
+    verify(bidding).run()
+    verify(delivery).run()
+    verify(telemetry).run()
+    verify(scheduledExecutorService, never()).schedule(any<Runnable>(), any(), any())
+  }
+
+  @Test
+  fun execute_GivenTelemetryWhileBidInFlight_DeferItUntilBidIsOver() {
+    val telemetry = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING, mock())
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+
+    assertThat(executor.pendingCount).isEqualTo(1)
+
+    executor.runAll()
+
+    verify(telemetry).run()
+  }
+
+  @Test
+  fun execute_GivenDeliveryWhileBidInFlight_ExecuteImmediately() {
+    val delivery = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING, mock())
+    scheduler.execute(Priority.DELIVERY, delivery)
+
+    assertThat(executor.pendingCount).isEqualTo(2)
+  }
+
+  @Test
+  fun execute_GivenTelemetryWhileSeveralBidsInFlight_DeferItUntilLastBidIsOver() {
+    val telemetry = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING, mock())
+    scheduler.execute(Priority.BIDDING, mock())
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+
+    executor.runNext()
+    verify(telemetry, never()).run()
+
+    executor.runNext()
+    executor.runAll()
+    verify(telemetry).run()
+  }
+
+  @Test
+  fun execute_GivenFailingBid_ReleaseDeferredTelemetry() {
+    val telemetry = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING) { throw IllegalStateException() }
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+
+    runCatching { executor.runNext() }
+    executor.runAll()
+
+    verify(telemetry).run()
+  }
+
+  @Test
+  fun execute_GivenTelemetryDeferredForTooLong_ReleaseItWhileBidIsStillInFlight() {
+    val telemetry = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING, mock())
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+
+    val releaseCaptor = argumentCaptor<Runnable>()
+    verify(scheduledExecutorService).schedule(releaseCaptor.capture(), eq(5000L), eq(TimeUnit.MILLISECONDS))
+    releaseCaptor.firstValue.run()
+
+    assertThat(executor.pendingCount).isEqualTo(2)
+    executor.runAll()
+    verify(telemetry).run()
+  }
+
+  @Test
+  fun execute_GivenTelemetryAlreadyReleasedByEndOfBid_DoNotExecuteItTwice() {
+    val telemetry = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING, mock())
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+    executor.runAll()
+
+    val releaseCaptor = argumentCaptor<Runnable>()
+    verify(scheduledExecutorService).schedule(releaseCaptor.capture(), any(), any())
+    releaseCaptor.firstValue.run()
+    executor.runAll()
+
+    verify(telemetry).run()
+  }
+
+  @Test
+  fun execute_GivenRejectedReleasedTelemetry_ExecuteNextReleasedOnes() {
+    val rejectedTelemetry = mock<Runnable>()
+    val telemetry = mock<Runnable>()
+
+    scheduler.execute(Priority.BIDDING, mock())
+    scheduler.execute(Priority.TELEMETRY, rejectedTelemetry)
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+    executor.rejectedCommands.add(rejectedTelemetry)
+
+    assertThatCode { executor.runAll() }.doesNotThrowAnyException()
+
+    verify(rejectedTelemetry, never()).run()
+    verify(telemetry).run()
+  }
+
+  @Test
+  fun executorFor_GivenPriority_SubmitTasksWithIt() {
+    val telemetry = mock<Runnable>()
+
+    scheduler.executorFor(Priority.BIDDING).execute(mock())
+    scheduler.executorFor(Priority.TELEMETRY).execute(telemetry)
+
+    assertThat(executor.pendingCount).isEqualTo(1)
+  }
+
+  @Test
+  fun executorFor_GivenBiddingStartedAndNoTaskRunning_DeferTelemetryUntilBiddingEnded() {
+    val telemetry = mock<Runnable>()
+    val biddingExecutor = scheduler.executorFor(Priority.BIDDING) as RequestScheduler.BiddingExecutor
+
+    biddingExecutor.onBiddingStarted()
+    biddingExecutor.execute(mock())
+    executor.runAll()
+    scheduler.execute(Priority.TELEMETRY, telemetry)
+    executor.runAll()
+
+    verify(telemetry, never()).run()
+
+    biddingExecutor.onBiddingEnded()
+    executor.runAll()
+
+    verify(telemetry).run()
+  }
+
+  private class ManualExecutor : Executor {
+    private val pendingCommands = ArrayDeque<Runnable>()
+
+    val rejectedCommands = mutableSetOf<Runnable>()
+
+    val pendingCount: Int
+      get() = pendingCommands.size
+
+    override fun execute(command: Runnable) {
+      if (command in rejectedCommands) {
+        throw RejectedExecutionException()
+      }
+      pendingCommands.addLast(command)
+    }
+
+    fun runNext() {
+      pendingCommands.removeFirst().run()
+    }
+
+    fun runAll() {
+      while (pendingCommands.isNotEmpty()) {
+        runNext()
+      }
+    }
+  }
+}
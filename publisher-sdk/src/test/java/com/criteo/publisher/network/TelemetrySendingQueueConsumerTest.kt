@@ -0,0 +1,213 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.network
+
+import com.criteo.publisher.concurrent.DirectMockExecutor
+import com.criteo.publisher.csm.Metric
+import com.criteo.publisher.csm.MetricSendingQueue
+import com.criteo.publisher.logging.RemoteLogRecords
+import com.criteo.publisher.logging.RemoteLogSendingQueue
+import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.model.Config
+import com.criteo.publisher.model.TelemetryRequest
+import com.criteo.publisher.model.TelemetryResponse
+import com.criteo.publisher.util.AdvertisingInfo
+import com.criteo.publisher.util.BuildConfigWrapper
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.stub
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.verifyNoInteractions
+import org.mockito.kotlin.whenever
+import java.io.IOException
+
+class TelemetrySendingQueueConsumerTest {
+
+  @Rule
+  @JvmField
+  val mockedDependenciesRule = MockedDependenciesRule()
+
+  @Rule
+  @JvmField
+  val mockitoRule = MockitoJUnit.rule()
+
+  @Mock
+  private lateinit var metricSendingQueue: MetricSendingQueue
+
+  @Mock
+  private lateinit var remoteLogSendingQueue: RemoteLogSendingQueue
+
+  @Mock
+  private lateinit var api: PubSdkApi
+
+  @Mock
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  @Mock
+  private lateinit var advertisingInfo: AdvertisingInfo
+
+  @Mock
+  private lateinit var config: Config
+
+  @Mock
+  private lateinit var networkPolicy: NetworkPolicy
+
+  private val executor = DirectMockExecutor()
+
+  private lateinit var consumer: TelemetrySendingQueueConsumer
+
+  @Before
+  fun setUp() {
+    buildConfigWrapper.stub {
+      on { sdkVersion } doReturn "1.2.3"
+    }
+
+    config.stub {
+      on { isCsmEnabled } doReturn true
+    }
+
+    networkPolicy.stub {
+      on { getCsmBatchSize() } doReturn 42
+      on { getRemoteLogBatchSize() } doReturn 1337
+    }
+
+    consumer = TelemetrySendingQueueConsumer(
+        metricSendingQueue,
+        remoteLogSendingQueue,
+        api,
+        buildConfigWrapper,
+        advertisingInfo,
+        config,
+        networkPolicy,
+        executor
+    )
+  }
+
+  @Test
+  fun sendTelemetryBatch_GivenOfflineDevice_DoNothing() {
+    whenever(networkPolicy.isOffline()).doReturn(true)
+
+    consumer.sendTelemetryBatch()
+
+    verifyNoInteractions(metricSendingQueue)
+    verifyNoInteractions(remoteLogSendingQueue)
+    verifyNoInteractions(api)
+  }
+
+  @Test
+  fun sendTelemetryBatch_GivenEmptyQueues_DoNotSendAnything() {
+    whenever(metricSendingQueue.poll(any())).doReturn(listOf())
+    whenever(remoteLogSendingQueue.poll(any())).doReturn(listOf())
+
+    consumer.sendTelemetryBatch()
+
+    verify(api, never()).postTelemetry(any())
+  }
+
+  @Test
+  fun sendTelemetryBatch_GivenMetricsAndLogs_SendThemInSingleEnvelopeInExecutor() {
+    val metric = Metric.builder("id").build()
+    val logs = givenRemoteLogRecords()
+
+    whenever(metricSendingQueue.poll(42)).doReturn(listOf(metric))
+    whenever(remoteLogSendingQueue.poll(1337)).doReturn(listOf(logs))
+    doAnswer {
+      executor.expectIsRunningInExecutor()
+      TelemetryResponse(isCsmAcknowledged = true, isLogsAcknowledged = true)
+    }.whenever(api).postTelemetry(any())
+
+    consumer.sendTelemetryBatch()
+
+    argumentCaptor<TelemetryRequest>().apply {
+      verify(api).postTelemetry(capture())
+      assertThat(firstValue.metricRequests).hasSize(1)
+      assertThat(firstValue.metricRequests[0].wrapperVersion).isEqualTo("1.2.3")
+      assertThat(firstValue.remoteLogRecords).containsExactly(logs)
+    }
+    verify(metricSendingQueue, never()).offer(any())
+    verify(remoteLogSendingQueue, never()).offer(any())
+    executor.verifyExpectations()
+  }
+
+  @Test
+  fun sendTelemetryBatch_GivenOnlyCsmAcknowledged_RollbackOnlyLogs() {
+    val metric = Metric.builder("id").build()
+    val logs = givenRemoteLogRecords()
+
+    whenever(metricSendingQueue.poll(any())).doReturn(listOf(metric))
+    whenever(remoteLogSendingQueue.poll(any())).doReturn(listOf(logs))
+    whenever(api.postTelemetry(any())).doReturn(TelemetryResponse(isCsmAcknowledged = true))
+
+    consumer.sendTelemetryBatch()
+
+    verify(metricSendingQueue, never()).offer(any())
+    verify(remoteLogSendingQueue).offer(logs)
+  }
+
+  @Test
+  fun sendTelemetryBatch_GivenIOException_RollbackBothQueues() {
+    val metric = Metric.builder("id").build()
+    val logs = givenRemoteLogRecords()
+
+    whenever(metricSendingQueue.poll(any())).doReturn(listOf(metric))
+    whenever(remoteLogSendingQueue.poll(any())).doReturn(listOf(logs))
+    doThrow(IOException::class).whenever(api).postTelemetry(any())
+
+    consumer.sendTelemetryBatch()
+
+    verify(metricSendingQueue).offer(metric)
+    verify(remoteLogSendingQueue).offer(logs)
+  }
+
+  @Test
+  fun sendTelemetryBatch_GivenCsmDisabled_DoNotPollMetrics() {
+    val logs = givenRemoteLogRecords()
+
+    whenever(config.isCsmEnabled).doReturn(false)
+    whenever(remoteLogSendingQueue.poll(any())).doReturn(listOf(logs))
+    whenever(api.postTelemetry(any())).doReturn(TelemetryResponse(isLogsAcknowledged = true))
+
+    consumer.sendTelemetryBatch()
+
+    verifyNoInteractions(metricSendingQueue)
+    argumentCaptor<TelemetryRequest>().apply {
+      verify(api).postTelemetry(capture())
+      assertThat(firstValue.metricRequests).isEmpty()
+      assertThat(firstValue.remoteLogRecords).containsExactly(logs)
+    }
+  }
+
+  private fun givenRemoteLogRecords(): RemoteLogRecords {
+    val remoteLogContext = mock<RemoteLogRecords.RemoteLogContext> {
+      on { deviceId } doReturn "device-id"
+    }
+    return mock {
+      on { context } doReturn remoteLogContext
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.criteo.publisher.privacy.gdpr
 import com.criteo.publisher.mock.MockedDependenciesRule
 import com.criteo.publisher.util.JsonSerializer
 import com.criteo.publisher.util.writeIntoString
+import com.squareup.moshi.Moshi
 import org.json.JSONObject
 import org.junit.Assert.assertFalse
 import org.junit.Assert.assertTrue
@@ -34,7 +35,10 @@ class GdprDataFactoryTest {
     val mockedDependenciesRule = MockedDependenciesRule()
 
     @Inject
-    private lateinit var serializer: JsonSerializer
+    private lateinit var moshi: Moshi
+
+    // Nested types are not registered in the SDK serializer: they are only serialized on their own in tests
+    private val serializer by lazy { JsonSerializer(moshi) }
 
     @Test
     fun testToJSONObject_ConsentGiven_True() {
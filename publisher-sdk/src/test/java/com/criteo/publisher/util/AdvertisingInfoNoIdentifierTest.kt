@@ -26,6 +26,7 @@ import org.junit.Rule
 import org.junit.Test
 import org.mockito.kotlin.any
 import org.mockito.kotlin.verify
+import java.util.concurrent.TimeUnit
 import javax.inject.Inject
 
 class AdvertisingInfoNoIdentifierTest {
@@ -72,4 +73,12 @@ via IntelliJ delegating test run to Gradle.
     assertThat(isLimitAdTrackingEnabled).isFalse()
     verify(logger).debug(any(), any<MissingPlayServicesAdsIdentifierException>())
   }
+
+  @Test
+  fun fetchAsync_GivenPlayServiceAdsIdentifierNotInClasspath_CompleteAndCacheFailure() {
+    advertisingInfo.fetchAsync().get(1, TimeUnit.SECONDS)
+
+    assertThat(advertisingInfo.fetchAsync().isDone).isTrue()
+    verify(logger).debug(any(), any<MissingPlayServicesAdsIdentifierException>())
+  }
 }
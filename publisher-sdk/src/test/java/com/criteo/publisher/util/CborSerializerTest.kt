@@ -0,0 +1,179 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.criteo.publisher.util
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatCode
+import org.junit.Before
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.EOFException
+import java.io.IOException
+
+class CborSerializerTest {
+
+  private lateinit var serializer: CborSerializer
+
+  @Before
+  fun setUp() {
+    serializer = CborSerializer()
+  }
+
+  @Test
+  fun write_GivenIntegers_EncodeThemWithShortestArgument() {
+    assertThat(encode(0)).isEqualTo("00")
+    assertThat(encode(23)).isEqualTo("17")
+    assertThat(encode(24)).isEqualTo("1818")
+    assertThat(encode(100)).isEqualTo("1864")
+    assertThat(encode(1000)).isEqualTo("1903e8")
+    assertThat(encode(1000000)).isEqualTo("1a000f4240")
+    assertThat(encode(1000000000000L)).isEqualTo("1b000000e8d4a51000")
+    assertThat(encode(-1)).isEqualTo("20")
+    assertThat(encode(-100)).isEqualTo("3863")
+    assertThat(encode(-1000)).isEqualTo("3903e7")
+  }
+
+  @Test
+  fun write_GivenFloatingPoints_UseSinglePrecisionOnlyIfLossless() {
+    assertThat(encode(1.5)).isEqualTo("fa3fc00000")
+    assertThat(encode(1.5f)).isEqualTo("fa3fc00000")
+    assertThat(encode(1.1)).isEqualTo("fb3ff199999999999a")
+  }
+
+  @Test
+  fun write_GivenSimpleValues_EncodeThem() {
+    assertThat(encode(false)).isEqualTo("f4")
+    assertThat(encode(true)).isEqualTo("f5")
+    assertThat(encode(null)).isEqualTo("f6")
+  }
+
+  @Test
+  fun write_GivenStrings_EncodeThemInUtf8() {
+    assertThat(encode("")).isEqualTo("60")
+    assertThat(encode("IETF")).isEqualTo("6449455446")
+    assertThat(encode("ü")).isEqualTo("62c3bc")
+  }
+
+  @Test
+  fun write_GivenCollections_EncodeThemWithDefiniteLength() {
+    assertThat(encode(listOf<Any>())).isEqualTo("80")
+    assertThat(encode(listOf(1, 2, 3))).isEqualTo("83010203")
+    assertThat(encode(mapOf<String, Any>())).isEqualTo("a0")
+    assertThat(encode(mapOf("a" to 1, "b" to listOf(2, 3)))).isEqualTo("a26161016162820203")
+  }
+
+  @Test
+  fun write_GivenUnsupportedType_ThrowIOException() {
+    assertThatCode {
+      serializer.write(Any(), ByteArrayOutputStream())
+    }.isInstanceOf(IOException::class.java)
+  }
+
+  @Test
+  fun read_GivenEncodedValues_DecodeThemAsLongDoubleStringListAndMap() {
+    assertThat(decode("1b000000e8d4a51000")).isEqualTo(1000000000000L)
+    assertThat(decode("3903e7")).isEqualTo(-1000L)
+    assertThat(decode("fa3fc00000")).isEqualTo(1.5)
+    assertThat(decode("fb3ff199999999999a")).isEqualTo(1.1)
+    assertThat(decode("f7")).isNull()
+    assertThat(decode("62c3bc")).isEqualTo("ü")
+    assertThat(decode("a26161016162820203")).isEqualTo(mapOf("a" to 1L, "b" to listOf(2L, 3L)))
+  }
+
+  @Test
+  fun read_GivenHalfPrecisionFloats_DecodeThem() {
+    assertThat(decode("f93e00")).isEqualTo(1.5)
+    assertThat(decode("f9c400")).isEqualTo(-4.0)
+    assertThat(decode("f90001")).isEqualTo(5.960464477539063e-8)
+    assertThat(decode("f97c00")).isEqualTo(Double.POSITIVE_INFINITY)
+  }
+
+  @Test
+  fun read_GivenIndefiniteLengthItems_DecodeThem() {
+    assertThat(decode("9f018202039f0405ffff")).isEqualTo(listOf(1L, listOf(2L, 3L), listOf(4L, 5L)))
+    assertThat(decode("bf61610161629f0203ffff")).isEqualTo(mapOf("a" to 1L, "b" to listOf(2L, 3L)))
+    assertThat(decode("7f657374726561646d696e67ff")).isEqualTo("streaming")
+  }
+
+  @Test
+  fun read_GivenTaggedItem_IgnoreTag() {
+    assertThat(decode("c074323031332d30332d32315432303a30343a30305a")).isEqualTo("2013-03-21T20:04:00Z")
+  }
+
+  @Test
+  fun read_GivenByteString_ThrowIOException() {
+    assertThatCode { decode("4401020304") }.isInstanceOf(IOException::class.java)
+  }
+
+  @Test
+  fun read_GivenUnexpectedBreak_ThrowIOException() {
+    assertThatCode { decode("ff") }.isInstanceOf(IOException::class.java)
+    assertThatCode { decode("82ff") }.isInstanceOf(IOException::class.java)
+  }
+
+  @Test
+  fun read_GivenTruncatedInput_ThrowEOFException() {
+    assertThatCode { decode("") }.isInstanceOf(EOFException::class.java)
+    assertThatCode { decode("1903") }.isInstanceOf(EOFException::class.java)
+    assertThatCode { decode("826161") }.isInstanceOf(EOFException::class.java)
+  }
+
+  @Test
+  fun writeThenRead_GivenJsonLikeValue_ReturnEquivalentValue() {
+    val value = mapOf(
+        "id" to "myRequestId",
+        "profileId" to 456L,
+        "gdprConsent" to mapOf("consentData" to "consent", "gdprApplies" to true, "version" to 2L),
+        "slots" to listOf(
+            mapOf("placementId" to "adUnit", "sizes" to listOf("320x50"), "isNative" to null),
+            mapOf("cpm" to 1.12, "ttl" to -1L)
+        )
+    )
+
+    val output = ByteArrayOutputStream()
+    serializer.write(value, output)
+    val read = serializer.read(ByteArrayInputStream(output.toByteArray()))
+
+    assertThat(read).isEqualTo(value)
+  }
+
+  @Test
+  fun write_GivenKeyDictionary_EncodeKnownKeysAsTheirIndex() {
+    serializer = CborSerializer(listOf("a", "b"))
+
+    assertThat(encode(mapOf("b" to 1, "c" to 2))).isEqualTo("a20101616302")
+  }
+
+  @Test
+  fun read_GivenKeyDictionary_DecodeIndexesAsKnownKeys() {
+    serializer = CborSerializer(listOf("a", "b"))
+
+    // Index 2 is out of the dictionary, so it is kept as a text key
+    assertThat(decode("a3010100020203")).isEqualTo(mapOf("b" to 1L, "a" to 2L, "2" to 3L))
+  }
+
+  private fun encode(value: Any?): String {
+    val output = ByteArrayOutputStream()
+    serializer.write(value, output)
+    return output.toByteArray().joinToString("") { "%02x".format(it) }
+  }
+
+  private fun decode(hex: String): Any? {
+    val bytes = hex.chunked(2).map { it.toInt(16).toByte() }.toByteArray()
+    return serializer.read(ByteArrayInputStream(bytes))
+  }
+}
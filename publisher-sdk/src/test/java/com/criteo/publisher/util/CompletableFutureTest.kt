@@ -0,0 +1,203 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.util
+
+import com.criteo.publisher.util.CompletableFuture.completedFuture
+import com.criteo.publisher.util.CompletableFuture.failedFuture
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatCode
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.verify
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class CompletableFutureTest {
+
+  @Test
+  fun complete_GivenAlreadyCompletedFuture_KeepFirstResult() {
+    val future = CompletableFuture<String>()
+
+    assertThat(future.complete("first")).isTrue()
+    assertThat(future.complete("second")).isFalse()
+    assertThat(future.completeExceptionally(IllegalStateException())).isFalse()
+
+    assertThat(future.isDone).isTrue()
+    assertThat(future.get()).isEqualTo("first")
+  }
+
+  @Test
+  fun get_GivenFailedFuture_ThrowExecutionExceptionWithCause() {
+    val exception = IllegalStateException()
+    val future = failedFuture<String>(exception)
+
+    assertThatCode { future.get() }
+        .isInstanceOf(ExecutionException::class.java)
+        .hasCause(exception)
+  }
+
+  @Test
+  fun get_GivenCancelledFuture_ThrowCancellationException() {
+    val future = CompletableFuture<String>()
+
+    assertThat(future.cancel(true)).isTrue()
+
+    assertThat(future.isCancelled).isTrue()
+    assertThatCode { future.get() }.isInstanceOf(CancellationException::class.java)
+  }
+
+  @Test
+  fun get_GivenFutureCompletedByAnotherThread_WaitForIt() {
+    val future = CompletableFuture<String>()
+    val executor = Executors.newSingleThreadScheduledExecutor()
+
+    executor.schedule({ future.complete("value") }, 50, TimeUnit.MILLISECONDS)
+
+    assertThat(future.get(1, TimeUnit.SECONDS)).isEqualTo("value")
+    executor.shutdown()
+  }
+
+  @Test
+  fun get_GivenTimeoutAndNotCompletedFuture_ThrowTimeoutException() {
+    val future = CompletableFuture<String>()
+
+    assertThatCode { future.get(10, TimeUnit.MILLISECONDS) }.isInstanceOf(TimeoutException::class.java)
+  }
+
+  @Test
+  fun whenComplete_GivenNotCompletedFuture_NotifyOnlyOnceCompleted() {
+    val future = CompletableFuture<String>()
+    val results = mutableListOf<Any?>()
+
+    future.whenComplete { value, _ -> results.add(value) }
+    assertThat(results).isEmpty()
+
+    future.complete("value")
+    future.complete("other")
+
+    assertThat(results).containsExactly("value")
+  }
+
+  @Test
+  fun whenComplete_GivenCompletedFuture_NotifyImmediately() {
+    val exception = IllegalStateException()
+    val results = mutableListOf<Any?>()
+
+    failedFuture<String>(exception).whenComplete { _, throwable -> results.add(throwable) }
+
+    assertThat(results).containsExactly(exception)
+  }
+
+  @Test
+  fun thenApply_GivenValue_ApplyFunction() {
+    val future = CompletableFuture<String>()
+
+    val applied = future.thenApply { it.length }
+    assertThat(applied.isDone).isFalse()
+
+    future.complete("value")
+
+    assertThat(applied.get()).isEqualTo(5)
+  }
+
+  @Test
+  fun thenApply_GivenFailureOrThrowingFunction_FailWithSameError() {
+    val exception = IllegalStateException()
+
+    val fromFailure = failedFuture<String>(exception).thenApply { it.length }
+    val fromFunction = completedFuture("value").thenApply<Int> { throw exception }
+
+    assertThatCode { fromFailure.get() }.hasCause(exception)
+    assertThatCode { fromFunction.get() }.hasCause(exception)
+  }
+
+  @Test
+  fun thenCompose_GivenValue_CompleteWithComposedFuture() {
+    val composed = CompletableFuture<Int>()
+
+    val future = completedFuture("value").thenCompose { composed }
+    assertThat(future.isDone).isFalse()
+
+    composed.complete(42)
+
+    assertThat(future.get()).isEqualTo(42)
+  }
+
+  @Test
+  fun thenCompose_GivenComposedFailure_FailWithSameError() {
+    val exception = IllegalStateException()
+
+    val future = completedFuture("value").thenCompose { failedFuture<Int>(exception) }
+
+    assertThatCode { future.get() }.hasCause(exception)
+  }
+
+  @Test
+  fun thenApplyAsync_GivenExecutor_ApplyFunctionInIt() {
+    val tasks = mutableListOf<Runnable>()
+
+    val future = completedFuture("value").thenApplyAsync({ it.length }, { tasks.add(it) })
+    assertThat(future.isDone).isFalse()
+
+    tasks.single().run()
+
+    assertThat(future.get()).isEqualTo(5)
+  }
+
+  @Test
+  fun withTimeout_GivenCompletionBeforeTimeout_CompleteAndCancelTimeout() {
+    val timeoutTask = mock<ScheduledFuture<*>>()
+    val scheduler = mock<ScheduledExecutorService> {
+      on { schedule(any<Runnable>(), any(), any()) } doReturn timeoutTask
+    }
+    val future = CompletableFuture<String>()
+
+    val bounded = future.withTimeout(10, TimeUnit.MILLISECONDS, scheduler)
+    future.complete("value")
+
+    assertThat(bounded.get()).isEqualTo("value")
+    verify(timeoutTask).cancel(false)
+  }
+
+  @Test
+  fun withTimeout_GivenTimeoutBeforeCompletion_FailWithTimeoutAndLeaveOriginalFutureUntouched() {
+    val scheduler = mock<ScheduledExecutorService>()
+    val future = CompletableFuture<String>()
+
+    val bounded = future.withTimeout(10, TimeUnit.MILLISECONDS, scheduler)
+
+    argumentCaptor<Runnable> {
+      verify(scheduler).schedule(capture(), eq(10L), eq(TimeUnit.MILLISECONDS))
+      firstValue.run()
+    }
+
+    assertThatCode { bounded.get() }.hasCauseInstanceOf(TimeoutException::class.java)
+    assertThat(future.isDone).isFalse()
+
+    future.complete("value")
+    assertThatCode { bounded.get() }.hasCauseInstanceOf(TimeoutException::class.java)
+  }
+}
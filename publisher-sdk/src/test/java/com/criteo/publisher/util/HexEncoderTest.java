@@ -0,0 +1,48 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class HexEncoderTest {
+
+  @Test
+  public void encode_GivenBytes_ReturnTwoLowerCaseDigitsPerByte() throws Exception {
+    String hex = HexEncoder.encode(new byte[] { 0x00, 0x0f, 0x10, (byte) 0xab, (byte) 0xff });
+
+    assertThat(hex).isEqualTo("000f10abff");
+  }
+
+  @Test
+  public void encode_GivenNoBytes_ReturnEmpty() throws Exception {
+    assertThat(HexEncoder.encode(new byte[0])).isEmpty();
+  }
+
+  @Test
+  public void encode_GivenLongs_WriteSameDigitsThanFormat() throws Exception {
+    long[] values = { 0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0x499602d2ce73cc42L };
+    char[] destination = new char[18];
+
+    for (long value : values) {
+      HexEncoder.encode(value, destination, 1);
+
+      assertThat(new String(destination, 1, 16)).isEqualTo(String.format("%016x", value));
+    }
+  }
+}
@@ -16,17 +16,27 @@
 
 package com.criteo.publisher.util
 
+import com.criteo.publisher.logging.RemoteLogRecords
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogContext
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogLevel
+import com.criteo.publisher.logging.RemoteLogRecords.RemoteLogRecord
 import com.criteo.publisher.mock.MockedDependenciesRule
+import com.criteo.publisher.mock.SpyBean
 import com.squareup.moshi.JsonClass
+import com.squareup.moshi.Moshi
+import org.assertj.core.api.Assertions.assertThat
 import org.assertj.core.api.Assertions.assertThatCode
 import org.junit.Rule
 import org.junit.Test
 import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.doThrow
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.never
 import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
 import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
 import java.io.EOFException
 import java.io.IOException
 import java.io.InputStream
@@ -42,6 +52,14 @@ class JsonSerializerTest {
   @Inject
   private lateinit var serializer: JsonSerializer
 
+  @Inject
+  private lateinit var moshi: Moshi
+
+  @SpyBean
+  private lateinit var buildConfigWrapper: BuildConfigWrapper
+
+  private val dummySerializer by lazy { JsonSerializer(moshi, listOf(Dummy::class.java)) }
+
   @Test
   fun write_GivenStreamThatThrowsWhenWriting_ThrowIoException() {
     val value = Dummy()
@@ -53,7 +71,7 @@ class JsonSerializerTest {
     }
 
     assertThatCode {
-      serializer.write(value, stream)
+      dummySerializer.write(value, stream)
     }.isInstanceOf(IOException::class.java)
   }
 
@@ -62,7 +80,7 @@ class JsonSerializerTest {
     val value = Dummy()
     val stream = mock<OutputStream>()
 
-    serializer.write(value, stream)
+    dummySerializer.write(value, stream)
 
     verify(stream).flush()
   }
@@ -72,22 +90,108 @@ class JsonSerializerTest {
     val value = Dummy()
     val stream = mock<OutputStream>()
 
-    serializer.write(value, stream)
+    dummySerializer.write(value, stream)
 
     verify(stream, never()).close()
   }
 
+  @Test
+  fun write_AfterFailedWrite_DoNotKeepContentOfFailedOne() {
+    val failingStream = mock<OutputStream> {
+      on { write(any(), any(), any()) } doThrow IOException::class
+    }
+    val stream = ByteArrayOutputStream()
+
+    assertThatCode {
+      dummySerializer.write(Dummy("failed"), failingStream)
+    }.isInstanceOf(IOException::class.java)
+    dummySerializer.write(Dummy("ok"), stream)
+
+    assertThat(stream.toString("UTF-8")).isEqualTo("""{"dummy":"ok"}""")
+  }
+
+  @Test
+  fun write_GivenListOfRegisteredType_WriteElementsWithTypedAdapter() {
+    val stream = ByteArrayOutputStream()
+    val logs = RemoteLogRecords(
+        RemoteLogContext("1.2.3", "app", null, "session", 42, null, null, null),
+        listOf()
+    )
+
+    serializer.write(listOf(logs), stream)
+
+    val expected = ByteArrayOutputStream().also { serializer.write(logs, it) }.toString("UTF-8")
+    assertThat(stream.toString("UTF-8")).isEqualTo("[$expected]")
+  }
+
+  @Test
+  fun fromJsonValue_GivenValuesOfToJsonValue_ReturnEqualObject() {
+    val logs = RemoteLogRecords(
+        RemoteLogContext("1.2.3", "app", null, "session", 42, null, null, null),
+        listOf(RemoteLogRecord(RemoteLogLevel.ERROR, listOf("message")))
+    )
+
+    val jsonValue = serializer.toJsonValue(logs)
+    val read = serializer.fromJsonValue(RemoteLogRecords::class.java, jsonValue)
+
+    assertThat(read).isEqualTo(logs)
+  }
+
+  @Test
+  fun fromJsonValue_GivenIncompatibleValues_ThrowIOException() {
+    assertThatCode {
+      serializer.fromJsonValue(RemoteLogRecords::class.java, mapOf("context" to "not an object"))
+    }.isInstanceOf(IOException::class.java)
+  }
+
+  @Test
+  fun registeredAdapters_GivenSdkSerializer_AreAllGeneratedWithoutReflection() {
+    // Reflective adapters (ClassJsonAdapter, KotlinJsonAdapter) are slower and are broken by code shrinking. So any
+    // type serialized by the SDK should have an adapter generated by Moshi codegen.
+    assertThat(serializer.registeredAdapters).isNotEmpty.allSatisfy { type, adapter ->
+      assertThat(adapter.toString()).describedAs(type.toString()).contains("GeneratedJsonAdapter")
+    }
+  }
+
+  @Test
+  fun write_GivenUnregisteredTypeInDebug_Throw() {
+    whenever(buildConfigWrapper.preconditionThrowsOnException()).doReturn(true)
+
+    assertThatCode {
+      serializer.write(Dummy(), ByteArrayOutputStream())
+    }.isInstanceOf(RuntimeException::class.java)
+  }
+
+  @Test
+  fun write_GivenUnregisteredTypeInRelease_FallBackOnMoshi() {
+    whenever(buildConfigWrapper.preconditionThrowsOnException()).doReturn(false)
+    val stream = ByteArrayOutputStream()
+
+    serializer.write(Dummy("ok"), stream)
+
+    assertThat(stream.toString("UTF-8")).isEqualTo("""{"dummy":"ok"}""")
+  }
+
+  @Test
+  fun writeJsonValue_GivenMapWithNullValues_KeepThem() {
+    val stream = ByteArrayOutputStream()
+
+    serializer.writeJsonValue(mapOf("a" to null, "b" to listOf(1L, "c")), stream)
+
+    assertThat(stream.toString("UTF-8")).isEqualTo("""{"a":null,"b":[1,"c"]}""")
+  }
+
   @Test
   fun read_GivenEmptyInputStream_ThrowEOF() {
     assertThatCode {
-      serializer.read(Dummy::class.java, "".toInputStream())
+      dummySerializer.read(Dummy::class.java, "".toInputStream())
     }.isInstanceOf(EOFException::class.java)
   }
 
   @Test
   fun read_GivenIllFormedJson_ThrowIOException() {
     assertThatCode {
-      serializer.read(Dummy::class.java, "{".toInputStream())
+      dummySerializer.read(Dummy::class.java, "{".toInputStream())
     }.isInstanceOf(IOException::class.java)
   }
 
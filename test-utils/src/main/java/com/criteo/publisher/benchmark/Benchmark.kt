@@ -0,0 +1,28 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.benchmark
+
+/**
+ * JUnit category of the tests only measuring and reporting timings.
+ *
+ * Timings depend on the machine running the tests, so those tests assert nothing and are excluded from the default
+ * test run. Run them with the `benchmarks` Gradle property, for instance
+ * `./gradlew :publisher-sdk:testDebugUnitTest -Pbenchmarks`.
+ *
+ * Assertions comparing results with the previous implementations stay in regular tests.
+ */
+interface Benchmark
@@ -0,0 +1,91 @@
+/*
+ *    Copyright 2020 Criteo
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.criteo.publisher.benchmark
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Return the mean time of the given operation in the given unit.
+ *
+ * The operation is first run without being measured so the JIT compiles it. With a single thread, the operation is run
+ * on the calling thread. With many threads, the operation is run concurrently by all of them and the time is measured
+ * from the start to the end of all the threads.
+ */
+fun measureTimePerOperation(
+    warmUpIterations: Int,
+    measuredIterations: Int,
+    unit: TimeUnit = TimeUnit.NANOSECONDS,
+    threads: Int = 1,
+    operation: () -> Unit
+): Double {
+  if (threads == 1) {
+    repeat(warmUpIterations) { operation() }
+
+    val startTime = System.nanoTime()
+    repeat(measuredIterations) { operation() }
+    return (System.nanoTime() - startTime).toDouble() / unit.toNanos(1) / measuredIterations
+  }
+
+  val executor = Executors.newFixedThreadPool(threads)
+  try {
+    repeat(threads) { executor.submit { repeat(warmUpIterations) { operation() } }.get() }
+
+    val start = CountDownLatch(1)
+    val end = CountDownLatch(threads)
+    val futures = (1..threads).map {
+      executor.submit {
+        try {
+          start.await()
+          repeat(measuredIterations) { operation() }
+        } finally {
+          end.countDown()
+        }
+      }
+    }
+
+    val startTime = System.nanoTime()
+    start.countDown()
+    check(end.await(1, TimeUnit.MINUTES)) { "Benchmark threads did not end within a minute" }
+    val elapsedTimeInNanos = (System.nanoTime() - startTime).toDouble()
+    futures.forEach { it.get() }
+    return elapsedTimeInNanos / unit.toNanos(1) / measuredIterations / threads
+  } finally {
+    executor.shutdownNow()
+  }
+}
+
+/**
+ * Print the given measures of a previous and a current implementation, and the ratio between them.
+ */
+fun reportComparison(
+    benchmarkName: String,
+    metric: String,
+    previous: Pair<String, Double>,
+    current: Pair<String, Double>
+) {
+  println(
+      "$benchmarkName benchmark - $metric: %s=%.2f %s=%.2f ratio=%.2f".format(
+          previous.first,
+          previous.second,
+          current.first,
+          current.second,
+          current.second / previous.second
+      )
+  )
+}
@@ -49,11 +49,16 @@ public class MultiThreadResource implements TestResource {
   @Override
   public void setUp() {
     TestDependencyProvider dependencyProvider = dependencyProviderRef.get();
-    Executor oldExecutor = dependencyProvider.provideThreadPoolExecutor();
+    SdkExecutors oldExecutors = dependencyProvider.provideSdkExecutors();
 
-    trackingCommandsExecutor = new TrackingCommandsExecutor(oldExecutor);
+    trackingCommandsExecutor = new TrackingCommandsExecutor(oldExecutors.getNetworkExecutor());
 
     dependencyProvider.inject(Executor.class, trackingCommandsExecutor);
+    dependencyProvider.inject(SdkExecutors.class, new SdkExecutors(
+        trackingCommandsExecutor,
+        trackingCommandsExecutor.track(oldExecutors.getDiskExecutor()),
+        trackingCommandsExecutor.track(oldExecutors.getCpuExecutor())
+    ));
     dependencyProvider.inject(AsyncResources.class, trackingCommandsExecutor.asAsyncResources());
     if (!InstrumentationUtil.isRunningInInstrumentationTest()) {
       // Main Lopper is not available in unit tests, so just execute code on current thread
@@ -34,6 +34,18 @@ public class TrackingCommandsExecutor implements Executor {
 
   @Override
   public void execute(@NonNull Runnable command) {
+    execute(delegate, command);
+  }
+
+  /**
+   * Return an executor running commands on the given delegate, and tracked along the ones of this
+   * executor.
+   */
+  public Executor track(Executor otherDelegate) {
+    return command -> execute(otherDelegate, command);
+  }
+
+  private void execute(@NonNull Executor delegate, @NonNull Runnable command) {
     CountDownLatch latch = new CountDownLatch(1);
     commandLatches.add(latch);
 
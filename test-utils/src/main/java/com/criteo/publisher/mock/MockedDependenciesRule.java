@@ -258,7 +258,7 @@ public class MockedDependenciesRule implements MethodRule {
     PubSdkApi spyApi = getDependencyProvider().providePubSdkApi();
 
     try {
-      doAnswer(captor).when(spyApi).loadCdb(any(), any());
+      doAnswer(captor).when(spyApi).loadCdb(any(), any(), any());
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
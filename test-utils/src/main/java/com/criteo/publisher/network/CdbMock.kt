@@ -40,6 +40,7 @@ import com.criteo.publisher.model.CdbRequestSlot
 import com.criteo.publisher.model.InterstitialAdUnit
 import com.criteo.publisher.model.NativeAdUnit
 import com.criteo.publisher.model.RewardedAdUnit
+import com.criteo.publisher.util.CborSerializer
 import com.criteo.publisher.util.JsonSerializer
 import okhttp3.mockwebserver.Dispatcher
 import okhttp3.mockwebserver.MockResponse
@@ -48,9 +49,14 @@ import okhttp3.mockwebserver.RecordedRequest
 import okhttp3.tls.HandshakeCertificates
 import okhttp3.tls.HeldCertificate
 import okio.Buffer
+import org.json.JSONArray
+import org.json.JSONObject
 import java.net.HttpURLConnection
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 
 @Suppress("TooManyFunctions")
 class CdbMock(private val jsonSerializer: JsonSerializer) {
@@ -66,10 +72,24 @@ class CdbMock(private val jsonSerializer: JsonSerializer) {
 
     private const val CONTENT_TYPE = "content-type"
     private const val TEXT_PLAIN = "text/plain; charset=utf-8"
+    private const val APPLICATION_CBOR = "application/cbor"
+
+    private const val SESSION_TOKEN = "sessionToken"
+    private const val CONTEXT_PATCH = "contextPatch"
+    private val SESSION_STATIC_KEYS = setOf("publisher", "user", "sdkVersion", "profileId", "gdprConsent", "regs")
   }
 
   private val mockWebServer = MockWebServer()
+  private val cborSerializer = CborSerializer()
   private var simulateSlowNetwork = AtomicBoolean(false)
+  private val isSessionEnabled = AtomicBoolean(false)
+  private val bidResponseDelayInMillis = AtomicLong(0)
+  private val isFailingBidRequests = AtomicBoolean(false)
+
+  /**
+   * Static context of bid requests registered under each session token.
+   */
+  private val sessions = ConcurrentHashMap<String, Map<String, Any?>>()
 
   val url: String
     get() = mockWebServer.url("").toString().let {
@@ -77,6 +97,12 @@ class CdbMock(private val jsonSerializer: JsonSerializer) {
       it.substring(0, it.length - 1)
     }
 
+  /**
+   * Number of requests received by this mock.
+   */
+  val requestCount: Int
+    get() = mockWebServer.requestCount
+
   fun start() {
     mockWebServer.dispatcher = CdbMockHandler()
     mockWebServer.useHttps()
@@ -137,6 +163,43 @@ class CdbMock(private val jsonSerializer: JsonSerializer) {
     simulateSlowNetwork.set(true)
   }
 
+  /**
+   * Open bid request sessions: bid responses contain a session token under which the static context of the request is
+   * registered. Requests containing a token are expanded back with the registered context and the given patch.
+   */
+  fun enableSessions() {
+    isSessionEnabled.set(true)
+  }
+
+  /**
+   * Forget all registered sessions, so next bid requests using a session token are rejected with a conflict.
+   */
+  fun expireSessions() {
+    sessions.clear()
+  }
+
+  /**
+   * Delay all next bid responses by the given duration, to simulate a slow CDB endpoint.
+   */
+  fun injectBidResponseDelay(delayInMillis: Long) {
+    bidResponseDelayInMillis.set(delayInMillis)
+  }
+
+  /**
+   * Answer all next bid requests with a server error if the given flag is `true`, to simulate a down CDB endpoint.
+   */
+  fun failBidRequests(isFailing: Boolean) {
+    isFailingBidRequests.set(isFailing)
+  }
+
+  /**
+   * Return the next request received by this mock, in order of reception.
+   *
+   * The [RecordedRequest.sequenceNumber] indicates how many requests were served before on the same connection. So it
+   * can be used to check that a connection was reused.
+   */
+  fun takeRequest(): RecordedRequest = mockWebServer.takeRequest()
+
   fun shutdown() {
     mockWebServer.shutdown()
   }
@@ -148,8 +211,9 @@ class CdbMock(private val jsonSerializer: JsonSerializer) {
       return when (request.requestUrl?.encodedPath) {
         "/csm" -> handleCsmRequest()
         "/config/app" -> handleConfigRequest()
-        "/inapp/v2" -> handleBidRequest(request.body)
+        "/inapp/v2" -> handleBidRequest(request)
         "/inapp/logs" -> handleLogsRequest()
+        "/inapp/telemetry" -> handleTelemetryRequest()
         "/delivery/ajs.php" -> handleCasperRequest(request)
         "/delivery/vast.php" -> handleWrappingVastCasperRequest(request)
         "/dsp/delivery/vast_wrapped.php" -> handleWrappedVastDspRequest(request)
@@ -184,6 +248,19 @@ class CdbMock(private val jsonSerializer: JsonSerializer) {
           .setHeader(CONTENT_TYPE, "application/octet-stream")
     }
 
+    private fun handleTelemetryRequest(): MockResponse {
+      return MockResponse()
+          .setHeader(CONTENT_TYPE, "application/json; charset=utf-8")
+          .setBody(
+              """
+            {
+              "csmAcknowledged": true,
+              "logsAcknowledged": true
+            }
+            """.trimIndent()
+          )
+    }
+
     @Suppress("MaxLineLength")
     private fun handleConfigRequest(): MockResponse {
       return MockResponse()
@@ -204,34 +281,131 @@ class CdbMock(private val jsonSerializer: JsonSerializer) {
               "liveBiddingTimeBudgetInMillis": 8000,
               "prefetchOnInitEnabled": true,
               "remoteLogLevel": "Warning",
-              "mraidEnabled": false
+              "mraidEnabled": false,
+              "interstitialCreativePrefetchEnabled": false,
+              "cdbBinaryProtocolEnabled": false,
+              "bidRequestCoalescingWindowInMillis": 0,
+              "telemetryEnvelopeEnabled": false,
+              "cdbUrls": []
             }
           """
           )
     }
 
-    private fun handleBidRequest(body: Buffer): MockResponse {
-      val cdbRequest = jsonSerializer.read(CdbRequest::class.java, body.inputStream())
+    private fun handleBidRequest(request: RecordedRequest): MockResponse {
+      if (isFailingBidRequests.get()) {
+        return MockResponse().setResponseCode(HttpURLConnection.HTTP_UNAVAILABLE)
+      }
+
+      return handleAvailableBidRequest(request)
+          .setHeadersDelay(bidResponseDelayInMillis.get(), TimeUnit.MILLISECONDS)
+    }
+
+    private fun handleAvailableBidRequest(request: RecordedRequest): MockResponse {
+      val isBinaryRequest = request.getHeader(CONTENT_TYPE)?.startsWith(APPLICATION_CBOR) == true
+      val acceptsBinaryResponse = request.getHeader("accept")?.contains(APPLICATION_CBOR) == true
+      @Suppress("UNCHECKED_CAST")
+      val jsonValue = if (isBinaryRequest) {
+        cborSerializer.read(request.body.inputStream())
+      } else {
+        JSONObject(request.body.readUtf8()).toJsonValue()
+      } as Map<String, Any?>
+
+      val fullRequest = if (isSessionEnabled.get()) {
+        jsonValue.expandSession() ?: return MockResponse().setResponseCode(HttpURLConnection.HTTP_CONFLICT)
+      } else {
+        jsonValue
+      }
+
+      val json = JSONObject.wrap(fullRequest).toString()
+      val cdbRequest = jsonSerializer.read(CdbRequest::class.java, json.byteInputStream())
 
       if (shouldNotBid(cdbRequest)) {
         return MockResponse().setResponseCode(HttpURLConnection.HTTP_NO_CONTENT)
       }
 
       val responseSlots = cdbRequest.slots.map { it.toResponseSlot() }.joinToString()
+      val sessionToken = if (isSessionEnabled.get()) {
+        val token = registerSession(jsonValue[SESSION_TOKEN] as String?, fullRequest)
+        "\"$SESSION_TOKEN\": \"$token\","
+      } else {
+        ""
+      }
 
       val cdbResponse = """
       {
+        $sessionToken
         "slots": [$responseSlots],
         "requestId":"${cdbRequest.id}",
         "consentGiven": true
       }
     """.trimIndent()
 
+      if (acceptsBinaryResponse) {
+        val body = Buffer()
+        cborSerializer.write(JSONObject(cdbResponse).toJsonValue(), body.outputStream())
+        return MockResponse()
+            .setHeader(CONTENT_TYPE, APPLICATION_CBOR)
+            .setBody(body)
+      }
+
       return MockResponse()
           .setHeader(CONTENT_TYPE, "application/json; charset=utf-8")
           .setBody(cdbResponse)
     }
 
+    /**
+     * Rebuild the full bid request from the registered context and the patch, or return `null` if the session token
+     * is unknown. Requests without session token are already full ones.
+     */
+    private fun Map<String, Any?>.expandSession(): Map<String, Any?>? {
+      val token = this[SESSION_TOKEN] as String? ?: return this
+      val registeredContext = sessions[token] ?: return null
+
+      @Suppress("UNCHECKED_CAST")
+      val patch = this[CONTEXT_PATCH] as Map<String, Any?>? ?: emptyMap()
+      return applyMergePatch(registeredContext, patch) + (this - SESSION_TOKEN - CONTEXT_PATCH)
+    }
+
+    /**
+     * Return the token under which the context of the given request is registered, opening a new session if the
+     * context changed. Previous sessions stay valid, as requests based on them may still be in flight.
+     */
+    private fun registerSession(requestToken: String?, fullRequest: Map<String, Any?>): String {
+      val context = fullRequest.filterKeys { it in SESSION_STATIC_KEYS }
+      if (requestToken != null && sessions[requestToken] == context) {
+        return requestToken
+      }
+
+      val newToken = UUID.randomUUID().toString()
+      sessions[newToken] = context
+      return newToken
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun applyMergePatch(target: Map<String, Any?>, patch: Map<String, Any?>): Map<String, Any?> {
+      val result = target.toMutableMap()
+      patch.forEach { (key, patchValue) ->
+        val targetValue = result[key]
+        when {
+          patchValue == null -> result.remove(key)
+          patchValue is Map<*, *> && targetValue is Map<*, *> -> result[key] = applyMergePatch(
+              targetValue as Map<String, Any?>,
+              patchValue as Map<String, Any?>
+          )
+          else -> result[key] = patchValue
+        }
+      }
+      return result
+    }
+
+    private fun Any?.toJsonValue(): Any? = when (this) {
+      is JSONObject -> keys().asSequence().associateWith { get(it).toJsonValue() }
+      is JSONArray -> (0 until length()).map { get(it).toJsonValue() }
+      JSONObject.NULL -> null
+      else -> this
+    }
+
     private fun shouldNotBid(cdbRequest: CdbRequest) =
         cdbRequest.gdprData?.consentData in setOf(TCF1_CONSENT_NOT_GIVEN, TCF2_CONSENT_NOT_GIVEN)
 